@@ -74,6 +74,14 @@ public interface Archive {
         return split;
     }
 
+    /**
+     * @return a number which changes whenever the archived individuals change, so that structures
+     * built from them know when to rebuild; this default implementation returns -1, meaning unknown
+     */
+    default long getModificationCount() {
+        return -1;
+    }
+
     default int getActualMaxRank() {
         return INVALID_RANK;
     }
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import pl.a2s.ms.core.util.DistanceKernel;
+
+/**
+ * ND-Tree index of a set of mutually non-dominated objective vectors
+ * (Jaszkiewicz and Lust, 2018), assuming minimization.
+ * <p>
+ * Every node keeps the ideal and nadir point of its subtree, which allows to skip or accept
+ * whole subtrees in dominance queries. Points are kept together with arbitrary values.
+ *
+ * @param <T> type of the values
+ */
+class NDTree<T> {
+
+    private static final int DEFAULT_MAX_LEAF_SIZE = 20;
+
+    private final int objectiveCount;
+    private final int maxLeafSize;
+    private final int branching;
+    private Node<T> root = new Node<>();
+    private int size;
+
+    NDTree(int objectiveCount) {
+        this(objectiveCount, DEFAULT_MAX_LEAF_SIZE, objectiveCount + 1);
+    }
+
+    NDTree(int objectiveCount, int maxLeafSize, int branching) {
+        this.objectiveCount = objectiveCount;
+        this.maxLeafSize = maxLeafSize;
+        this.branching = Math.max(2, Math.min(branching, maxLeafSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getObjectiveCount() {
+        return objectiveCount;
+    }
+
+    /**
+     * @return true if any point of the tree dominates p
+     */
+    boolean isDominated(double[] p) {
+        return isDominated(root, p);
+    }
+
+    /**
+     * Removes all points dominated by p.
+     *
+     * @return values of the removed points
+     */
+    List<T> removeDominatedBy(double[] p) {
+        final List<T> removed = new ArrayList<>();
+        removeDominatedBy(root, p, removed);
+        if (root.isEmpty()) {
+            root = new Node<>();
+        }
+        size -= removed.size();
+        return removed;
+    }
+
+    /**
+     * Inserts a point. The caller is responsible for keeping the set non-dominated.
+     */
+    void insert(T value, double[] p) {
+        if (p.length != objectiveCount) {
+            throw new IllegalArgumentException("Expected " + objectiveCount + " objectives, got " + p.length);
+        }
+        insert(root, new Entry<>(value, p));
+        size++;
+    }
+
+    void forEach(BiConsumer<T, double[]> consumer) {
+        forEach(root, consumer);
+    }
+
+    private boolean isDominated(Node<T> node, double[] p) {
+        if (node.isEmpty() || !weaklyDominates(node.ideal, p)) {
+            return false;
+        }
+        if (dominates(node.nadir, p)) {
+            return true;
+        }
+        if (node.isLeaf()) {
+            for (final Entry<T> e : node.entries) {
+                if (dominates(e.point, p)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (final Node<T> child : node.children) {
+            if (isDominated(child, p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeDominatedBy(Node<T> node, double[] p, List<T> removed) {
+        if (node.isEmpty() || !weaklyDominates(p, node.nadir)) {
+            return;
+        }
+        if (dominates(p, node.ideal)) {
+            collect(node, removed);
+            node.entries = new ArrayList<>();
+            node.children = null;
+            node.updateBounds();
+            return;
+        }
+        if (node.isLeaf()) {
+            if (node.entries.removeIf(e -> {
+                if (dominates(p, e.point)) {
+                    removed.add(e.value);
+                    return true;
+                }
+                return false;
+            })) {
+                node.updateBounds();
+            }
+            return;
+        }
+        final int before = removed.size();
+        for (final Node<T> child : node.children) {
+            removeDominatedBy(child, p, removed);
+        }
+        if (removed.size() == before) {
+            return;
+        }
+        node.children.removeIf(Node::isEmpty);
+        if (node.children.isEmpty()) {
+            node.children = null;
+            node.entries = new ArrayList<>();
+        } else if (node.children.size() == 1) {
+            final Node<T> child = node.children.get(0);
+            node.children = child.children;
+            node.entries = child.entries;
+        }
+        node.updateBounds();
+    }
+
+    private void insert(Node<T> node, Entry<T> e) {
+        node.extendBounds(e.point);
+        if (node.isLeaf()) {
+            node.entries.add(e);
+            if (node.entries.size() > maxLeafSize) {
+                split(node);
+            }
+            return;
+        }
+        Node<T> closest = null;
+        double closestDist = Double.POSITIVE_INFINITY;
+        for (final Node<T> child : node.children) {
+            final double dist = child.distanceToMiddle(e.point);
+            if (dist < closestDist) {
+                closestDist = dist;
+                closest = child;
+            }
+        }
+        insert(closest, e);
+    }
+
+    private void split(Node<T> node) {
+        final List<Entry<T>> entries = node.entries;
+        final int n = entries.size();
+        final boolean[] used = new boolean[n];
+        final List<Node<T>> children = new ArrayList<>(branching);
+
+        // the first seed is the point with the largest average distance to the others
+        int first = 0;
+        double firstDist = -1.;
+        for (int i = 0; i < n; i++) {
+            double sum = 0.;
+            for (int j = 0; j < n; j++) {
+                sum += DistanceKernel.distance(entries.get(i).point, entries.get(j).point);
+            }
+            if (sum > firstDist) {
+                firstDist = sum;
+                first = i;
+            }
+        }
+        addSeed(children, entries.get(first));
+        used[first] = true;
+
+        // next seeds maximize the distance to the closest seed chosen so far
+        while (children.size() < branching) {
+            int best = -1;
+            double bestDist = -1.;
+            for (int i = 0; i < n; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                double minDist = Double.POSITIVE_INFINITY;
+                for (final Node<T> child : children) {
+                    minDist = Math.min(minDist, DistanceKernel.distance(child.entries.get(0).point, entries.get(i).point));
+                }
+                if (minDist > bestDist) {
+                    bestDist = minDist;
+                    best = i;
+                }
+            }
+            addSeed(children, entries.get(best));
+            used[best] = true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (used[i]) {
+                continue;
+            }
+            final Entry<T> e = entries.get(i);
+            Node<T> closest = null;
+            double closestDist = Double.POSITIVE_INFINITY;
+            for (final Node<T> child : children) {
+                final double dist = child.distanceToMiddle(e.point);
+                if (dist < closestDist) {
+                    closestDist = dist;
+                    closest = child;
+                }
+            }
+            closest.entries.add(e);
+            closest.extendBounds(e.point);
+        }
+        node.entries = null;
+        node.children = children;
+    }
+
+    private static <T> void addSeed(List<Node<T>> children, Entry<T> seed) {
+        final Node<T> child = new Node<>();
+        child.entries.add(seed);
+        child.extendBounds(seed.point);
+        children.add(child);
+    }
+
+    private static <T> void collect(Node<T> node, List<T> out) {
+        forEach(node, (value, point) -> out.add(value));
+    }
+
+    private static <T> void forEach(Node<T> node, BiConsumer<T, double[]> consumer) {
+        if (node.isLeaf()) {
+            for (final Entry<T> e : node.entries) {
+                consumer.accept(e.value, e.point);
+            }
+        } else {
+            for (final Node<T> child : node.children) {
+                forEach(child, consumer);
+            }
+        }
+    }
+
+    static boolean weaklyDominates(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean dominates(double[] a, double[] b) {
+        boolean oneSmaller = false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > b[i]) {
+                return false;
+            }
+            if (a[i] < b[i]) {
+                oneSmaller = true;
+            }
+        }
+        return oneSmaller;
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final double[] point;
+
+        Entry(T value, double[] point) {
+            this.value = value;
+            this.point = point;
+        }
+    }
+
+    private static class Node<T> {
+        // exactly one of entries (leaf) and children (internal node) is not null
+        List<Entry<T>> entries = new ArrayList<>();
+        List<Node<T>> children;
+        double[] ideal;
+        double[] nadir;
+
+        boolean isLeaf() {
+            return children == null;
+        }
+
+        boolean isEmpty() {
+            return isLeaf() && entries.isEmpty();
+        }
+
+        void extendBounds(double[] p) {
+            if (ideal == null) {
+                ideal = p.clone();
+                nadir = p.clone();
+                return;
+            }
+            for (int i = 0; i < p.length; i++) {
+                ideal[i] = Math.min(ideal[i], p[i]);
+                nadir[i] = Math.max(nadir[i], p[i]);
+            }
+        }
+
+        void updateBounds() {
+            ideal = null;
+            nadir = null;
+            if (isLeaf()) {
+                for (final Entry<T> e : entries) {
+                    extendBounds(e.point);
+                }
+            } else {
+                for (final Node<T> child : children) {
+                    extendBounds(child.ideal);
+                    extendBounds(child.nadir);
+                }
+            }
+        }
+
+        double distanceToMiddle(double[] p) {
+            double sum = 0.;
+            for (int i = 0; i < p.length; i++) {
+                final double d = p[i] - (ideal[i] + nadir[i]) / 2.;
+                sum += d * d;
+            }
+            return sum;
+        }
+    }
+
+}
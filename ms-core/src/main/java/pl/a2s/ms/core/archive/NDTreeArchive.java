@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.archive;
+
+import lombok.Getter;
+import lombok.ToString;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.LocatedIndividual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.RankedIndividual;
+import pl.a2s.ms.core.orch.hgs.Deme;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link RankedArchive} keeping every non-domination front in a separate {@link NDTree}.
+ * <p>
+ * Ranks are maintained incrementally: a new individual goes to the first front which does not
+ * dominate it (found by a binary search over the fronts) and the individuals it dominates
+ * are pushed one front down, which in turn may push down the individuals they dominate.
+ * Individuals pushed beyond {@link #getMaxRank()} are dropped. The archive contents and ranks
+ * are the same as in {@link RankingArchive} with the same maximal rank.
+ */
+@ToString(of = { "enabled", "maxRank" })
+public class NDTreeArchive implements RankedArchive {
+
+    @Getter private int maxRank;
+    @Getter private final boolean enabled;
+    private final List<NDTree<Item>> fronts = new ArrayList<>();
+    private long nextSeq;
+    @Getter private long modificationCount;
+
+    private static class Item {
+        final LocatedIndividual ind;
+        final long seq;
+
+        Item(LocatedIndividual ind, long seq) {
+            this.ind = ind;
+            this.seq = seq;
+        }
+    }
+
+    public NDTreeArchive(boolean enabled, int maxRank) {
+        this.enabled = enabled;
+        this.maxRank = maxRank;
+    }
+
+    @Override
+    public void setMaxRank(int maxRank) {
+        this.maxRank = maxRank;
+        while (isBounded() && fronts.size() > maxRank + 1) {
+            fronts.remove(fronts.size() - 1);
+            modificationCount++;
+        }
+    }
+
+    /**
+     * This implementation remembers the origin.
+     */
+    @Override
+    public void addAllFrom(Deme origin) {
+        for (final Individual ind : origin.getPopulation().getIndividuals()) {
+            insert(RankingArchive.coerce(ind, origin));
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends Individual> c) {
+        final Deme nullDeme = Deme.builder()
+                .name(NULL_DEME_NAME)
+                .population(new Population(c))
+                .build();
+        addAllFrom(nullDeme);
+    }
+
+    @Override
+    public void addAll(Individual... individuals) {
+        addAll(Arrays.asList(individuals));
+    }
+
+    @Override
+    public void add(Individual individual) {
+        addAll(individual);
+    }
+
+    private void insert(LocatedIndividual ind) {
+        final double[] obj = ind.getObjectives();
+        if (obj == null) {
+            throw new IllegalArgumentException("Cannot archive an individual without objectives");
+        }
+        int rank = findFront(obj);
+        List<Item> moving = Collections.singletonList(new Item(ind, nextSeq++));
+        modificationCount++;
+        while (!moving.isEmpty() && (!isBounded() || rank <= maxRank)) {
+            if (rank == fronts.size()) {
+                fronts.add(new NDTree<>(obj.length));
+            }
+            final NDTree<Item> front = fronts.get(rank);
+            final List<Item> displaced = new ArrayList<>();
+            for (final Item item : moving) {
+                displaced.addAll(front.removeDominatedBy(item.ind.getObjectives()));
+            }
+            for (final Item item : moving) {
+                front.insert(item, item.ind.getObjectives());
+            }
+            moving = displaced;
+            rank++;
+        }
+    }
+
+    /**
+     * @return index of the first front not dominating obj
+     */
+    private int findFront(double[] obj) {
+        int lo = 0;
+        int hi = fronts.size();
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (fronts.get(mid).isDominated(obj)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private boolean isBounded() {
+        return maxRank >= 0 && maxRank < Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return archived individuals with their ranks, in the order of insertion
+     */
+    private List<RankedIndividual> rankedIndividuals() {
+        final List<Item> items = new ArrayList<>();
+        final Map<Item, Integer> ranks = new HashMap<>();
+        for (int rank = 0; rank < fronts.size(); rank++) {
+            final int r = rank;
+            fronts.get(rank).forEach((item, obj) -> {
+                items.add(item);
+                ranks.put(item, r);
+            });
+        }
+        items.sort(Comparator.comparingLong(item -> item.seq));
+        return items.stream()
+                .map(item -> new RankedIndividual(item.ind, ranks.get(item)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns individuals from this archive.
+     * This implementation removes the information about the localization
+     * from the individuals (intentionally).
+     */
+    @Override
+    public List<Individual> getIndividuals() {
+        return rankedIndividuals().stream()
+                .map(ri -> RankingArchive.evict(ri.getIndividual()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Population getPopulation() {
+        return Population.of(rankedIndividuals(), true);
+    }
+
+    @Override
+    public List<LocatedIndividual> getLocatedIndividuals() {
+        return rankedIndividuals().stream()
+                .map(ri -> (LocatedIndividual) ri.getIndividual())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Performs pre-clustering of this archive grouping the individuals
+     * with respect to the demes of origin. This operation preserves
+     * the ranks of individuals.
+     */
+    @Override
+    public Map<String, Population> splitAlongDemes() {
+        final Map<String, List<RankedIndividual>> pops = rankedIndividuals().stream()
+                .collect(Collectors.groupingBy(
+                        ri -> ((LocatedIndividual) ri.getIndividual()).getLocationName()));
+        final Map<String, Population> split = new HashMap<>();
+        for (final Map.Entry<String, List<RankedIndividual>> e : pops.entrySet()) {
+            split.put(e.getKey(), Population.of(e.getValue(), true));
+        }
+        return split;
+    }
+
+    @Override
+    public int getActualMaxRank() {
+        return fronts.isEmpty() ? 0 : fronts.size() - 1;
+    }
+
+}
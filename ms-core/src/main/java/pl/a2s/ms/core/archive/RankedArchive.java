@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.archive;
+
+import pl.a2s.ms.core.ind.LocatedIndividual;
+import pl.a2s.ms.core.ind.Population;
+
+import java.util.List;
+
+/**
+ * An {@link Archive} keeping individuals up to a given non-domination rank
+ * together with their demes of origin.
+ */
+public interface RankedArchive extends Archive {
+
+    /**
+     * @return the maximal retained rank, negative if unlimited
+     */
+    int getMaxRank();
+
+    void setMaxRank(int maxRank);
+
+    /**
+     * Returns {@link Population} of individuals from this archive, with their ranks
+     * and without the information about the localization.
+     *
+     * @return ranked population
+     */
+    Population getPopulation();
+
+    /**
+     * @return individuals from this archive along with the information about the localization
+     */
+    List<LocatedIndividual> getLocatedIndividuals();
+
+}
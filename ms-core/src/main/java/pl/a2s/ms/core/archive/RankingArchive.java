@@ -28,11 +28,12 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @ToString
-public class RankingArchive implements Archive {
+public class RankingArchive implements RankedArchive {
 
     @Getter @Setter private int maxRank;
     @Getter private final boolean enabled;
     private Population population = new Population(0);
+    @Getter private long modificationCount;
 
     public RankingArchive(boolean enabled, int maxRank) {
         this.enabled = enabled;
@@ -55,13 +56,14 @@ public class RankingArchive implements Archive {
                 .collect(Collectors.toList())
                 );
         population = new Population(inds);
+        modificationCount++;
         population.updateRanks();
         if (maxRank >= 0 && maxRank < Integer.MAX_VALUE) {
             population = population.select(ri -> ri.getRank() <= maxRank);
         }
     }
 
-    private static LocatedIndividual coerce(Individual ind, Deme origin) {
+    static LocatedIndividual coerce(Individual ind, Deme origin) {
         LocatedIndividual coerced;
         if (ind instanceof ContainerIndividual) {
             final Individual sind = new SimpleIndividual(ind.getPoint());
@@ -110,6 +112,7 @@ public class RankingArchive implements Archive {
      * This implementation removes the information about the localization
      * from the individuals (intentionally).
      */
+    @Override
     public Population getPopulation() {
         return Population.of(population, true);
     }
@@ -120,13 +123,14 @@ public class RankingArchive implements Archive {
      * <strong>Use with caution!</strong> Probably will get removed.
      * @return list of individuals from this archive
      */
+    @Override
     public List<LocatedIndividual> getLocatedIndividuals() {
         return Arrays.stream(population.getIndividuals())
                 .map(i -> (LocatedIndividual) i)
                 .collect(Collectors.toList());
     }
 
-    private static Individual evict(Individual ind) {
+    static Individual evict(Individual ind) {
         if (!(ind instanceof LocatedIndividual)) {
             return ind;
         }
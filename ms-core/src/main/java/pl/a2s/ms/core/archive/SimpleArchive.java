@@ -18,7 +18,10 @@
 package pl.a2s.ms.core.archive;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import pl.a2s.ms.core.ind.Individual;
 import lombok.Getter;
@@ -32,23 +35,36 @@ public class SimpleArchive implements Archive {
     @Getter
     private final boolean enabled;
 
+    @Getter
+    private long modificationCount;
+
+    /// non-dominated index of individuals, created with the first added individual
+    @ToString.Exclude
+    private NDTree<Individual> index;
+
     public SimpleArchive(boolean enabled) {
         this.enabled = enabled;
     }
 
     public void add(Individual individual) {
-        final List<Individual> toRemove = new ArrayList<>();
-        for (final Individual ind: individuals) {
-            if (ind.dominates(individual)) {
-                if (!toRemove.isEmpty()) {
-                    throw new IllegalStateException("toRemove should be empty in case individual is dominated");
-                }
-                return;
-            } else if (individual.dominates(ind)) {
-                toRemove.add(ind);
-            }
+        final double[] obj = individual.getObjectives();
+        if (obj == null) {
+            throw new IllegalArgumentException("Cannot archive an individual without objectives");
+        }
+        if (index == null) {
+            index = new NDTree<>(obj.length);
+        }
+        if (index.isDominated(obj)) {
+            return;
+        }
+        final List<Individual> toRemove = index.removeDominatedBy(obj);
+        if (!toRemove.isEmpty()) {
+            final Set<Individual> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(toRemove);
+            individuals.removeIf(removed::contains);
         }
-        individuals.removeAll(toRemove);
+        index.insert(individual, obj);
         individuals.add(individual);
+        modificationCount++;
     }
 }
@@ -17,10 +17,8 @@
 
 package pl.a2s.ms.core.clu;
 
-import org.apache.commons.math3.linear.MatrixUtils;
-import org.apache.commons.math3.linear.RealMatrix;
 import pl.a2s.ms.core.cmaes.CMAES;
-import pl.a2s.ms.core.cmaes.CMAESOptimizer;
+import pl.a2s.ms.core.cmaes.CMAESStrategy;
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.orch.hgs.Deme;
 import pl.a2s.ms.core.orch.hgs.HgsState;
@@ -29,47 +27,36 @@ import pl.a2s.ms.core.util.ArraysUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 public class CMADemeToClusterConverter {
 
     public List<Cluster> convert(HgsState state) {
-        final List<Ellipsoid> ellipsoids = new ArrayList<>();
         final Level level = ArraysUtil.last(state.getHgsDemes());
         if (!(level.getEvoAlg() instanceof CMAES)) {
             throw new IllegalStateException("Last level doesn't have CMAES set as evoAlg");
         }
         final CMAES levelCmaEs = (CMAES) level.getEvoAlg();
+        final EllipsoidMembership ellipsoids = new EllipsoidMembership(state.getDomain().length);
         for (final Deme deme: level.getDemes()) {
-            final CMAESOptimizer cmaesOptimizer = levelCmaEs.getOptimizer(deme);
+            final CMAESStrategy cmaesOptimizer = levelCmaEs.getOptimizer(deme);
             try {
-            ellipsoids.add(Ellipsoid.builder()
-                    .mean(cmaesOptimizer.getXmean())
-                    .invCov(MatrixUtils.inverse(cmaesOptimizer.getC()))
-                    .sigma(cmaesOptimizer.getSigma())
-                    .build());
+                // a covariance which isn't positive definite isn't added, the ellipsoid doesn't exist then
+                ellipsoids.add(cmaesOptimizer.getXmean(), cmaesOptimizer.getC(), cmaesOptimizer.getSigma());
             } catch (final Exception ex) {
                 // basically ignore, the ellipsoid doesn't exist in this case
             }
         }
         final List<Cluster> clusters = new ArrayList<>();
         for (final Deme deme: level.getDemes()) {
-            final List<Individual> inds = new LinkedList<>();
+            final List<Individual> inds = new ArrayList<>();
             for (final Deme.HistoryItem hi: deme.getHistory()) {
                 inds.addAll(Arrays.asList(hi.getPopulation().getIndividuals()));
             }
             inds.addAll(Arrays.asList(deme.getPopulation().getIndividuals()));
             final Cluster cluster = new Cluster();
             final List<Individual> cluInds = cluster.getIndividuals();
-            for (final Individual ind: inds) {
-                final RealMatrix point = MatrixUtils.createColumnRealMatrix(ind.getPoint());
-                for (final Ellipsoid el: ellipsoids) {
-                    if (el.mahalanobisDistance(point) <= 1) {
-                        cluInds.add(ind);
-                    }
-                }
-            }
+            cluInds.addAll(ellipsoids.contained(inds));
             if (cluInds.size() > 0) {
                 clusters.add(cluster);
             }
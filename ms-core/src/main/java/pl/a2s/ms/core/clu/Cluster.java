@@ -22,42 +22,22 @@ import pl.a2s.ms.core.ind.Individual;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 @Data
 public class Cluster {
     private final List<Individual> individuals = new ArrayList<>();
 
+    /**
+     * @see ClusterMergeStrategies#merge(Cluster, Cluster)
+     */
     public static Cluster merge(Cluster first, Cluster second) {
-        final Cluster cluster = new Cluster();
-        final List<Individual> individuals = cluster.getIndividuals();
-        // deliberately don't use List::addAll, to check the first cluster for duplicates too
-        Stream.concat(first.getIndividuals().stream(), second.getIndividuals().stream())
-            .forEach((ind) -> {
-                if (!individuals.contains(ind)) {
-                    individuals.add(ind);
-                }
-            });
-        return cluster;
+        return ClusterMergeStrategies.merge(first, second);
     }
 
+    /**
+     * @see ClusterMergeStrategies#mergeDominating(Cluster, Cluster)
+     */
     public static Cluster mergeDominating(Cluster first, Cluster second) {
-        final Cluster cluster = new Cluster();
-        final List<Individual> individuals = cluster.getIndividuals();
-        individuals.addAll(first.getIndividuals());
-        for (final Individual sInd: second.getIndividuals()) {
-            final List<Individual> toRemove = new ArrayList<>();
-            for (final Individual ind: individuals) {
-                if (!ind.dominates(sInd) && sInd.dominates(ind)) {
-                    toRemove.add(ind);
-                }
-            }
-            if (!toRemove.isEmpty()) {
-                individuals.removeAll(toRemove);
-                individuals.add(sInd);
-            }
-        }
-
-        return cluster;
+        return ClusterMergeStrategies.mergeDominating(first, second);
     }
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.util.ArraysUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link ClusterMergeStrategy} implementations for large clusters.
+ * <p>
+ * Duplicates are found with an open-addressing hash table keyed on the bit patterns
+ * of the points, which are what {@link Individual} implementations compare in equals,
+ * so the candidates are only confirmed with equals.
+ */
+public class ClusterMergeStrategies {
+
+    /// union of the clusters without duplicates, see {@link #merge(Cluster, Cluster)}
+    public static final ClusterMergeStrategy UNION = ClusterMergeStrategies::merge;
+    /// see {@link #mergeDominating(Cluster, Cluster)}
+    public static final ClusterMergeStrategy DOMINATING = ClusterMergeStrategies::mergeDominating;
+
+    /**
+     * Merges the clusters keeping the first of equal individuals, in the order of the first
+     * and then of the second cluster. Runs in expected O(a + b) time.
+     */
+    public static Cluster merge(Cluster first, Cluster second) {
+        final List<Individual> firstInds = first.getIndividuals();
+        final List<Individual> secondInds = second.getIndividuals();
+        final Cluster cluster = new Cluster();
+        final List<Individual> individuals = cluster.getIndividuals();
+        final IndividualSet seen = new IndividualSet(firstInds.size() + secondInds.size());
+        for (final Individual ind : firstInds) {
+            if (seen.add(ind)) {
+                individuals.add(ind);
+            }
+        }
+        for (final Individual ind : secondInds) {
+            if (seen.add(ind)) {
+                individuals.add(ind);
+            }
+        }
+        return cluster;
+    }
+
+    /**
+     * Starts with the individuals of the first cluster and goes through the second one in order.
+     * An individual of the second cluster replaces all current individuals it dominates,
+     * and is dropped if it dominates none. For two objectives this runs in O(N log N),
+     * other cases fall back to comparing the individuals pairwise.
+     * <p>
+     * Individuals at equal points are assumed to have equal objectives.
+     */
+    public static Cluster mergeDominating(Cluster first, Cluster second) {
+        final List<Individual> firstInds = first.getIndividuals();
+        final List<Individual> secondInds = second.getIndividuals();
+        final int n = firstInds.size() + secondInds.size();
+        final Individual[] all = new Individual[n];
+        for (int i = 0; i < n; i++) {
+            all[i] = i < firstInds.size() ? firstInds.get(i) : secondInds.get(i - firstInds.size());
+        }
+        final boolean[] alive = new boolean[n];
+        Arrays.fill(alive, 0, firstInds.size(), true);
+        if (hasTwoObjectives(all)) {
+            mergeDominating2D(all, firstInds.size(), alive);
+        } else {
+            mergeDominatingPairwise(all, firstInds.size(), alive);
+        }
+        final Cluster cluster = new Cluster();
+        for (int i = 0; i < n; i++) {
+            if (alive[i]) {
+                cluster.getIndividuals().add(all[i]);
+            }
+        }
+        return cluster;
+    }
+
+    private static boolean hasTwoObjectives(Individual[] all) {
+        for (final Individual ind : all) {
+            final double[] obj = ind.getObjectives();
+            if (obj == null || obj.length != 2 || Double.isNaN(obj[0]) || Double.isNaN(obj[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void mergeDominatingPairwise(Individual[] all, int firstSize, boolean[] alive) {
+        for (int s = firstSize; s < all.length; s++) {
+            final Individual sInd = all[s];
+            final IndividualSet removed = new IndividualSet(4);
+            for (int i = 0; i < s; i++) {
+                if (alive[i] && !all[i].dominates(sInd) && sInd.dominates(all[i])) {
+                    removed.add(all[i]);
+                }
+            }
+            if (removed.size() > 0) {
+                // as List.removeAll, drops the individuals equal to the dominated ones too
+                for (int i = 0; i < s; i++) {
+                    if (alive[i] && removed.contains(all[i])) {
+                        alive[i] = false;
+                    }
+                }
+                alive[s] = true;
+            }
+        }
+    }
+
+    /**
+     * Keeps the individuals sorted by objectives in a segment tree of the second objective
+     * of the alive ones, so that the individuals dominated by a new one, i.e. those after it
+     * in the order with the second objective not lower, are found in O(log N) each.
+     */
+    private static void mergeDominating2D(Individual[] all, int firstSize, boolean[] alive) {
+        final int n = all.length;
+        final long[] keys1 = new long[n];
+        final long[] keys2 = new long[n];
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys1[i] = ArraysUtil.sortableKey(all[i].getObjectives()[0] + 0.);
+            keys2[i] = ArraysUtil.sortableKey(all[i].getObjectives()[1] + 0.);
+            order[i] = i;
+        }
+        // lexicographic order of the objectives, -0. being equal to 0.
+        final long[] rank1 = denseRanks(keys1, order, n);
+        final long[] lex = new long[n];
+        final int[] byRank2 = order.clone();
+        final long[] rank2 = denseRanks(keys2, byRank2, n);
+        for (int i = 0; i < n; i++) {
+            lex[i] = rank1[i] * n + rank2[i];
+            order[i] = i;
+        }
+        ArraysUtil.partialArgsort(lex, order, n, n);
+        final int[] pos = new int[n];
+        for (int p = 0; p < n; p++) {
+            pos[order[p]] = p;
+        }
+        // the first position after the individuals with equal objectives
+        final int[] groupEnd = new int[n];
+        for (int p = n - 1; p >= 0; p--) {
+            groupEnd[p] = p + 1 < n && lex[order[p + 1]] == lex[order[p]] ? groupEnd[p + 1] : p + 1;
+        }
+
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        // maximum second objective rank of the alive individuals, -1 for none
+        final long[] tree = new long[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < firstSize; i++) {
+            set(tree, size, pos[i], rank2[i]);
+        }
+        for (int s = firstSize; s < n; s++) {
+            final int start = groupEnd[pos[s]];
+            boolean dominates = false;
+            int p;
+            while ((p = findAtLeast(tree, size, start, rank2[s])) >= 0) {
+                alive[order[p]] = false;
+                set(tree, size, p, -1);
+                dominates = true;
+            }
+            if (dominates) {
+                alive[s] = true;
+                set(tree, size, pos[s], rank2[s]);
+            }
+        }
+    }
+
+    private static long[] denseRanks(long[] keys, int[] order, int n) {
+        ArraysUtil.partialArgsort(keys, order, n, n);
+        final long[] ranks = new long[n];
+        long rank = 0;
+        for (int p = 0; p < n; p++) {
+            if (p > 0 && keys[order[p]] != keys[order[p - 1]]) {
+                rank++;
+            }
+            ranks[order[p]] = rank;
+        }
+        return ranks;
+    }
+
+    private static void set(long[] tree, int size, int p, long value) {
+        int node = p + size;
+        tree[node] = value;
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return the first position from start on with a value of at least min, -1 if there is none
+     */
+    private static int findAtLeast(long[] tree, int size, int start, long min) {
+        return findAtLeast(tree, 1, 0, size, start, min);
+    }
+
+    private static int findAtLeast(long[] tree, int node, int lo, int hi, int start, long min) {
+        if (hi <= start || tree[node] < min) {
+            return -1;
+        }
+        if (hi - lo == 1) {
+            return lo;
+        }
+        final int mid = (lo + hi) >>> 1;
+        final int left = findAtLeast(tree, 2 * node, lo, mid, start, min);
+        return left >= 0 ? left : findAtLeast(tree, 2 * node + 1, mid, hi, start, min);
+    }
+
+    /**
+     * Set of individuals, hashed by the bit patterns of their points and compared with equals.
+     */
+    static class IndividualSet {
+        private Individual[] table;
+        private int size = 0;
+
+        IndividualSet(int expected) {
+            int capacity = 4;
+            while (capacity < 2 * expected) {
+                capacity <<= 1;
+            }
+            table = new Individual[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(Individual ind) {
+            final int mask = table.length - 1;
+            for (int i = hash(ind.getPoint()) & mask; table[i] != null; i = (i + 1) & mask) {
+                if (ind.equals(table[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if no equal individual was in the set
+         */
+        boolean add(Individual ind) {
+            final int mask = table.length - 1;
+            int i = hash(ind.getPoint()) & mask;
+            for (; table[i] != null; i = (i + 1) & mask) {
+                if (ind.equals(table[i])) {
+                    return false;
+                }
+            }
+            table[i] = ind;
+            if (++size * 2 > table.length) {
+                rehash();
+            }
+            return true;
+        }
+
+        private void rehash() {
+            final Individual[] old = table;
+            table = new Individual[old.length * 2];
+            final int mask = table.length - 1;
+            for (final Individual ind : old) {
+                if (ind != null) {
+                    int i = hash(ind.getPoint()) & mask;
+                    while (table[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = ind;
+                }
+            }
+        }
+
+        private static int hash(double[] point) {
+            long h = 1;
+            for (final double x : point) {
+                h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(x);
+            }
+            h ^= h >>> 29;
+            h *= 0xBF58476D1CE4E5B9L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+}
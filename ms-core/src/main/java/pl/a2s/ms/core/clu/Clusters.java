@@ -21,9 +21,16 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.util.DistanceKernel;
+import pl.a2s.ms.core.util.SpatialIndex;
+
+import java.util.List;
 
 public class Clusters {
 
+    /// from this many pairs the closest one is found with a spatial index
+    public static final int INDEX_THRESHOLD = 4096;
+
     public static double[] computeCentroid(Cluster cluster) {
         final double[][] points = cluster.getIndividuals().stream().map(Individual::getPoint)
                 .toArray(double[][]::new);
@@ -37,18 +44,54 @@ public class Clusters {
 
     public static Pair<Individual, Individual> findClosest(
             Cluster first, Cluster second) {
-        double minDistance = Double.POSITIVE_INFINITY;
-        Pair<Individual, Individual> current = null;
-        for (final Individual p1 : first.getIndividuals()) {
-            for (final Individual p2 : second.getIndividuals()) {
-                final double distance = MathArrays.distance(p1.getPoint(), p2.getPoint());
-                if (distance < minDistance) {
-                    current = Pair.of(p1, p2);
-                    minDistance = distance;
-                }
+        final List<Individual> firstInds = first.getIndividuals();
+        final List<Individual> secondInds = second.getIndividuals();
+        if (firstInds.isEmpty() || secondInds.isEmpty()) {
+            return null;
+        }
+        final int dim = firstInds.get(0).getPoint().length;
+        final double[] A = flatten(firstInds, dim);
+        final double[] B = flatten(secondInds, dim);
+        final int[] closest = (long) firstInds.size() * secondInds.size() >= INDEX_THRESHOLD && allFinite(A) && allFinite(B)
+                ? closestPairIndexed(A, firstInds.size(), B, secondInds.size(), dim)
+                : DistanceKernel.closestPair(A, firstInds.size(), B, secondInds.size(), dim);
+        return closest == null ? null : Pair.of(firstInds.get(closest[0]), secondInds.get(closest[1]));
+    }
+
+    /**
+     * Gives the same pair as {@link DistanceKernel#closestPair(double[], int, double[], int, int)},
+     * querying a {@link SpatialIndex} of B for the nearest neighbour of every point of A.
+     */
+    private static int[] closestPairIndexed(double[] A, int na, double[] B, int nb, int dim) {
+        final SpatialIndex index = new SpatialIndex(B, nb, dim);
+        double min = Double.POSITIVE_INFINITY;
+        int[] best = null;
+        for (int i = 0; i < na; i++) {
+            final int j = index.nearest(A, i * dim, Integer.MAX_VALUE);
+            final double d = DistanceKernel.distance(A, i, B, j, dim);
+            if (d < min) {
+                min = d;
+                best = new int[] {i, j};
+            }
+        }
+        return best;
+    }
+
+    private static boolean allFinite(double[] points) {
+        for (final double x : points) {
+            if (!Double.isFinite(x)) {
+                return false;
             }
         }
-        return current;
+        return true;
+    }
+
+    private static double[] flatten(List<Individual> individuals, int dim) {
+        final double[] flat = new double[individuals.size() * dim];
+        for (int i = 0; i < individuals.size(); i++) {
+            System.arraycopy(individuals.get(i).getPoint(), 0, flat, i * dim, dim);
+        }
+        return flat;
     }
 
 }
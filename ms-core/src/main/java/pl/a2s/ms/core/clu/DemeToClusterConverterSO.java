@@ -20,6 +20,7 @@ package pl.a2s.ms.core.clu;
 import java.util.List;
 
 import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.orch.hgs.Deme;
 
 public class DemeToClusterConverterSO {
@@ -28,14 +29,16 @@ public class DemeToClusterConverterSO {
         double maxFitness = Double.NEGATIVE_INFINITY;
         double minFitness = Double.POSITIVE_INFINITY;
 
-        for (final Individual ind: deme.getPopulation().getIndividuals()) {
-            maxFitness = Math.max(maxFitness, ind.getObjectives()[0]);
-            minFitness = Math.min(minFitness, ind.getObjectives()[0]);
+        final Population current = deme.getPopulation();
+        for (int i = 0; i < current.getSize(); i++) {
+            maxFitness = Math.max(maxFitness, current.getObjective(i, 0));
+            minFitness = Math.min(minFitness, current.getObjective(i, 0));
         }
         for (final Deme.HistoryItem hi: deme.getHistory()) {
-            for (final Individual ind: hi.getPopulation().getIndividuals()) {
-                maxFitness = Math.max(maxFitness, ind.getObjectives()[0]);
-                minFitness = Math.min(minFitness, ind.getObjectives()[0]);
+            final Population population = hi.getPopulation();
+            for (int i = 0; i < population.getSize(); i++) {
+                maxFitness = Math.max(maxFitness, population.getObjective(i, 0));
+                minFitness = Math.min(minFitness, population.getObjective(i, 0));
             }
         }
 
@@ -49,9 +52,10 @@ public class DemeToClusterConverterSO {
             }
         }
         for (final Deme.HistoryItem hi: deme.getHistory()) {
-            for (final Individual ind: hi.getPopulation().getIndividuals()) {
-                if (ind.getObjectives()[0] <= fitnessThreshold) {
-                    individuals.add(ind);
+            final Population population = hi.getPopulation();
+            for (int i = 0; i < population.getSize(); i++) {
+                if (population.getObjective(i, 0) <= fitnessThreshold) {
+                    individuals.add(population.getIndividuals()[i]);
                 }
             }
         }
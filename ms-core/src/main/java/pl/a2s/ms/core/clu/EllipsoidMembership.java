@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.Getter;
+import org.apache.commons.math3.linear.RealMatrix;
+import pl.a2s.ms.core.ind.Individual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Tests which points lie in which of a set of ellipsoids
+ * {x : (x - mean)^T C^-1 (x - mean) &lt;= sigma^2}, the same as {@link Ellipsoid} with invCov = C^-1.
+ * <p>
+ * Every ellipsoid keeps the Cholesky factor L of its C, so that the distance is the norm of
+ * the solution y of L y = x - mean, found by forward substitution and abandoned as soon as
+ * it exceeds sigma. Points outside the bounding box mean +- sigma sqrt(diag C) are rejected
+ * before that. Ellipsoids are processed in parallel for large batches.
+ */
+public class EllipsoidMembership {
+
+    /// from this many point-ellipsoid pairs the ellipsoids are processed in parallel
+    public static final long PARALLEL_THRESHOLD = 100_000;
+
+    @Getter private final int dimensionCount;
+    private final List<double[]> means = new ArrayList<>();
+    /// Cholesky factors, lower triangles stored row by row
+    private final List<double[]> factors = new ArrayList<>();
+    private final List<double[]> lowers = new ArrayList<>();
+    private final List<double[]> uppers = new ArrayList<>();
+    private final List<Double> sigmas = new ArrayList<>();
+
+    public EllipsoidMembership(int dimensionCount) {
+        this.dimensionCount = dimensionCount;
+    }
+
+    public int size() {
+        return means.size();
+    }
+
+    /**
+     * @param mean column vector of the center
+     * @param cov covariance matrix
+     * @param sigma scale of the covariance
+     * @return false if the covariance isn't positive definite, in which case the ellipsoid is skipped
+     */
+    public boolean add(RealMatrix mean, RealMatrix cov, double sigma) {
+        return add(mean.getColumn(0), cov.getData(), sigma);
+    }
+
+    /**
+     * @param mean the center
+     * @param cov covariance matrix, only its lower triangle is used
+     * @param sigma scale of the covariance
+     * @return false if the covariance isn't positive definite, in which case the ellipsoid is skipped
+     */
+    public boolean add(double[] mean, double[][] cov, double sigma) {
+        final int n = dimensionCount;
+        final double[] L = new double[n * (n + 1) / 2];
+        for (int i = 0; i < n; i++) {
+            final int iRow = i * (i + 1) / 2;
+            for (int j = 0; j <= i; j++) {
+                final int jRow = j * (j + 1) / 2;
+                double sum = cov[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= L[iRow + k] * L[jRow + k];
+                }
+                if (i == j) {
+                    if (!(sum > 0)) {
+                        return false;
+                    }
+                    L[iRow + i] = Math.sqrt(sum);
+                } else {
+                    L[iRow + j] = sum / L[jRow + j];
+                }
+            }
+        }
+        final double[] lower = new double[n];
+        final double[] upper = new double[n];
+        for (int k = 0; k < n; k++) {
+            // with some slack for rounding, the exact test follows anyway
+            final double halfWidth = sigma * Math.sqrt(cov[k][k]) * (1 + 1e-9);
+            lower[k] = mean[k] - halfWidth;
+            upper[k] = mean[k] + halfWidth;
+        }
+        means.add(mean.clone());
+        factors.add(L);
+        lowers.add(lower);
+        uppers.add(upper);
+        sigmas.add(sigma);
+        return true;
+    }
+
+    /**
+     * @param e ellipsoid index
+     * @param point the point
+     * @return if the point lies in the ellipsoid
+     */
+    public boolean contains(int e, double[] point) {
+        return contains(e, point, 0, new double[dimensionCount]);
+    }
+
+    /**
+     * Counts for every point the ellipsoids containing it.
+     *
+     * @param points points stored row by row
+     * @param count number of points
+     * @return numbers of ellipsoids containing the points
+     */
+    public int[] countContaining(double[] points, int count) {
+        final int size = size();
+        IntStream ellipsoids = IntStream.range(0, size);
+        if ((long) size * count >= PARALLEL_THRESHOLD) {
+            ellipsoids = ellipsoids.parallel();
+        }
+        final int[][] inside = ellipsoids.mapToObj(e -> {
+            final double[] y = new double[dimensionCount];
+            final int[] found = new int[count];
+            int foundCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (contains(e, points, i * dimensionCount, y)) {
+                    found[foundCount++] = i;
+                }
+            }
+            return Arrays.copyOf(found, foundCount);
+        }).toArray(int[][]::new);
+        final int[] counts = new int[count];
+        for (final int[] found : inside) {
+            for (final int i : found) {
+                counts[i]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @param individuals individuals to test
+     * @return the individuals in their order, each repeated as many times as there are ellipsoids containing it
+     */
+    public List<Individual> contained(List<Individual> individuals) {
+        final int count = individuals.size();
+        final double[] points = new double[count * dimensionCount];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(individuals.get(i).getPoint(), 0, points, i * dimensionCount, dimensionCount);
+        }
+        final int[] counts = countContaining(points, count);
+        final List<Individual> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < counts[i]; c++) {
+                result.add(individuals.get(i));
+            }
+        }
+        return result;
+    }
+
+    private boolean contains(int e, double[] points, int off, double[] y) {
+        final int n = dimensionCount;
+        final double[] lower = lowers.get(e);
+        final double[] upper = uppers.get(e);
+        for (int k = 0; k < n; k++) {
+            final double x = points[off + k];
+            if (!(x >= lower[k] && x <= upper[k])) {
+                return false;
+            }
+        }
+        final double[] mean = means.get(e);
+        final double[] L = factors.get(e);
+        final double sigma = sigmas.get(e);
+        final double limit = sigma * sigma;
+        double norm = 0;
+        for (int i = 0; i < n; i++) {
+            final int row = i * (i + 1) / 2;
+            double sum = points[off + i] - mean[i];
+            for (int k = 0; k < i; k++) {
+                sum -= L[row + k] * y[k];
+            }
+            y[i] = sum / L[row + i];
+            norm += y[i] * y[i];
+            if (norm > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import pl.a2s.ms.core.archive.Archive;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.util.DistanceKernel;
+import pl.a2s.ms.core.util.SpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Spatial index of already evaluated individuals, e.g. of an archive or of deme histories,
+ * which lets hill-valley tests use them instead of evaluating new intermediate points.
+ * <p>
+ * The individuals are read from the source when the index is first queried and read again
+ * only when the version of the source changes, e.g. the modification count of an archive,
+ * or after {@link #invalidate()}, so a query doesn't copy the source.
+ */
+public class EvaluatedPoints {
+
+    private final Supplier<? extends Collection<? extends Individual>> source;
+    /// changes whenever the individuals of the source do, negative if unknown
+    private final LongSupplier version;
+    private long sourceVersion;
+    private boolean stale = true;
+    private int size;
+    private int dim;
+    private double[] points;
+    /// the largest objective of every point
+    private double[] objectives;
+    private SpatialIndex index;
+
+    /**
+     * @param source supplies the individuals
+     * @param version changes whenever the individuals do, a negative value makes every query read the source
+     */
+    public EvaluatedPoints(Supplier<? extends Collection<? extends Individual>> source, LongSupplier version) {
+        this.source = source;
+        this.version = version;
+    }
+
+    /**
+     * The index is rebuilt when the size of the collection changes, call {@link #invalidate()}
+     * after replacing its members.
+     */
+    public static EvaluatedPoints of(Collection<? extends Individual> individuals) {
+        return new EvaluatedPoints(() -> individuals, individuals::size);
+    }
+
+    public static EvaluatedPoints of(Archive archive) {
+        return new EvaluatedPoints(archive::getIndividuals, archive::getModificationCount);
+    }
+
+    /**
+     * Uses the current populations and the histories of the demes. Every new population
+     * of a deme goes with a new history item, so the index is rebuilt when a deme is added
+     * or a history grows.
+     */
+    public static EvaluatedPoints ofHistories(Collection<Deme> demes) {
+        return new EvaluatedPoints(() -> {
+            final List<Individual> individuals = new ArrayList<>();
+            for (final Deme deme : demes) {
+                for (final Deme.HistoryItem item : deme.getHistory()) {
+                    individuals.addAll(Arrays.asList(item.getPopulation().getIndividuals()));
+                }
+                individuals.addAll(Arrays.asList(deme.getPopulation().getIndividuals()));
+            }
+            return individuals;
+        }, () -> {
+            long version = demes.size();
+            for (final Deme deme : demes) {
+                version += deme.getHistory().size();
+            }
+            return version;
+        });
+    }
+
+    /**
+     * Makes the next query read the source again.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Evaluated points near a segment, ordered along it.
+     */
+    public static class Tube {
+        /// length of the segment
+        public final double length;
+        /// positions of the points projected on the segment, from 0 at its start to 1 at its end
+        public final double[] t;
+        /// the largest objective of every point
+        public final double[] objectives;
+
+        Tube(double length, double[] t, double[] objectives) {
+            this.length = length;
+            this.t = t;
+            this.objectives = objectives;
+        }
+
+        public int size() {
+            return t.length;
+        }
+
+        /**
+         * @return if a point lies within distance of the point at position r along the segment
+         */
+        public boolean covers(double r, double distance) {
+            int lo = 0;
+            int hi = t.length;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (t[mid] < r) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return (lo < t.length && (t[lo] - r) * length <= distance)
+                    || (lo > 0 && (r - t[lo - 1]) * length <= distance);
+        }
+    }
+
+    /**
+     * Finds the evaluated points within radius of the segment from a to b, other than its endpoints.
+     *
+     * @param a start of the segment
+     * @param b end of the segment
+     * @param radius the largest distance of a point from the segment
+     * @return the points, ordered along the segment
+     */
+    public Tube tube(double[] a, double[] b, double radius) {
+        refresh();
+        final double length = DistanceKernel.distance(a, b);
+        if (size == 0 || !(length > 0)) {
+            return new Tube(length, new double[0], new double[0]);
+        }
+        final double[] middle = new double[dim];
+        for (int k = 0; k < dim; k++) {
+            middle[k] = (a[k] + b[k]) / 2;
+        }
+        final List<double[]> found = new ArrayList<>();
+        final double reach = length / 2 + radius;
+        index.forEachCloser(middle, 0, reach * (1 + 1e-12) + Double.MIN_NORMAL, i -> {
+            final int off = i * dim;
+            double dot = 0;
+            for (int k = 0; k < dim; k++) {
+                dot += (points[off + k] - a[k]) * (b[k] - a[k]);
+            }
+            final double r = dot / (length * length);
+            if (!(r > 0 && r < 1)) {
+                return;
+            }
+            double sum = 0;
+            for (int k = 0; k < dim; k++) {
+                final double dp = points[off + k] - (a[k] + r * (b[k] - a[k]));
+                sum += dp * dp;
+            }
+            if (sum <= radius * radius) {
+                found.add(new double[] { r, objectives[i] });
+            }
+        });
+        found.sort((x, y) -> Double.compare(x[0], y[0]));
+        final double[] t = new double[found.size()];
+        final double[] obj = new double[found.size()];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = found.get(i)[0];
+            obj[i] = found.get(i)[1];
+        }
+        return new Tube(length, t, obj);
+    }
+
+    private void refresh() {
+        final long current = version.getAsLong();
+        if (!stale && current >= 0 && current == sourceVersion) {
+            return;
+        }
+        stale = false;
+        sourceVersion = current;
+        final Collection<? extends Individual> individuals = source.get();
+        final List<Individual> evaluated = new ArrayList<>(individuals.size());
+        for (final Individual ind : individuals) {
+            if (ind.getObjectives() != null && ind.getObjectives().length > 0 && isFinite(ind.getPoint())) {
+                evaluated.add(ind);
+            }
+        }
+        size = evaluated.size();
+        dim = size == 0 ? 0 : evaluated.get(0).getPoint().length;
+        points = new Population(evaluated).getFlatPoints();
+        objectives = new double[size];
+        for (int i = 0; i < size; i++) {
+            final double[] obj = evaluated.get(i).getObjectives();
+            double max = obj[0];
+            for (int j = 1; j < obj.length; j++) {
+                max = Math.max(max, obj[j]);
+            }
+            objectives[i] = max;
+        }
+        index = new SpatialIndex(points, size, dim);
+    }
+
+    private static boolean isFinite(double[] point) {
+        for (final double x : point) {
+            if (!Double.isFinite(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -17,11 +17,14 @@
 
 package pl.a2s.ms.core.clu;
 
+import lombok.Setter;
 import org.apache.commons.lang3.tuple.Pair;
 
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ie.IndividualEvaluator;
 
+import java.util.function.DoubleSupplier;
+
 /**
  *
  * ClusterMergeChecker based on 'hill-valley' method described in R. K. Ursem's paper <em>Multinational
@@ -34,17 +37,50 @@ import pl.a2s.ms.core.ie.IndividualEvaluator;
 public class HillValleyChecker implements ClusterMergeChecker {
     private final HillValleyFunction hvf;
     private final double threshold;
+    /// precision of the evaluations, read at every check, as it may be known only once the checker runs
+    @Setter
+    private DoubleSupplier precision = () -> Double.NaN;
 
     public HillValleyChecker(int intermediatePoints, double threshold, IndividualEvaluator ie) {
+        this(intermediatePoints, threshold, ie, false);
+    }
+
+    /**
+     * @param earlyExit if the intermediate points should be evaluated in bisection order
+     * only until one of them exceeds the threshold, see {@link HillValleyFunction#setEarlyExit(boolean)}
+     */
+    public HillValleyChecker(int intermediatePoints, double threshold, IndividualEvaluator ie, boolean earlyExit) {
         hvf = new HillValleyFunction(intermediatePoints, ie);
+        hvf.setEarlyExit(earlyExit);
         this.threshold = threshold;
     }
 
+    /**
+     * Makes the checker use previously evaluated points lying near the tested segments,
+     * see {@link HillValleyFunction#setEvaluatedPoints(EvaluatedPoints)}.
+     *
+     * @param points previously evaluated points, null to evaluate all intermediate points
+     * @param tubeRadius the largest distance of a used point from the segment
+     * @param spacing an intermediate point isn't evaluated if a used point lies within this distance along the segment
+     */
+    public void useEvaluatedPoints(EvaluatedPoints points, double tubeRadius, double spacing) {
+        hvf.setEvaluatedPoints(points);
+        hvf.setTubeRadius(tubeRadius);
+        hvf.setSpacing(spacing);
+    }
+
+    /**
+     * @return number of evaluations saved thanks to the previously evaluated points
+     */
+    public long getSavedEvaluationCount() {
+        return hvf.getSavedEvaluationCount();
+    }
+
     @Override
     public boolean canMerge(Cluster first, Cluster second) {
         final Pair<Individual, Individual> closest = Clusters.findClosest(first, second);
-        return hvf.compute(closest.getLeft().getPoint(),
-                closest.getRight().getPoint()) <= threshold;
+        hvf.setPrecision(precision.getAsDouble());
+        return hvf.isBelow(closest.getLeft(), closest.getRight(), threshold);
     }
 
 }
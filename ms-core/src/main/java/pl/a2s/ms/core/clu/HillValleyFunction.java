@@ -17,16 +17,33 @@
 
 package pl.a2s.ms.core.clu;
 
-import java.util.Arrays;
-
+import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implementation of 'hill-valley' function from R. K. Ursem CEC'99 paper <em>Multinational
  * evolutionary algorithms</em>. It is however translated into minimization language, so it
  * is actually 'hollow-ridge' function.
+ * <p>
+ * Objectives already known for the endpoints are reused, the missing ones and the intermediate
+ * points are evaluated in batches, so that a parallel evaluator processes them concurrently.
+ * In the early exit mode {@link #isBelow(Individual, Individual, double)} evaluates
+ * the intermediate points in bisection order, a level of the bisection per batch, and stops
+ * as soon as one of them exceeds the threshold.
+ * <p>
+ * If {@link EvaluatedPoints} are set, the previously evaluated points lying within tubeRadius
+ * of the segment count as intermediate points, and only the intermediate points without
+ * such a point within spacing along the segment are evaluated.
  *
  * @author Maciej Smołka
  *
@@ -35,28 +52,173 @@ public class HillValleyFunction {
 
     private final int intermediatePoints;
     private final IndividualEvaluator ie;
+    /// intermediate point numbers (1 to intermediatePoints) grouped by bisection level
+    private final int[][] bisectionLevels;
+
+    @Getter @Setter
+    private boolean earlyExit = false;
+
+    /// previously evaluated points used in place of intermediate points, null to evaluate all of them
+    @Getter @Setter
+    private EvaluatedPoints evaluatedPoints;
+    /// the largest distance of a previously evaluated point from the segment
+    @Getter @Setter
+    private double tubeRadius;
+    /// an intermediate point isn't evaluated if a previously evaluated one lies within this distance along the segment
+    @Getter @Setter
+    private double spacing;
+    /// precision of the evaluations, NaN for the one set on the calculator
+    @Getter @Setter
+    private double precision = Double.NaN;
+    /// number of intermediate points not evaluated thanks to the previously evaluated ones
+    @Getter
+    private long savedEvaluationCount = 0;
 
     public HillValleyFunction(int intermediatePoints, IndividualEvaluator ie) {
         this.intermediatePoints = intermediatePoints;
         this.ie = ie;
+        this.bisectionLevels = bisectionLevels(intermediatePoints);
     }
 
     public double compute(double[] point1, double[] point2) {
-        final double objective1 = Arrays.stream(ie.evaluate(point1)).max().getAsDouble();
-        final double objective2 = Arrays.stream(ie.evaluate(point2)).max().getAsDouble();
-        final double maxObjective = Math.max(objective1, objective2);
+        return compute(new SimpleIndividual(point1), new SimpleIndividual(point2));
+    }
+
+    /**
+     * Computes the function, evaluating the endpoints only if they have no objectives.
+     */
+    public double compute(Individual first, Individual second) {
+        final int[] all = new int[intermediatePoints];
+        for (int i = 0; i < intermediatePoints; i++) {
+            all[i] = i + 1;
+        }
+        return compute(first, second, new int[][] { all }, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return if the function value for the endpoints is at most threshold
+     */
+    public boolean isBelow(Individual first, Individual second, double threshold) {
+        if (!earlyExit) {
+            return compute(first, second) <= threshold;
+        }
+        return compute(first, second, bisectionLevels, threshold) <= threshold;
+    }
+
+    /**
+     * Evaluates the intermediate points batch by batch, stopping after a batch in which
+     * the value exceeds the threshold.
+     */
+    private double compute(Individual first, Individual second, int[][] batches, double threshold) {
+        if (intermediatePoints == 0) {
+            return 0.;
+        }
+        final Individual endpoint1 = first.getObjectives() == null ? new SimpleIndividual(first.getPoint()) : first;
+        final Individual endpoint2 = second.getObjectives() == null ? new SimpleIndividual(second.getPoint()) : second;
+        final List<Individual> endpoints = new ArrayList<>(2);
+        if (endpoint1 != first) {
+            endpoints.add(endpoint1);
+        }
+        if (endpoint2 != second) {
+            endpoints.add(endpoint2);
+        }
+        // with a single batch the endpoints are evaluated together with it
+        if (!endpoints.isEmpty() && (batches.length > 1 || evaluatedPoints != null)) {
+            ie.evaluate(new Population(endpoints), precision);
+            endpoints.clear();
+        }
         double out = 0.;
-        for (int i = 1; i <= intermediatePoints; i++) {
-            final double r = i / (intermediatePoints + 1.0);
-            final double[] intermediate = MathArrays.ebeAdd(
-                    MathArrays.scale(1 - r, point1), MathArrays.scale(r, point2));
-            final double[] interObjs = ie.evaluate(intermediate);
-            final double interObj = Arrays.stream(interObjs).max().getAsDouble();
-            if (interObj - maxObjective > out) {
-                out = interObj - maxObjective;
+        if (evaluatedPoints != null) {
+            final double maxObjective = Math.max(max(endpoint1.getObjectives()), max(endpoint2.getObjectives()));
+            final EvaluatedPoints.Tube tube = evaluatedPoints.tube(first.getPoint(), second.getPoint(), tubeRadius);
+            for (final double interObj : tube.objectives) {
+                if (interObj - maxObjective > out) {
+                    out = interObj - maxObjective;
+                }
             }
+            batches = uncovered(batches, tube, out > threshold);
+        }
+        for (int batch = 0; batch < batches.length && !(out > threshold); batch++) {
+            final List<Individual> individuals = new ArrayList<>(batches[batch].length + 2);
+            if (batches.length == 1) {
+                individuals.addAll(endpoints);
+            }
+            final int from = individuals.size();
+            for (final int i : batches[batch]) {
+                individuals.add(intermediate(first.getPoint(), second.getPoint(), i));
+            }
+            ie.evaluate(new Population(individuals), precision);
+            final double maxObjective = Math.max(max(endpoint1.getObjectives()), max(endpoint2.getObjectives()));
+            for (final Individual ind : individuals.subList(from, individuals.size())) {
+                final double interObj = max(ind.getObjectives());
+                if (interObj - maxObjective > out) {
+                    out = interObj - maxObjective;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Removes the intermediate points covered by the tube, or all of them if the value is already known
+     * to exceed the threshold, and counts them as saved.
+     */
+    private int[][] uncovered(int[][] batches, EvaluatedPoints.Tube tube, boolean decided) {
+        final int[][] out = new int[batches.length][];
+        for (int b = 0; b < batches.length; b++) {
+            final int[] batch = batches[b];
+            int count = 0;
+            final int[] kept = new int[batch.length];
+            for (final int i : batch) {
+                if (!decided && !tube.covers(i / (intermediatePoints + 1.0), spacing)) {
+                    kept[count++] = i;
+                }
+            }
+            savedEvaluationCount += batch.length - count;
+            out[b] = Arrays.copyOf(kept, count);
         }
         return out;
     }
 
+    private Individual intermediate(double[] point1, double[] point2, int i) {
+        final double r = i / (intermediatePoints + 1.0);
+        return new SimpleIndividual(MathArrays.ebeAdd(
+                MathArrays.scale(1 - r, point1), MathArrays.scale(r, point2)));
+    }
+
+    private static double max(double[] objectives) {
+        double max = objectives[0];
+        for (int i = 1; i < objectives.length; i++) {
+            max = Math.max(max, objectives[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Orders 1..n so that the middle one comes first, then the middles of both halves and so on.
+     */
+    private static int[][] bisectionLevels(int n) {
+        final List<int[]> levels = new ArrayList<>();
+        List<int[]> ranges = n > 0 ? List.of(new int[] { 1, n }) : List.of();
+        while (!ranges.isEmpty()) {
+            final List<int[]> next = new ArrayList<>();
+            final int[] level = new int[ranges.size()];
+            for (int i = 0; i < level.length; i++) {
+                final int lo = ranges.get(i)[0];
+                final int hi = ranges.get(i)[1];
+                final int mid = (lo + hi) >>> 1;
+                level[i] = mid;
+                if (lo < mid) {
+                    next.add(new int[] { lo, mid - 1 });
+                }
+                if (mid < hi) {
+                    next.add(new int[] { mid + 1, hi });
+                }
+            }
+            levels.add(level);
+            ranges = next;
+        }
+        return levels.toArray(new int[0][]);
+    }
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import pl.a2s.ms.core.util.DistanceKernel;
+import pl.a2s.ms.core.util.SpatialIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static java.lang.String.format;
+
+/**
+ * Merges clusters whose centroids are closer than maxDistance, if the checker allows it,
+ * like {@link PairwiseNeighborConsolidator}, but without rescanning all pairs after every merge.
+ * <p>
+ * Candidate pairs are kept in a priority queue, closest first. A merged cluster replaces both
+ * of its parts, which invalidates all their pending pairs, and only the pairs of the new cluster
+ * are added. As clusters never change otherwise, a rejected pair is never checked again.
+ * The centroid of a merged cluster is computed from the individuals it keeps, as the merge
+ * strategy may drop some of them, e.g. duplicates. Empty clusters take no part in merging.
+ * <p>
+ * Remaining clusters are returned in the order of the input, followed by the merged ones
+ * in the order of merging, and as in {@link PairwiseNeighborConsolidator} only clusters
+ * with more than one individual are kept.
+ */
+@RequiredArgsConstructor
+@Log
+public class IncrementalNeighborConsolidator implements Consolidator {
+
+    private final double maxDistance;
+    private final ClusterMergeChecker checker;
+    private final ClusterMergeStrategy clusterMergeStrategy;
+
+    /**
+     * Merges clusters with {@link ClusterMergeStrategies#UNION}.
+     */
+    public IncrementalNeighborConsolidator(double maxDistance, ClusterMergeChecker checker) {
+        this(maxDistance, checker, ClusterMergeStrategies.UNION);
+    }
+
+    /// number of checker calls in the last consolidation
+    @Getter private int checkCount;
+
+    private static class Candidate implements Comparable<Candidate> {
+        final int first;
+        final int second;
+        final double distance;
+
+        Candidate(int first, int second, double distance) {
+            this.first = first;
+            this.second = second;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            final int c = Double.compare(distance, o.distance);
+            if (c != 0) {
+                return c;
+            }
+            return first != o.first ? Integer.compare(first, o.first) : Integer.compare(second, o.second);
+        }
+    }
+
+    @Override
+    public List<Cluster> reduceClusters(List<Cluster> clusters) {
+        final int n = clusters.size();
+        final int dim = clusters.stream()
+                .filter(c -> !c.getIndividuals().isEmpty())
+                .findFirst()
+                .map(c -> c.getIndividuals().get(0).getPoint().length)
+                .orElse(0);
+        // every merge adds one cluster, so there are at most 2n - 1 of them
+        final List<Cluster> all = new ArrayList<>(clusters);
+        final double[] centroids = new double[Math.max(1, 2 * n - 1) * dim];
+        // also set for empty clusters, which can't be merged
+        final boolean[] merged = new boolean[Math.max(1, 2 * n - 1)];
+        for (int i = 0; i < n; i++) {
+            setCentroid(clusters.get(i), i, centroids, dim, merged);
+        }
+
+        final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        final SpatialIndex index = new SpatialIndex(centroids, n, dim);
+        for (int i = 0; i < n; i++) {
+            if (merged[i]) {
+                continue;
+            }
+            final int first = i;
+            index.forEachCloser(centroids, i * dim, maxDistance, j -> {
+                if (j > first) {
+                    queue.add(new Candidate(first, j, DistanceKernel.distance(centroids, first, j, dim)));
+                }
+            });
+        }
+
+        checkCount = 0;
+        Candidate candidate;
+        while ((candidate = queue.poll()) != null) {
+            if (merged[candidate.first] || merged[candidate.second]) {
+                continue;
+            }
+            final Cluster first = all.get(candidate.first);
+            final Cluster second = all.get(candidate.second);
+            checkCount++;
+            if (!checker.canMerge(first, second)) {
+                continue;
+            }
+            merged[candidate.first] = true;
+            merged[candidate.second] = true;
+            final int id = all.size();
+            all.add(clusterMergeStrategy.merge(first, second));
+            if (!setCentroid(all.get(id), id, centroids, dim, merged)) {
+                continue;
+            }
+            for (int j = 0; j < id; j++) {
+                if (!merged[j]) {
+                    final double distance = DistanceKernel.distance(centroids, j, id, dim);
+                    if (distance < maxDistance) {
+                        queue.add(new Candidate(j, id, distance));
+                    }
+                }
+            }
+        }
+        log.fine(format("Consolidated %d clusters into %d with %d checks", n, 2 * n - all.size(), checkCount));
+
+        final List<Cluster> result = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            if (!merged[i] && all.get(i).getIndividuals().size() > 1) {
+                result.add(all.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores the centroid of the cluster at position i, or marks an empty cluster as merged.
+     *
+     * @return if the cluster is not empty
+     */
+    private static boolean setCentroid(Cluster cluster, int i, double[] centroids, int dim, boolean[] merged) {
+        if (cluster.getIndividuals().isEmpty()) {
+            merged[i] = true;
+            return false;
+        }
+        System.arraycopy(Clusters.computeCentroid(cluster), 0, centroids, i * dim, dim);
+        return true;
+    }
+
+}
@@ -18,15 +18,17 @@
 package pl.a2s.ms.core.clu;
 
 import lombok.RequiredArgsConstructor;
-import lombok.ToString;
 import lombok.extern.java.Log;
-import org.apache.commons.math3.util.MathArrays;
 import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.util.ArraysUtil;
+import pl.a2s.ms.core.util.DistanceKernel;
+import pl.a2s.ms.core.util.SpatialIndex;
 
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 
@@ -41,6 +43,9 @@ import static java.lang.String.format;
 @Log
 public class NearestBetterClusterer {
 
+    /// below this many points all pairs are compared instead of querying a spatial index
+    public static final int INDEX_THRESHOLD = 64;
+
     /**
      * This is based on eq. (4.18) and Fig. 4.16, Preuss2015.
      *
@@ -82,39 +87,50 @@ public class NearestBetterClusterer {
         return new NearestBetterClusterer(phi, b);
     }
 
-    @RequiredArgsConstructor
-    @ToString(of = { "ind", "out", "outLen", "visited" })
-    private static class Node {
-        final Individual ind;
-        final List<Node> in = new ArrayList<>();
-        Node out;
-        double outLen;
-        boolean visited = false;
-    }
-
     /// rule 1 parameter
     private final double phi;
     /// rule 2 parameter
     private final double b;
 
     public List<Cluster> clusterize(List<Individual> sample) {
-        final List<Node> nodes = new ArrayList<>(sample.size());
-        for (Individual individual : sample) {
-            nodes.add(new Node(individual));
+        final int size = sample.size();
+        final int dim = size == 0 ? 0 : sample.get(0).getPoint().length;
+        final double[] points = new double[size * dim];
+        final double[] fitness = new double[size];
+        for (int i = 0; i < size; i++) {
+            final Individual ind = sample.get(i);
+            System.arraycopy(ind.getPoint(), 0, points, i * dim, dim);
+            fitness[i] = ind.getObjectives()[0];
         }
-        for (int i = 0; i < nodes.size(); i++) {
-            final Node n1 = nodes.get(i);
-            final double obj1 = n1.ind.getObjectives()[0];
-            for (int j = 0; j < i; j++) {
-                final Node n2 = nodes.get(j);
-                final double obj2 = n2.ind.getObjectives()[0];
-                final double dist = MathArrays.distance(n1.ind.getPoint(), n2.ind.getPoint());
-                if (obj1 < obj2 && (n2.out == null || n2.outLen > dist)) {
-                    addEdge(n2, n1, dist);
-                } else if (obj2 < obj1 && (n1.out == null || n1.outLen > dist)) {
-                    addEdge(n1, n2, dist);
-                }
-            }
+        return clusterize(sample, points, dim, fitness);
+    }
+
+    /**
+     * Clusterizes the individuals of a population, reading points and objectives
+     * from its flat storage.
+     *
+     * @param population evaluated population
+     * @return clusters
+     */
+    public List<Cluster> clusterize(Population population) {
+        final int size = population.getSize();
+        final double[] fitness = new double[size];
+        for (int i = 0; i < size; i++) {
+            fitness[i] = population.getObjective(i, 0);
+        }
+        return clusterize(Arrays.asList(population.getIndividuals()), population.getFlatPoints(),
+                population.getDimensionCount(), fitness);
+    }
+
+    private List<Cluster> clusterize(List<Individual> sample, double[] points, int dim, double[] fitness) {
+        final int size = sample.size();
+        // nearest better node and the distance to it, -1 for none
+        final int[] out = new int[size];
+        final double[] outLen = new double[size];
+        if (size >= INDEX_THRESHOLD && allFinite(points)) {
+            nearestBetterIndexed(points, size, dim, fitness, out, outLen);
+        } else {
+            nearestBetterPairwise(points, size, dim, fitness, out, outLen);
         }
 
         final double avgLen;
@@ -122,60 +138,73 @@ public class NearestBetterClusterer {
             double sum = 0.;
             int sumCount = 0;
             int trees = 0;
-            for (final Node node: nodes) {
-                if (node.out != null) {
-                    sum += node.outLen;
+            for (int v = 0; v < size; v++) {
+                if (out[v] >= 0) {
+                    sum += outLen[v];
                     sumCount++;
                 } else {
                     trees++;
                 }
             }
             avgLen = sum / sumCount;
-            log.info(format("Nodes: %d, trees: %d", nodes.size(), trees));
+            log.info(format("Nodes: %d, trees: %d", size, trees));
         }
 
         // RULE 1:
         {
             int count = 0;
-            for (final Node node: nodes) {
-                if (node.outLen > phi * avgLen) {
+            for (int v = 0; v < size; v++) {
+                if (outLen[v] > phi * avgLen) {
                     count++;
-                    removeOutEdge(node);
+                    out[v] = -1;
+                    outLen[v] = 0.;
                 }
             }
             log.info(format("Rule 1: %d edges removed", count));
         }
         // RULE 2:
         {
-            final List<Node> nodesForOutEdgeRemoval = new LinkedList<>();
-            for (final Node node: nodes) {
-                if (node.in.size() >= 3 && node.out != null) {
-                    final List<Double> lens = new ArrayList<>();
-                    node.in.stream().map(n -> n.outLen).forEach(lens::add);
-                    lens.sort(Double::compare);
-                    double median;
-                    final int size = lens.size();
-                    if (size % 2 == 0) {
-                        median = (lens.get(size / 2) + lens.get(size / 2 - 1)) / 2.;
+            final int[] inStart = new int[size + 1];
+            final int[] in = incomingEdges(out, inStart);
+            final boolean[] remove = new boolean[size];
+            final double[] lens = new double[size];
+            int count = 0;
+            for (int v = 0; v < size; v++) {
+                final int inCount = inStart[v + 1] - inStart[v];
+                if (inCount >= 3 && out[v] >= 0) {
+                    for (int e = 0; e < inCount; e++) {
+                        lens[e] = outLen[in[inStart[v] + e]];
+                    }
+                    Arrays.sort(lens, 0, inCount);
+                    final double median;
+                    if (inCount % 2 == 0) {
+                        median = (lens[inCount / 2] + lens[inCount / 2 - 1]) / 2.;
                     } else {
-                        median = lens.get(size / 2);
+                        median = lens[inCount / 2];
                     }
-                    if (node.outLen/median > b) {
-                        nodesForOutEdgeRemoval.add(node);
+                    if (outLen[v]/median > b) {
+                        remove[v] = true;
+                        count++;
                     }
                 }
             }
-            for (final Node node: nodesForOutEdgeRemoval) {
-                removeOutEdge(node);
+            for (int v = 0; v < size; v++) {
+                if (remove[v]) {
+                    out[v] = -1;
+                    outLen[v] = 0.;
+                }
             }
-            log.info(format("Rule 2: %d edges removed", nodesForOutEdgeRemoval.size()));
+            log.info(format("Rule 2: %d edges removed", count));
         }
 
+        final int[] inStart = new int[size + 1];
+        final int[] in = incomingEdges(out, inStart);
         final List<Cluster> clusters = new ArrayList<>();
-        final Deque<Node> toVisit = new LinkedList<>();
-        for (final Node nodeFor: nodes) {
+        final boolean[] visited = new boolean[size];
+        final int[] toVisit = new int[size];
+        for (int v = 0; v < size; v++) {
             // skip visited trees
-            if (nodeFor.visited) {
+            if (visited[v]) {
                 continue;
             }
 
@@ -184,19 +213,22 @@ public class NearestBetterClusterer {
             final List<Individual> inds = cluster.getIndividuals();
 
             // go to the root node for this tree
-            Node currNode = nodeFor;
-            while (currNode.out != null) {
-                currNode = currNode.out;
+            int root = v;
+            while (out[root] >= 0) {
+                root = out[root];
             }
 
             // add the root
-            toVisit.addLast(currNode);
+            int top = 0;
+            toVisit[top++] = root;
             // and iterate in DFS order
-            while (!toVisit.isEmpty()) {
-                final Node node = toVisit.removeLast();
-                inds.add(node.ind);
-                node.visited = true;
-                toVisit.addAll(node.in);
+            while (top > 0) {
+                final int node = toVisit[--top];
+                inds.add(sample.get(node));
+                visited[node] = true;
+                for (int e = inStart[node]; e < inStart[node + 1]; e++) {
+                    toVisit[top++] = in[e];
+                }
             }
         }
 
@@ -205,20 +237,105 @@ public class NearestBetterClusterer {
         return clusters;
     }
 
-    private void addEdge(Node from, Node to, double len) {
-        removeOutEdge(from);
-        from.outLen = len;
-        from.out = to;
-        to.in.add(from);
+    /**
+     * Finds the nearest better node of every node by comparing all pairs. Of equally
+     * distant better nodes the one with the lowest index is taken. The distances are computed
+     * on the fly, so that a large sample with a non-finite point doesn't need quadratic memory.
+     */
+    static void nearestBetterPairwise(double[] points, int size, int dim, double[] fitness, int[] out, double[] outLen) {
+        Arrays.fill(out, 0, size, -1);
+        for (int i = 0; i < size; i++) {
+            final double obj1 = fitness[i];
+            for (int j = 0; j < i; j++) {
+                final double obj2 = fitness[j];
+                final double dist = DistanceKernel.distance(points, j, i, dim);
+                if (obj1 < obj2 && (out[j] < 0 || outLen[j] > dist)) {
+                    out[j] = i;
+                    outLen[j] = dist;
+                } else if (obj2 < obj1 && (out[i] < 0 || outLen[i] > dist)) {
+                    out[i] = j;
+                    outLen[i] = dist;
+                }
+            }
+        }
     }
 
-    private void removeOutEdge(Node node) {
-        if (node.out == null) {
-            return;
+    /**
+     * Gives the same result as {@link #nearestBetterPairwise}, by querying a {@link SpatialIndex}
+     * for the nearest node of a better fitness rank. Points must be finite.
+     */
+    static void nearestBetterIndexed(double[] points, int size, int dim, double[] fitness, int[] out, double[] outLen) {
+        final int[] ranks = fitnessRanks(fitness, size);
+        final SpatialIndex index = new SpatialIndex(points, size, dim, ranks);
+        IntStream nodes = IntStream.range(0, size);
+        if (size >= DistanceKernel.PARALLEL_THRESHOLD) {
+            nodes = nodes.parallel();
+        }
+        nodes.forEach(v -> {
+            final int u = ranks[v] == Integer.MAX_VALUE ? -1 : index.nearest(points, v * dim, ranks[v]);
+            out[v] = u;
+            outLen[v] = u < 0 ? 0. : DistanceKernel.distance(points, v, u, dim);
+        });
+    }
+
+    /**
+     * @return dense ranks of the fitness values, equal for equal values, Integer.MAX_VALUE for NaNs
+     */
+    private static int[] fitnessRanks(double[] fitness, int size) {
+        final long[] keys = new long[size];
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ArraysUtil.sortableKey(fitness[i]);
+            order[i] = i;
+        }
+        ArraysUtil.partialArgsort(keys, order, size, size);
+        final int[] ranks = new int[size];
+        int rank = 0;
+        for (int p = 0; p < size; p++) {
+            final int i = order[p];
+            if (Double.isNaN(fitness[i])) {
+                ranks[i] = Integer.MAX_VALUE;
+            } else {
+                if (p > 0 && fitness[i] > fitness[order[p - 1]]) {
+                    rank++;
+                }
+                ranks[i] = rank;
+            }
         }
+        return ranks;
+    }
 
-        node.out.in.remove(node);
-        node.out = null;
-        node.outLen = 0.;
+    /**
+     * @return sources of the edges grouped by their targets in ascending order, the edges
+     * to v being in[inStart[v]..inStart[v+1])
+     */
+    private static int[] incomingEdges(int[] out, int[] inStart) {
+        final int size = out.length;
+        Arrays.fill(inStart, 0);
+        for (int v = 0; v < size; v++) {
+            if (out[v] >= 0) {
+                inStart[out[v] + 1]++;
+            }
+        }
+        for (int v = 0; v < size; v++) {
+            inStart[v + 1] += inStart[v];
+        }
+        final int[] in = new int[inStart[size]];
+        final int[] next = Arrays.copyOf(inStart, size);
+        for (int v = 0; v < size; v++) {
+            if (out[v] >= 0) {
+                in[next[out[v]]++] = v;
+            }
+        }
+        return in;
+    }
+
+    private static boolean allFinite(double[] points) {
+        for (final double x : points) {
+            if (!Double.isFinite(x)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -19,7 +19,7 @@ package pl.a2s.ms.core.clu;
 
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.math3.util.MathArrays;
+import pl.a2s.ms.core.util.DistanceKernel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +32,13 @@ public class PairwiseNeighborConsolidator implements Consolidator {
     private final ClusterMergeChecker checker;
     private final ClusterMergeStrategy clusterMergeStrategy;
 
+    /**
+     * Merges clusters with {@link ClusterMergeStrategies#UNION}.
+     */
+    public PairwiseNeighborConsolidator(double maxDistance, ClusterMergeChecker checker) {
+        this(maxDistance, checker, ClusterMergeStrategies.UNION);
+    }
+
     @Override
     public List<Cluster> reduceClusters(
             List<Cluster> clusters) {
@@ -75,7 +82,7 @@ public class PairwiseNeighborConsolidator implements Consolidator {
                 }
                 final ClusterView first = clusters.get(i);
                 final ClusterView second = clusters.get(j);
-                final double distance = MathArrays.distance(
+                final double distance = DistanceKernel.distance(
                         first.getCentroid(), second.getCentroid());
                 if (distance < maxDistance) {
                     return Pair.of(i, j);
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+import lombok.Setter;
 import org.apache.commons.math3.optim.InitialGuess;
 import org.apache.commons.math3.optim.SimpleBounds;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
@@ -42,7 +43,8 @@ public class CMAES implements EvoAlg {
     private final Random rand;
     private final IndividualEvaluator ie;
     private final FitnessExtractor fe;
-    private final Map<Deme, CMAESOptimizer> data = new HashMap<>();
+    private final Map<Deme, CMAESStrategy> data = new HashMap<>();
+    @Setter private CMAESImplementation implementation = CMAESImplementation.MATRIX;
 
     public CMAES(double sigma, double stopFitness, Random rand, IndividualEvaluator ie, FitnessExtractor fe) {
         this.sigma = sigma;
@@ -52,7 +54,7 @@ public class CMAES implements EvoAlg {
         this.fe = fe;
     }
 
-    public CMAESOptimizer getOptimizer(Deme deme) {
+    public CMAESStrategy getOptimizer(Deme deme) {
         return data.get(deme);
     }
 
@@ -63,7 +65,7 @@ public class CMAES implements EvoAlg {
         } else if (!(state instanceof HgsState)) {
             throw new IllegalArgumentException("State must be HgsState");
         }
-        final CMAESOptimizer optimizer = data.computeIfAbsent(deme, d -> createOptimizer(level, deme, state));
+        final CMAESStrategy optimizer = data.computeIfAbsent(deme, d -> createOptimizer(level, deme, state));
         final Population result = optimizer.apply(level, deme, state);
         if (result == null) {
             // internal stopping condition triggered
@@ -72,9 +74,19 @@ public class CMAES implements EvoAlg {
         return result;
     }
 
-    private CMAESOptimizer createOptimizer(Level level, Deme deme, State state) {
-        final CMAESOptimizer optimizer = new CMAESOptimizer(stopFitness, rand, ie, fe);
+    /**
+     * Drops the optimizer of the deme, whose distribution no longer matches the population,
+     * so the next {@link #apply(Level, Deme, State)} starts a new one from its first individual.
+     */
+    @Override
+    public void populationReplaced(Deme deme) {
+        data.remove(deme);
+    }
+
+    private CMAESStrategy createOptimizer(Level level, Deme deme, State state) {
+        final CMAESStrategy optimizer = implementation.create(stopFitness, rand, ie, fe);
         optimizer.setStopIfSigmaIncrease(true);
+        optimizer.setPrecision(level.evaluationPrecision(ie));
         final Range[] domain = state.getDomain();
         final double[] uB = new double[domain.length];
         final double[] lB = new double[domain.length];
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.cmaes;
+
+import pl.a2s.ms.core.ie.FitnessExtractor;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+
+import java.util.Random;
+
+/**
+ * Available implementations of {@link CMAESStrategy}, so that their results can be compared.
+ */
+public enum CMAESImplementation {
+
+    /// {@link CMAESOptimizer}, based on commons-math matrices
+    MATRIX {
+        @Override
+        public CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+            return new CMAESOptimizer(stopFitness, random, ie, fe);
+        }
+    },
+    /// {@link PrimitiveCMAESOptimizer}, working on preallocated arrays
+    PRIMITIVE {
+        @Override
+        public CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+            return new PrimitiveCMAESOptimizer(stopFitness, random, ie, fe);
+        }
+    },
+    /// {@link PrimitiveCMAESOptimizer} with the lazy eigendecomposition, switching to the limited memory model in large dimensions
+    LARGE_SCALE {
+        @Override
+        public CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+            final PrimitiveCMAESOptimizer optimizer = new PrimitiveCMAESOptimizer(stopFitness, random, ie, fe);
+            optimizer.setCovarianceModel(PrimitiveCMAESOptimizer.CovarianceModel.AUTOMATIC);
+            optimizer.setEigenUpdateInterval(0);
+            return optimizer;
+        }
+    },
+    /// {@link PrimitiveCMAESOptimizer} with a diagonal covariance matrix
+    SEPARABLE {
+        @Override
+        public CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+            final PrimitiveCMAESOptimizer optimizer = new PrimitiveCMAESOptimizer(stopFitness, random, ie, fe);
+            optimizer.setCovarianceModel(PrimitiveCMAESOptimizer.CovarianceModel.SEPARABLE);
+            return optimizer;
+        }
+    },
+    /// {@link PrimitiveCMAESOptimizer} with the limited memory model
+    LIMITED_MEMORY {
+        @Override
+        public CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+            final PrimitiveCMAESOptimizer optimizer = new PrimitiveCMAESOptimizer(stopFitness, random, ie, fe);
+            optimizer.setCovarianceModel(PrimitiveCMAESOptimizer.CovarianceModel.LIMITED_MEMORY);
+            return optimizer;
+        }
+    };
+
+    public abstract CMAESStrategy create(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe);
+
+}
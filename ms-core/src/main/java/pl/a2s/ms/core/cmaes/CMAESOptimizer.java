@@ -37,7 +37,6 @@ import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.RandomGeneratorFactory;
 import org.apache.commons.math3.util.FastMath;
 import org.apache.commons.math3.util.MathArrays;
-import pl.a2s.ms.core.ea.EvoAlg;
 import pl.a2s.ms.core.ie.FitnessExtractor;
 import pl.a2s.ms.core.ie.IndividualEvaluator;
 import pl.a2s.ms.core.ind.Individual;
@@ -96,7 +95,7 @@ import java.util.Random;
  */
 @Log
 public class CMAESOptimizer
-    extends MultivariateOptimizer implements EvoAlg {
+    extends MultivariateOptimizer implements CMAESStrategy {
 
     // current search variables
     private boolean initialized = false;
@@ -148,6 +147,7 @@ public class CMAESOptimizer
 //    /** Maximal number of iterations allowed. */
 //    private final int maxIterations;
     @Setter private boolean stopIfSigmaIncrease = false;
+    @Setter private double precision = Double.NaN;
     /** Limit for fitness value. */
     private final double stopFitness;
     /** Stop if x-changes larger stopTolUpX. */
@@ -411,7 +411,7 @@ public class CMAESOptimizer
             // number of objective variables/problem dimension
             dimension = guess.length;
             initializeCMA();
-            bestValue = ie.evaluate(guess)[0];
+            bestValue = ie.evaluate(guess, precision)[0];
             push(fitnessHistory, bestValue);
             optimum = new PointValuePair(getStartPoint(), isMinimize ? bestValue : -bestValue);
         } else {
@@ -483,7 +483,7 @@ public class CMAESOptimizer
                 individuals[k] = new SimpleIndividual(arx.getColumn(k));
             }
             // Compute fitnesses.
-            ie.evaluate(population);
+            ie.evaluate(population, precision);
         } else {
             arz = randn1(dimension, inputIndividuals.length);
             arx = zeros(dimension, inputIndividuals.length);
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.cmaes;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.optim.OptimizationData;
+import pl.a2s.ms.core.ea.EvoAlg;
+import pl.a2s.ms.core.ind.Population;
+
+/**
+ * A CMA-ES instance driven one generation at a time from the outside.
+ *
+ * @see CMAESImplementation
+ */
+public interface CMAESStrategy extends EvoAlg {
+
+    /**
+     * Initializes the state, without running any generation.
+     *
+     * @param optData {@link CMAESOptimizer.PopulationSize}, {@link CMAESOptimizer.Sigma}, either
+     * an {@link org.apache.commons.math3.optim.InitialGuess} or a {@link CMAESOptimizer.FirstPopulation},
+     * {@link org.apache.commons.math3.optim.SimpleBounds} and the
+     * {@link org.apache.commons.math3.optim.nonlinear.scalar.GoalType}
+     */
+    void initialize(OptimizationData... optData);
+
+    /**
+     * Performs a single generation.
+     *
+     * @return the evaluated offspring, null if a stopping criterion has been met
+     */
+    Population runOneStep();
+
+    int getIterations();
+
+    /// overall step size
+    double getSigma();
+
+    /// mean of the search distribution as a column matrix
+    RealMatrix getXmean();
+
+    /// covariance matrix of the search distribution, to be scaled by sigma^2
+    RealMatrix getC();
+
+    /// stop instead of increasing the step size on a flat fitness
+    void setStopIfSigmaIncrease(boolean stopIfSigmaIncrease);
+
+    /// precision passed with every evaluation, NaN for the one set on the calculator
+    void setPrecision(double precision);
+
+}
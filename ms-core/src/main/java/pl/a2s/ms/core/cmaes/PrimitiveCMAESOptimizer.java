@@ -0,0 +1,1074 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.cmaes;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+import org.apache.commons.lang3.NotImplementedException;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.optim.OptimizationData;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.MultivariateOptimizer;
+import org.apache.commons.math3.util.FastMath;
+import pl.a2s.ms.core.ie.FitnessExtractor;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.orch.State;
+import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.orch.hgs.Level;
+import pl.a2s.ms.core.util.ArraysUtil;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The active CMA-ES of {@link CMAESOptimizer} with the same parameters, updates and stopping
+ * criteria, but computed on flat column-major arrays allocated once in {@link #initialize(OptimizationData...)}.
+ * Only the offspring population is allocated every generation.
+ * <p>
+ * The random numbers are drawn in the same order as in {@link CMAESOptimizer}, but the eigendecomposition
+ * of the covariance matrix (Householder tridiagonalization and the QL method) orders and rounds
+ * the eigenvectors differently, so both implementations follow different trajectories after the first generation.
+ * <p>
+ * For large dimensions the eigendecomposition, O(n^3), can be done lazily, see {@link #setEigenUpdateInterval(int)},
+ * and the full covariance matrix can be replaced by a cheaper model, see {@link CovarianceModel}.
+ */
+@Log
+public class PrimitiveCMAESOptimizer extends MultivariateOptimizer implements CMAESStrategy {
+
+    private final double stopFitness;
+    private final Random random;
+    private final IndividualEvaluator ie;
+    private final FitnessExtractor fe;
+
+    /// from this dimension {@link CovarianceModel#AUTOMATIC} chooses the limited memory model
+    public static final int LIMITED_MEMORY_DIMENSION = 100;
+
+    /**
+     * Representations of the covariance matrix.
+     */
+    public enum CovarianceModel {
+        /// full matrix, O(n^2) per offspring
+        FULL,
+        /**
+         * Diagonal matrix (sep-CMA-ES), O(n) per offspring, learns only the scaling of the coordinates.
+         * @see <a href="http://hal.archives-ouvertes.fr/inria-00287367/en">A Simple Modification in CMA-ES</a>
+         */
+        SEPARABLE,
+        /**
+         * Cholesky factor reconstructed from the last few evolution paths (LM-CMA),
+         * O(m n) per offspring for m = 4 + 3 ln(n) paths. Unlike in the paper, the step size is adapted
+         * with the cumulative step-size adaptation, as the population success rule converged prematurely on Ackley.
+         * The stop criteria see the diagonal of C = A A^T, recomputed whenever the factor changes, and its square
+         * roots in place of the eigenvalues, so the condition criterion bounds the ratio of the coordinate-wise
+         * standard deviations, as in {@link #SEPARABLE}.
+         * @see <a href="https://arxiv.org/abs/1511.00221">LM-CMA: an Alternative to L-BFGS for Large Scale Black-box Optimization</a>
+         */
+        LIMITED_MEMORY,
+        /// {@link #FULL} below {@link PrimitiveCMAESOptimizer#LIMITED_MEMORY_DIMENSION}, {@link #LIMITED_MEMORY} from it
+        AUTOMATIC
+    }
+
+    @Setter private boolean stopIfSigmaIncrease = false;
+    @Setter private double precision = Double.NaN;
+    /// chosen before the initialization
+    @Getter @Setter private CovarianceModel covarianceModel = CovarianceModel.FULL;
+    /**
+     * Number of generations between the eigendecompositions of the full covariance matrix, 0 to derive it
+     * from the learning rates as 1 / (c1 + cmu) / n / 10, which is the usual lambda / (c1 + cmu) / n / 10
+     * evaluations. The matrix itself is updated every generation.
+     */
+    @Getter @Setter private int eigenUpdateInterval = 1;
+
+    private boolean initialized = false;
+    private boolean isMinimize = true;
+    private double[] inputSigma;
+    private Individual[] inputIndividuals;
+    private double[] lowerBound;
+    private double[] upperBound;
+
+    // strategy parameters, see CMAESOptimizer
+    private int lambda;
+    private int n;
+    private int mu;
+    private double[] weights;
+    private double mueff;
+    private double cc;
+    private double cs;
+    private double damps;
+    private double ccov1;
+    private double ccovmu;
+    private double chiN;
+    private double stopTolUpX;
+    private double stopTolX;
+    private double stopTolFun;
+    private double stopTolHistFun;
+    /// the model in use, never automatic
+    private CovarianceModel model;
+    private int eigenInterval;
+    private double ccov1Sep;
+    private double ccovmuSep;
+
+    // state, n x n matrices stored column by column
+    @Getter private double sigma;
+    private double[] xmean;
+    private double[] xold;
+    private double[] pc;
+    private double[] ps;
+    private double normps;
+    private double[] B;
+    private double[] diagD;
+    private double[] BD;
+    private double[] C;
+    private double[] diagC;
+    private double bestValue;
+    private double[] fitnessHistory;
+    private int lastEigenIteration;
+
+    // limited memory model, n-vectors stored row by row from the oldest
+    /// stored evolution paths
+    private double[] lmP;
+    /// their images under the inverse Cholesky factor at the time of storing
+    private double[] lmV;
+    private double[] lmB;
+    private double[] lmD;
+    private int lmCount;
+    private int lmCapacity;
+    private int lmSteps;
+    private double lmC1;
+    private double lmA;
+
+    // buffers reused every generation
+    /// gaussian samples and offspring, n x capacity
+    private double[] arz;
+    private double[] arx;
+    private int[] arindex;
+    private long[] sortKeys;
+    private double[] zmean;
+    /// mu difference vectors and negative update vectors, n x mu
+    private double[] arpos;
+    private double[] artmp;
+    private double[] arnorms;
+    private double[] arnormsInv;
+    private int[] normIndex;
+    private double[] eigenE;
+    private double[] lmZ;
+
+    public PrimitiveCMAESOptimizer(double stopFitness, Random random, IndividualEvaluator ie, FitnessExtractor fe) {
+        super(null);
+        this.stopFitness = stopFitness;
+        this.random = random;
+        this.ie = ie;
+        this.fe = fe;
+    }
+
+    /**
+     * Not supported operation.
+     */
+    @Override
+    public PointValuePair optimize(OptimizationData... optData) {
+        throw new NotImplementedException("This method shouldn't be called in this implementation");
+    }
+
+    /**
+     * Do nothing. The control will come from outside.
+     */
+    @Override
+    protected PointValuePair doOptimize() {
+        return null;
+    }
+
+    @Override
+    public double computeObjectiveValue(double[] params) {
+        throw new IllegalStateException("Don't use this method");
+    }
+
+    @Override
+    public void initialize(OptimizationData... optData) {
+        if (initialized) {
+            throw new IllegalStateException("This instance has already been initialized");
+        }
+        super.optimize(optData);
+
+        isMinimize = getGoalType().equals(GoalType.MINIMIZE);
+        lowerBound = getLowerBound();
+        upperBound = getUpperBound();
+        if (getStartPoint() != null) {
+            final double[] guess = getStartPoint();
+            n = guess.length;
+            initializeCMA(guess);
+            bestValue = ie.evaluate(guess, precision)[0];
+        } else {
+            n = inputIndividuals[0].getPoint().length;
+            bestValue = Double.MAX_VALUE;
+            double[] bestPoint = null;
+            for (final Individual ind: inputIndividuals) {
+                final double obj = ind.getObjectives()[0];
+                if (obj < bestValue) {
+                    bestValue = obj;
+                    bestPoint = ind.getPoint();
+                }
+            }
+            initializeCMA(bestPoint);
+        }
+        push(fitnessHistory, bestValue);
+        initialized = true;
+    }
+
+    @Override
+    public Population apply(Level level, Deme deme, State state) {
+        return runOneStep();
+    }
+
+    @Override
+    public Population runOneStep() {
+        if (!initialized) {
+            throw new IllegalStateException("To perform a step the instance must be initialized first");
+        }
+        incrementIterationCount();
+
+        final boolean isInitialRunWithInputPopulation = getStartPoint() == null && iterations.getCount() == 1;
+        final int count = isInitialRunWithInputPopulation ? inputIndividuals.length : lambda;
+
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < count; k++) {
+                arz[i + k * n] = random.nextGaussian();
+            }
+        }
+        final Population population;
+        if (!isInitialRunWithInputPopulation) {
+            population = new Population(lambda);
+            final Individual[] individuals = population.getIndividuals();
+            for (int k = 0; k < lambda; k++) {
+                while (!sampleOffspring(k)) {
+                    for (int i = 0; i < n; i++) {
+                        arz[i + k * n] = random.nextGaussian();
+                    }
+                }
+                individuals[k] = new SimpleIndividual(Arrays.copyOfRange(arx, k * n, (k + 1) * n));
+            }
+            ie.evaluate(population, precision);
+        } else {
+            for (int k = 0; k < count; k++) {
+                System.arraycopy(inputIndividuals[k].getPoint(), 0, arx, k * n, n);
+            }
+            population = new Population(inputIndividuals);
+        }
+        final double[] fitness = fe.extractFitness(population);
+
+        sortedIndices(fitness, count, sortKeys, arindex);
+        // selection and recombination
+        final double[] swap = xold;
+        xold = xmean;
+        xmean = swap;
+        for (int i = 0; i < n; i++) {
+            double x = 0;
+            double z = 0;
+            for (int k = 0; k < mu; k++) {
+                final int col = selected(k, count);
+                x += arx[i + col * n] * weights[k];
+                z += arz[i + col * n] * weights[k];
+            }
+            xmean[i] = x;
+            zmean[i] = z;
+        }
+        final boolean hsig = updateEvolutionPaths();
+        switch (model) {
+            case FULL:
+                updateCovariance(hsig, count);
+                break;
+            case SEPARABLE:
+                updateCovarianceSeparable(hsig, count);
+                break;
+            default:
+                updateLimitedMemory();
+        }
+        sigma *= FastMath.exp(FastMath.min(1, (normps / chiN - 1) * cs / damps));
+
+        final double bestFitness = fitness[arindex[0]];
+        final double worstFitness = fitness[arindex[count - 1]];
+        if (bestValue > bestFitness) {
+            bestValue = bestFitness;
+        }
+        if (stopFitness >= 0. && bestFitness <= (isMinimize ? stopFitness : -stopFitness)) {
+            return null;
+        }
+        for (int i = 0; i < n; i++) {
+            if (sigma * FastMath.max(FastMath.abs(pc[i]), FastMath.sqrt(diagC[i])) > stopTolX) {
+                break;
+            }
+            if (i >= n - 1) {
+                return null;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (sigma * FastMath.sqrt(diagC[i]) > stopTolUpX) {
+                return null;
+            }
+        }
+        final double historyBest = min(fitnessHistory);
+        final double historyWorst = max(fitnessHistory);
+        if (iterations.getCount() > 2 &&
+            FastMath.max(historyWorst, worstFitness) -
+            FastMath.min(historyBest, bestFitness) < stopTolFun) {
+            return null;
+        }
+        if (iterations.getCount() > fitnessHistory.length &&
+            historyWorst - historyBest < stopTolHistFun) {
+            return null;
+        }
+        if (max(diagD) / min(diagD) > 1e7) {
+            return null;
+        }
+        // adjust step size in case of equal function values (flat fitness)
+        if (bestValue == fitness[arindex[(int) (0.1 + count / 4.)]]) {
+            if (stopIfSigmaIncrease) {
+                return null;
+            } else {
+                sigma *= FastMath.exp(0.2 + cs / damps);
+            }
+        }
+        if (iterations.getCount() > 2 && FastMath.max(historyWorst, bestFitness) -
+            FastMath.min(historyBest, bestFitness) == 0) {
+            sigma *= FastMath.exp(0.2 + cs / damps);
+        }
+        push(fitnessHistory, bestFitness);
+        log.info(String.format("Best fitness: %e", bestFitness));
+        return population;
+    }
+
+    /// the diagonal of the covariance matrix as seen by the stop criteria
+    double[] getDiagC() {
+        return diagC;
+    }
+
+    @Override
+    public RealMatrix getXmean() {
+        return MatrixUtils.createColumnRealMatrix(xmean);
+    }
+
+    /**
+     * @return the covariance matrix, computed from its factor for the limited memory model
+     */
+    @Override
+    public RealMatrix getC() {
+        final RealMatrix result = MatrixUtils.createRealMatrix(n, n);
+        if (model == CovarianceModel.FULL) {
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i < n; i++) {
+                    result.setEntry(i, j, C[i + j * n]);
+                }
+            }
+        } else if (model == CovarianceModel.SEPARABLE) {
+            for (int i = 0; i < n; i++) {
+                result.setEntry(i, i, diagC[i]);
+            }
+        } else {
+            // C = A A^T, the columns of A are the images of the unit vectors
+            final double[] columns = new double[n * n];
+            final double[] unit = new double[n];
+            for (int j = 0; j < n; j++) {
+                unit[j] = 1;
+                multiplyByFactor(unit, 0, columns, j * n);
+                unit[j] = 0;
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double sum = 0;
+                    for (int k = 0; k < n; k++) {
+                        sum += columns[i + k * n] * columns[j + k * n];
+                    }
+                    result.setEntry(i, j, sum);
+                    result.setEntry(j, i, sum);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void parseOptimizationData(OptimizationData... optData) {
+        super.parseOptimizationData(optData);
+        for (final OptimizationData data : optData) {
+            if (data instanceof CMAESOptimizer.Sigma) {
+                inputSigma = ((CMAESOptimizer.Sigma) data).getSigma();
+            } else if (data instanceof CMAESOptimizer.PopulationSize) {
+                lambda = ((CMAESOptimizer.PopulationSize) data).getPopulationSize();
+            } else if (data instanceof CMAESOptimizer.FirstPopulation) {
+                inputIndividuals = ((CMAESOptimizer.FirstPopulation) data).getIndividuals();
+            }
+        }
+        checkParameters();
+    }
+
+    private void checkParameters() {
+        final double[] init = getStartPoint();
+        final double[] lB = getLowerBound();
+        final double[] uB = getUpperBound();
+
+        if (inputSigma != null && init != null) {
+            if (inputSigma.length != init.length) {
+                throw new DimensionMismatchException(inputSigma.length, init.length);
+            }
+            for (int i = 0; i < init.length; i++) {
+                if (inputSigma[i] > uB[i] - lB[i]) {
+                    throw new OutOfRangeException(inputSigma[i], 0, uB[i] - lB[i]);
+                }
+            }
+        }
+
+        if (getStartPoint() != null && inputIndividuals != null) {
+            throw new IllegalArgumentException("Only Guess or FirstPopulation may be set at once, not both");
+        }
+    }
+
+    private void initializeCMA(double[] start) {
+        if (lambda <= 0) {
+            throw new NotStrictlyPositiveException(lambda);
+        }
+        if (covarianceModel == CovarianceModel.AUTOMATIC) {
+            model = n < LIMITED_MEMORY_DIMENSION ? CovarianceModel.FULL : CovarianceModel.LIMITED_MEMORY;
+        } else {
+            model = covarianceModel;
+        }
+        sigma = max(inputSigma);
+
+        stopTolUpX = 1e3 * sigma;
+        stopTolX = 1e-11 * sigma;
+        stopTolFun = 1e-12;
+        stopTolHistFun = 1e-13;
+
+        mu = lambda / 2;
+        final double logMu2 = FastMath.log(mu + 0.5);
+        weights = new double[mu];
+        double sumw = 0;
+        double sumwq = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] = -FastMath.log(i + 1) + logMu2;
+            sumw += weights[i];
+            sumwq += weights[i] * weights[i];
+        }
+        for (int i = 0; i < mu; i++) {
+            weights[i] *= 1 / sumw;
+        }
+        mueff = sumw * sumw / sumwq;
+
+        cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+        cs = (mueff + 2) / (n + mueff + 3.);
+        damps = (1 + 2 * FastMath.max(0, FastMath.sqrt((mueff - 1) / (n + 1)) - 1)) + cs;
+        ccov1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+        ccovmu = FastMath.min(1 - ccov1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+        ccov1Sep = FastMath.min(1, ccov1 * (n + 1.5) / 3);
+        ccovmuSep = FastMath.min(1 - ccov1, ccovmu * (n + 1.5) / 3);
+        chiN = FastMath.sqrt(n) * (1 - 1 / ((double) 4 * n) + 1 / ((double) 21 * n * n));
+        eigenInterval = eigenUpdateInterval > 0
+                ? eigenUpdateInterval
+                : FastMath.max(1, (int) (1 / (ccov1 + ccovmu) / n / 10));
+        lastEigenIteration = 0;
+
+        xmean = start.clone();
+        xold = new double[n];
+        pc = new double[n];
+        ps = new double[n];
+        normps = 0;
+        diagD = new double[n];
+        diagC = new double[n];
+        for (int i = 0; i < n; i++) {
+            diagD[i] = inputSigma[i] * (1 / sigma);
+            diagC[i] = diagD[i] * diagD[i];
+        }
+        if (model == CovarianceModel.FULL) {
+            B = new double[n * n];
+            BD = new double[n * n];
+            C = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                B[i + i * n] = 1;
+                BD[i + i * n] = diagD[i];
+                // as in CMAESOptimizer the initial C is the identity, only diagC is scaled
+                C[i + i * n] = 1;
+            }
+        } else if (model == CovarianceModel.LIMITED_MEMORY) {
+            // the factor starts as the identity, the coordinate-wise sigmas only scale the overall one
+            Arrays.fill(diagD, 1);
+            Arrays.fill(diagC, 1);
+            lmCapacity = 4 + (int) (3 * FastMath.log(n));
+            lmSteps = n;
+            lmC1 = 0.1 / FastMath.log(n + 1);
+            lmA = FastMath.sqrt(1 - lmC1);
+            cc = 0.5 / FastMath.sqrt(n);
+            lmP = new double[lmCapacity * n];
+            lmV = new double[lmCapacity * n];
+            lmB = new double[lmCapacity];
+            lmD = new double[lmCapacity];
+            lmCount = 0;
+        }
+        final int historySize = 10 + (int) (3 * 10 * n / (double) lambda);
+        fitnessHistory = new double[historySize];
+        Arrays.fill(fitnessHistory, Double.MAX_VALUE);
+
+        final int capacity = Math.max(lambda, inputIndividuals == null ? 0 : inputIndividuals.length);
+        arz = new double[n * capacity];
+        arx = new double[n * capacity];
+        arindex = new int[capacity];
+        sortKeys = new long[capacity];
+        zmean = new double[n];
+        arpos = new double[n * mu];
+        if (model == CovarianceModel.FULL) {
+            artmp = new double[n * mu];
+            arnorms = new double[mu];
+            arnormsInv = new double[mu];
+            normIndex = new int[mu];
+            eigenE = new double[n];
+        } else if (model == CovarianceModel.LIMITED_MEMORY) {
+            lmZ = new double[n];
+        }
+    }
+
+    /**
+     * Computes offspring k as m + sigma * BD * z_k into arx, BD being the factor of the covariance matrix.
+     *
+     * @return if the offspring lies within the bounds
+     */
+    private boolean sampleOffspring(int k) {
+        if (model == CovarianceModel.LIMITED_MEMORY) {
+            multiplyByFactor(arz, k * n, lmZ, 0);
+        }
+        for (int i = 0; i < n; i++) {
+            final double sum;
+            if (model == CovarianceModel.FULL) {
+                double s = 0;
+                for (int j = 0; j < n; j++) {
+                    s += BD[i + j * n] * arz[j + k * n];
+                }
+                sum = s;
+            } else if (model == CovarianceModel.SEPARABLE) {
+                sum = diagD[i] * arz[i + k * n];
+            } else {
+                sum = lmZ[i];
+            }
+            final double x = xmean[i] + sum * sigma;
+            if (x < lowerBound[i] || x > upperBound[i]) {
+                return false;
+            }
+            arx[i + k * n] = x;
+        }
+        return true;
+    }
+
+    /**
+     * @return column of the k-th best offspring, padded with the first column when there are less than mu of them
+     */
+    private int selected(int k, int count) {
+        return k < count ? arindex[k] : 0;
+    }
+
+    private boolean updateEvolutionPaths() {
+        final double psFactor = FastMath.sqrt(cs * (2 - cs) * mueff);
+        double norm = 0;
+        for (int i = 0; i < n; i++) {
+            double bz = 0;
+            if (model == CovarianceModel.FULL) {
+                for (int j = 0; j < n; j++) {
+                    bz += B[i + j * n] * zmean[j];
+                }
+            } else {
+                bz = zmean[i];
+            }
+            ps[i] = ps[i] * (1 - cs) + bz * psFactor;
+            norm += ps[i] * ps[i];
+        }
+        normps = FastMath.sqrt(norm);
+        final boolean hsig = normps /
+            FastMath.sqrt(1 - FastMath.pow(1 - cs, 2 * iterations.getCount())) /
+            chiN < 1.4 + 2 / ((double) n + 1);
+        final double pcFactor = FastMath.sqrt(cc * (2 - cc) * mueff) / sigma;
+        for (int i = 0; i < n; i++) {
+            pc[i] *= 1 - cc;
+            if (hsig) {
+                pc[i] += (xmean[i] - xold[i]) * pcFactor;
+            }
+        }
+        return hsig;
+    }
+
+    /**
+     * Active covariance update, i.e. rank-one and rank-mu updates from the mu best offspring
+     * and a negative rank-mu update from the mu worst ones.
+     */
+    private void updateCovariance(boolean hsig, int count) {
+        double negccov = 0;
+        if (ccov1 + ccovmu > 0) {
+            for (int k = 0; k < mu; k++) {
+                final int col = selected(k, count);
+                for (int i = 0; i < n; i++) {
+                    arpos[i + k * n] = (arx[i + col * n] - xold[i]) * (1 / sigma);
+                }
+            }
+            double oldFac = hsig ? 0 : ccov1 * cc * (2 - cc);
+            oldFac += 1 - ccov1 - ccovmu;
+
+            negccov = (1 - ccovmu) * 0.25 * mueff / (FastMath.pow(n + 2, 1.5) + 2 * mueff);
+            // keep at least 0.66 in all directions, small popsize are most critical
+            final double negminresidualvariance = 0.66;
+            // where to make up for the variance loss
+            final double negalphaold = 0.5;
+            // the worst offspring first, their gaussian samples are rescaled so that
+            // the longest one gets the length of the shortest one and so on
+            for (int k = 0; k < mu; k++) {
+                final int col = k < count ? arindex[count - 1 - k] : 0;
+                double norm = 0;
+                for (int i = 0; i < n; i++) {
+                    norm += arz[i + col * n] * arz[i + col * n];
+                }
+                arnorms[k] = FastMath.sqrt(norm);
+            }
+            sortedIndices(arnorms, mu, sortKeys, normIndex);
+            for (int j = 0; j < mu; j++) {
+                arnormsInv[normIndex[j]] = arnorms[normIndex[mu - 1 - j]] / arnorms[normIndex[j]];
+            }
+            double weightedSquares = 0;
+            for (int k = 0; k < mu; k++) {
+                weightedSquares += arnormsInv[k] * arnormsInv[k] * weights[k];
+            }
+            final double negcovMax = (1 - negminresidualvariance) / weightedSquares;
+            if (negccov > negcovMax) {
+                negccov = negcovMax;
+            }
+            for (int k = 0; k < mu; k++) {
+                final int col = k < count ? arindex[count - 1 - k] : 0;
+                for (int i = 0; i < n; i++) {
+                    double sum = 0;
+                    for (int j = 0; j < n; j++) {
+                        sum += BD[i + j * n] * (arz[j + col * n] * arnormsInv[k]);
+                    }
+                    artmp[i + k * n] = sum;
+                }
+            }
+            oldFac += negalphaold * negccov;
+            final double posFac = ccovmu + (1 - negalphaold) * negccov;
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i <= j; i++) {
+                    double pos = 0;
+                    double neg = 0;
+                    for (int k = 0; k < mu; k++) {
+                        pos += arpos[i + k * n] * posFac * (weights[k] * arpos[j + k * n]);
+                        neg += artmp[i + k * n] * weights[k] * artmp[j + k * n];
+                    }
+                    C[i + j * n] = C[i + j * n] * oldFac + pc[i] * pc[j] * ccov1 + pos - neg * negccov;
+                }
+            }
+            // only the upper triangle has been updated
+            for (int j = 0; j < n; j++) {
+                diagC[j] = C[j + j * n];
+                for (int i = j + 1; i < n; i++) {
+                    C[i + j * n] = C[j + i * n];
+                }
+            }
+        }
+        updateBD(negccov);
+    }
+
+    /**
+     * Updates B and D from C every eigenInterval generations. With the interval of 1 it's the schedule
+     * of {@link CMAESOptimizer}, whose lazy update condition always holds.
+     */
+    private void updateBD(double negccov) {
+        if (ccov1 + ccovmu + negccov > 0 &&
+            iterations.getCount() - lastEigenIteration >= eigenInterval) {
+            lastEigenIteration = iterations.getCount();
+            System.arraycopy(C, 0, B, 0, n * n);
+            eigen(B, diagD, eigenE, n);
+            if (min(diagD) <= 0) {
+                for (int i = 0; i < n; i++) {
+                    if (diagD[i] < 0) {
+                        diagD[i] = 0;
+                    }
+                }
+                addToDiagonal(max(diagD) / 1e14);
+            }
+            if (max(diagD) > 1e14 * min(diagD)) {
+                addToDiagonal(max(diagD) / 1e14 - min(diagD));
+            }
+            for (int i = 0; i < n; i++) {
+                diagC[i] = C[i + i * n];
+                diagD[i] = FastMath.sqrt(diagD[i]);
+            }
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i < n; i++) {
+                    BD[i + j * n] = B[i + j * n] * diagD[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Update of the diagonal covariance matrix, the same as {@link CMAESOptimizer} does for diagonalOnly.
+     */
+    private void updateCovarianceSeparable(boolean hsig, int count) {
+        double oldFac = hsig ? 0 : ccov1Sep * cc * (2 - cc);
+        oldFac += 1 - ccov1Sep - ccovmuSep;
+        for (int i = 0; i < n; i++) {
+            double rankMu = 0;
+            for (int k = 0; k < mu; k++) {
+                final double z = arz[i + selected(k, count) * n];
+                rankMu += z * z * weights[k];
+            }
+            diagC[i] = diagC[i] * oldFac + pc[i] * pc[i] * ccov1Sep + diagC[i] * rankMu * ccovmuSep;
+            diagD[i] = FastMath.sqrt(diagC[i]);
+        }
+    }
+
+    /**
+     * Every lmSteps generations stores the evolution path as the newest rank-one update of the Cholesky factor,
+     * A' = a A + b p v^T with v = A^-1 p, dropping the oldest one when the memory is full.
+     */
+    private void updateLimitedMemory() {
+        if (iterations.getCount() % lmSteps != 0) {
+            return;
+        }
+        int first = lmCount;
+        if (lmCount == lmCapacity) {
+            // all the later factors change with the oldest update dropped
+            System.arraycopy(lmP, n, lmP, 0, (lmCapacity - 1) * n);
+            first = 0;
+        } else {
+            lmCount++;
+        }
+        System.arraycopy(pc, 0, lmP, (lmCount - 1) * n, n);
+        final double ratio = lmC1 / (1 - lmC1);
+        for (int t = first; t < lmCount; t++) {
+            System.arraycopy(lmP, t * n, lmV, t * n, n);
+            multiplyByInverseFactor(lmV, t * n, t);
+            double norm2 = 0;
+            for (int i = 0; i < n; i++) {
+                norm2 += lmV[t * n + i] * lmV[t * n + i];
+            }
+            if (norm2 > 0) {
+                final double root = FastMath.sqrt(1 + ratio * norm2);
+                lmB[t] = lmA / norm2 * (root - 1);
+                lmD[t] = 1 / (lmA * norm2) * (1 - 1 / root);
+            } else {
+                lmB[t] = 0;
+                lmD[t] = 0;
+            }
+        }
+        updateLimitedMemoryDiagonal();
+    }
+
+    /**
+     * Recomputes diagC as the diagonal of C = A A^T, i.e. the squared norms of the rows of the factor A,
+     * from its columns A e_j. It's O(m n^2), but done once every lmSteps = n generations.
+     */
+    private void updateLimitedMemoryDiagonal() {
+        Arrays.fill(diagC, 0);
+        final double[] unit = new double[n];
+        for (int j = 0; j < n; j++) {
+            unit[j] = 1;
+            multiplyByFactor(unit, 0, lmZ, 0);
+            unit[j] = 0;
+            for (int i = 0; i < n; i++) {
+                diagC[i] += lmZ[i] * lmZ[i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            diagD[i] = FastMath.sqrt(diagC[i]);
+        }
+    }
+
+    /**
+     * Computes y = A z with the Cholesky factor A of the limited memory model.
+     */
+    private void multiplyByFactor(double[] z, int zOff, double[] y, int yOff) {
+        System.arraycopy(z, zOff, y, yOff, n);
+        for (int t = 0; t < lmCount; t++) {
+            double dot = 0;
+            for (int i = 0; i < n; i++) {
+                dot += lmV[t * n + i] * z[zOff + i];
+            }
+            final double coef = lmB[t] * dot;
+            for (int i = 0; i < n; i++) {
+                y[yOff + i] = lmA * y[yOff + i] + coef * lmP[t * n + i];
+            }
+        }
+    }
+
+    /**
+     * Computes x = A_t^-1 x in place, A_t being the factor built from the first t updates.
+     */
+    private void multiplyByInverseFactor(double[] x, int off, int t) {
+        for (int s = 0; s < t; s++) {
+            double dot = 0;
+            for (int i = 0; i < n; i++) {
+                dot += lmV[s * n + i] * x[off + i];
+            }
+            final double coef = lmD[s] * dot;
+            for (int i = 0; i < n; i++) {
+                x[off + i] = x[off + i] / lmA - coef * lmV[s * n + i];
+            }
+        }
+    }
+
+    private void addToDiagonal(double tfac) {
+        for (int i = 0; i < n; i++) {
+            C[i + i * n] += tfac;
+            diagD[i] += tfac;
+        }
+    }
+
+    /**
+     * Sorts the first count values ascending, ties by index as a stable sort would.
+     */
+    private static void sortedIndices(double[] values, int count, long[] keys, int[] out) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = ArraysUtil.sortableKey(values[i]);
+            out[i] = i;
+        }
+        ArraysUtil.partialArgsort(keys, out, count, count);
+    }
+
+    /**
+     * Eigendecomposition of a symmetric matrix, by Householder reduction to a tridiagonal form
+     * followed by the implicit QL method (tred2 and tql2 of JAMA/EISPACK).
+     *
+     * @param V on input the symmetric matrix, on output its orthonormal eigenvectors, column by column
+     * @param d output eigenvalues in ascending order
+     * @param e scratch buffer of length n
+     * @param n matrix size
+     */
+    static void eigen(double[] V, double[] d, double[] e, int n) {
+        tred2(V, d, e, n);
+        tql2(V, d, e, n);
+    }
+
+    private static void tred2(double[] V, double[] d, double[] e, int n) {
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1 + j * n];
+        }
+        for (int i = n - 1; i > 0; i--) {
+            double scale = 0;
+            double h = 0;
+            for (int k = 0; k < i; k++) {
+                scale += FastMath.abs(d[k]);
+            }
+            if (scale == 0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = V[i - 1 + j * n];
+                    V[i + j * n] = 0;
+                    V[j + i * n] = 0;
+                }
+            } else {
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = FastMath.sqrt(h);
+                if (f > 0) {
+                    g = -g;
+                }
+                e[i] = scale * g;
+                h = h - f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) {
+                    e[j] = 0;
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    V[j + i * n] = f;
+                    g = e[j] + V[j + j * n] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += V[k + j * n] * d[k];
+                        e[k] += V[k + j * n] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                final double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        V[k + j * n] -= (f * e[k] + g * d[k]);
+                    }
+                    d[j] = V[i - 1 + j * n];
+                    V[i + j * n] = 0;
+                }
+            }
+            d[i] = h;
+        }
+        // accumulate the transformations
+        for (int i = 0; i < n - 1; i++) {
+            V[n - 1 + i * n] = V[i + i * n];
+            V[i + i * n] = 1;
+            final double h = d[i + 1];
+            if (h != 0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = V[k + (i + 1) * n] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0;
+                    for (int k = 0; k <= i; k++) {
+                        g += V[k + (i + 1) * n] * V[k + j * n];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        V[k + j * n] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                V[k + (i + 1) * n] = 0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1 + j * n];
+            V[n - 1 + j * n] = 0;
+        }
+        V[n - 1 + (n - 1) * n] = 1;
+        e[0] = 0;
+    }
+
+    private static void tql2(double[] V, double[] d, double[] e, int n) {
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        e[n - 1] = 0;
+        double f = 0;
+        double tst1 = 0;
+        final double eps = FastMath.pow(2.0, -52.0);
+        for (int l = 0; l < n; l++) {
+            // find a small subdiagonal element
+            tst1 = FastMath.max(tst1, FastMath.abs(d[l]) + FastMath.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && FastMath.abs(e[m]) > eps * tst1) {
+                m++;
+            }
+            // if m == l, d[l] is an eigenvalue, otherwise iterate
+            if (m > l) {
+                do {
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = FastMath.hypot(p, 1.0);
+                    if (p < 0) {
+                        r = -r;
+                    }
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    final double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) {
+                        d[i] -= h;
+                    }
+                    f = f + h;
+                    // implicit QL transformation
+                    p = d[m];
+                    double c = 1;
+                    double c2 = c;
+                    double c3 = c;
+                    final double el1 = e[l + 1];
+                    double s = 0;
+                    double s2 = 0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = FastMath.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+                        for (int k = 0; k < n; k++) {
+                            h = V[k + (i + 1) * n];
+                            V[k + (i + 1) * n] = s * V[k + i * n] + c * h;
+                            V[k + i * n] = c * V[k + i * n] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+                } while (FastMath.abs(e[l]) > eps * tst1);
+            }
+            d[l] = d[l] + f;
+            e[l] = 0;
+        }
+        // sort the eigenvalues and vectors in ascending order
+        for (int i = 0; i < n - 1; i++) {
+            int k = i;
+            double p = d[i];
+            for (int j = i + 1; j < n; j++) {
+                if (d[j] < p) {
+                    k = j;
+                    p = d[j];
+                }
+            }
+            if (k != i) {
+                d[k] = d[i];
+                d[i] = p;
+                for (int j = 0; j < n; j++) {
+                    p = V[j + i * n];
+                    V[j + i * n] = V[j + k * n];
+                    V[j + k * n] = p;
+                }
+            }
+        }
+    }
+
+    private static void push(double[] vals, double val) {
+        System.arraycopy(vals, 0, vals, 1, vals.length - 1);
+        vals[0] = val;
+    }
+
+    private static double max(double[] m) {
+        double max = -Double.MAX_VALUE;
+        for (final double v : m) {
+            if (max < v) {
+                max = v;
+            }
+        }
+        return max;
+    }
+
+    private static double min(double[] m) {
+        double min = Double.MAX_VALUE;
+        for (final double v : m) {
+            if (min > v) {
+                min = v;
+            }
+        }
+        return min;
+    }
+
+}
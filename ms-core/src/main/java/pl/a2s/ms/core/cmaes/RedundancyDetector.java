@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.cmaes;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import pl.a2s.ms.core.clu.EllipsoidMembership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Finds CMA-ES instances converging into the same basin, so that all but the best of them can be terminated.
+ * <p>
+ * Two instances overlap if the mean of each of them lies within {@link #radius} standard deviations of
+ * the search distribution of the other, i.e. (m_j - m_i)^T (sigma_i^2 C_i)^-1 (m_j - m_i) &lt;= radius^2 and
+ * the other way round. Requiring both keeps a wide instance from terminating a narrow one in a neighbouring basin.
+ * <p>
+ * The terminations are recorded to estimate the evaluations saved, assuming that a terminated instance would
+ * have needed as many generations as the one it duplicated, so every orchestrator needs its own detector.
+ */
+public class RedundancyDetector {
+
+    /// number of generations between the checks
+    @Getter @Setter private int interval = 5;
+    /// Mahalanobis distance between the means, in standard deviations of the search distributions
+    @Getter @Setter private double radius = 3;
+
+    private final List<Termination> terminations = new ArrayList<>();
+
+    /**
+     * @param optimizers running optimizers of the same dimension
+     * @param bestFitness the best fitness of every optimizer, the lower the better
+     * @return for every optimizer the index of a better one it overlaps with, -1 if it should keep running
+     */
+    public int[] findRedundant(List<CMAESStrategy> optimizers, double[] bestFitness) {
+        final int n = optimizers.size();
+        final int[] survivorOf = new int[n];
+        Arrays.fill(survivorOf, -1);
+        if (n < 2) {
+            return survivorOf;
+        }
+        final EllipsoidMembership ellipsoids = new EllipsoidMembership(optimizers.get(0).getXmean().getRowDimension());
+        final double[][] means = new double[n][];
+        final boolean[] valid = new boolean[n];
+        final int[] ellipsoidOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            final CMAESStrategy optimizer = optimizers.get(i);
+            means[i] = optimizer.getXmean().getColumn(0);
+            ellipsoidOf[i] = ellipsoids.size();
+            // an instance without a positive definite covariance is never considered redundant
+            valid[i] = ellipsoids.add(means[i], optimizer.getC().getData(), radius * optimizer.getSigma());
+        }
+        // better instances first, the earlier one in case of a tie
+        final int[] order = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> bestFitness[i]).thenComparingInt(i -> i))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int a = 0; a < n; a++) {
+            final int better = order[a];
+            if (!valid[better] || survivorOf[better] >= 0) {
+                continue;
+            }
+            for (int b = a + 1; b < n; b++) {
+                final int worse = order[b];
+                if (valid[worse] && survivorOf[worse] < 0
+                        && ellipsoids.contains(ellipsoidOf[better], means[worse])
+                        && ellipsoids.contains(ellipsoidOf[worse], means[better])) {
+                    survivorOf[worse] = better;
+                }
+            }
+        }
+        return survivorOf;
+    }
+
+    /**
+     * @return true if the instances overlap, see {@link RedundancyDetector}
+     */
+    public boolean overlap(CMAESStrategy first, CMAESStrategy second) {
+        final int[] survivorOf = findRedundant(Arrays.asList(first, second), new double[] {0, 1});
+        return survivorOf[1] == 0;
+    }
+
+    /**
+     * Records a termination for {@link #getEvaluationsSaved()}.
+     *
+     * @param terminated the terminated instance
+     * @param populationSize population size of the terminated instance
+     * @param survivor the instance it duplicated
+     */
+    public void recordTermination(CMAESStrategy terminated, int populationSize, CMAESStrategy survivor) {
+        terminations.add(new Termination(terminated.getIterations(), populationSize, survivor));
+    }
+
+    public int getTerminationCount() {
+        return terminations.size();
+    }
+
+    /**
+     * @return the estimated number of evaluations saved by the recorded terminations
+     */
+    public long getEvaluationsSaved() {
+        long saved = 0;
+        for (final Termination t : terminations) {
+            saved += (long) t.populationSize * Math.max(0, t.survivor.getIterations() - t.iterations);
+        }
+        return saved;
+    }
+
+    @RequiredArgsConstructor
+    private static class Termination {
+        /// iterations of the terminated instance
+        private final int iterations;
+        private final int populationSize;
+        private final CMAESStrategy survivor;
+    }
+
+}
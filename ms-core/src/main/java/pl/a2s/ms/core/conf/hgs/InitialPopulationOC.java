@@ -20,10 +20,7 @@ package pl.a2s.ms.core.conf.hgs;
 import pl.a2s.ms.core.orch.HgsOrchestrator;
 import pl.a2s.ms.core.orch.hgs.Deme;
 import pl.a2s.ms.core.orch.hgs.HgsState;
-import pl.a2s.ms.core.orch.hgs.Level;
 import pl.a2s.ms.core.util.RandomSampleGenerator;
-import pl.a2s.ms.core.ie.IndividualEvaluator;
-import pl.a2s.ms.core.ie.ParallelIndividualEvaluator;
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.ind.SimpleIndividual;
@@ -37,8 +34,7 @@ public class InitialPopulationOC extends HgsOrchestratorConfigurer {
         final HgsState state = orch.state;
 
         final Population population = initialPopulation(state, orch.rand);
-        setPrecisionIfPossible(orch.individualEvaluator, state.getHgsDemes()[0]);
-        orch.individualEvaluator.evaluate(population);
+        orch.individualEvaluator.evaluate(population, state.getHgsDemes()[0].evaluationPrecision(orch.individualEvaluator));
 
         final Deme rootDeme = Deme.builder()
                 .stopped(false)
@@ -48,12 +44,6 @@ public class InitialPopulationOC extends HgsOrchestratorConfigurer {
         state.getHgsDemes()[0].getDemes().add(rootDeme);
     }
 
-    private void setPrecisionIfPossible(IndividualEvaluator ie, Level level) {
-        if (ie instanceof ParallelIndividualEvaluator && level.getPrecision() > 0) {
-            ((ParallelIndividualEvaluator) ie).setPrecision(level.getPrecision());
-        }
-    }
-
     private Population initialPopulation(HgsState state, Random rand) {
         final int size = state.getPopulationSizes()[0];
         final Population population = new Population(size);
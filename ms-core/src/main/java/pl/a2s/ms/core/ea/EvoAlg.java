@@ -26,4 +26,12 @@ public interface EvoAlg {
 
     Population apply(Level level, Deme deme, State state);
 
+    /**
+     * Called when the population of the deme is replaced other than with the result of
+     * {@link #apply(Level, Deme, State)}, e.g. when another deme is merged into it,
+     * so that any state kept for the deme can follow the new population.
+     */
+    default void populationReplaced(Deme deme) {
+    }
+
 }
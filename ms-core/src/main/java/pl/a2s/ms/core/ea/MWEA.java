@@ -45,6 +45,9 @@ public class MWEA implements EvoAlg {
 
     @Setter
     private int populationSize = 0;
+    /// precision of the evaluations outside HGS levels (e.g. in the LBA phase), NaN for the one set on the calculator
+    @Setter
+    private double precision = Double.NaN;
 
     @Override
     public Population apply(Level level, Deme deme, State state) {
@@ -64,7 +67,8 @@ public class MWEA implements EvoAlg {
         for (int i = individuals.length; i < individuals.length + selected.length; i++) {
             midIndividuals[i] = selected[i-individuals.length];
         }
-        ie.evaluate(midPopulation);
+        // level is null in the LBA phase
+        ie.evaluate(midPopulation, level != null ? level.evaluationPrecision(ie) : precision);
         midPopulation.updateRanks();
 
         final Population output = new Population(selectedAndPopulationSize);
@@ -19,13 +19,12 @@ package pl.a2s.ms.core.ea;
 
 import java.util.Random;
 
-import org.apache.commons.math3.util.FastMath;
-import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.ie.IndividualEvaluator;
-import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.mw.MWPolicy;
 import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.util.DistanceKernel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -68,21 +67,13 @@ public class MWEAFactory implements EvoAlgFactory {
         if (populationSize > 0) {
             mwea.setPopulationSize(populationSize);
         }
+        mwea.setPrecision(castedParams.getPrecision());
         return mwea;
     }
 
     private double computeDemeDiameter(Deme deme) {
-        double maxDist = Double.NEGATIVE_INFINITY;
-        final Individual[] individuals = deme.getPopulation().getIndividuals();
-        for (int i = 0; i < individuals.length; i++) {
-            final double[] p1 = individuals[i].getPoint();
-            for (int j = i+1; j < individuals.length; j++) {
-                final double[] p2 = individuals[j].getPoint();
-                final double dist = MathArrays.distance(p1, p2);
-                maxDist = FastMath.max(maxDist, dist);
-            }
-        }
-        return maxDist;
+        final Population population = deme.getPopulation();
+        return DistanceKernel.maxDistance(population.getFlatPoints(), population.getSize(), population.getDimensionCount());
     }
 
     @Data
@@ -94,6 +85,9 @@ public class MWEAFactory implements EvoAlgFactory {
         private final MWPolicy mwPolicy;
         /// if passed, bypasses mutationStd and adjusts it based on the deme's population
         private final Deme deme;
+        /// precision of the evaluations, NaN for the one set on the calculator
+        @Builder.Default
+        private final double precision = Double.NaN;
     }
 
 }
@@ -43,6 +43,9 @@ public class NSGA2 implements EvoAlg {
     private final IndividualEvaluator ie;
     private final Random rand;
     private final FitnessExtractor fe;
+    /// precision of the evaluations outside HGS levels (e.g. in the LBA phase), NaN for the one set on the calculator
+    @Setter
+    private double precision = Double.NaN;
 
     public NSGA2(double crossoverProb, double mutationProb, double mutationStd, IndividualEvaluator ie, Random rand, FitnessExtractor fe) {
         this.crossoverProb = crossoverProb;
@@ -80,7 +83,8 @@ public class NSGA2 implements EvoAlg {
         for (int i = individuals.length; i < individuals.length + selected.length; i++) {
             midIndividuals[i] = selected[i-selected.length];
         }
-        ie.evaluate(midPopulation);
+        // level is null in the LBA phase
+        ie.evaluate(midPopulation, level != null ? level.evaluationPrecision(ie) : precision);
         midPopulation.updateRanks();
         return nsgaSuccession(midPopulation, population.getSize());
     }
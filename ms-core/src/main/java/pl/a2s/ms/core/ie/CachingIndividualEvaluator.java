@@ -0,0 +1,238 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import lombok.Getter;
+import pl.a2s.ms.core.ind.Individual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoises the evaluations of another {@link IndividualEvaluator}.
+ * <p>
+ * Objectives are looked up by the exact bits of the point and the precision of the call
+ * (or the current precision of the calculator, if not given), so results obtained with a different precision are never reused.
+ * The least recently used entries are evicted once the estimated size of the cache
+ * exceeds the given number of bytes.
+ * <p>
+ * Cache hits are counted as evaluations (e.g. by {@link pl.a2s.ms.core.gsc.EvaluationCountGSC})
+ * only if {@code countHits} is set.
+ */
+public class CachingIndividualEvaluator extends IndividualEvaluator {
+
+    /// rough per-entry footprint of the map entry, the key and the array headers
+    private static final long ENTRY_OVERHEAD = 128;
+
+    @Getter private final IndividualEvaluator delegate;
+    @Getter private final long maxBytes;
+    @Getter private final boolean countHits;
+    private final LinkedHashMap<Key, double[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingIndividualEvaluator(IndividualEvaluator delegate, long maxBytes, boolean countHits) {
+        super(delegate.fc);
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes has to be non-negative, got " + maxBytes);
+        }
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.countHits = countHits;
+    }
+
+    public CachingIndividualEvaluator(IndividualEvaluator delegate, long maxBytes) {
+        this(delegate, maxBytes, false);
+    }
+
+    @Override
+    protected void evaluateIndividuals(List<Individual> individuals, double[] precisions) {
+        final Map<Key, List<Individual>> pending = new HashMap<>();
+        final List<Individual> toEvaluate = new ArrayList<>();
+        final List<Double> toEvaluatePrecisions = new ArrayList<>();
+        for (int i = 0; i < individuals.size(); i++) {
+            final Individual ind = individuals.get(i);
+            final double precision = effectivePrecision(precisions[i]);
+            final Key key = new Key(ind.getPoint(), precision);
+            final double[] cached = get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                ind.setObjectives(cached.clone());
+            } else {
+                final List<Individual> same = pending.computeIfAbsent(key, k -> new ArrayList<>());
+                if (same.isEmpty()) {
+                    toEvaluate.add(ind);
+                    toEvaluatePrecisions.add(precision);
+                    misses.incrementAndGet();
+                } else {
+                    // a duplicate within the batch is served from the first occurrence
+                    hits.incrementAndGet();
+                }
+                same.add(ind);
+            }
+        }
+        if (toEvaluate.isEmpty()) {
+            return;
+        }
+        delegate.evaluateIndividuals(toEvaluate, toEvaluatePrecisions.stream().mapToDouble(Double::doubleValue).toArray());
+        for (final Map.Entry<Key, List<Individual>> e : pending.entrySet()) {
+            final Iterator<Individual> it = e.getValue().iterator();
+            final double[] objectives = it.next().getObjectives();
+            if (objectives == null) {
+                continue;
+            }
+            put(e.getKey(), objectives.clone());
+            while (it.hasNext()) {
+                it.next().setObjectives(objectives.clone());
+            }
+        }
+    }
+
+    @Override
+    public double[] evaluate(double[] point, double precision) {
+        final double effective = effectivePrecision(precision);
+        final Key key = new Key(point, effective);
+        final double[] cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.clone();
+        }
+        misses.incrementAndGet();
+        final double[] objectives = delegate.evaluate(point, effective);
+        if (objectives != null) {
+            put(key, objectives.clone());
+        }
+        return objectives;
+    }
+
+    @Override
+    public int getEvaluationCount() {
+        return delegate.getEvaluationCount() + (countHits ? (int) hits.get() : 0);
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return delegate.isAdaptive();
+    }
+
+    @Override
+    public void setPrecision(double precision) {
+        delegate.setPrecision(precision);
+        this.precision = precision;
+    }
+
+    @Override
+    public double getPrecision() {
+        return delegate.getPrecision();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Resolves NaN to the precision currently set on the delegate, which is then used both as the key
+     * and for the delegate call, so a concurrent {@link #setPrecision(double)} can't make them differ.
+     */
+    private double effectivePrecision(double precision) {
+        return Double.isNaN(precision) ? delegate.getPrecision() : precision;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int getCachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return estimated memory used by the cached entries
+     */
+    public synchronized long getCachedBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        bytes = 0;
+    }
+
+    private synchronized double[] get(Key key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(Key key, double[] objectives) {
+        final long size = sizeOf(key, objectives);
+        if (size > maxBytes) {
+            return;
+        }
+        final double[] old = cache.put(key, objectives);
+        if (old != null) {
+            bytes -= sizeOf(key, old);
+        }
+        bytes += size;
+        final Iterator<Map.Entry<Key, double[]>> it = cache.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            final Map.Entry<Key, double[]> eldest = it.next();
+            bytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(Key key, double[] objectives) {
+        return ENTRY_OVERHEAD + 8L * (key.bits.length + objectives.length);
+    }
+
+    private static final class Key {
+        private final long[] bits;
+        private final int hash;
+
+        Key(double[] point, double precision) {
+            bits = new long[point.length + 1];
+            for (int i = 0; i < point.length; i++) {
+                bits[i] = Double.doubleToLongBits(point[i]);
+            }
+            bits[point.length] = Double.doubleToLongBits(precision);
+            hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(bits, ((Key) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.ie;
+
+import lombok.Getter;
+import pl.a2s.ms.core.obj.ObjectiveCalculator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates populations in-process on a work-stealing pool. Suitable for
+ * thread-safe calculators, e.g. analytic benchmarks. Calculators which aren't
+ * {@link ObjectiveCalculator#isThreadSafe() thread-safe} are evaluated serially
+ * in the calling thread.
+ * <p>
+ * The population is split into chunks whose size adapts to the measured cost of a single
+ * evaluation, so that cheap objectives are evaluated in few large tasks (or serially,
+ * if a whole population costs less than one task) and expensive ones in many small tasks.
+ */
+public class ForkJoinIndividualEvaluator extends IndividualEvaluator {
+
+    /// desired duration of a single task
+    private static final long TARGET_CHUNK_NANOS = 200_000;
+    /// desired number of tasks per worker, for load balancing
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    @Getter private final ForkJoinPool pool;
+    private final boolean ownPool;
+    private final AtomicInteger evaluations = new AtomicInteger();
+    /// moving estimate of a single evaluation cost, negative until first measured
+    private volatile double nanosPerEvaluation = -1.;
+
+    public ForkJoinIndividualEvaluator(ObjectiveCalculator fc, int parallelism) {
+        this(fc, new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Creates an evaluator using a shared pool, which is not shut down by {@link #shutdown()}.
+     */
+    public ForkJoinIndividualEvaluator(ObjectiveCalculator fc, ForkJoinPool pool) {
+        this(fc, pool, false);
+    }
+
+    private ForkJoinIndividualEvaluator(ObjectiveCalculator fc, ForkJoinPool pool, boolean ownPool) {
+        super(fc);
+        this.pool = pool;
+        this.ownPool = ownPool;
+    }
+
+    @Override
+    public int getEvaluationCount() {
+        return evaluations.get();
+    }
+
+    @Override
+    protected void countEvaluations(int count) {
+        evaluations.addAndGet(count);
+    }
+
+    @Override
+    public void shutdown() {
+        if (ownPool) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    protected void calculateBatch(double[] points, int count, int dim, double[] out, double[] precisions) {
+        if (!fc.isThreadSafe()) {
+            super.calculateBatch(points, count, dim, out, precisions);
+            return;
+        }
+        int from = 0;
+        if (nanosPerEvaluation < 0) {
+            // calibrate on the first point
+            final long start = System.nanoTime();
+            calculateRange(points, 0, 1, dim, out, precisions);
+            updateEstimate(System.nanoTime() - start, 1);
+            from = 1;
+        }
+        final int remaining = count - from;
+        if (remaining <= 0) {
+            return;
+        }
+        final int chunkSize = chunkSize(remaining);
+        final LongAdder nanos = new LongAdder();
+        if (chunkSize >= remaining) {
+            final long start = System.nanoTime();
+            calculateRange(points, from, count, dim, out, precisions);
+            nanos.add(System.nanoTime() - start);
+        } else {
+            pool.invoke(new BatchTask(points, from, count, dim, out, precisions, chunkSize, nanos));
+        }
+        updateEstimate(nanos.sum(), remaining);
+    }
+
+    private int chunkSize(int count) {
+        final int byCost = (int) Math.min(count, Math.max(1., TARGET_CHUNK_NANOS / nanosPerEvaluation));
+        final int byBalance = Math.max(1, count / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        return Math.max(byCost, byBalance);
+    }
+
+    private void updateEstimate(long nanos, int count) {
+        final double measured = Math.max(1., (double) nanos / count);
+        final double previous = nanosPerEvaluation;
+        nanosPerEvaluation = previous < 0 ? measured : (previous + measured) / 2.;
+    }
+
+    private void calculateRange(double[] points, int from, int to, int dim, double[] out, double[] precisions) {
+        final int m = fc.getObjectiveCount();
+        final int count = to - from;
+        if (from == 0 && count * dim == points.length) {
+            super.calculateBatch(points, count, dim, out, precisions);
+            return;
+        }
+        final double[] chunkOut = new double[count * m];
+        super.calculateBatch(Arrays.copyOfRange(points, from * dim, to * dim), count, dim, chunkOut,
+                Arrays.copyOfRange(precisions, from, to));
+        System.arraycopy(chunkOut, 0, out, from * m, count * m);
+    }
+
+    private class BatchTask extends RecursiveAction {
+        private final double[] points;
+        private final int from;
+        private final int to;
+        private final int dim;
+        private final double[] out;
+        private final double[] precisions;
+        private final int chunkSize;
+        private final LongAdder nanos;
+
+        BatchTask(double[] points, int from, int to, int dim, double[] out, double[] precisions,
+                  int chunkSize, LongAdder nanos) {
+            this.points = points;
+            this.from = from;
+            this.to = to;
+            this.dim = dim;
+            this.out = out;
+            this.precisions = precisions;
+            this.chunkSize = chunkSize;
+            this.nanos = nanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                final long start = System.nanoTime();
+                calculateRange(points, from, to, dim, out, precisions);
+                nanos.add(System.nanoTime() - start);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(points, from, mid, dim, out, precisions, chunkSize, nanos),
+                    new BatchTask(points, mid, to, dim, out, precisions, chunkSize, nanos));
+        }
+    }
+
+}
@@ -19,9 +19,17 @@ package pl.a2s.ms.core.ie;
 
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.obj.AdaptiveCalculator;
 import pl.a2s.ms.core.obj.ObjectiveCalculator;
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
 /**
  * By evaluating I mean calculating objectives, not necessarily the
  * fitness/rank.
@@ -33,30 +41,186 @@ public class IndividualEvaluator {
     protected final ObjectiveCalculator fc;
     @Getter
     protected int evaluationCount;
+    /// last precision set on the calculator, NaN if never set
+    @Getter
+    protected double precision = Double.NaN;
 
     public IndividualEvaluator(ObjectiveCalculator fc) {
         this.fc = fc;
         evaluationCount = 0;
     }
 
+    /**
+     * @return true if the precision of the calculations can be changed
+     */
+    public boolean isAdaptive() {
+        return fc instanceof AdaptiveCalculator;
+    }
+
+    public void setPrecision(double precision) {
+        adaptive().setPrecision(precision);
+        this.precision = precision;
+    }
+
     public void evaluate(Population population) {
-        final Individual[] individuals = population.getIndividuals();
-        boolean changed = false;
-        for (final Individual ind: individuals) {
+        evaluate(population, Double.NaN);
+    }
+
+    /**
+     * Evaluates all individuals without objectives in one
+     * {@link ObjectiveCalculator#calculateBatch(double[], int, int, double[])} call.
+     * Unlike {@link #setPrecision(double)} the precision applies to this call only,
+     * so populations can be evaluated at different precisions concurrently.
+     *
+     * @param population population to evaluate
+     * @param precision precision of the calculations, NaN to use the one set with {@link #setPrecision(double)}
+     * @throws IllegalStateException if a precision is given, but the calculator isn't adaptive
+     */
+    public void evaluate(Population population, double precision) {
+        final List<Individual> pending = new ArrayList<>();
+        for (final Individual ind : population.getIndividuals()) {
             if (ind.getObjectives() == null) {
-                evaluationCount++;
-                ind.setObjectives(fc.calculate(ind.getPoint()));
-                changed = true;
+                pending.add(ind);
             }
         }
-        if (fc.getObjectiveCount() > 1 && changed) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final double[] precisions = new double[pending.size()];
+        Arrays.fill(precisions, precision);
+        evaluateIndividuals(pending, precisions);
+        if (fc.getObjectiveCount() > 1) {
             population.updateRanks();
         }
     }
 
+    public void evaluateAll(List<Population> populations) {
+        evaluateAll(populations, Double.NaN);
+    }
+
+    /**
+     * @param populations populations to evaluate
+     * @param precision precision of the calculations, NaN to use the one set with {@link #setPrecision(double)}
+     * @see #evaluateAll(List, double[])
+     */
+    public void evaluateAll(List<Population> populations, double precision) {
+        final double[] precisions = new double[populations.size()];
+        Arrays.fill(precisions, precision);
+        evaluateAll(populations, precisions);
+    }
+
+    /**
+     * Evaluates several populations as if {@link #evaluate(Population, double)} was called for each
+     * of them in turn, but submits all individuals without objectives as a single batch,
+     * so that parallel evaluators see one large population instead of many small ones,
+     * even if the populations are evaluated at different precisions.
+     * An individual shared by several populations is evaluated once, at the precision of the first one.
+     *
+     * @param populations populations to evaluate
+     * @param precisions precision of each population, NaN to use the one set with {@link #setPrecision(double)}
+     */
+    public void evaluateAll(List<Population> populations, double[] precisions) {
+        final Set<Individual> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<Individual> pending = new ArrayList<>();
+        final List<Double> pendingPrecisions = new ArrayList<>();
+        final List<Population> changed = new ArrayList<>();
+        for (int p = 0; p < populations.size(); p++) {
+            final Population population = populations.get(p);
+            boolean hasPending = false;
+            for (final Individual ind : population.getIndividuals()) {
+                if (ind.getObjectives() == null) {
+                    hasPending = true;
+                    if (seen.add(ind)) {
+                        pending.add(ind);
+                        pendingPrecisions.add(precisions[p]);
+                    }
+                }
+            }
+            if (hasPending) {
+                changed.add(population);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        evaluateIndividuals(pending, pendingPrecisions.stream().mapToDouble(Double::doubleValue).toArray());
+        if (fc.getObjectiveCount() > 1) {
+            changed.forEach(Population::updateRanks);
+        }
+    }
+
     public double[] evaluate(double[] point) {
-        evaluationCount++;
-        return fc.calculate(point);
+        return evaluate(point, Double.NaN);
+    }
+
+    /**
+     * @param precision precision of the calculation, NaN to use the one set with {@link #setPrecision(double)}
+     */
+    public double[] evaluate(double[] point, double precision) {
+        countEvaluations(1);
+        return Double.isNaN(precision) ? fc.calculate(point) : adaptive().calculate(point, precision);
+    }
+
+    /**
+     * Releases the resources (e.g. threads) held by this evaluator.
+     * This default implementation does nothing.
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * Calculates the objectives of individuals which have none, all populations pass through here.
+     *
+     * @param pending individuals to evaluate, all without objectives
+     * @param precisions precision of each individual, NaN to use the one set with {@link #setPrecision(double)}
+     */
+    protected void evaluateIndividuals(List<Individual> pending, double[] precisions) {
+        final int count = pending.size();
+        final int dim = pending.get(0).getPoint().length;
+        final int m = fc.getObjectiveCount();
+        final double[] points = new double[count * dim];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(pending.get(i).getPoint(), 0, points, i * dim, dim);
+        }
+        final double[] out = new double[count * m];
+        calculateBatch(points, count, dim, out, precisions);
+        countEvaluations(count);
+        for (int i = 0; i < count; i++) {
+            pending.get(i).setObjectives(Arrays.copyOfRange(out, i * m, (i + 1) * m));
+        }
+    }
+
+    protected void calculateBatch(double[] points, int count, int dim, double[] out, double[] precisions) {
+        if (isUniform(precisions, count)) {
+            if (Double.isNaN(precisions[0])) {
+                fc.calculateBatch(points, count, dim, out);
+            } else {
+                adaptive().calculateBatch(points, count, dim, out, precisions[0]);
+            }
+        } else {
+            adaptive().calculateBatch(points, count, dim, out, precisions);
+        }
+    }
+
+    private static boolean isUniform(double[] precisions, int count) {
+        for (int i = 1; i < count; i++) {
+            if (Double.compare(precisions[i], precisions[0]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected synchronized void countEvaluations(int count) {
+        evaluationCount += count;
+    }
+
+    private AdaptiveCalculator adaptive() {
+        if (!(fc instanceof AdaptiveCalculator)) {
+            throw new IllegalStateException(
+                    "It's possible to set precision only on AdaptiveCalculator");
+        }
+        return (AdaptiveCalculator) fc;
     }
 
 }
@@ -20,15 +20,11 @@ package pl.a2s.ms.core.ie;
 import lombok.Getter;
 import lombok.extern.java.Log;
 import pl.a2s.ms.core.ind.Individual;
-import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.obj.AdaptiveCalculator;
 import pl.a2s.ms.core.obj.AdaptiveParallelCalculator;
-import pl.a2s.ms.core.obj.ObjectiveCalculator;
 import pl.a2s.ms.core.obj.ParallelCalculator;
-import pl.a2s.ms.core.util.FileUtils;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -36,37 +32,45 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import static java.lang.String.format;
+
 @Log
 public class ParallelIndividualEvaluator extends IndividualEvaluator {
 
-    private final String sourceSolverDir;
-    private final String targetTmpDir;
+    @Getter private final WorkspacePool workspacePool;
     @Getter private final ExecutorService executorService;
-    private final AtomicInteger count = new AtomicInteger(0);
 
+    /**
+     * Creates one copy of the solver directory per thread, see {@link WorkspacePool}.
+     */
     public ParallelIndividualEvaluator(AdaptiveParallelCalculator fc,
                                        String sourceSolverDir, String targetTmpDir, int threadCount) {
+        this(fc, new WorkspacePool(new File(sourceSolverDir), new File(targetTmpDir), threadCount), threadCount);
+    }
+
+    /**
+     * @param workspacePool pool of solver directories, closed on {@link #shutdown()}
+     */
+    public ParallelIndividualEvaluator(AdaptiveParallelCalculator fc, WorkspacePool workspacePool, int threadCount) {
         super(fc);
-        this.sourceSolverDir = sourceSolverDir;
-        this.targetTmpDir = targetTmpDir;
+        this.workspacePool = workspacePool;
         executorService = Executors.newFixedThreadPool(threadCount);
     }
 
+    /**
+     * Every individual is evaluated in its own task, at its own precision.
+     */
     @Override
-    public void evaluate(Population population) {
-        final Individual[] individuals = population.getIndividuals();
+    protected void evaluateIndividuals(List<Individual> pending, double[] precisions) {
         final List<Future<?>> futures = new LinkedList<>();
-        boolean changed = false;
-        for (final Individual ind : individuals) {
-            if (ind.getObjectives() == null) {
-                evaluationCount++;
-                final Future<?> future = executorService.submit(() -> ind.setObjectives(evaluateInNewDir(ind.getPoint())));
-                futures.add(future);
-                changed = true;
-            }
+        countEvaluations(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            final Individual ind = pending.get(i);
+            final double precision = precisions[i];
+            futures.add(executorService.submit(() -> ind.setObjectives(evaluateInWorkspace(ind.getPoint(), precision))));
         }
         futures.forEach(future -> {
             try {
@@ -75,43 +79,46 @@ public class ParallelIndividualEvaluator extends IndividualEvaluator {
                 log.log(Level.SEVERE, "Couldn't compute", e);
             }
         });
-        if (fc.getObjectiveCount() > 1 && changed) {
-            population.updateRanks();
-        }
     }
 
     @Override
-    public double[] evaluate(double[] point) {
-        return evaluateInNewDir(point);
+    public double[] evaluate(double[] point, double precision) {
+        return evaluateInWorkspace(point, precision);
     }
 
-    public void setPrecision(double precision) {
-        final ObjectiveCalculator fc = this.fc;
-        if (!(fc instanceof AdaptiveCalculator)) {
-            throw new IllegalStateException(
-                    "It's possible to set precision only on AdaptiveCalculator");
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        ((AdaptiveCalculator) fc).setPrecision(precision);
+        log.info(format("Workspace leases: %d, mean wait %.3f ms, max wait %.3f ms, restored files: %d",
+                workspacePool.getLeaseCount(), workspacePool.getMeanLeaseWaitNanos() / 1e6,
+                workspacePool.getMaxLeaseWaitNanos() / 1e6, workspacePool.getRestoredFileCount()));
+        workspacePool.close();
     }
 
-    private double[] evaluateInNewDir(double[] point) {
-        final int id = count.getAndIncrement();
-        final String solverDir = targetTmpDir + "/" + id;
+    /**
+     * A per-call precision is passed to the calculator instance created for this evaluation only.
+     */
+    private double[] evaluateInWorkspace(double[] point, double precision) {
+        final WorkspacePool.Workspace workspace;
+        try {
+            workspace = workspacePool.lease();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.log(Level.SEVERE, "Interrupted while waiting for a workspace", e);
+            return null;
+        }
         try {
-            FileUtils.copy(new File(sourceSolverDir), new File(solverDir));
             final Properties props = new Properties();
-//            props.put(SolverConfig.SOLVER_DIR_PROPERTY, solverDir);
+//            props.put(SolverConfig.SOLVER_DIR_PROPERTY, workspace.getDir().getPath());
             final ParallelCalculator fc = ((ParallelCalculator) this.fc).parallelInstance(props);
-            return fc.calculate(point);
-        } catch (final IOException e) {
-            log.log(Level.SEVERE, "Cannot copy source dir to " + solverDir, e);
-            return null;
+            return Double.isNaN(precision) ? fc.calculate(point) : ((AdaptiveCalculator) fc).calculate(point, precision);
         } finally {
-            try {
-                FileUtils.removeDirectory(new File(solverDir));
-            } catch (final IOException e) {
-                log.log(Level.WARNING, "Cannot clean dir " + solverDir, e);
-            }
+            workspacePool.release(workspace);
         }
     }
 
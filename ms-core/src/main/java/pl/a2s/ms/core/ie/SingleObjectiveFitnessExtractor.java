@@ -17,17 +17,15 @@
 
 package pl.a2s.ms.core.ie;
 
-import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 
 public class SingleObjectiveFitnessExtractor implements FitnessExtractor {
 
     @Override
     public double[] extractFitness(Population population) {
-        final Individual[] individuals = population.getIndividuals();
-        final double[] out = new double[individuals.length];
+        final double[] out = new double[population.getSize()];
         for (int i = 0; i < out.length; i++) {
-            out[i] = individuals[i].getObjectives()[0];
+            out[i] = population.getObjective(i, 0);
         }
         return out;
     }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import pl.a2s.ms.core.obj.WorkerProcessCalculator;
+
+/**
+ * Evaluates populations in the long-lived worker processes of a {@link WorkerProcessCalculator}.
+ * All the individuals of a population are sent at once, so they are pipelined
+ * over all the workers. The workers are stopped on {@link #shutdown()}.
+ */
+public class WorkerProcessIndividualEvaluator extends IndividualEvaluator {
+
+    public WorkerProcessIndividualEvaluator(WorkerProcessCalculator fc) {
+        super(fc);
+    }
+
+    /**
+     * Stops the worker processes, requests still in flight fail.
+     */
+    @Override
+    public void shutdown() {
+        ((WorkerProcessCalculator) fc).close();
+    }
+
+}
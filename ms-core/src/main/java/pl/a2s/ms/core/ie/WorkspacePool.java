@@ -0,0 +1,322 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import pl.a2s.ms.core.util.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * A fixed set of copies of a solver directory which are leased to the evaluations
+ * instead of copying the whole directory for each of them.
+ * <p>
+ * The state (size and modification time) of every file of a fresh copy is remembered,
+ * so on release only the files the solver modified are copied again, files it created
+ * are removed and the ones it removed are restored.
+ * <p>
+ * Files accepted by the {@code immutable} predicate (given paths relative to the source
+ * directory) are hard-linked instead of copied, which saves both time and space for large
+ * read-only inputs. The solver must not modify such files in place, as that would modify
+ * the source as well; replacing them is fine. If hard links aren't supported, the files are copied.
+ */
+@Log
+public class WorkspacePool implements Closeable {
+
+    /// how often a waiting lease checks if the pool has been closed or emptied
+    private static final long LEASE_POLL_MILLIS = 100;
+
+    @Getter private final File sourceDir;
+    @Getter private final File targetDir;
+    private final Predicate<Path> immutable;
+    private final List<Workspace> workspaces = new ArrayList<>();
+    private final BlockingQueue<Workspace> available;
+    /// workspaces which haven't been dropped, leased or not
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong totalLeaseWaitNanos = new AtomicLong();
+    private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+    private final AtomicLong restoredFileCount = new AtomicLong();
+
+    public WorkspacePool(File sourceDir, File targetDir, int size) {
+        this(sourceDir, targetDir, size, path -> false);
+    }
+
+    /**
+     * Materialises all the workspaces as subdirectories of targetDir named 0..size-1.
+     *
+     * @throws UncheckedIOException if a workspace can't be created
+     */
+    public WorkspacePool(File sourceDir, File targetDir, int size, Predicate<Path> immutable) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size has to be positive, got " + size);
+        }
+        this.sourceDir = sourceDir;
+        this.targetDir = targetDir;
+        this.immutable = immutable;
+        this.available = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                final Workspace workspace = new Workspace(new File(targetDir, String.valueOf(i)));
+                materialise(workspace);
+                workspaces.add(workspace);
+                available.add(workspace);
+                liveCount.incrementAndGet();
+            }
+        } catch (final IOException e) {
+            close();
+            throw new UncheckedIOException("Cannot create workspaces in " + targetDir, e);
+        }
+    }
+
+    /**
+     * Waits until a workspace is available and takes it.
+     *
+     * @throws IllegalStateException if the pool is closed or all its workspaces have been dropped,
+     * also while waiting
+     */
+    public Workspace lease() throws InterruptedException {
+        final long start = System.nanoTime();
+        Workspace workspace = null;
+        while (workspace == null) {
+            if (closed) {
+                throw new IllegalStateException("Workspace pool in " + targetDir + " is closed");
+            }
+            if (liveCount.get() == 0) {
+                throw new IllegalStateException("All workspaces in " + targetDir + " have been dropped");
+            }
+            workspace = available.poll(LEASE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        final long wait = System.nanoTime() - start;
+        leaseCount.incrementAndGet();
+        totalLeaseWaitNanos.addAndGet(wait);
+        maxLeaseWaitNanos.accumulateAndGet(wait, Math::max);
+        return workspace;
+    }
+
+    /**
+     * Restores the workspace to the state of the source directory and makes it available again.
+     */
+    public void release(Workspace workspace) {
+        try {
+            restoredFileCount.addAndGet(reset(workspace));
+        } catch (final IOException e) {
+            log.log(Level.WARNING, "Cannot reset " + workspace.getDir() + ", recreating it", e);
+            try {
+                FileUtils.removeDirectory(workspace.getDir());
+                materialise(workspace);
+            } catch (final IOException e2) {
+                log.log(Level.SEVERE, "Cannot recreate " + workspace.getDir() + ", dropping it from the pool", e2);
+                liveCount.decrementAndGet();
+                return;
+            }
+        }
+        if (!closed) {
+            available.add(workspace);
+        }
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public long getTotalLeaseWaitNanos() {
+        return totalLeaseWaitNanos.get();
+    }
+
+    public long getMaxLeaseWaitNanos() {
+        return maxLeaseWaitNanos.get();
+    }
+
+    public double getMeanLeaseWaitNanos() {
+        final long count = leaseCount.get();
+        return count == 0 ? 0. : (double) totalLeaseWaitNanos.get() / count;
+    }
+
+    /**
+     * @return number of files copied, linked or removed while resetting the workspaces
+     */
+    public long getRestoredFileCount() {
+        return restoredFileCount.get();
+    }
+
+    /**
+     * @return number of workspaces which haven't been dropped because they couldn't be recreated
+     */
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    /**
+     * Removes all the workspaces, they can't be leased afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        available.clear();
+        for (final Workspace workspace : workspaces) {
+            try {
+                if (workspace.getDir().exists()) {
+                    FileUtils.removeDirectory(workspace.getDir());
+                }
+            } catch (final IOException e) {
+                log.log(Level.WARNING, "Cannot clean dir " + workspace.getDir(), e);
+            }
+        }
+    }
+
+    private void materialise(Workspace workspace) throws IOException {
+        final Path source = sourceDir.toPath();
+        final Path target = workspace.getDir().toPath();
+        workspace.files.clear();
+        workspace.dirs.clear();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final Path relative = source.relativize(dir);
+                Files.createDirectories(target.resolve(relative));
+                workspace.dirs.add(relative);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final Path relative = source.relativize(file);
+                workspace.files.put(relative, restore(relative, target.resolve(relative)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * @return number of restored or removed files
+     */
+    private int reset(Workspace workspace) throws IOException {
+        final Path target = workspace.getDir().toPath();
+        final Set<Path> seen = new HashSet<>();
+        final int[] count = new int[1];
+        Files.walkFileTree(target, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final Path relative = target.relativize(file);
+                final FileState expected = workspace.files.get(relative);
+                if (expected == null) {
+                    Files.delete(file);
+                    count[0]++;
+                } else {
+                    seen.add(relative);
+                    if (!expected.matches(attrs)) {
+                        workspace.files.put(relative, restore(relative, file));
+                        count[0]++;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                if (!workspace.dirs.contains(target.relativize(dir))) {
+                    Files.delete(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (final Map.Entry<Path, FileState> e : workspace.files.entrySet()) {
+            if (!seen.contains(e.getKey())) {
+                final Path file = target.resolve(e.getKey());
+                Files.createDirectories(file.getParent());
+                e.setValue(restore(e.getKey(), file));
+                count[0]++;
+            }
+        }
+        return count[0];
+    }
+
+    private FileState restore(Path relative, Path file) throws IOException {
+        final Path source = sourceDir.toPath().resolve(relative);
+        Files.deleteIfExists(file);
+        boolean linked = false;
+        if (immutable.test(relative)) {
+            try {
+                Files.createLink(file, source);
+                linked = true;
+            } catch (final UnsupportedOperationException | IOException e) {
+                log.log(Level.FINE, "Cannot link " + source + ", copying it", e);
+            }
+        }
+        if (!linked) {
+            Files.copy(source, file, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        return new FileState(Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    public static class Workspace {
+        @Getter private final File dir;
+        private final Map<Path, FileState> files = new HashMap<>();
+        private final Set<Path> dirs = new HashSet<>();
+
+        private Workspace(File dir) {
+            this.dir = dir;
+        }
+    }
+
+    private static class FileState {
+        private final long size;
+        private final FileTime modified;
+
+        FileState(BasicFileAttributes attrs) {
+            size = attrs.size();
+            modified = attrs.lastModifiedTime();
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && modified.equals(attrs.lastModifiedTime());
+        }
+    }
+
+}
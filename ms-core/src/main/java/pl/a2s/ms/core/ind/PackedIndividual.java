@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.ind;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * A view of a single row of a {@link PackedPopulation}. Its point and objectives are copied
+ * on every access, so modifying the returned arrays does not affect the population. Code reading
+ * many values should use the index-based accessors of the population, like
+ * {@link Population#getCoordinate(int, int)} and {@link Population#getObjective(int, int)}, instead.
+ * <p>
+ * Like {@link SimpleIndividual}, it is equal only to individuals of its own class with the same point,
+ * so a packed individual never equals a simple one, in either direction.
+ */
+@RequiredArgsConstructor
+public final class PackedIndividual implements Individual {
+
+    @Getter private final PackedPopulation population;
+    @Getter private final int index;
+
+    @Override
+    public double[] getPoint() {
+        return population.getPoint(index);
+    }
+
+    @Override
+    public double[] getObjectives() {
+        return population.getObjectives(index);
+    }
+
+    @Override
+    public void setObjectives(double[] obj) {
+        population.setObjectives(index, obj);
+    }
+
+    boolean isViewOf(PackedPopulation population, int index) {
+        return this.population == population && this.index == index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o == null || o.getClass() != PackedIndividual.class) {
+            return false;
+        }
+        return population.pointEquals(index, (PackedIndividual) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return population.pointHashCode(index);
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndividual(point=" + Arrays.toString(getPoint())
+                + ", objectives=" + Arrays.toString(getObjectives()) + ")";
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.ind;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Population} keeping all points in one flat array and all objectives in another one.
+ * <p>
+ * The individuals are {@link PackedIndividual} views into these arrays, so that a population
+ * costs a handful of objects instead of three per individual, and code iterating over points or
+ * objectives runs over contiguous memory (see {@link #getFlatPoints()} and {@link #getFlatObjectives()}).
+ * Individuals put into the {@link #getIndividuals()} array directly are copied into the flat
+ * storage the next time it is accessed.
+ */
+public class PackedPopulation extends Population {
+
+    @Getter private final int dimensionCount;
+    private int objectiveCount;
+    private final double[] points;
+    private double[] objectives;
+    private final boolean[] evaluated;
+
+    public PackedPopulation(int size, int dimensionCount, int objectiveCount) {
+        super(size);
+        this.dimensionCount = dimensionCount;
+        this.objectiveCount = objectiveCount;
+        this.points = new double[size * dimensionCount];
+        this.objectives = new double[size * objectiveCount];
+        this.evaluated = new boolean[size];
+        final Individual[] individuals = getIndividuals();
+        for (int i = 0; i < size; i++) {
+            individuals[i] = new PackedIndividual(this, i);
+        }
+    }
+
+    /**
+     * Copies a population, preserving its ranks.
+     *
+     * @param population the population to copy, all slots must be filled
+     * @return packed copy of the population
+     */
+    public static PackedPopulation of(Population population) {
+        final PackedPopulation packed = new PackedPopulation(population.getSize(),
+                population.getDimensionCount(), population.getObjectiveCount());
+        final Individual[] individuals = population.getIndividuals();
+        for (int i = 0; i < individuals.length; i++) {
+            packed.setAt(i, individuals[i]);
+        }
+        System.arraycopy(population.getRanks(), 0, packed.getRanks(), 0, individuals.length);
+        return packed;
+    }
+
+    @Override
+    public int getObjectiveCount() {
+        return objectiveCount;
+    }
+
+    @Override
+    public double getObjective(int i, int j) {
+        sync(i);
+        if (!evaluated[i]) {
+            throw new IllegalStateException("Individual " + i + " has no objectives");
+        }
+        return objectives[i * objectiveCount + j];
+    }
+
+    @Override
+    public double getCoordinate(int i, int k) {
+        sync(i);
+        return points[i * dimensionCount + k];
+    }
+
+    @Override
+    public double[] getFlatPoints() {
+        syncAll();
+        return points;
+    }
+
+    @Override
+    public double[] getFlatObjectives() {
+        syncAll();
+        for (int i = 0; i < evaluated.length; i++) {
+            if (!evaluated[i]) {
+                Arrays.fill(objectives, i * objectiveCount, (i + 1) * objectiveCount, Double.NaN);
+            }
+        }
+        return objectives;
+    }
+
+    /**
+     * Copies the point and objectives of ind into the flat storage at position pos.
+     * If ind is {@link RankedIndividual}, its rank gets dropped.
+     *
+     * @param pos where to put ind
+     * @param ind what to put at pos
+     */
+    @Override
+    public void setAt(int pos, Individual ind) {
+        final double[] point = ind.getPoint();
+        if (point.length != dimensionCount) {
+            throw new IllegalArgumentException(
+                    "Expected point of dimension " + dimensionCount + ", got " + point.length);
+        }
+        System.arraycopy(point, 0, points, pos * dimensionCount, dimensionCount);
+        setObjectives(pos, ind.getObjectives());
+        getIndividuals()[pos] = new PackedIndividual(this, pos);
+    }
+
+    double[] getPoint(int pos) {
+        return Arrays.copyOfRange(points, pos * dimensionCount, (pos + 1) * dimensionCount);
+    }
+
+    double[] getObjectives(int pos) {
+        if (!evaluated[pos]) {
+            return null;
+        }
+        return Arrays.copyOfRange(objectives, pos * objectiveCount, (pos + 1) * objectiveCount);
+    }
+
+    void setObjectives(int pos, double[] obj) {
+        if (obj == null) {
+            evaluated[pos] = false;
+            return;
+        }
+        if (obj.length != objectiveCount) {
+            if (!noneEvaluated()) {
+                throw new IllegalArgumentException(
+                        "Expected " + objectiveCount + " objectives, got " + obj.length);
+            }
+            objectiveCount = obj.length;
+            objectives = new double[evaluated.length * objectiveCount];
+        }
+        System.arraycopy(obj, 0, objectives, pos * objectiveCount, objectiveCount);
+        evaluated[pos] = true;
+    }
+
+    boolean pointEquals(int pos, PackedIndividual other) {
+        final PackedPopulation op = other.getPopulation();
+        final int oPos = other.getIndex();
+        return Arrays.equals(points, pos * dimensionCount, (pos + 1) * dimensionCount,
+                op.points, oPos * op.dimensionCount, (oPos + 1) * op.dimensionCount);
+    }
+
+    int pointHashCode(int pos) {
+        int result = 1;
+        for (int k = pos * dimensionCount; k < (pos + 1) * dimensionCount; k++) {
+            final long bits = Double.doubleToLongBits(points[k]);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+    private boolean noneEvaluated() {
+        for (final boolean e : evaluated) {
+            if (e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sync(int pos) {
+        final Individual ind = getIndividuals()[pos];
+        if (!(ind instanceof PackedIndividual) || !((PackedIndividual) ind).isViewOf(this, pos)) {
+            setAt(pos, ind);
+        }
+    }
+
+    private void syncAll() {
+        for (int i = 0; i < evaluated.length; i++) {
+            sync(i);
+        }
+    }
+
+}
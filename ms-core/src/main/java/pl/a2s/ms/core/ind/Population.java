@@ -18,6 +18,8 @@
 package pl.a2s.ms.core.ind;
 
 import lombok.Getter;
+import pl.a2s.ms.core.nds.NonDominatedSorter;
+import pl.a2s.ms.core.nds.NonDominatedSorters;
 
 import java.util.*;
 import java.util.function.Predicate;
@@ -104,7 +106,52 @@ public class Population extends AbstractCollection<RankedIndividual> {
         return of(stream().filter(predicate).collect(Collectors.toList()));
     }
 
+    /**
+     * Recomputes non-domination ranks of all individuals. Uses the fastest
+     * {@link NonDominatedSorter} for the number of objectives, falling back to
+     * the pairwise {@link Individual#dominates(Individual)} comparison when objectives
+     * are missing, have different lengths or contain NaNs.
+     *
+     * @return the updated ranks
+     */
     public int[] updateRanks() {
+        final double[][] objectives = collectObjectives();
+        if (objectives == null || !NonDominatedSorters.isSortable(objectives)) {
+            return updateRanksPairwise();
+        }
+        final int objectiveCount = size == 0 ? 0 : objectives[0].length;
+        NonDominatedSorters.select(objectiveCount, size).sort(objectives, ranks);
+        return ranks;
+    }
+
+    /**
+     * Recomputes non-domination ranks of all individuals with the given sorter.
+     * All individuals must have objectives of equal length and without NaNs.
+     *
+     * @param sorter the sorting algorithm
+     * @return the updated ranks
+     */
+    public int[] updateRanks(NonDominatedSorter sorter) {
+        final double[][] objectives = collectObjectives();
+        if (objectives == null || !NonDominatedSorters.isSortable(objectives)) {
+            throw new IllegalStateException("Objectives of the population are not sortable");
+        }
+        sorter.sort(objectives, ranks);
+        return ranks;
+    }
+
+    private double[][] collectObjectives() {
+        final double[][] objectives = new double[size][];
+        for (int i = 0; i < size; i++) {
+            if (individuals[i] == null) {
+                return null;
+            }
+            objectives[i] = individuals[i].getObjectives();
+        }
+        return objectives;
+    }
+
+    private int[] updateRanksPairwise() {
         // domination counts
         final int[] n = new int[size];
         // domination sets
@@ -148,6 +195,86 @@ public class Population extends AbstractCollection<RankedIndividual> {
         return ranks;
     }
 
+    /**
+     * @return the number of coordinates of the individuals' points
+     */
+    public int getDimensionCount() {
+        return size == 0 ? 0 : individuals[0].getPoint().length;
+    }
+
+    /**
+     * @return the number of objectives of the first evaluated individual, 0 if there is none
+     */
+    public int getObjectiveCount() {
+        for (final Individual ind : individuals) {
+            final double[] obj = ind == null ? null : ind.getObjectives();
+            if (obj != null) {
+                return obj.length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the j-th objective of the i-th individual without copying any arrays.
+     *
+     * @param i individual index
+     * @param j objective index
+     * @return objective value
+     */
+    public double getObjective(int i, int j) {
+        return individuals[i].getObjectives()[j];
+    }
+
+    /**
+     * Returns the k-th coordinate of the i-th individual's point without copying any arrays.
+     *
+     * @param i individual index
+     * @param k coordinate index
+     * @return coordinate value
+     */
+    public double getCoordinate(int i, int k) {
+        return individuals[i].getPoint()[k];
+    }
+
+    /**
+     * Returns all points stored row by row in a single array, i.e. the k-th coordinate
+     * of the i-th point is at i * getDimensionCount() + k. The result must not be modified,
+     * as it may be the backing storage of the population.
+     *
+     * @return flat points
+     */
+    public double[] getFlatPoints() {
+        final int dim = getDimensionCount();
+        final double[] out = new double[size * dim];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(individuals[i].getPoint(), 0, out, i * dim, dim);
+        }
+        return out;
+    }
+
+    /**
+     * Returns all objectives stored row by row in a single array, i.e. the j-th objective
+     * of the i-th individual is at i * getObjectiveCount() + j. Rows of individuals without
+     * objectives are filled with NaNs. The result must not be modified, as it may be
+     * the backing storage of the population.
+     *
+     * @return flat objectives
+     */
+    public double[] getFlatObjectives() {
+        final int m = getObjectiveCount();
+        final double[] out = new double[size * m];
+        for (int i = 0; i < size; i++) {
+            final double[] obj = individuals[i].getObjectives();
+            if (obj == null) {
+                Arrays.fill(out, i * m, (i + 1) * m, Double.NaN);
+            } else {
+                System.arraycopy(obj, 0, out, i * m, m);
+            }
+        }
+        return out;
+    }
+
     /**
      * Sets the individual at position pos to ind. If ind is {@link RankedIndividual},
      * its rank gets dropped.
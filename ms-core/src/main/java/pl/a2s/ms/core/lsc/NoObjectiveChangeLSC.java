@@ -21,7 +21,6 @@ import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.orch.State;
 import pl.a2s.ms.core.orch.hgs.Deme;
-import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 import lombok.RequiredArgsConstructor;
 
@@ -53,11 +52,11 @@ public class NoObjectiveChangeLSC implements LocalStopCondition {
     }
 
     private static double[] getAverageObjectives(Population population) {
-        final int objCount = population.getIndividuals()[0].getObjectives().length;
+        final int objCount = population.getObjectiveCount();
         final double[] avg = new double[objCount];
-        for (final Individual ind: population.getIndividuals()) {
+        for (int j = 0; j < population.getSize(); j++) {
             for (int i = 0; i < objCount; i++) {
-                avg[i] += ind.getObjectives()[i];
+                avg[i] += population.getObjective(j, i);
             }
         }
         for (int i = 0; i < objCount; i++) {
@@ -17,16 +17,15 @@
 
 package pl.a2s.ms.core.mw;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.java.Log;
 import org.apache.commons.math3.exception.MathIllegalArgumentException;
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
-import java.util.stream.IntStream;
 
 /**
  * Implements the greedyCC multiwinner rule.
@@ -41,6 +40,14 @@ public class GreedyCCMWPolicy extends MWPolicy {
     /// Multiwinner helper.
     final private MWPolicyHelper helper;
 
+    /**
+     * Length of the preference orders taken into account, 0 means the whole orders.
+     * Shorter orders are faster to compute, but candidates beyond them give a voter no score,
+     * so the selection may differ from the exact greedyCC.
+     */
+    @Getter @Setter
+    private int prefLength = 0;
+
     public GreedyCCMWPolicy(UtilFunction util, Random rand) {
         this.helper = new MWPolicyHelper(util, rand);
         log.info("GreedyCCMWPolicy created with util="+util.toString());
@@ -57,7 +64,9 @@ public class GreedyCCMWPolicy extends MWPolicy {
         final int[] randPerm = helper.getRandomPermuation(pool.length);
 
         final double[] F = new double[n];
-        final double[][] X = new double[n][];
+        final int dim = poolPopulation.getDimensionCount();
+        final double[] poolPoints = poolPopulation.getFlatPoints();
+        final double[] X = new double[n * dim];
 
         log.fine(() -> "Selecting from pool of "+n+", k="+k);
 
@@ -80,60 +89,33 @@ public class GreedyCCMWPolicy extends MWPolicy {
                 log.info("Transformed fitnesses taken in MW selection:\n"
                         + Arrays.toString(F));
             }
-            X[i] = pool[randPerm[i]].getPoint();
+            System.arraycopy(poolPoints, randPerm[i] * dim, X, i * dim, dim);
         }
-        log.finer(() -> "Candidates:"+candidatesToString(X, F));
+        log.finer(() -> "Candidates:"+candidatesToString(X, dim, F));
 
-        final int[] winners = select(F, X, k);
-        log.finer(() -> "Winners: "+winnersToString(winners, X));
+        final int[] winners = select(F, X, dim, k);
+        log.finer(() -> "Winners: "+winnersToString(winners, X, dim));
         for (int i = 0; i < winners.length; i++) {
             selected[i] = pool[randPerm[winners[i]]];
         }
     }
 
-    private int[] select(double[] F, double[][] X, int k) {
-        final double[][] U = helper.computeUtilities(F, X);
-
-        final int[][] P = helper.computePrefOrders(U);
-
-        return rule(P, k);
-    }
-
-    private int[] rule(int[][] P, int k) {
-        final int m = P[0].length;
-        final List<Integer> C = new ArrayList<>(m);
-        IntStream.range(0, m).forEachOrdered(C::add);
-        final int[] W = new int[k];
-
-        for (int i = 0; i < k; i++) {
-            int bestScore = -1;
-            int bestCandidate = -1;
-            for (final int j : C) {
-                W[i] = j;
-                final int s = helper.ccScoreProfile(P, W, i + 1);
-                if (s > bestScore) {
-                    bestScore = s;
-                    bestCandidate = j;
-                }
-            }
-            final int bc = bestCandidate;
-            W[i] = bc;
-            C.removeIf((Integer val) -> (val == bc));
-        }
+    private int[] select(double[] F, double[] X, int dim, int k) {
+        final int n = F.length;
+        final int[][] P = helper.computePrefOrders(F, X, dim, prefLength > 0 ? prefLength : n);
 
-        return W;
+        return helper.greedyCC(P, n, k);
     }
 
-    private String candidatesToString(double[][] X, double[] F) {
-        final int n = X.length;
+    private String candidatesToString(double[] X, int dim, double[] F) {
+        final int n = F.length;
         final StringBuilder sb = new StringBuilder();
-        final int dim = X[0].length;
         for (int i = 0; i < n; i++) {
             sb.append('\n');
             sb.append(i);
             sb.append(' ');
             for (int j = 0; j < dim; j++) {
-                sb.append(X[i][j]);
+                sb.append(X[i * dim + j]);
                 sb.append(' ');
             }
             sb.append(F[i]);
@@ -141,15 +123,14 @@ public class GreedyCCMWPolicy extends MWPolicy {
         return sb.toString();
     }
 
-    private String winnersToString(int[] winners, double[][] X) {
-        final int dim = X[0].length;
+    private String winnersToString(int[] winners, double[] X, int dim) {
         final StringBuilder sb = new StringBuilder();
         for (int winner : winners) {
             sb.append('\n');
             sb.append(winner);
             for (int j = 0; j < dim; j++) {
                 sb.append(' ');
-                sb.append(X[winner][j]);
+                sb.append(X[winner * dim + j]);
             }
 
         }
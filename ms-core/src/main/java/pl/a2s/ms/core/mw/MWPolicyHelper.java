@@ -17,15 +17,18 @@
 
 package pl.a2s.ms.core.mw;
 
-import static java.util.Comparator.comparingDouble;
-
 import java.util.Arrays;
 import java.util.Random;
 
-import org.apache.commons.math3.util.MathArrays;
+import pl.a2s.ms.core.util.DistanceKernel;
+import pl.a2s.ms.core.util.PackedDistanceMatrix;
+import pl.a2s.ms.core.util.ArraysUtil;
 
 /**
  * The class contains common methods used in Multiwinner Selection.
+ * <p>
+ * Scratch buffers are kept between the calls, so an instance shouldn't be used
+ * by many threads at once.
  *
  * @author Jakub Sawicki
  */
@@ -34,6 +37,16 @@ public class MWPolicyHelper {
     private final UtilFunction util;
     private final Random rand;
 
+    /// scratch buffers of computePrefOrders, reused while the pool size stays the same
+    private long[] keys = new long[0];
+    private int[] idx = new int[0];
+    private double[] utilRow = new double[0];
+    private int[][] prefs = new int[0][];
+    /// scratch buffers of greedyCC
+    private int[][] pos = new int[0][];
+    private int[] best = new int[0];
+    private boolean[] chosen = new boolean[0];
+
     public MWPolicyHelper(UtilFunction util, Random rand) {
         this.util = util;
         this.rand = rand;
@@ -69,19 +82,34 @@ public class MWPolicyHelper {
      * @return utility array
      */
     public double[][] computeUtilities(double[] F, double[][] X) {
-        final int n = X.length;
-        final double[][] D = computeDistances(X);
+        final int dim = X.length == 0 ? 0 : X[0].length;
+        return computeUtilities(F, flatten(X, dim), dim);
+    }
+
+    /**
+     * Computes the utilities of the candidates. The distances are streamed, so the utility matrix
+     * is the only n x n allocation, {@link #computePrefOrders(double[], double[], int, int)}
+     * avoids that one too.
+     *
+     * @param F fitness list
+     * @param X points stored row by row in a single array
+     * @param dim point dimension
+     * @return utility array
+     */
+    public double[][] computeUtilities(double[] F, double[] X, int dim) {
+        final int n = F.length;
         final double[][] U = new double[n][n];
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                U[i][j] = util.apply(F[j], D[i][j]);
+                U[i][j] = util.applyAsDouble(F[j], DistanceKernel.distance(X, i, j, dim));
             }
         }
         return U;
     }
 
     /**
-     * Computes the distances between points.
+     * Computes the distances between points as a full matrix, see
+     * {@link #computeDistances(double[], int, int)} for the packed form.
      *
      * @param X the points
      * @return distance matrix
@@ -90,14 +118,34 @@ public class MWPolicyHelper {
         final int n = X.length;
         final double[][] D = new double[n][n];
         for (int i = 0; i < n; i++) {
-            for (int j = i; j < n; j++) {
-                D[i][j] = MathArrays.distance(X[i], X[j]);
+            for (int j = i + 1; j < n; j++) {
+                D[i][j] = DistanceKernel.distance(X[i], X[j]);
                 D[j][i] = D[i][j];
             }
         }
         return D;
     }
 
+    /**
+     * Computes the distances between points, storing each pair once.
+     *
+     * @param X the points stored row by row in a single array
+     * @param n number of points
+     * @param dim point dimension
+     * @return packed distance matrix
+     */
+    public PackedDistanceMatrix computeDistances(double[] X, int n, int dim) {
+        return DistanceKernel.pairwise(X, n, dim, false);
+    }
+
+    private static double[] flatten(double[][] X, int dim) {
+        final double[] flat = new double[X.length * dim];
+        for (int i = 0; i < X.length; i++) {
+            System.arraycopy(X[i], 0, flat, i * dim, dim);
+        }
+        return flat;
+    }
+
     /**
      * Based on the utility matrix it returns the order of preference of each voter.
      *
@@ -105,20 +153,146 @@ public class MWPolicyHelper {
      * @return preference matrix
      */
     public int[][] computePrefOrders(double[][] U) {
+        return computePrefOrders(U, U.length);
+    }
+
+    /**
+     * Based on the utility matrix it returns the r most preferred candidates of each voter, in order.
+     * Candidates of equal utility are ordered by their index.
+     *
+     * @param U utility matrix
+     * @param r length of the preference orders
+     * @return preference matrix of n rows of length r
+     */
+    public int[][] computePrefOrders(double[][] U, int r) {
         final int n = U.length;
-        final int[][] P = new int[n][n];
+        final int[][] P = new int[n][];
+        for (int i = 0; i < n; i++) {
+            P[i] = prefOrder(U[i], n, r, new int[Math.min(r, n)]);
+        }
+        return P;
+    }
+
+    /**
+     * Computes the r most preferred candidates of each voter directly from the fitnesses and points,
+     * without materializing the distance and utility matrices. Gives the same result as
+     * {@code computePrefOrders(computeUtilities(F, X, dim), r)}.
+     * <p>
+     * The returned matrix is reused by the next call for the same n and r.
+     *
+     * @param F fitness list
+     * @param X points stored row by row in a single array
+     * @param dim point dimension
+     * @param r length of the preference orders
+     * @return preference matrix of n rows of length r
+     */
+    public int[][] computePrefOrders(double[] F, double[] X, int dim, int r) {
+        final int n = F.length;
+        final int len = Math.min(r, n);
+        if (utilRow.length != n) {
+            utilRow = new double[n];
+        }
+        if (prefs.length != n || (n > 0 && prefs[0].length != len)) {
+            prefs = new int[n][len];
+        }
         for (int i = 0; i < n; i++) {
-            final double[] utils = U[i];
-            final Integer[] prefs = new Integer[n];
             for (int j = 0; j < n; j++) {
-                prefs[j] = j;
+                utilRow[j] = util.applyAsDouble(F[j], DistanceKernel.distance(X, i, j, dim));
             }
-            Arrays.sort(prefs, comparingDouble((Integer key) -> -utils[key]));
-            for (int j = 0; j < n; j++) {
-                P[i][j] = prefs[j];
+            prefOrder(utilRow, n, r, prefs[i]);
+        }
+        return prefs;
+    }
+
+    /**
+     * @return the indices of the r highest utilities, in descending order of utility, written to out
+     */
+    private int[] prefOrder(double[] utils, int n, int r, int[] out) {
+        if (keys.length != n) {
+            keys = new long[n];
+            idx = new int[n];
+        }
+        for (int j = 0; j < n; j++) {
+            keys[j] = ArraysUtil.sortableKey(-utils[j]);
+            idx[j] = j;
+        }
+        ArraysUtil.partialArgsort(keys, idx, n, r);
+        System.arraycopy(idx, 0, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Greedily selects k winners maximizing the CC score, each time taking the candidate
+     * with the highest score of the winner set extended by it (the lowest index in case of a tie).
+     * <p>
+     * The position of the best-ranked winner of every voter is tracked, so the score of
+     * a candidate is computed in O(n) and the whole selection takes O(k m n).
+     *
+     * @param P preference matrix
+     * @param k number of winners
+     * @return winner array
+     */
+    public int[] greedyCC(int[][] P, int k) {
+        return greedyCC(P, P[0].length, k);
+    }
+
+    /**
+     * Greedy CC on preference orders truncated to their first r positions (see
+     * {@link #computePrefOrders(double[], double[], int, int)}). Candidates beyond the prefix of a voter
+     * are treated as its least preferred ones, i.e. they give it no score. For r = m it's
+     * the same as {@link #greedyCC(int[][], int)}.
+     *
+     * @param P preference matrix of n rows of length r
+     * @param m number of candidates
+     * @param k number of winners
+     * @return winner array
+     */
+    public int[] greedyCC(int[][] P, int m, int k) {
+        final int n = P.length;
+        // pos[c][v] is the position of candidate c in the preference order of voter v
+        if (pos.length != m || (m > 0 && pos[0].length != n)) {
+            pos = new int[m][n];
+            best = new int[n];
+            chosen = new boolean[m];
+        }
+        for (final int[] pc : pos) {
+            Arrays.fill(pc, m - 1);
+        }
+        for (int v = 0; v < n; v++) {
+            final int[] p = P[v];
+            for (int i = 0; i < p.length; i++) {
+                pos[p[i]][v] = i;
             }
         }
-        return P;
+        // position of the best-ranked winner of each voter, m if there are no winners yet
+        Arrays.fill(best, m);
+        Arrays.fill(chosen, false);
+        final int[] W = new int[k];
+        for (int i = 0; i < k; i++) {
+            int bestScore = -1;
+            int bestCandidate = -1;
+            for (int c = 0; c < m; c++) {
+                if (chosen[c]) {
+                    continue;
+                }
+                final int[] pc = pos[c];
+                int s = 0;
+                for (int v = 0; v < n; v++) {
+                    s += m - 1 - Math.min(best[v], pc[v]);
+                }
+                if (s > bestScore) {
+                    bestScore = s;
+                    bestCandidate = c;
+                }
+            }
+            W[i] = bestCandidate;
+            chosen[bestCandidate] = true;
+            final int[] pw = pos[bestCandidate];
+            for (int v = 0; v < n; v++) {
+                best[v] = Math.min(best[v], pw[v]);
+            }
+        }
+        return W;
     }
 
     /**
@@ -17,16 +17,17 @@
 
 package pl.a2s.ms.core.mw;
 
-import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * A utility function.
  * <p>
  * It returns the utility value based on fitness and distance.
+ * It is evaluated for every pair of candidates, hence it works on primitives.
  *
  * @author Jakub Sawicki
  */
-public interface UtilFunction extends BiFunction<Double, Double, Double> {
+public interface UtilFunction extends DoubleBinaryOperator {
 
     /**
      * Returns the utility function value.
@@ -37,6 +38,13 @@ public interface UtilFunction extends BiFunction<Double, Double, Double> {
      * @return the utility function value
      */
     @Override
-    Double apply(Double fitness, Double distance);
+    double applyAsDouble(double fitness, double distance);
+
+    /**
+     * Boxed version of {@link #applyAsDouble(double, double)}.
+     */
+    default Double apply(Double fitness, Double distance) {
+        return applyAsDouble(fitness, distance);
+    }
 
 }
@@ -34,7 +34,7 @@ public class UtilFunctions {
         return new UtilFunction() {
 
             @Override
-            public Double apply(Double fitness, Double distance) {
+            public double applyAsDouble(double fitness, double distance) {
                 if (distance != 0.) {
                     return FastMath.pow(fitness, a) / FastMath.pow(distance, b);
                 } else {
@@ -62,7 +62,7 @@ public class UtilFunctions {
         return new UtilFunction() {
 
             @Override
-            public Double apply(Double fitness, Double distance) {
+            public double applyAsDouble(double fitness, double distance) {
                 return FastMath.pow(fitness, a) / (1. + FastMath.pow(distance, b));
             }
 
@@ -91,8 +91,8 @@ public class UtilFunctions {
         return new UtilFunction() {
 
             @Override
-            public Double apply(Double fitness, Double distance) {
-                return f.apply(scale * fitness, distance);
+            public double applyAsDouble(double fitness, double distance) {
+                return f.applyAsDouble(scale * fitness, distance);
             }
 
             @Override
@@ -124,7 +124,7 @@ public class UtilFunctions {
         return new UtilFunction() {
 
             @Override
-            public Double apply(Double fitness, Double distance) {
+            public double applyAsDouble(double fitness, double distance) {
                 if (distance == 0) {
                     return 0.;
                 } else {
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.nds;
+
+import java.util.Arrays;
+
+/**
+ * Jensen's divide-and-conquer non-dominated sort in the generalized version of
+ * Buzdalov and Shalyto, 2014 (correct in presence of equal objective values).
+ * Runs in O(N log^(M-1) N) for M objectives.
+ */
+public class DivideAndConquerNonDominatedSorter implements NonDominatedSorter {
+
+    private static final int BRUTE_FORCE_SIZE = 8;
+
+    @Override
+    public void sort(int[][] q, int n, int[] ranks) {
+        if (q.length <= 2) {
+            NonDominatedSorters.sweep().sort(q, n, ranks);
+            return;
+        }
+        new Run(q, n, ranks).sort();
+    }
+
+    /**
+     * State of a single sorting, kept apart so that the sorter itself is stateless.
+     */
+    private static class Run {
+        private final int[][] q;
+        private final int n;
+        private final int[] ranks;
+        // position of a point in the lexicographic order of distinct points
+        private final int[] pos;
+        // Fenwick tree for prefix maximum of ranks over the second objective
+        private final int[] tree;
+        private final int[] scratch;
+
+        Run(int[][] q, int n, int[] ranks) {
+            this.q = q;
+            this.n = n;
+            this.ranks = ranks;
+            this.pos = new int[n];
+            this.tree = new int[n + 1];
+            this.scratch = new int[n];
+            Arrays.fill(tree, -1);
+        }
+
+        void sort() {
+            final int[] order = NonDominatedSorters.lexicographicOrder(q, n);
+            final int[] representative = new int[n];
+            final int[] distinct = new int[n];
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                final int p = order[i];
+                if (size > 0 && NonDominatedSorters.compare(q, distinct[size - 1], p) == 0) {
+                    representative[p] = distinct[size - 1];
+                } else {
+                    representative[p] = p;
+                    pos[p] = size;
+                    distinct[size++] = p;
+                }
+                ranks[p] = 0;
+            }
+            helperA(Arrays.copyOf(distinct, size), q.length);
+            for (int i = 0; i < n; i++) {
+                ranks[i] = ranks[representative[i]];
+            }
+        }
+
+        /**
+         * Ranks the points of s against each other. All points of s share the values
+         * of objectives k and above, and ranks induced by points outside of s are already applied.
+         */
+        private void helperA(int[] s, int k) {
+            if (s.length < 2) {
+                return;
+            }
+            if (s.length <= BRUTE_FORCE_SIZE) {
+                for (int i = 1; i < s.length; i++) {
+                    for (int j = 0; j < i; j++) {
+                        if (NonDominatedSorters.weaklyDominates(q, s[j], s[i], k)) {
+                            ranks[s[i]] = Math.max(ranks[s[i]], ranks[s[j]] + 1);
+                        }
+                    }
+                }
+            } else if (k == 2) {
+                sweepA(s);
+            } else {
+                final int[] qk = q[k - 1];
+                if (min(s, qk) == max(s, qk)) {
+                    helperA(s, k - 1);
+                    return;
+                }
+                final int median = median(s, qk);
+                final int[] l = filter(s, qk, Integer.MIN_VALUE, median - 1);
+                final int[] m = filter(s, qk, median, median);
+                final int[] h = filter(s, qk, median + 1, Integer.MAX_VALUE);
+                helperA(l, k);
+                helperB(l, m, k - 1);
+                helperA(m, k - 1);
+                helperB(merge(l, m), h, k - 1);
+                helperA(h, k);
+            }
+        }
+
+        /**
+         * Updates ranks of points in h using the (final) ranks of points in l. Every point of l
+         * is not worse than every point of h in objectives k and above.
+         */
+        private void helperB(int[] l, int[] h, int k) {
+            if (l.length == 0 || h.length == 0) {
+                return;
+            }
+            if (l.length == 1 || h.length == 1) {
+                for (final int hi : h) {
+                    for (final int li : l) {
+                        if (NonDominatedSorters.weaklyDominates(q, li, hi, k)) {
+                            ranks[hi] = Math.max(ranks[hi], ranks[li] + 1);
+                        }
+                    }
+                }
+            } else if (k == 2) {
+                sweepB(l, h);
+            } else {
+                final int[] qk = q[k - 1];
+                final int lMax = max(l, qk);
+                final int hMin = min(h, qk);
+                if (lMax <= hMin) {
+                    helperB(l, h, k - 1);
+                } else if (min(l, qk) <= max(h, qk)) {
+                    final int median = median(merge(l, h), qk);
+                    final int[] l1 = filter(l, qk, Integer.MIN_VALUE, median - 1);
+                    final int[] l2 = filter(l, qk, median, median);
+                    final int[] l3 = filter(l, qk, median + 1, Integer.MAX_VALUE);
+                    final int[] h1 = filter(h, qk, Integer.MIN_VALUE, median - 1);
+                    final int[] h2 = filter(h, qk, median, median);
+                    final int[] h3 = filter(h, qk, median + 1, Integer.MAX_VALUE);
+                    helperB(l1, h1, k);
+                    helperB(merge(l1, l2), merge(h2, h3), k - 1);
+                    helperB(l3, h3, k);
+                }
+            }
+        }
+
+        private void sweepA(int[] s) {
+            final int[] q1 = q[1];
+            for (final int p : s) {
+                final int best = query(q1[p]);
+                if (best >= 0) {
+                    ranks[p] = Math.max(ranks[p], best + 1);
+                }
+                update(q1[p], ranks[p]);
+            }
+            for (final int p : s) {
+                clear(q1[p]);
+            }
+        }
+
+        private void sweepB(int[] l, int[] h) {
+            final int[] q0 = q[0];
+            final int[] q1 = q[1];
+            int li = 0;
+            for (final int p : h) {
+                while (li < l.length && q0[l[li]] <= q0[p]) {
+                    update(q1[l[li]], ranks[l[li]]);
+                    li++;
+                }
+                final int best = query(q1[p]);
+                if (best >= 0) {
+                    ranks[p] = Math.max(ranks[p], best + 1);
+                }
+            }
+            for (int i = 0; i < li; i++) {
+                clear(q1[l[i]]);
+            }
+        }
+
+        private void update(int index, int value) {
+            for (int i = index + 1; i <= n; i += i & -i) {
+                if (tree[i] < value) {
+                    tree[i] = value;
+                }
+            }
+        }
+
+        private int query(int index) {
+            int result = -1;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                if (tree[i] > result) {
+                    result = tree[i];
+                }
+            }
+            return result;
+        }
+
+        private void clear(int index) {
+            for (int i = index + 1; i <= n; i += i & -i) {
+                tree[i] = -1;
+            }
+        }
+
+        private int[] merge(int[] a, int[] b) {
+            final int[] result = new int[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < result.length; k++) {
+                if (j >= b.length || (i < a.length && pos[a[i]] < pos[b[j]])) {
+                    result[k] = a[i++];
+                } else {
+                    result[k] = b[j++];
+                }
+            }
+            return result;
+        }
+
+        private static int[] filter(int[] s, int[] qk, int from, int to) {
+            int count = 0;
+            for (final int p : s) {
+                if (qk[p] >= from && qk[p] <= to) {
+                    count++;
+                }
+            }
+            final int[] result = new int[count];
+            int i = 0;
+            for (final int p : s) {
+                if (qk[p] >= from && qk[p] <= to) {
+                    result[i++] = p;
+                }
+            }
+            return result;
+        }
+
+        private static int min(int[] s, int[] qk) {
+            int result = Integer.MAX_VALUE;
+            for (final int p : s) {
+                result = Math.min(result, qk[p]);
+            }
+            return result;
+        }
+
+        private static int max(int[] s, int[] qk) {
+            int result = Integer.MIN_VALUE;
+            for (final int p : s) {
+                result = Math.max(result, qk[p]);
+            }
+            return result;
+        }
+
+        /**
+         * @return the lower median of the values qk over s, found with quickselect
+         */
+        private int median(int[] s, int[] qk) {
+            final int size = s.length;
+            for (int i = 0; i < size; i++) {
+                scratch[i] = qk[s[i]];
+            }
+            final int target = size / 2;
+            int lo = 0;
+            int hi = size - 1;
+            while (lo < hi) {
+                final int pivot = scratch[(lo + hi) >>> 1];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (scratch[i] < pivot) {
+                        i++;
+                    }
+                    while (scratch[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        final int t = scratch[i];
+                        scratch[i] = scratch[j];
+                        scratch[j] = t;
+                        i++;
+                        j--;
+                    }
+                }
+                if (target <= j) {
+                    hi = j;
+                } else if (target >= i) {
+                    lo = i;
+                } else {
+                    break;
+                }
+            }
+            return scratch[target];
+        }
+    }
+
+}
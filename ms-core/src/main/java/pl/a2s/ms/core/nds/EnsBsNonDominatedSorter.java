@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.nds;
+
+/**
+ * Efficient Non-dominated Sort with binary search strategy (ENS-BS) by Zhang et al., 2015.
+ * <p>
+ * Points are visited in lexicographic order, so a point can only be dominated by points
+ * already assigned to fronts. Its front is found by a binary search over the fronts,
+ * each front being scanned from the most recently added member.
+ */
+public class EnsBsNonDominatedSorter implements NonDominatedSorter {
+
+    @Override
+    public void sort(int[][] q, int n, int[] ranks) {
+        final int m = q.length;
+        final int[] order = NonDominatedSorters.lexicographicOrder(q, n);
+        int[][] fronts = new int[4][];
+        final int[] frontSizes = new int[n];
+        int frontCount = 0;
+        for (final int p : order) {
+            int lo = 0;
+            int hi = frontCount;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (isDominatedByFront(q, m, fronts[mid], frontSizes[mid], p)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (lo == frontCount) {
+                if (frontCount == fronts.length) {
+                    final int[][] grown = new int[2 * fronts.length][];
+                    System.arraycopy(fronts, 0, grown, 0, frontCount);
+                    fronts = grown;
+                }
+                fronts[frontCount++] = new int[4];
+            }
+            int[] front = fronts[lo];
+            if (frontSizes[lo] == front.length) {
+                final int[] grown = new int[2 * front.length];
+                System.arraycopy(front, 0, grown, 0, front.length);
+                front = grown;
+                fronts[lo] = front;
+            }
+            front[frontSizes[lo]++] = p;
+            ranks[p] = lo;
+        }
+    }
+
+    private static boolean isDominatedByFront(int[][] q, int m, int[] front, int size, int p) {
+        for (int i = size - 1; i >= 0; i--) {
+            final int f = front[i];
+            // f precedes p lexicographically, so weak dominance of a distinct point is enough
+            if (NonDominatedSorters.weaklyDominates(q, f, p, m) && NonDominatedSorters.compare(q, f, p) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
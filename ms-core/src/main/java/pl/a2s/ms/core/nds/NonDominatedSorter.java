@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.nds;
+
+/**
+ * Assigns non-domination ranks (front indices, starting from 0) to a set of
+ * objective vectors, assuming minimization of all objectives.
+ * <p>
+ * The rank of a point is the length of the longest chain of points dominating it,
+ * so every correct implementation yields exactly the same ranks as the classic
+ * Deb's fast non-dominated sort.
+ *
+ * @see NonDominatedSorters
+ */
+public interface NonDominatedSorter {
+
+    /**
+     * Computes non-domination ranks.
+     *
+     * @param objectives objective vectors, all of the same length and without NaNs
+     * @param ranks output array, its first objectives.length entries are overwritten
+     */
+    default void sort(double[][] objectives, int[] ranks) {
+        final int n = objectives.length;
+        if (n == 0) {
+            return;
+        }
+        sort(NonDominatedSorters.compress(objectives), n, ranks);
+    }
+
+    /**
+     * Computes non-domination ranks of objective vectors which were already
+     * replaced by their per-objective dense ranks.
+     *
+     * @param q objective-major matrix, q[j][i] is the dense rank of the j-th objective of the i-th point
+     * @param n number of points
+     * @param ranks output array
+     * @see NonDominatedSorters#compress(double[][])
+     */
+    void sort(int[][] q, int n, int[] ranks);
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.nds;
+
+import java.util.Arrays;
+
+/**
+ * Factory and shared primitives of the non-dominated sorting implementations.
+ */
+public class NonDominatedSorters {
+
+    /**
+     * Up to this size ENS-BS beats divide-and-conquer for 3+ objectives.
+     */
+    public static final int ENS_MAX_SIZE = 256;
+
+    private static final NonDominatedSorter SWEEP = new SweepNonDominatedSorter();
+    private static final NonDominatedSorter ENS_BS = new EnsBsNonDominatedSorter();
+    private static final NonDominatedSorter DIVIDE_AND_CONQUER = new DivideAndConquerNonDominatedSorter();
+
+    public static NonDominatedSorter sweep() {
+        return SWEEP;
+    }
+
+    public static NonDominatedSorter ensBs() {
+        return ENS_BS;
+    }
+
+    public static NonDominatedSorter divideAndConquer() {
+        return DIVIDE_AND_CONQUER;
+    }
+
+    /**
+     * Picks the fastest implementation for a given problem shape.
+     *
+     * @param objectiveCount number of objectives
+     * @param size number of points
+     * @return the sorter
+     */
+    public static NonDominatedSorter select(int objectiveCount, int size) {
+        if (objectiveCount <= 2) {
+            return SWEEP;
+        } else if (size <= ENS_MAX_SIZE) {
+            return ENS_BS;
+        } else {
+            return DIVIDE_AND_CONQUER;
+        }
+    }
+
+    /**
+     * Checks whether the objective vectors can be handled by a {@link NonDominatedSorter},
+     * i.e. none of them is null, all have the same length and there are no NaNs.
+     *
+     * @param objectives objective vectors
+     * @return true if the vectors are sortable
+     */
+    public static boolean isSortable(double[][] objectives) {
+        if (objectives.length == 0) {
+            return true;
+        }
+        if (objectives[0] == null) {
+            return false;
+        }
+        final int m = objectives[0].length;
+        for (final double[] obj : objectives) {
+            if (obj == null || obj.length != m) {
+                return false;
+            }
+            for (final double v : obj) {
+                if (Double.isNaN(v)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces each objective value by its dense rank among the values of that objective.
+     * The transformation preserves all comparisons (including equalities, so -0.0 and 0.0
+     * get the same rank), hence it preserves the dominance relation.
+     *
+     * @param objectives point-major objective vectors
+     * @return objective-major matrix of dense ranks
+     */
+    public static int[][] compress(double[][] objectives) {
+        final int n = objectives.length;
+        final int m = n == 0 ? 0 : objectives[0].length;
+        final int[][] q = new int[m][n];
+        final double[] sorted = new double[n];
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                sorted[i] = objectives[i][j];
+            }
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            final int[] qj = q[j];
+            for (int i = 0; i < n; i++) {
+                qj[i] = lowerBound(sorted, unique, objectives[i][j]);
+            }
+        }
+        return q;
+    }
+
+    private static int lowerBound(double[] sorted, int length, double value) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return indices 0..n-1 sorted lexicographically with respect to the objectives
+     */
+    static int[] lexicographicOrder(int[][] q, int n) {
+        final int[] idx = new int[n];
+        for (int i = 0; i < n; i++) {
+            idx[i] = i;
+        }
+        mergeSort(q, idx, new int[n], 0, n);
+        return idx;
+    }
+
+    private static void mergeSort(int[][] q, int[] idx, int[] tmp, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        mergeSort(q, idx, tmp, from, mid);
+        mergeSort(q, idx, tmp, mid, to);
+        if (compare(q, idx[mid - 1], idx[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(idx, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compare(q, tmp[i], tmp[j]) <= 0)) {
+                idx[k] = tmp[i++];
+            } else {
+                idx[k] = tmp[j++];
+            }
+        }
+    }
+
+    static int compare(int[][] q, int a, int b) {
+        for (final int[] qj : q) {
+            if (qj[a] != qj[b]) {
+                return qj[a] < qj[b] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if a is not worse than b in the first k objectives
+     */
+    static boolean weaklyDominates(int[][] q, int a, int b, int k) {
+        for (int j = 0; j < k; j++) {
+            if (q[j][a] > q[j][b]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.nds;
+
+/**
+ * O(N log N) sweep for one or two objectives.
+ * <p>
+ * Points are visited in lexicographic order, so every front stays sorted by the first
+ * objective and its last added point has the smallest second objective. Whether a front
+ * dominates the next point can therefore be decided by looking at that single point,
+ * and the first non-dominating front is found with a binary search.
+ */
+public class SweepNonDominatedSorter implements NonDominatedSorter {
+
+    @Override
+    public void sort(int[][] q, int n, int[] ranks) {
+        if (q.length > 2) {
+            throw new IllegalArgumentException("Sweep supports at most 2 objectives, got " + q.length);
+        }
+        if (q.length == 0) {
+            for (int i = 0; i < n; i++) {
+                ranks[i] = 0;
+            }
+            return;
+        }
+        final int[] q0 = q[0];
+        final int[] q1 = q.length > 1 ? q[1] : new int[n];
+        final int[] order = NonDominatedSorters.lexicographicOrder(q, n);
+        final int[] last0 = new int[n];
+        final int[] last1 = new int[n];
+        int fronts = 0;
+        for (final int p : order) {
+            final int p0 = q0[p];
+            final int p1 = q1[p];
+            int lo = 0;
+            int hi = fronts;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (last1[mid] < p1 || (last1[mid] == p1 && last0[mid] < p0)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            ranks[p] = lo;
+            last0[lo] = p0;
+            last1[lo] = p1;
+            if (lo == fronts) {
+                fronts++;
+            }
+        }
+    }
+
+}
@@ -22,15 +22,65 @@ import static java.lang.Math.log;
 import static java.lang.Math.max;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
-public abstract class AbstractGauss implements ObjectiveCalculator {
+/**
+ * Product of Gaussian terms. The terms are set up in the constructors of the subclasses
+ * and have to be stateless, so that the calculator is thread-safe.
+ */
+public abstract class AbstractGauss implements ThreadSafeCalculator {
 
     private static final double LOG2 = log(2);
 
     public interface Term extends Function<double[], Double> {
+
+        /**
+         * Multiplies acc[i] by the value of this term at the i-th point of a batch.
+         *
+         * @param points points stored row by row
+         * @param count number of points
+         * @param dim point dimension
+         * @param acc accumulated products
+         */
+        default void multiplyBatch(double[] points, int count, int dim, double[] acc) {
+            for (int i = 0; i < count; i++) {
+                acc[i] *= apply(Arrays.copyOfRange(points, i * dim, (i + 1) * dim));
+            }
+        }
+    }
+
+    private static class GaussTerm implements Term {
+        private final double[] center;
+        private final double[] r;
+
+        GaussTerm(double[] center, double[] r) {
+            this.center = center;
+            this.r = r;
+        }
+
+        @Override
+        public Double apply(double[] x) {
+            return value(x, 0);
+        }
+
+        @Override
+        public void multiplyBatch(double[] points, int count, int dim, double[] acc) {
+            for (int i = 0; i < count; i++) {
+                acc[i] *= value(points, i * dim);
+            }
+        }
+
+        private double value(double[] x, int offset) {
+            double d = 0;
+            for (int i = 0; i < center.length; ++i) {
+                final double a = (x[offset + i] - center[i]) / r[i];
+                d += a * a;
+            }
+            return 1 - exp(-LOG2 * d);
+        }
     }
 
     private final List<Term> terms = new ArrayList<>();
@@ -47,14 +97,7 @@ public abstract class AbstractGauss implements ObjectiveCalculator {
     }
 
     public static Term gauss(double[] center, double[] r) {
-        return (double[] x) -> {
-            double d = 0;
-            for (int i = 0; i < center.length; ++i) {
-                final double a = (x[i] - center[i]) / r[i];
-                d += a * a;
-            }
-            return 1 - exp(-LOG2 * d);
-        };
+        return new GaussTerm(center, r);
     }
 
     protected static Term gauss2D(double x1, double x2, double r1, double r2) {
@@ -71,10 +114,25 @@ public abstract class AbstractGauss implements ObjectiveCalculator {
         for (final Term t : terms) {
             val *= t.apply(point);
         }
+        return new double[] { cutOff(val) };
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        Arrays.fill(out, 0, count, 1.);
+        for (final Term t : terms) {
+            t.multiplyBatch(points, count, dim, out);
+        }
+        for (int i = 0; i < count; i++) {
+            out[i] = cutOff(out[i]);
+        }
+    }
+
+    private double cutOff(double val) {
         if (cutOffLevel != 0.) {
-            return new double[] { max((val - cutOffLevel) / (1. - cutOffLevel), 0) };
+            return max((val - cutOffLevel) / (1. - cutOffLevel), 0);
         } else {
-            return new double[] { val };
+            return val;
         }
     }
 
@@ -17,7 +17,7 @@
 
 package pl.a2s.ms.core.obj;
 
-public abstract class AbstractZDT implements ObjectiveCalculator {
+public abstract class AbstractZDT implements ThreadSafeCalculator {
 
     @Override
     public double[] calculate(double[] point) {
@@ -28,10 +28,33 @@ public abstract class AbstractZDT implements ObjectiveCalculator {
         return new double[] {f1, f2};
     }
 
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        for (int i = 0; i < count; i++) {
+            final int offset = i * dim;
+            final double f1 = f1(points[offset]);
+            final double g = g(points, offset, dim);
+            final double h = h(f1, g);
+            out[2 * i] = f1;
+            out[2 * i + 1] = f2(g, h);
+        }
+    }
+
     protected abstract double f1(double x1);
-    protected abstract double g(double[] x);
     protected abstract double h(double f1, double g);
 
+    protected double g(double[] x) {
+        return g(x, 0, x.length);
+    }
+
+    /**
+     * @param x points stored row by row
+     * @param offset index of the first coordinate of the point
+     * @param dim point dimension
+     * @return value of g at the point
+     */
+    protected abstract double g(double[] x, int offset, int dim);
+
     protected double f2(double g, double h) {
         return g * h;
     }
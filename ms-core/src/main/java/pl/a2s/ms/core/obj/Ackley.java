@@ -27,7 +27,7 @@ import java.util.List;
 
 import static org.apache.commons.math3.util.FastMath.*;
 
-public class Ackley implements ObjectiveCalculator, MinimaInfoProvider {
+public class Ackley implements ThreadSafeCalculator, MinimaInfoProvider {
 
     private final static double A = 20.;
     private final static double B = 0.2;
@@ -35,17 +35,28 @@ public class Ackley implements ObjectiveCalculator, MinimaInfoProvider {
 
     @Override
     public double[] calculate(double[] point) {
-        final int n = point.length;
+        return new double[] { value(point, 0, point.length) };
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = value(points, i * dim, dim);
+        }
+    }
+
+    private static double value(double[] x, int offset, int n) {
         if (n == 0) {
-            return new double[] { 0 };
+            return 0;
         }
         double norm2 = 0;
         double sumcos = 0;
-        for (double v : point) {
+        for (int i = offset; i < offset + n; i++) {
+            final double v = x[i];
             norm2 += pow(v, 2);
             sumcos += cos(C * v);
         }
-        return new double[] { -A * exp(-B * sqrt(norm2 / n)) - exp(sumcos / n) + A + E };
+        return -A * exp(-B * sqrt(norm2 / n)) - exp(sumcos / n) + A + E;
     }
 
     @Override
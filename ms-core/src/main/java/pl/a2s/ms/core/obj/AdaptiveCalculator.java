@@ -17,8 +17,75 @@
 
 package pl.a2s.ms.core.obj;
 
+import java.util.Arrays;
+
 public interface AdaptiveCalculator extends ObjectiveCalculator {
 
     void setPrecision(double precision);
 
+    /**
+     * @return the precision set by {@link #setPrecision(double)}, NaN if unknown
+     */
+    default double getPrecision() {
+        return Double.NaN;
+    }
+
+    /**
+     * Calculates the objectives at the given precision, regardless of the one set by
+     * {@link #setPrecision(double)}, which stays unchanged. It may be called concurrently
+     * with other precisions.
+     * <p>
+     * This default implementation sets the precision, calculates and sets back the previous one
+     * (if {@link #getPrecision()} knows it) while holding the lock of the calculator, so calls with
+     * different precisions are serialised, and are safe only as long as nothing calls
+     * {@link #calculate(double[])} or {@link #setPrecision(double)} meanwhile without the lock.
+     * Calculators sending the precision along with the point should override it.
+     *
+     * @param precision precision of the calculation, NaN to use the one set by {@link #setPrecision(double)}
+     */
+    default double[] calculate(double[] point, double precision) {
+        if (Double.isNaN(precision)) {
+            return calculate(point);
+        }
+        synchronized (this) {
+            final double previous = getPrecision();
+            setPrecision(precision);
+            try {
+                return calculate(point);
+            } finally {
+                if (!Double.isNaN(previous)) {
+                    setPrecision(previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Batch counterpart of {@link #calculate(double[], double)}.
+     *
+     * @see #calculateBatch(double[], int, int, double[])
+     */
+    default void calculateBatch(double[] points, int count, int dim, double[] out, double precision) {
+        final int m = getObjectiveCount();
+        for (int i = 0; i < count; i++) {
+            final double[] objectives = calculate(Arrays.copyOfRange(points, i * dim, (i + 1) * dim), precision);
+            System.arraycopy(objectives, 0, out, i * m, m);
+        }
+    }
+
+    /**
+     * Like {@link #calculateBatch(double[], int, int, double[], double)}, but with a separate
+     * precision for every point, so that points requested at different precisions can be
+     * calculated together.
+     *
+     * @param precisions precision of each point, NaN to use the one set by {@link #setPrecision(double)}
+     */
+    default void calculateBatch(double[] points, int count, int dim, double[] out, double[] precisions) {
+        final int m = getObjectiveCount();
+        for (int i = 0; i < count; i++) {
+            final double[] objectives = calculate(Arrays.copyOfRange(points, i * dim, (i + 1) * dim), precisions[i]);
+            System.arraycopy(objectives, 0, out, i * m, m);
+        }
+    }
+
 }
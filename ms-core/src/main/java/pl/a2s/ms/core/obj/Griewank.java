@@ -27,20 +27,32 @@ import java.util.List;
 
 import static org.apache.commons.math3.util.FastMath.*;
 
-public class Griewank implements ObjectiveCalculator, MinimaInfoProvider {
+public class Griewank implements ThreadSafeCalculator, MinimaInfoProvider {
 
     private static final int FREE_TERM = 1;
     private static final double DIVISOR = 4000.0;
 
     @Override
     public double[] calculate(double[] point) {
+        return new double[] { value(point, 0, point.length) };
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = value(points, i * dim, dim);
+        }
+    }
+
+    private static double value(double[] x, int offset, int n) {
         double sum = 0;
         double product = 1;
-        for (int i = 0; i < point.length; i++) {
-            sum += pow(point[i], 2);
-            product *= cos(point[i] / sqrt(i + 1));
+        for (int i = 0; i < n; i++) {
+            final double xi = x[offset + i];
+            sum += pow(xi, 2);
+            product *= cos(xi / sqrt(i + 1));
         }
-        return new double[] { sum / DIVISOR - product + FREE_TERM };
+        return sum / DIVISOR - product + FREE_TERM;
     }
 
     @Override
@@ -21,19 +21,29 @@ import org.apache.commons.math3.util.FastMath;
 
 import static org.apache.commons.math3.util.FastMath.exp;
 
-public class MOP2Calculator implements ObjectiveCalculator {
+public class MOP2Calculator implements ThreadSafeCalculator {
 
     @Override
     public double[] calculate(double[] point) {
-        final int n = point.length;
-        double sum1 = 0.;
-        double sum2 = 0.;
-        final double oneOverRootN = 1./FastMath.sqrt(n);
-        for (double v : point) {
-            sum1 += FastMath.pow(v - oneOverRootN, 2);
-            sum2 += FastMath.pow(v + oneOverRootN, 2);
+        final double[] out = new double[2];
+        calculateBatch(point, 1, point.length, out);
+        return out;
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        final double oneOverRootN = 1./FastMath.sqrt(dim);
+        for (int i = 0; i < count; i++) {
+            double sum1 = 0.;
+            double sum2 = 0.;
+            for (int k = i * dim; k < (i + 1) * dim; k++) {
+                final double v = points[k];
+                sum1 += FastMath.pow(v - oneOverRootN, 2);
+                sum2 += FastMath.pow(v + oneOverRootN, 2);
+            }
+            out[2 * i] = 1. - exp(-sum1);
+            out[2 * i + 1] = 1. - exp(-sum2);
         }
-        return new double[] { 1. - exp(-sum1), 1. - exp(-sum2) };
     }
 
     @Override
@@ -17,9 +17,37 @@
 
 package pl.a2s.ms.core.obj;
 
+import java.util.Arrays;
+
 public interface ObjectiveCalculator {
 
     double[] calculate(double[] point);
     int getObjectiveCount();
 
+    /**
+     * @return true if the calculator may be called concurrently from many threads,
+     * by default if it's a {@link ThreadSafeCalculator}
+     */
+    default boolean isThreadSafe() {
+        return this instanceof ThreadSafeCalculator;
+    }
+
+    /**
+     * Evaluates a batch of points. Must give the same results as {@link #calculate(double[])}
+     * called for every point. This default implementation does exactly that, analytic
+     * calculators override it with allocation-free loops.
+     *
+     * @param points count points of dimension dim stored row by row
+     * @param count number of points
+     * @param dim point dimension
+     * @param out output buffer of at least count * getObjectiveCount() values, filled row by row
+     */
+    default void calculateBatch(double[] points, int count, int dim, double[] out) {
+        final int m = getObjectiveCount();
+        for (int i = 0; i < count; i++) {
+            final double[] obj = calculate(Arrays.copyOfRange(points, i * dim, (i + 1) * dim));
+            System.arraycopy(obj, 0, out, i * m, m);
+        }
+    }
+
 }
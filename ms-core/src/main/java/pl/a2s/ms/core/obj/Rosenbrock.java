@@ -27,18 +27,29 @@ import java.util.List;
 
 import static org.apache.commons.math3.util.FastMath.pow;
 
-public class Rosenbrock implements ObjectiveCalculator, MinimaInfoProvider {
+public class Rosenbrock implements ThreadSafeCalculator, MinimaInfoProvider {
 
     private static final int COEFFICIENT = 100;
 
     @Override
     public double[] calculate(double[] point) {
+        return new double[] { value(point, 0, point.length) };
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = value(points, i * dim, dim);
+        }
+    }
+
+    private static double value(double[] x, int offset, int n) {
         double sum = 0;
-        for (int i = 0; i < point.length - 1; i++) {
-            sum += COEFFICIENT * pow(point[i + 1] - pow(point[i], 2), 2)
-                    + pow(1 - point[i], 2);
+        for (int i = offset; i < offset + n - 1; i++) {
+            sum += COEFFICIENT * pow(x[i + 1] - pow(x[i], 2), 2)
+                    + pow(1 - x[i], 2);
         }
-        return new double[] { sum };
+        return sum;
     }
 
     @Override
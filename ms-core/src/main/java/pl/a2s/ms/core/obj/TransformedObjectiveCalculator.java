@@ -55,11 +55,30 @@ public class TransformedObjectiveCalculator implements ObjectiveCalculator, Mini
         return oc.calculate(scaledPoint);
     }
 
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        val scaledPoints = new double[count * dim];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < dim; j++) {
+                scaledPoints[i * dim + j] = points[i * dim + j] / scale[j];
+            }
+        }
+        oc.calculateBatch(scaledPoints, count, dim, out);
+    }
+
     @Override
     public int getObjectiveCount() {
         return oc.getObjectiveCount();
     }
 
+    /**
+     * The scaling itself has no state, so it's as thread-safe as the wrapped calculator.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return oc.isThreadSafe();
+    }
+
     @Override
     public List<MinimumInfo> getMinimaInfo(Range[] domain) {
         val scaledDomain = new Range[domain.length];
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.obj;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Evaluates points in a fixed set of long-lived solver processes, so that the solver
+ * start-up (process spawn, loading the mesh etc.) is paid once per worker instead of once
+ * per evaluation. The processes speak {@link WorkerProtocol} over their stdin and stdout,
+ * stderr is inherited.
+ * <p>
+ * Each worker gets up to {@code pipelineDepth} requests at a time, so it doesn't wait idle
+ * for the next request after sending a response. A worker which dies or doesn't answer a request
+ * within the timeout is killed and restarted, and its unanswered requests are sent again,
+ * up to {@link #getMaxAttempts()} times in total. The timeout of a request runs from the moment
+ * it becomes the oldest unanswered request of its worker, so time spent queued behind other requests
+ * doesn't count. Requests the solver answered with no objectives are not retried.
+ */
+@Log
+public class WorkerProcessCalculator implements AdaptiveCalculator, ThreadSafeCalculator, Closeable {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+
+    @Getter private final List<String> command;
+    @Getter private final int objectiveCount;
+    @Getter private final int pipelineDepth;
+    @Getter private final long timeoutMillis;
+    @Getter @Setter private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger restartCount = new AtomicInteger();
+    /// resubmits failed requests, which may wait for a free slot of a worker
+    private final ExecutorService retryExecutor = Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, "worker-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile double precision = Double.NaN;
+    private volatile boolean closed;
+
+    /**
+     * Starts the workers.
+     *
+     * @param command command line starting a single worker
+     * @param objectiveCount number of objectives returned by the solver
+     * @param workerCount number of worker processes
+     * @param pipelineDepth maximal number of requests sent to a worker and not answered yet
+     * @param timeoutMillis time a worker has to answer its oldest unanswered request
+     * @throws UncheckedIOException if a worker can't be started
+     */
+    public WorkerProcessCalculator(List<String> command, int objectiveCount, int workerCount,
+                                   int pipelineDepth, long timeoutMillis) {
+        if (workerCount < 1 || pipelineDepth < 1) {
+            throw new IllegalArgumentException("Worker count and pipeline depth have to be positive");
+        }
+        this.command = new ArrayList<>(command);
+        this.objectiveCount = objectiveCount;
+        this.pipelineDepth = pipelineDepth;
+        this.timeoutMillis = timeoutMillis;
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                final Worker worker = new Worker(i);
+                workers.add(worker);
+                worker.start();
+            }
+        } catch (final IOException e) {
+            close();
+            throw new UncheckedIOException("Cannot start worker " + command, e);
+        }
+    }
+
+    @Override
+    public void setPrecision(double precision) {
+        this.precision = precision;
+    }
+
+    @Override
+    public double getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public double[] calculate(double[] point) {
+        return calculate(point, precision);
+    }
+
+    /**
+     * The precision is sent along with the point, so concurrent calls don't interfere.
+     */
+    @Override
+    public double[] calculate(double[] point, double precision) {
+        return join(submit(point.clone(), resolve(precision), 1));
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out) {
+        calculateBatch(points, count, dim, out, precision);
+    }
+
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out, double precision) {
+        final double[] precisions = new double[count];
+        Arrays.fill(precisions, precision);
+        calculateBatch(points, count, dim, out, precisions);
+    }
+
+    /**
+     * Sends all the points at once, so that they are spread over the workers.
+     */
+    @Override
+    public void calculateBatch(double[] points, int count, int dim, double[] out, double[] precisions) {
+        final List<CompletableFuture<double[]>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(submit(Arrays.copyOfRange(points, i * dim, (i + 1) * dim), resolve(precisions[i]), 1));
+        }
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(join(futures.get(i)), 0, out, i * objectiveCount, objectiveCount);
+        }
+    }
+
+    /**
+     * @return number of worker restarts caused by crashes and timeouts
+     */
+    public int getRestartCount() {
+        return restartCount.get();
+    }
+
+    /**
+     * Closes the stdin of the workers and kills the ones which don't exit within the timeout.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (final Worker worker : workers) {
+            worker.stop();
+        }
+        retryExecutor.shutdown();
+    }
+
+    private CompletableFuture<double[]> submit(double[] point, double precision, int attempt) {
+        final Pending pending = new Pending(point, precision);
+        try {
+            pickWorker().send(pending);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future.handle((objectives, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(objectives);
+            }
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof WorkerFailure && attempt < maxAttempts && !closed) {
+                log.warning("Retrying request " + pending.request.getId() + ": " + cause.getMessage());
+                return CompletableFuture.supplyAsync(() -> submit(point, precision, attempt + 1), retryExecutor)
+                        .thenCompose(f -> f);
+            }
+            return CompletableFuture.<double[]>failedFuture(cause);
+        }).thenCompose(f -> f);
+    }
+
+    private Worker pickWorker() {
+        Worker best = null;
+        for (final Worker worker : workers) {
+            if (worker.isAlive() && (best == null || worker.slots.availablePermits() > best.slots.availablePermits())) {
+                best = worker;
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No worker is running " + command);
+        }
+        return best;
+    }
+
+    private double resolve(double precision) {
+        return Double.isNaN(precision) ? this.precision : precision;
+    }
+
+    private static double[] join(CompletableFuture<double[]> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            throw new IllegalStateException("Evaluation failed", e.getCause());
+        }
+    }
+
+    private static class Pending {
+        private final double[] point;
+        private final double precision;
+        private final CompletableFuture<double[]> future = new CompletableFuture<>();
+        /// set when sent, ids of the requests of a worker increase in the order they are sent
+        private volatile WorkerProtocol.Request request;
+        /// generation of the worker process it was sent to
+        private volatile int generation;
+        /// if its timeout is already running
+        private final AtomicBoolean timed = new AtomicBoolean();
+
+        Pending(double[] point, double precision) {
+            this.point = point;
+            this.precision = precision;
+        }
+    }
+
+    /**
+     * Failure of a worker process rather than of the evaluation itself, the request may be retried.
+     */
+    private static class WorkerFailure extends IOException {
+        WorkerFailure(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private class Worker {
+        private final int index;
+        private final Semaphore slots = new Semaphore(pipelineDepth);
+        /// unanswered requests by id, so the first one is the oldest
+        private final ConcurrentSkipListMap<Long, Pending> inFlight = new ConcurrentSkipListMap<>();
+        private Process process;
+        private DataOutputStream out;
+        private int generation;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        synchronized boolean isAlive() {
+            return process != null;
+        }
+
+        synchronized void start() throws IOException {
+            process = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            final int gen = ++generation;
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            final Thread reader = new Thread(() -> read(in, gen), "worker-" + index + "-" + gen);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void send(Pending pending) throws InterruptedException {
+            slots.acquire();
+            final int gen;
+            synchronized (this) {
+                gen = generation;
+                pending.request = new WorkerProtocol.Request(nextId.getAndIncrement(), pending.precision, pending.point);
+                pending.generation = gen;
+                if (process == null) {
+                    slots.release();
+                    pending.future.completeExceptionally(new IllegalStateException("Worker " + index + " isn't running"));
+                    return;
+                }
+                inFlight.put(pending.request.getId(), pending);
+                try {
+                    WorkerProtocol.writeRequest(out, pending.request);
+                    out.flush();
+                } catch (final IOException e) {
+                    fail(gen, e);
+                    return;
+                }
+            }
+            startTimeoutOfOldest();
+        }
+
+        /**
+         * Starts the timeout of the oldest unanswered request, unless it's already running.
+         * Called whenever a request is sent or answered, so every request gets its timeout
+         * once it becomes the oldest one.
+         */
+        private void startTimeoutOfOldest() {
+            final Map.Entry<Long, Pending> oldest = inFlight.firstEntry();
+            if (oldest == null || !oldest.getValue().timed.compareAndSet(false, true)) {
+                return;
+            }
+            final Pending pending = oldest.getValue();
+            CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!pending.future.isDone()) {
+                    fail(pending.generation, new TimeoutException("No answer to request " + pending.request.getId()
+                            + " within " + timeoutMillis + " ms"));
+                }
+            });
+        }
+
+        private void read(DataInputStream in, int gen) {
+            try {
+                WorkerProtocol.Response response;
+                while ((response = WorkerProtocol.readResponse(in)) != null) {
+                    final Pending pending = inFlight.remove(response.getId());
+                    if (pending == null) {
+                        continue;
+                    }
+                    slots.release();
+                    startTimeoutOfOldest();
+                    if (response.getObjectives() == null) {
+                        pending.future.completeExceptionally(new IllegalStateException(
+                                "Solver failed to evaluate " + Arrays.toString(pending.request.getPoint())));
+                    } else {
+                        pending.future.complete(response.getObjectives());
+                    }
+                }
+                fail(gen, new IOException("Worker closed its stdout"));
+            } catch (final IOException e) {
+                fail(gen, e);
+            }
+        }
+
+        /**
+         * Kills the process of the given generation, fails its unanswered requests and starts a new one.
+         */
+        synchronized void fail(int gen, Throwable cause) {
+            if (gen != generation || process == null || closed) {
+                return;
+            }
+            log.log(Level.WARNING, "Restarting worker " + index + ": " + cause);
+            process.destroyForcibly();
+            process = null;
+            restartCount.incrementAndGet();
+            failInFlight(new WorkerFailure("Worker " + index + " failed", cause));
+            try {
+                start();
+            } catch (final IOException e) {
+                log.log(Level.SEVERE, "Cannot restart worker " + index, e);
+                process = null;
+            }
+        }
+
+        synchronized void stop() {
+            if (process == null) {
+                return;
+            }
+            try {
+                out.close();
+                if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (final IOException e) {
+                process.destroyForcibly();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+            process = null;
+            failInFlight(new IllegalStateException("Calculator closed"));
+        }
+
+        private void failInFlight(Throwable e) {
+            for (final Long id : new ArrayList<>(inFlight.keySet())) {
+                final Pending pending = inFlight.remove(id);
+                if (pending != null) {
+                    slots.release();
+                    pending.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.obj;
+
+import lombok.Data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Binary protocol spoken with worker processes of {@link WorkerProcessCalculator}
+ * over their stdin and stdout. All values are big-endian (as in {@link DataOutputStream}),
+ * every frame is prefixed with the int length of the rest of the frame in bytes.
+ * <ul>
+ *     <li>request: long id, double precision (NaN if not set), the doubles of the point</li>
+ *     <li>response: long id of the request, the doubles of the objectives; no objectives
+ *     mean the solver failed to evaluate the point</li>
+ * </ul>
+ * A worker may answer the requests in any order. It should exit once its stdin is closed.
+ */
+public class WorkerProtocol {
+
+    private static final int ID_BYTES = Long.BYTES;
+
+    @Data
+    public static class Request {
+        private final long id;
+        private final double precision;
+        private final double[] point;
+    }
+
+    @Data
+    public static class Response {
+        private final long id;
+        /// null if the evaluation failed
+        private final double[] objectives;
+    }
+
+    public static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        final double[] point = request.getPoint();
+        out.writeInt(ID_BYTES + Double.BYTES * (1 + point.length));
+        out.writeLong(request.getId());
+        out.writeDouble(request.getPrecision());
+        for (final double x : point) {
+            out.writeDouble(x);
+        }
+    }
+
+    /**
+     * @return the request or null if the stream ended before the next frame
+     */
+    public static Request readRequest(DataInputStream in) throws IOException {
+        final int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        final long id = in.readLong();
+        final double precision = in.readDouble();
+        return new Request(id, precision, readDoubles(in, length - ID_BYTES - Double.BYTES));
+    }
+
+    public static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        final double[] objectives = response.getObjectives() == null ? new double[0] : response.getObjectives();
+        out.writeInt(ID_BYTES + Double.BYTES * objectives.length);
+        out.writeLong(response.getId());
+        for (final double obj : objectives) {
+            out.writeDouble(obj);
+        }
+    }
+
+    /**
+     * @return the response or null if the stream ended before the next frame
+     */
+    public static Response readResponse(DataInputStream in) throws IOException {
+        final int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        final long id = in.readLong();
+        final double[] objectives = readDoubles(in, length - ID_BYTES);
+        return new Response(id, objectives.length == 0 ? null : objectives);
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (final EOFException e) {
+            return -1;
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream in, int bytes) throws IOException {
+        if (bytes < 0 || bytes % Double.BYTES != 0) {
+            throw new IOException("Malformed frame, " + bytes + " bytes of doubles");
+        }
+        final double[] values = new double[bytes / Double.BYTES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+}
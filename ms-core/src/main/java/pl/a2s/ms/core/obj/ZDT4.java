@@ -25,12 +25,13 @@ public class ZDT4 extends AbstractZDT {
     }
 
     @Override
-    protected double g(double[] x) {
+    protected double g(double[] x, int offset, int dim) {
         double sum = 0.;
-        for (int i = 1; i < x.length; i++) {
-            sum += Math.pow(x[i], 2) - 10.*Math.cos(4.*Math.PI*x[i]);
+        for (int i = 1; i < dim; i++) {
+            final double xi = x[offset + i];
+            sum += Math.pow(xi, 2) - 10.*Math.cos(4.*Math.PI*xi);
         }
-        return 1. + 10. * (x.length - 1) + sum;
+        return 1. + 10. * (dim - 1) + sum;
     }
 
     @Override
@@ -25,12 +25,12 @@ public class ZDT6 extends AbstractZDT {
     }
 
     @Override
-    protected double g(double[] x) {
+    protected double g(double[] x, int offset, int dim) {
         double sum = 0.;
-        for (int i = 1; i < x.length; i++) {
-            sum += x[i];
+        for (int i = 1; i < dim; i++) {
+            sum += x[offset + i];
         }
-        return 1. + 9. * Math.pow(sum / (x.length - 1.), 0.25);
+        return 1. + 9. * Math.pow(sum / (dim - 1.), 0.25);
     }
 
     @Override
@@ -24,9 +24,11 @@ import lombok.val;
 import pl.a2s.ms.core.analysis.Analyser;
 import pl.a2s.ms.core.analysis.NullAnalyser;
 import pl.a2s.ms.core.archive.Archive;
-import pl.a2s.ms.core.archive.RankingArchive;
+import pl.a2s.ms.core.archive.RankedArchive;
 import pl.a2s.ms.core.clu.*;
 import pl.a2s.ms.core.cmaes.CMAES;
+import pl.a2s.ms.core.cmaes.CMAESStrategy;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.conf.FitnessExtractorEnabledOrchestrator;
 import pl.a2s.ms.core.conf.OrchestratorConfigurer;
 import pl.a2s.ms.core.conf.RandEnabledOrchestrator;
@@ -34,7 +36,6 @@ import pl.a2s.ms.core.ea.EvoAlg;
 import pl.a2s.ms.core.ea.MWEA;
 import pl.a2s.ms.core.ie.FitnessExtractor;
 import pl.a2s.ms.core.ie.IndividualEvaluator;
-import pl.a2s.ms.core.ie.ParallelIndividualEvaluator;
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.lsc.LocalStopCondition;
@@ -50,6 +51,7 @@ import pl.a2s.ms.core.util.Pair;
 import pl.a2s.ms.core.util.Range;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -101,11 +103,12 @@ public class HgsOrchestrator implements Orchestrator,
             final LbaState lbaState = state.getLbaState();
             if (lbaState != null && lbaExecutor != null) {
                 final Archive archive = state.getArchive();
-                if (archive instanceof RankingArchive) {
-                    final RankingArchive ra = (RankingArchive) archive;
+                if (archive instanceof RankedArchive) {
+                    final RankedArchive ra = (RankedArchive) archive;
                     ra.setMaxRank(-1);
                 }
                 lbaState.setClusters(computeClusters());
+                lbaState.setPrecision(leafPrecision());
                 lbaExecutor.run(lbaState);
                 if (lbaState.isRunPostInverted()) {
                     runPostInvertedLbaPhase();
@@ -117,7 +120,8 @@ public class HgsOrchestrator implements Orchestrator,
     }
 
     private void runHgs() {
-        individualEvaluator.evaluate(state.getHgsDemes()[0].getDemes().get(0).getPopulation());
+        final Level root = state.getHgsDemes()[0];
+        individualEvaluator.evaluate(root.getDemes().get(0).getPopulation(), root.evaluationPrecision(individualEvaluator));
         while (!state.getGlobalStopCondition().shouldStop(state)) {
             log.info(format("Starting epoch %d", state.getEpoch()));
             StringBuilder format = new StringBuilder("Demes:");
@@ -131,39 +135,65 @@ public class HgsOrchestrator implements Orchestrator,
             runOneStepOfHgs();
             state.setEpoch(state.getEpoch()+1);
         }
+        if (state.getRedundancyDetector() != null) {
+            log.info(format("Stopped %d duplicate demes, about %d evals saved",
+                    state.getRedundancyDetector().getTerminationCount(), state.getRedundancyDetector().getEvaluationsSaved()));
+        }
+    }
+
+    /**
+     * @return precision of the deepest level which has one, used after HGS (e.g. in the LBA phase),
+     * NaN if there is none
+     */
+    private double leafPrecision() {
+        final Level[] levels = state.getHgsDemes();
+        for (int i = levels.length - 1; i >= 0; i--) {
+            final double precision = levels[i].evaluationPrecision(individualEvaluator);
+            if (!Double.isNaN(precision)) {
+                return precision;
+            }
+        }
+        return Double.NaN;
     }
 
     private void runOneStepOfHgs() {
         final Archive archive = state.getArchive();
-        // run metaepochs
+        // run metaepochs: generate the populations of all demes, evaluate them at once, then commit in order
+        final List<Pair<Deme, Population>> generated = new ArrayList<>();
+        final List<Level> generatedLevels = new ArrayList<>();
+        final List<Double> precisions = new ArrayList<>();
         for (final Level level: state.getHgsDemes()) {
-            setPrecisionIfPossible(level);
             final EvoAlg alg = level.getEvoAlg();
             for (final Deme deme: level.getDemes()) {
                 if (!deme.isStopped()) {
                     final Population population = alg.apply(level, deme, state);
-                    if (population != null) {
-                        individualEvaluator.evaluate(population);
-                        deme.getHistory().add(Deme.HistoryItem.builder()
-                                .epoch(state.getEpoch())
-                                .population(deme.getPopulation())
-                                .build());
-                        deme.setPopulation(population);
-
-                        if (archive.isEnabled() && level.isArchived()) {
-                            archive.addAllFrom(deme);
-                        }
+                    if (population == null) {
+                        continue;
+                    }
+                    if (state.isBatchEvaluations()) {
+                        generated.add(Pair.of(deme, population));
+                        generatedLevels.add(level);
+                        precisions.add(level.evaluationPrecision(individualEvaluator));
+                    } else {
+                        individualEvaluator.evaluate(population, level.evaluationPrecision(individualEvaluator));
+                        commit(level, deme, population);
                     }
                 }
             }
         }
+        evaluateAll(generated.stream().map(Pair::getSecond).collect(Collectors.toList()), precisions);
+        for (int i = 0; i < generated.size(); i++) {
+            commit(generatedLevels.get(i), generated.get(i).getFirst(), generated.get(i).getSecond());
+        }
         if (archive.isEnabled()) {
             log.info("Archive size " + archive.getIndividuals().size()
                     + ", actual max rank " + archive.getActualMaxRank());
         }
+        if (state.getRedundancyDetector() != null && (state.getEpoch() + 1) % state.getRedundancyDetector().getInterval() == 0) {
+            stopDuplicateDemes();
+        }
         // check stopping conditions
         for (final Level level: state.getHgsDemes()) {
-            setPrecisionIfPossible(level);
             final LocalStopCondition lsc = level.getStopCondition();
             for (final Deme deme: level.getDemes()) {
                 if (!deme.isStopped() && lsc.shouldStop(deme, state)) {
@@ -171,9 +201,16 @@ public class HgsOrchestrator implements Orchestrator,
                 }
             }
         }
-        // create sprouts
+        // resolve deme conflicts and create sprouts
         if ((state.getEpoch() + 1) % state.getMetaepochLength() == 0) {
+            // conflicts first, so that the demes they stop don't sprout
+            for (final Level level: state.getHgsDemes()) {
+                level.getDemeConflictResolver().resolve(level, state);
+            }
             final int levelCount = state.getHgsDemes().length;
+            // sprouts are evaluated after all levels are processed, sprouters and reducers only look at evaluated demes
+            final List<Population> sproutsToEvaluate = new ArrayList<>();
+            final List<Double> sproutPrecisions = new ArrayList<>();
             // better to go leaf -> root, as the just created sprouts won't be considered for sprouting then
             for (int levelIndex = levelCount - 2; levelIndex >= 0; levelIndex--) {
                 final Level level = state.getHgsDemes()[levelIndex];
@@ -182,23 +219,23 @@ public class HgsOrchestrator implements Orchestrator,
                 final SproutReducer sproutReducer = level.getSproutReducer();
                 final List<Pair<Individual,Deme>> sprouts = new ArrayList<>();
 
-                setPrecisionIfPossible(level);
-
                 for (final Deme deme: level.getDemes()) {
                     if (!deme.isStopped()) {
                         sprouts.addAll(sprouter.createSprouts(level, nextLevel, deme, state));
                     }
                 }
                 final List<Pair<Individual, Deme>> reducedSprouts = sproutReducer.reduce(sprouts, state, levelIndex);
-                setPrecisionIfPossible(nextLevel);
                 logSprouting(levelIndex+1, reducedSprouts);
-                nextLevel.getDemes().addAll(reducedSprouts.stream()
-                        .map(Pair::getSecond)
-                        .map(sprout -> {
-                            individualEvaluator.evaluate(sprout.getPopulation());
-                            return sprout;
-                        })
-                        .collect(Collectors.toList()));
+                for (final Pair<Individual, Deme> pair: reducedSprouts) {
+                    final Deme sprout = pair.getSecond();
+                    if (state.isBatchEvaluations()) {
+                        sproutsToEvaluate.add(sprout.getPopulation());
+                        sproutPrecisions.add(nextLevel.evaluationPrecision(individualEvaluator));
+                    } else {
+                        individualEvaluator.evaluate(sprout.getPopulation(), nextLevel.evaluationPrecision(individualEvaluator));
+                    }
+                    nextLevel.getDemes().add(sprout);
+                }
                 for (final Pair<Individual, Deme> pair: reducedSprouts) {
                     final Deme deme = pair.getSecond();
                     final Deme parent = deme.getParent();
@@ -208,15 +245,73 @@ public class HgsOrchestrator implements Orchestrator,
                     parent.getChildren().add(deme);
                 }
             }
+            evaluateAll(sproutsToEvaluate, sproutPrecisions);
         }
     }
 
-    private void setPrecisionIfPossible(Level level) {
-        if (individualEvaluator instanceof ParallelIndividualEvaluator && level.getPrecision() > 0) {
-            ((ParallelIndividualEvaluator) individualEvaluator).setPrecision(level.getPrecision());
+    /**
+     * Replaces the population of the deme with the evaluated offspring, keeping the old one in the history.
+     */
+    private void commit(Level level, Deme deme, Population population) {
+        final Archive archive = state.getArchive();
+        deme.getHistory().add(Deme.HistoryItem.builder()
+                .epoch(state.getEpoch())
+                .population(state.historyPopulation(deme.getPopulation()))
+                .build());
+        deme.setPopulation(population);
+
+        if (archive.isEnabled() && level.isArchived()) {
+            archive.addAllFrom(deme);
         }
     }
 
+    /**
+     * Stops the demes of {@link CMAES} levels which converge into the basin of a better deme of the same level,
+     * see {@link RedundancyDetector#findRedundant(List, double[])}.
+     */
+    private void stopDuplicateDemes() {
+        final RedundancyDetector detector = state.getRedundancyDetector();
+        for (final Level level: state.getHgsDemes()) {
+            if (!(level.getEvoAlg() instanceof CMAES)) {
+                continue;
+            }
+            final CMAES cmaes = (CMAES) level.getEvoAlg();
+            final List<Deme> demes = new ArrayList<>();
+            final List<CMAESStrategy> optimizers = new ArrayList<>();
+            for (final Deme deme: level.getDemes()) {
+                if (!deme.isStopped() && cmaes.getOptimizer(deme) != null) {
+                    demes.add(deme);
+                    optimizers.add(cmaes.getOptimizer(deme));
+                }
+            }
+            final double[] bestFitness = new double[demes.size()];
+            for (int i = 0; i < demes.size(); i++) {
+                bestFitness[i] = Arrays.stream(fitnessExtractor.extractFitness(demes.get(i).getPopulation())).min().orElse(Double.MAX_VALUE);
+            }
+            final int[] survivorOf = detector.findRedundant(optimizers, bestFitness);
+            for (int i = 0; i < survivorOf.length; i++) {
+                if (survivorOf[i] >= 0) {
+                    final Deme deme = demes.get(i);
+                    final Deme survivor = demes.get(survivorOf[i]);
+                    log.info(format("Deme %s stopped as a duplicate of %s", deme.getName(), survivor.getName()));
+                    deme.setStopped(true);
+                    deme.setDuplicateOf(survivor);
+                    detector.recordTermination(optimizers.get(i), deme.getPopulation().getIndividuals().length, optimizers.get(survivorOf[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the populations of all levels in a single batch, each at the precision of its level.
+     */
+    private void evaluateAll(List<Population> populations, List<Double> precisions) {
+        if (populations.isEmpty()) {
+            return;
+        }
+        individualEvaluator.evaluateAll(populations, precisions.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
     private void logSprouting(int levelIndex, List<Pair<Individual, Deme>> reducedSprouts) {
         final StringBuilder sb = new StringBuilder("Sprouting to level ").append(levelIndex).append(" from:");
         for (final Individual ind: reducedSprouts.stream().map(Pair::getFirst).collect(Collectors.toList())) {
@@ -240,20 +335,25 @@ public class HgsOrchestrator implements Orchestrator,
         final Archive archive = state.getArchive();
         while (lbaDemes.stream().map(Pair::getFirst).anyMatch(deme -> !deme.isStopped())) {
             log.info(String.format("Starting epoch %d", lbaState.getEpoch()));
+            final List<Pair<Deme, Population>> generated = new ArrayList<>();
             for (final Pair<Deme, EvoAlg> pair: lbaDemes) {
                 final Deme deme = pair.getFirst();
                 final EvoAlg evoAlg = pair.getSecond();
                 if (!deme.isStopped()) {
-                    final Population population = evoAlg.apply(null, deme, state);
-                    individualEvaluator.evaluate(population);
-                    deme.getHistory().add(Deme.HistoryItem.builder()
-                            .epoch(lbaState.getEpoch())
-                            .population(deme.getPopulation())
-                            .build());
-                    deme.setPopulation(population);
-                    if (archive.isEnabled()) {
-                        archive.addAllFrom(deme);
-                    }
+                    generated.add(Pair.of(deme, evoAlg.apply(null, deme, state)));
+                }
+            }
+            individualEvaluator.evaluateAll(generated.stream().map(Pair::getSecond).collect(Collectors.toList()),
+                    lbaState.getPrecision());
+            for (final Pair<Deme, Population> pair: generated) {
+                final Deme deme = pair.getFirst();
+                deme.getHistory().add(Deme.HistoryItem.builder()
+                        .epoch(lbaState.getEpoch())
+                        .population(state.historyPopulation(deme.getPopulation()))
+                        .build());
+                deme.setPopulation(pair.getSecond());
+                if (archive.isEnabled()) {
+                    archive.addAllFrom(deme);
                 }
             }
             if (archive.isEnabled()) {
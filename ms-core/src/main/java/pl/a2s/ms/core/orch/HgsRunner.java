@@ -23,7 +23,6 @@ import java.util.List;
 
 import pl.a2s.ms.core.conf.OrchestratorConfigurer;
 import pl.a2s.ms.core.ie.IndividualEvaluator;
-import pl.a2s.ms.core.ie.ParallelIndividualEvaluator;
 import lombok.extern.java.Log;
 
 @Log
@@ -63,9 +62,8 @@ public class HgsRunner implements Closeable {
 
     private void cleanupSingle(HgsOrchestrator orch) {
         final IndividualEvaluator ie = orch.getIndividualEvaluator();
-        if (ie instanceof ParallelIndividualEvaluator) {
-            final ParallelIndividualEvaluator pie = (ParallelIndividualEvaluator) ie;
-            pie.getExecutorService().shutdown();
+        if (ie != null) {
+            ie.shutdown();
         }
     }
 
@@ -68,7 +68,7 @@ public class LbaExecutor {
             }
             for (final Deme deme: demes) {
                 if (evoAlgFactory instanceof MWEAFactory) {
-                    final EvoAlg evoAlg = evoAlgFactory.create(MWEAFactoryParams.builder().deme(deme).build());
+                    final EvoAlg evoAlg = evoAlgFactory.create(MWEAFactoryParams.builder().deme(deme).precision(lbaState.getPrecision()).build());
                     lbaDemes.add(Pair.of(deme, evoAlg));
                 } else {
                     throw new IllegalArgumentException("HO currently only supports MWEAFactory");
@@ -95,7 +95,7 @@ public class LbaExecutor {
                 if (!deme.isStopped()) {
                     log.info(format("[epoch %d] Deme %s", lbaState.getEpoch(), deme.getName()));
                     final Population population = evoAlg.apply(null, deme, lbaState);
-                    individualEvaluator.evaluate(population);
+                    individualEvaluator.evaluate(population, lbaState.getPrecision());
                     deme.getHistory().add(Deme.HistoryItem.builder()
                             .epoch(lbaState.getEpoch())
                             .population(deme.getPopulation())
@@ -21,16 +21,15 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.java.Log;
 import lombok.val;
-import org.apache.commons.math3.linear.MatrixUtils;
-import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.optim.SimpleBounds;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
-import org.apache.commons.math3.util.FastMath;
 import pl.a2s.ms.core.analysis.Analyser;
 import pl.a2s.ms.core.clu.Cluster;
-import pl.a2s.ms.core.clu.Ellipsoid;
+import pl.a2s.ms.core.clu.EllipsoidMembership;
 import pl.a2s.ms.core.clu.NearestBetterClusterer;
 import pl.a2s.ms.core.cmaes.CMAESOptimizer;
+import pl.a2s.ms.core.cmaes.CMAESStrategy;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.conf.FitnessExtractorEnabledOrchestrator;
 import pl.a2s.ms.core.conf.OrchestratorConfigurer;
 import pl.a2s.ms.core.conf.RandEnabledOrchestrator;
@@ -42,8 +41,10 @@ import pl.a2s.ms.core.ind.SimpleIndividual;
 import pl.a2s.ms.core.obj.ObjectiveCalculator;
 import pl.a2s.ms.core.orch.hgs.LbaState;
 import pl.a2s.ms.core.orch.nea2.CMAState;
+import pl.a2s.ms.core.orch.nea2.EvaluationBudget;
 import pl.a2s.ms.core.orch.nea2.NEA2RunState;
 import pl.a2s.ms.core.orch.nea2.NEA2State;
+import pl.a2s.ms.core.orch.nea2.RunParameters;
 import pl.a2s.ms.core.util.ArraysUtil;
 import pl.a2s.ms.core.util.RandomSampleGenerator;
 import pl.a2s.ms.core.util.Range;
@@ -52,6 +53,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -64,6 +69,9 @@ public class NEA2Orchestrator implements Orchestrator,
                                          FitnessExtractorEnabledOrchestrator,
                                          LbaEnabledOrchestrator {
 
+    /// how many times a sample point lying in a covered region is redrawn before it's accepted anyway
+    public static final int COVERED_REGION_RESAMPLES = 10;
+
     @Getter @Setter private Random rand = new Random();
     @Getter @Setter private ObjectiveCalculator objectiveCalculator;
     @Getter @Setter private IndividualEvaluator individualEvaluator;
@@ -76,6 +84,8 @@ public class NEA2Orchestrator implements Orchestrator,
     private final Supplier<String> budgetReporter = () -> format("Budget %d/%d evals", individualEvaluator.getEvaluationCount(), state.getBudget());
 
     private final LbaExecutor lbaExecutor;
+    /// runs the rounds of interleaved CMA-ES generations, only while running with cluster parallelism above 1
+    private ForkJoinPool clusterPool;
 
     public NEA2Orchestrator(OrchestratorConfigurer oc) {
         oc.configure(this);
@@ -97,23 +107,19 @@ public class NEA2Orchestrator implements Orchestrator,
         state.setLbaState(lbaState);
     }
 
-    private void nextRun() {
+    private void nextRun(NEA2RunState runState) {
         // Alg. 6: NEA2 (Preuss2015)
         // 1. distribute an evenly spread sample over the search space
         final Range[] domain = state.getDomain();
         final int dimCount = domain.length;
-        final int sampleSize = 50 * dimCount;
-        final double initialSigma = state.getInitialSigma();
-        final double stopFitness = state.getStopFitness();
-        final int lambda = 4 + (int) FastMath.floor(3 * FastMath.log(dimCount));
+        final RunParameters parameters = runState.getParameters();
+        final int sampleSize = parameters.getSampleSize();
         final List<Individual> inds = new ArrayList<>(sampleSize);
 
-        final NEA2RunState runState = new NEA2RunState();
-        state.getRuns().add(runState);
         runState.setSampledIndividuals(inds);
 
         {
-            final double[][] sample = new RandomSampleGenerator(rand).uniformSample(sampleSize, domain);
+            final double[][] sample = uniformSampleOutsideCoveredRegions(sampleSize, domain);
             final Population population = new Population(sample.length);
             final Individual[] individuals = population.getIndividuals();
             for (int i = 0; i < sample.length; i++) {
@@ -142,19 +148,16 @@ public class NEA2Orchestrator implements Orchestrator,
         log.info(format("Resulting clusters: %d", clusters.size()));
 
         // 3. forall the populations do
+        if (state.getClusterParallelism() > 0) {
+            runClustersInterleaved(runState, clusters, lB, uB);
+            return;
+        }
         for (int i = 0; i < clusters.size(); i++) {
             val idStr = String.format("Cluster %d", i);
             log.info(format("%s: initializing", idStr));
             val cluster = clusters.get(i);
             // 4.   run a CMA-ES until any CMA-ES stop criterion is hit
-            final CMAESOptimizer optimizer = new CMAESOptimizer(stopFitness, rand, individualEvaluator, fitnessExtractor);
-            optimizer.initialize(
-                    new CMAESOptimizer.PopulationSize(lambda),
-                    new CMAESOptimizer.Sigma(ArraysUtil.constant(domain.length, initialSigma)),
-                    new CMAESOptimizer.FirstPopulation(cluster.getIndividuals().toArray(new Individual[0])),
-                    new SimpleBounds(lB, uB),
-                    GoalType.MINIMIZE
-                    );
+            final CMAESStrategy optimizer = createOptimizer(cluster, parameters, rand, lB, uB);
 
             final CMAState cmaState = new CMAState();
             cmaState.setOptimizer(optimizer);
@@ -172,21 +175,177 @@ public class NEA2Orchestrator implements Orchestrator,
                 }
                 if (curr == null) {
                     log.info(format("%s: CMA-ES stopping condition hit", idStr));
+                    cmaState.setConverged(true);
+                    break;
+                }
+                final CMAState duplicated = findDuplicated(runState, cmaState);
+                if (duplicated != null) {
+                    log.info(format("%s: terminated as a duplicate of cluster %d", idStr, runState.getCmaState().indexOf(duplicated)));
+                    terminateAsDuplicate(cmaState, duplicated, curr.getIndividuals().length);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares a running instance with the instances of the run which have already converged,
+     * every {@link RedundancyDetector#getInterval()} generations.
+     *
+     * @return the converged instance the running one duplicates, null if there's none
+     */
+    private CMAState findDuplicated(NEA2RunState runState, CMAState running) {
+        final RedundancyDetector detector = state.getRedundancyDetector();
+        if (detector == null || running.getOptimizer().getIterations() % detector.getInterval() != 0) {
+            return null;
+        }
+        for (final CMAState cmaState: runState.getCmaState()) {
+            if (cmaState.isConverged() && detector.overlap(cmaState.getOptimizer(), running.getOptimizer())) {
+                return cmaState;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the running instances with each other and terminates the ones duplicating better ones,
+     * see {@link RedundancyDetector#findRedundant(List, double[])}.
+     */
+    private void terminateDuplicates(NEA2RunState runState, List<CMAState> running) {
+        final List<CMAESStrategy> optimizers = new ArrayList<>(running.size());
+        final double[] bestFitness = new double[running.size()];
+        for (int i = 0; i < running.size(); i++) {
+            final CMAState cmaState = running.get(i);
+            optimizers.add(cmaState.getOptimizer());
+            final List<Population> populations = cmaState.getPopulations();
+            bestFitness[i] = populations.isEmpty()
+                    ? Double.MAX_VALUE
+                    : Arrays.stream(fitnessExtractor.extractFitness(populations.get(populations.size() - 1))).min().orElse(Double.MAX_VALUE);
+        }
+        final int[] survivorOf = state.getRedundancyDetector().findRedundant(optimizers, bestFitness);
+        final List<CMAState> terminated = new ArrayList<>();
+        for (int i = 0; i < survivorOf.length; i++) {
+            if (survivorOf[i] >= 0) {
+                final CMAState cmaState = running.get(i);
+                final CMAState survivor = running.get(survivorOf[i]);
+                log.info(format("Cluster %d: terminated as a duplicate of cluster %d",
+                        runState.getCmaState().indexOf(cmaState), runState.getCmaState().indexOf(survivor)));
+                final List<Population> populations = cmaState.getPopulations();
+                terminateAsDuplicate(cmaState, survivor, populations.get(populations.size() - 1).getIndividuals().length);
+                terminated.add(cmaState);
+            }
+        }
+        running.removeAll(terminated);
+    }
+
+    private void terminateAsDuplicate(CMAState cmaState, CMAState survivor, int populationSize) {
+        cmaState.setDuplicateOf(survivor);
+        state.getRedundancyDetector().recordTermination(cmaState.getOptimizer(), populationSize, survivor.getOptimizer());
+    }
+
+    private CMAESStrategy createOptimizer(Cluster cluster, RunParameters parameters, Random random, double[] lB, double[] uB) {
+        final CMAESStrategy optimizer = state.getCmaesImplementation().create(state.getStopFitness(), random, individualEvaluator, fitnessExtractor);
+        optimizer.initialize(
+                new CMAESOptimizer.PopulationSize(parameters.getLambda()),
+                new CMAESOptimizer.Sigma(ArraysUtil.constant(lB.length, parameters.getSigma())),
+                new CMAESOptimizer.FirstPopulation(cluster.getIndividuals().toArray(new Individual[0])),
+                new SimpleBounds(lB, uB),
+                GoalType.MINIMIZE
+                );
+        return optimizer;
+    }
+
+    /**
+     * Runs the CMA-ES instances of all the clusters in rounds, in which every instance that hasn't stopped yet
+     * performs a single generation. Each instance has its own random stream, seeded in the order of the clusters,
+     * and the evaluations of a round are reserved in that order before it starts, so the results don't depend
+     * on the number of threads. With {@link NEA2State#getClusterParallelism()} above 1 the generations of a round
+     * run concurrently, so the individual evaluator has to be safe to use from many threads.
+     */
+    private void runClustersInterleaved(NEA2RunState runState, List<Cluster> clusters, double[] lB, double[] uB) {
+        final RunParameters parameters = runState.getParameters();
+        final EvaluationBudget budget = new EvaluationBudget(state.getBudget() - individualEvaluator.getEvaluationCount());
+        final List<CMAState> running = new ArrayList<>(clusters.size());
+        for (final Cluster cluster: clusters) {
+            final CMAState cmaState = new CMAState();
+            cmaState.setOptimizer(createOptimizer(cluster, parameters, new Random(rand.nextLong()), lB, uB));
+            runState.getCmaState().add(cmaState);
+            running.add(cmaState);
+        }
+        for (int roundNo = 0; !running.isEmpty(); roundNo++) {
+            final List<CMAState> round = new ArrayList<>(running.size());
+            for (final CMAState cmaState: running) {
+                // the first generation is the cluster, which is already evaluated
+                final int evaluations = cmaState.getOptimizer().getIterations() == 0 ? 0 : parameters.getLambda();
+                if (!budget.tryReserve(evaluations)) {
                     break;
                 }
+                round.add(cmaState);
+            }
+            log.info(format("Round %d: %d of %d CMA-ES instances running", roundNo, round.size(), running.size()));
+            final List<Population> populations = runRound(round);
+            for (int i = 0; i < round.size(); i++) {
+                final CMAState cmaState = round.get(i);
+                if (populations.get(i) != null) {
+                    cmaState.getPopulations().add(populations.get(i));
+                } else {
+                    log.info(format("Cluster %d: CMA-ES stopping condition hit", runState.getCmaState().indexOf(cmaState)));
+                    cmaState.setConverged(true);
+                    running.remove(cmaState);
+                }
+            }
+            if (budget.getRemaining() <= 0) {
+                log.info(format("%s exceeded", budgetReporter.get()));
+                return;
+            }
+            if (state.getRedundancyDetector() != null && (roundNo + 1) % state.getRedundancyDetector().getInterval() == 0) {
+                terminateDuplicates(runState, running);
+            }
+        }
+    }
+
+    /**
+     * @return the offspring of a single generation of every instance, in the same order, null for the stopped ones
+     */
+    private List<Population> runRound(List<CMAState> round) {
+        final List<Population> populations = new ArrayList<>(round.size());
+        if (clusterPool == null) {
+            for (final CMAState cmaState: round) {
+                populations.add(cmaState.getOptimizer().runOneStep());
             }
+            return populations;
+        }
+        final List<Callable<Population>> tasks = new ArrayList<>(round.size());
+        for (final CMAState cmaState: round) {
+            tasks.add(() -> cmaState.getOptimizer().runOneStep());
         }
+        try {
+            for (final Future<Population> future: clusterPool.invokeAll(tasks)) {
+                populations.add(future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running CMA-ES generations", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("CMA-ES generation failed", e.getCause());
+        }
+        return populations;
     }
 
     public void run() {
         if (!analyser.supports(this)) {
             throw new RuntimeException("Analyser incompatible with orchestrator");
         }
-        // 5. if !termination then (termination based on budget being used up)
-        while (!budgetExceeded()) {
-            // 6. goto step 1
-            log.info(format("Run %d", state.getRuns().size()));
-            nextRun();
+        if (state.getClusterParallelism() > 1) {
+            clusterPool = new ForkJoinPool(state.getClusterParallelism());
+        }
+        try {
+            runUntilBudgetExceeded();
+        } finally {
+            if (clusterPool != null) {
+                clusterPool.shutdown();
+                clusterPool = null;
+            }
         }
         if (state.getLbaState() != null && lbaExecutor != null) {
             state.getLbaState().setClusters(computeClusters());
@@ -196,6 +355,95 @@ public class NEA2Orchestrator implements Orchestrator,
         analyser.analyse(state);
     }
 
+    private void runUntilBudgetExceeded() {
+        // 5. if !termination then (termination based on budget being used up)
+        while (!budgetExceeded()) {
+            // 6. goto step 1
+            final RunParameters parameters = state.getRestartScheduler().next(state, rand);
+            log.info(format("Run %d: %s regime, lambda %d, sigma %e", state.getRuns().size(), parameters.getRegime(), parameters.getLambda(), parameters.getSigma()));
+            final NEA2RunState runState = new NEA2RunState();
+            runState.setParameters(parameters);
+            state.getRuns().add(runState);
+            final int evaluationsBefore = individualEvaluator.getEvaluationCount();
+            nextRun(runState);
+            runState.setEvaluationCount(individualEvaluator.getEvaluationCount() - evaluationsBefore);
+        }
+        state.evaluationCountByRegime().forEach((regime, evals) ->
+                log.info(format("%s regime: %d evals", regime, evals)));
+        if (state.getRedundancyDetector() != null) {
+            log.info(format("Terminated %d duplicate CMA-ES instances, about %d evals saved",
+                    state.getRedundancyDetector().getTerminationCount(), state.getRedundancyDetector().getEvaluationsSaved()));
+        }
+    }
+
+    /**
+     * Draws a uniform sample, redrawing up to {@link #COVERED_REGION_RESAMPLES} times every point
+     * which falls into a region covered by a converged CMA-ES of one of the previous runs.
+     * <p>
+     * The covered region of a CMA-ES is approximated by an axis-aligned ellipsoid centered at its final mean,
+     * with the variances of the NBC cluster it was started from around that mean, scaled by
+     * {@link NEA2State#getCoveredRegionRadius()}. The individuals of such a cluster all ended up in the basin
+     * the CMA-ES converged to, whereas the final step size of the CMA-ES says nothing about the basin size.
+     */
+    private double[][] uniformSampleOutsideCoveredRegions(int sampleSize, Range[] domain) {
+        final RandomSampleGenerator generator = new RandomSampleGenerator(rand);
+        final double[][] sample = generator.uniformSample(sampleSize, domain);
+        if (state.getCoveredRegionRadius() <= 0) {
+            return sample;
+        }
+        final EllipsoidMembership covered = coveredRegions(domain);
+        if (covered.size() == 0) {
+            return sample;
+        }
+        int redrawn = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            for (int attempt = 0; attempt < COVERED_REGION_RESAMPLES && isCovered(covered, sample[i]); attempt++) {
+                sample[i] = generator.uniformSample(1, domain)[0];
+                redrawn++;
+            }
+        }
+        log.info(format("Redrawn %d points from %d covered regions", redrawn, covered.size()));
+        return sample;
+    }
+
+    private EllipsoidMembership coveredRegions(Range[] domain) {
+        final int dimCount = domain.length;
+        final EllipsoidMembership covered = new EllipsoidMembership(dimCount);
+        for (final NEA2RunState run: state.getRuns()) {
+            // CMA-ES instances are started in the order of the clusters
+            for (int i = 0; i < run.getCmaState().size(); i++) {
+                final CMAState cmaState = run.getCmaState().get(i);
+                if (!cmaState.isConverged()) {
+                    continue;
+                }
+                final double[] mean = cmaState.getOptimizer().getXmean().getColumn(0);
+                final List<Individual> inds = run.getNbcClusters().get(i).getIndividuals();
+                final double[][] cov = new double[dimCount][dimCount];
+                for (int k = 0; k < dimCount; k++) {
+                    // keeps the covariance positive definite for degenerate clusters
+                    final double width = domain[k].getEnd() - domain[k].getStart();
+                    double var = 1e-18 * width * width;
+                    for (final Individual ind: inds) {
+                        final double d = ind.getPoint()[k] - mean[k];
+                        var += d * d / inds.size();
+                    }
+                    cov[k][k] = var;
+                }
+                covered.add(mean, cov, state.getCoveredRegionRadius());
+            }
+        }
+        return covered;
+    }
+
+    private static boolean isCovered(EllipsoidMembership covered, double[] point) {
+        for (int e = 0; e < covered.size(); e++) {
+            if (covered.contains(e, point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean budgetExceeded() {
         return individualEvaluator.getEvaluationCount() >= state.getBudget();
     }
@@ -214,17 +462,14 @@ public class NEA2Orchestrator implements Orchestrator,
 
 
     private List<Cluster> computeClustersWithCmaEllipsoids() {
-        final List<Ellipsoid> ellipsoids = new ArrayList<>();
+        final EllipsoidMembership ellipsoids = new EllipsoidMembership(state.getDomain().length);
         state.getRuns().stream()
             .flatMap(run -> run.getCmaState().stream())
             .forEach(cmaState -> {
-                final CMAESOptimizer cmaesOptimizer = cmaState.getOptimizer();
+                final CMAESStrategy cmaesOptimizer = cmaState.getOptimizer();
                 try {
-                    ellipsoids.add(Ellipsoid.builder()
-                        .mean(cmaesOptimizer.getXmean())
-                        .invCov(MatrixUtils.inverse(cmaesOptimizer.getC()))
-                        .sigma(cmaesOptimizer.getSigma())
-                        .build());
+                    // a covariance which isn't positive definite isn't added, the ellipsoid doesn't exist then
+                    ellipsoids.add(cmaesOptimizer.getXmean(), cmaesOptimizer.getC(), cmaesOptimizer.getSigma());
                 } catch (final Exception ex) {
                     // ignore, the ellipsoid doesn't exist in this case
                 }
@@ -238,14 +483,7 @@ public class NEA2Orchestrator implements Orchestrator,
             ).forEach(inds -> {
                 final Cluster cluster = new Cluster();
                 final List<Individual> cluInds = cluster.getIndividuals();
-                for (final Individual ind: inds) {
-                    final RealMatrix point = MatrixUtils.createColumnRealMatrix(ind.getPoint());
-                    for (final Ellipsoid el: ellipsoids) {
-                        if (el.mahalanobisDistance(point) <= 1) {
-                            cluInds.add(ind);
-                        }
-                    }
-                }
+                cluInds.addAll(ellipsoids.contained(inds));
                 if (cluInds.size() > 0) {
                     clusters.add(cluster);
                 }
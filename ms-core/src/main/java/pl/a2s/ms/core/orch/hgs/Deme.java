@@ -45,6 +45,8 @@ public class Deme {
     private String name;
     private Population population;
     private boolean stopped;
+    /// the deme this one was stopped as a duplicate of (or merged into), null if it wasn't
+    private Deme duplicateOf;
     private final List<HistoryItem> history = new LinkedList<>();
     private final Deme parent;
     private final List<Deme> children = new ArrayList<>();
@@ -19,8 +19,11 @@ package pl.a2s.ms.core.orch.hgs;
 
 import pl.a2s.ms.core.archive.Archive;
 import pl.a2s.ms.core.archive.SimpleArchive;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.util.Range;
 import pl.a2s.ms.core.gsc.GlobalStopCondition;
+import pl.a2s.ms.core.ind.PackedPopulation;
+import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.orch.State;
 import lombok.Data;
 
@@ -34,6 +37,20 @@ public class HgsState implements State {
     private int epoch;
     private Level[] hgsDemes;
     private Archive archive = new SimpleArchive(false);
+    // if set, populations stored in deme histories are copied into flat, packed storage
+    private boolean packHistory;
+    // if set, the offspring of all demes (and all sprouts) are evaluated in one batch per step,
+    // otherwise every population right after it's generated
+    private boolean batchEvaluations = true;
+    // if set, demes of CMAES levels converging into the basin of a better deme are stopped
+    private RedundancyDetector redundancyDetector;
 
     private LbaState lbaState;
+
+    /**
+     * @return the population to be stored in a deme history, packed if {@link #packHistory} is set
+     */
+    public Population historyPopulation(Population population) {
+        return packHistory ? PackedPopulation.of(population) : population;
+    }
 }
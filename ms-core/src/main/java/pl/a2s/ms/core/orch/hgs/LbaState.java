@@ -40,6 +40,8 @@ public class LbaState implements State {
     private EvoAlgFactory evoAlgFactory;
     private LocalStopCondition stopCondition;
     private boolean runPostInverted;
+    /// precision of the evaluations in the LBA phase, NaN for the one set on the calculator
+    private double precision = Double.NaN;
 
     private Range[] domain;
 
@@ -22,7 +22,10 @@ import java.util.List;
 
 import pl.a2s.ms.core.sprout.generator.Sprouter;
 import pl.a2s.ms.core.sprout.reducer.SproutReducer;
+import pl.a2s.ms.core.sprout.conflict.DemeConflictResolver;
+import pl.a2s.ms.core.sprout.conflict.NoDemeConflictResolver;
 import pl.a2s.ms.core.ea.EvoAlg;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
 import pl.a2s.ms.core.lsc.LocalStopCondition;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -41,6 +44,7 @@ public class Level {
     @Setter private double precision = -1;
 
     @Setter private boolean archived = false;
+    @Setter private DemeConflictResolver demeConflictResolver = new NoDemeConflictResolver();
 
     private final List<Deme> demes = new ArrayList<>();
 
@@ -50,4 +54,12 @@ public class Level {
         this.precision = precision;
     }
 
+    /**
+     * @return precision of the evaluations at this level, to be passed with each evaluation call,
+     * NaN if the level has none or the evaluator isn't adaptive
+     */
+    public double evaluationPrecision(IndividualEvaluator ie) {
+        return ie.isAdaptive() && precision > 0 ? precision : Double.NaN;
+    }
+
 }
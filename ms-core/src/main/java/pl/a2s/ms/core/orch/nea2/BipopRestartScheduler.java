@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Map;
+import java.util.Random;
+
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultLambda;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultSampleSize;
+
+/**
+ * BIPOP (Hansen2009): interleaves the IPOP regime of increasing population sizes with
+ * a regime of small populations and reduced step sizes.
+ * <p>
+ * A small run is made whenever the small regime has used fewer evaluations than the large one
+ * (the first, default run counts as a large one), so that the budget is split about evenly.
+ * For a uniform u from [0, 1) it gets the population size
+ * floor(lambda_def max(1, lambda_large / (2 lambda_def))^(u^2)) and the step size sigma_def 10^(-2u),
+ * where lambda_large is the population size of the last large run (lambda_def before the first one),
+ * so it never gets below lambda_def.
+ * <p>
+ * Only the CMA-ES population size and step size are adapted, every run clusters a uniform sample
+ * of the default size, as the number of basins it can find doesn't depend on the population size.
+ */
+public class BipopRestartScheduler implements RestartScheduler {
+
+    @Getter @Setter private double populationIncrease = 2;
+
+    @Override
+    public RunParameters next(NEA2State state, Random rand) {
+        final int dimCount = state.getDomain().length;
+        final int sampleSize = defaultSampleSize(dimCount);
+        final int defaultLambda = defaultLambda(dimCount);
+        final double defaultSigma = state.getInitialSigma();
+        if (state.getRuns().isEmpty()) {
+            return new RunParameters(RunParameters.Regime.DEFAULT, sampleSize, defaultLambda, defaultSigma);
+        }
+        final Map<RunParameters.Regime, Long> used = state.evaluationCountByRegime();
+        final long largeUsed = used.get(RunParameters.Regime.DEFAULT) + used.get(RunParameters.Regime.LARGE);
+        final long largeRuns = state.getRuns().stream()
+                .filter(run -> run.getParameters().getRegime() == RunParameters.Regime.LARGE)
+                .count();
+        final double largeLambda = defaultLambda * FastMath.pow(populationIncrease, largeRuns);
+        if (used.get(RunParameters.Regime.SMALL) < largeUsed) {
+            final double u = rand.nextDouble();
+            final double base = FastMath.max(1, 0.5 * largeLambda / defaultLambda);
+            final int lambda = (int) FastMath.floor(defaultLambda * FastMath.pow(base, u * u));
+            return new RunParameters(RunParameters.Regime.SMALL, sampleSize, lambda, defaultSigma * FastMath.pow(10, -2 * u));
+        }
+        final int lambda = (int) FastMath.round(largeLambda * populationIncrease);
+        return new RunParameters(RunParameters.Regime.LARGE, sampleSize, lambda, defaultSigma);
+    }
+
+}
@@ -20,12 +20,16 @@ package pl.a2s.ms.core.orch.nea2;
 import java.util.ArrayList;
 import java.util.List;
 
-import pl.a2s.ms.core.cmaes.CMAESOptimizer;
+import pl.a2s.ms.core.cmaes.CMAESStrategy;
 import pl.a2s.ms.core.ind.Population;
 import lombok.Data;
 
 @Data
 public class CMAState {
-    private CMAESOptimizer optimizer;
+    private CMAESStrategy optimizer;
+    /// true if the optimizer stopped on its own stop criterion, not because of the budget
+    private boolean converged;
+    /// the instance this one was terminated as a duplicate of, null if it wasn't
+    private CMAState duplicateOf;
     private final List<Population> populations = new ArrayList<>();
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluation budget shared by algorithms running concurrently, which reserve their evaluations
+ * before making them. A reservation succeeds as long as anything is left before it, so
+ * the budget is overshot by less than a single reservation.
+ */
+public class EvaluationBudget {
+
+    private final AtomicLong remaining;
+
+    public EvaluationBudget(long remaining) {
+        this.remaining = new AtomicLong(remaining);
+    }
+
+    /**
+     * @param evaluations the number of evaluations to reserve
+     * @return false if nothing was left, in which case nothing is reserved
+     */
+    public boolean tryReserve(int evaluations) {
+        while (true) {
+            final long current = remaining.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (remaining.compareAndSet(current, current - evaluations)) {
+                return true;
+            }
+        }
+    }
+
+    public long getRemaining() {
+        return remaining.get();
+    }
+
+}
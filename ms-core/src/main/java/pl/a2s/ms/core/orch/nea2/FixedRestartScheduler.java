@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import java.util.Random;
+
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultLambda;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultSampleSize;
+
+/**
+ * Repeats the run with the same parameters, as in the original NEA2 (Preuss2015).
+ */
+public class FixedRestartScheduler implements RestartScheduler {
+
+    @Override
+    public RunParameters next(NEA2State state, Random rand) {
+        final int dimCount = state.getDomain().length;
+        return new RunParameters(RunParameters.Regime.DEFAULT, defaultSampleSize(dimCount), defaultLambda(dimCount), state.getInitialSigma());
+    }
+
+}
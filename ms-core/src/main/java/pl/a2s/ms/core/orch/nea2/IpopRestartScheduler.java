@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Random;
+
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultLambda;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.defaultSampleSize;
+
+/**
+ * IPOP (Auger2005): every restart multiplies the population size of the CMA-ES instances
+ * by {@link #populationIncrease}, keeping the initial step size.
+ */
+public class IpopRestartScheduler implements RestartScheduler {
+
+    @Getter @Setter private double populationIncrease = 2;
+
+    @Override
+    public RunParameters next(NEA2State state, Random rand) {
+        final int dimCount = state.getDomain().length;
+        final int restarts = state.getRuns().size();
+        if (restarts == 0) {
+            return new RunParameters(RunParameters.Regime.DEFAULT, defaultSampleSize(dimCount), defaultLambda(dimCount), state.getInitialSigma());
+        }
+        final int lambda = (int) FastMath.round(defaultLambda(dimCount) * FastMath.pow(populationIncrease, restarts));
+        return new RunParameters(RunParameters.Regime.LARGE, defaultSampleSize(dimCount), lambda, state.getInitialSigma());
+    }
+
+}
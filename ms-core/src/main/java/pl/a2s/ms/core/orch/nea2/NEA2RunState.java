@@ -26,6 +26,9 @@ import lombok.Data;
 
 @Data
 public class NEA2RunState {
+    private RunParameters parameters;
+    /// evaluations used by the run, including the sample
+    private int evaluationCount;
     private List<Individual> sampledIndividuals;
     private List<Cluster> nbcClusters;
     private final List<CMAState> cmaState = new ArrayList<>();
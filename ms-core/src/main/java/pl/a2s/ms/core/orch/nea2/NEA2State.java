@@ -18,8 +18,12 @@
 package pl.a2s.ms.core.orch.nea2;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+import pl.a2s.ms.core.cmaes.CMAESImplementation;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.util.Range;
 import pl.a2s.ms.core.orch.State;
 import pl.a2s.ms.core.orch.hgs.LbaState;
@@ -31,7 +35,27 @@ public class NEA2State implements State {
     private int budget;
     private double initialSigma;
     private double stopFitness;
+    private CMAESImplementation cmaesImplementation = CMAESImplementation.MATRIX;
 
+    private RestartScheduler restartScheduler = new FixedRestartScheduler();
+    /// scale of the regions covered by converged CMA-ES instances which new samples avoid, 0 disables it
+    private double coveredRegionRadius;
+    /// 0 runs the CMA-ES instances of a run one after another, 1 interleaves their generations,
+    /// more runs every round of generations on that many threads
+    private int clusterParallelism;
+    /// terminates CMA-ES instances converging into the basin of a better one, null disables it
+    private RedundancyDetector redundancyDetector;
     private final List<NEA2RunState> runs = new ArrayList<>();
     private LbaState lbaState;
+
+    public Map<RunParameters.Regime, Long> evaluationCountByRegime() {
+        final Map<RunParameters.Regime, Long> out = new EnumMap<>(RunParameters.Regime.class);
+        for (final RunParameters.Regime regime: RunParameters.Regime.values()) {
+            out.put(regime, 0L);
+        }
+        for (final NEA2RunState run: runs) {
+            out.merge(run.getParameters().getRegime(), (long) run.getEvaluationCount(), Long::sum);
+        }
+        return out;
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import java.util.Random;
+
+/**
+ * Chooses the parameters of the next NEA2 run, based on the runs made so far.
+ */
+@FunctionalInterface
+public interface RestartScheduler {
+
+    /**
+     * @param state the state with all the previous runs, their parameters and evaluation counts
+     * @param rand random number generator of the orchestrator
+     * @return parameters of the next run
+     */
+    RunParameters next(NEA2State state, Random rand);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import lombok.Data;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Parameters of a single NEA2 run, chosen by a {@link RestartScheduler}.
+ */
+@Data
+public class RunParameters {
+    public enum Regime {
+        /// the first run, or every run of a scheduler which doesn't adapt the parameters
+        DEFAULT,
+        /// a run with an increased population size
+        LARGE,
+        /// a run with a small population size and a reduced step size
+        SMALL
+    }
+
+    private final Regime regime;
+    /// size of the uniform sample which is clustered with NBC
+    private final int sampleSize;
+    /// population size of every CMA-ES of the run
+    private final int lambda;
+    /// initial step size of every CMA-ES of the run
+    private final double sigma;
+
+    public static int defaultSampleSize(int dimCount) {
+        return 50 * dimCount;
+    }
+
+    public static int defaultLambda(int dimCount) {
+        return 4 + (int) FastMath.floor(3 * FastMath.log(dimCount));
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.sprout.conflict;
+
+import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.orch.hgs.Level;
+
+/**
+ * Reconciles the demes of a level which explore the same region, run at the end of every metaepoch,
+ * before sprouting. Stopped demes leave their share of the global budget to the remaining ones.
+ */
+public interface DemeConflictResolver {
+
+    void resolve(Level level, HgsState state);
+
+}
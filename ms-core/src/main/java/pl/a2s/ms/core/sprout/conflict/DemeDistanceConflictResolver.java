@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.sprout.conflict;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.java.Log;
+import pl.a2s.ms.core.clu.Cluster;
+import pl.a2s.ms.core.clu.ClusterMergeChecker;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.orch.hgs.Level;
+import pl.a2s.ms.core.util.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Finds running demes of a level whose population centroids are closer than the threshold distance and,
+ * if a {@link #mergeChecker} is set (e.g. a {@link pl.a2s.ms.core.clu.HillValleyChecker}), which it accepts.
+ * Of such a pair the deme with fewer non-dominated individuals in the union of both populations is stopped,
+ * the one created later in case of a tie, and marked as a duplicate of the other one.
+ * With {@link Resolution#MERGE} the best individuals of the union, by non-domination rank,
+ * also replace the population of the remaining deme, which is recorded in its history
+ * and reported to the {@link pl.a2s.ms.core.ea.EvoAlg} of the level.
+ */
+@Log
+@RequiredArgsConstructor
+public class DemeDistanceConflictResolver implements DemeConflictResolver {
+
+    public enum Resolution {
+        STOP, MERGE
+    }
+
+    private final double thresholdDistance;
+    @Getter @Setter private ClusterMergeChecker mergeChecker;
+    @Getter @Setter private Resolution resolution = Resolution.STOP;
+    @Getter private int stoppedCount;
+
+    @Override
+    public void resolve(Level level, HgsState state) {
+        final List<Deme> demes = new ArrayList<>();
+        final List<double[]> centroids = new ArrayList<>();
+        for (final Deme deme: level.getDemes()) {
+            if (!deme.isStopped()) {
+                demes.add(deme);
+                centroids.add(centroid(deme.getPopulation()));
+            }
+        }
+        for (int i = 0; i < demes.size(); i++) {
+            for (int j = i + 1; j < demes.size() && !demes.get(i).isStopped(); j++) {
+                final Deme first = demes.get(i);
+                final Deme second = demes.get(j);
+                if (second.isStopped()
+                        || DistanceKernel.distance(centroids.get(i), centroids.get(j)) >= thresholdDistance
+                        || (mergeChecker != null && !mergeChecker.canMerge(cluster(first), cluster(second)))) {
+                    continue;
+                }
+                final Population union = union(first.getPopulation(), second.getPopulation());
+                final int[] ranks = union.updateRanks();
+                final int firstSize = first.getPopulation().size();
+                int firstBest = 0;
+                int secondBest = 0;
+                for (int k = 0; k < ranks.length; k++) {
+                    if (ranks[k] == 0) {
+                        if (k < firstSize) {
+                            firstBest++;
+                        } else {
+                            secondBest++;
+                        }
+                    }
+                }
+                final Deme survivor = firstBest >= secondBest ? first : second;
+                final Deme stopped = survivor == first ? second : first;
+                log.info(format("Deme %s stopped as a duplicate of %s", stopped.getName(), survivor.getName()));
+                stopped.setStopped(true);
+                stopped.setDuplicateOf(survivor);
+                stoppedCount++;
+                if (resolution == Resolution.MERGE) {
+                    survivor.getHistory().add(Deme.HistoryItem.builder()
+                            .epoch(state.getEpoch())
+                            .population(state.historyPopulation(survivor.getPopulation()))
+                            .build());
+                    survivor.setPopulation(best(union, ranks, survivor.getPopulation().size()));
+                    if (level.getEvoAlg() != null) {
+                        level.getEvoAlg().populationReplaced(survivor);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] centroid(Population population) {
+        final int dim = population.getDimensionCount();
+        final double[] points = population.getFlatPoints();
+        final int n = population.size();
+        final double[] sum = new double[dim];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < dim; k++) {
+                sum[k] += points[i * dim + k];
+            }
+        }
+        for (int k = 0; k < dim; k++) {
+            sum[k] /= n;
+        }
+        return sum;
+    }
+
+    private static Cluster cluster(Deme deme) {
+        final Cluster cluster = new Cluster();
+        cluster.getIndividuals().addAll(Arrays.asList(deme.getPopulation().getIndividuals()));
+        return cluster;
+    }
+
+    private static Population union(Population first, Population second) {
+        final List<Individual> all = new ArrayList<>(first.size() + second.size());
+        all.addAll(Arrays.asList(first.getIndividuals()));
+        all.addAll(Arrays.asList(second.getIndividuals()));
+        return new Population(all);
+    }
+
+    /**
+     * @return size individuals of the lowest ranks, in the order of the union within a rank
+     */
+    private static Population best(Population union, int[] ranks, int size) {
+        final Individual[] individuals = union.getIndividuals();
+        final List<Individual> out = new ArrayList<>(size);
+        for (int rank = 0; out.size() < size; rank++) {
+            for (int k = 0; k < individuals.length && out.size() < size; k++) {
+                if (ranks[k] == rank) {
+                    out.add(individuals[k]);
+                }
+            }
+        }
+        return new Population(out);
+    }
+
+}
@@ -22,12 +22,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.orch.hgs.Deme;
 import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.util.DistanceKernel;
 import pl.a2s.ms.core.util.Pair;
 import lombok.RequiredArgsConstructor;
 
@@ -68,20 +68,20 @@ public class DemeDistanceSproutReducer implements SproutReducer {
     }
 
     private static double[] populationToCentroid(Population population) {
-        final Individual[] individuals = population.getIndividuals();
-        final double[] sum = new double[individuals[0].getPoint().length];
-        for (Individual individual : individuals) {
+        final int size = population.getSize();
+        final double[] sum = new double[population.getDimensionCount()];
+        for (int i = 0; i < size; i++) {
             for (int j = 0; j < sum.length; j++) {
-                sum[j] += individual.getPoint()[j];
+                sum[j] += population.getCoordinate(i, j);
             }
         }
         for (int i = 0; i < sum.length; i++) {
-            sum[i] /= individuals.length;
+            sum[i] /= size;
         }
         return sum;
     }
 
     private static double dist(double[] point, double[] point2) {
-        return MathArrays.distance(point, point2);
+        return DistanceKernel.distance(point, point2);
     }
 }
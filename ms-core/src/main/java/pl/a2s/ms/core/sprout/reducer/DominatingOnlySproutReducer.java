@@ -36,7 +36,7 @@ public class DominatingOnlySproutReducer implements SproutReducer {
     @Override
     public List<Pair<Individual, Deme>> reduce(List<Pair<Individual, Deme>> sprouts, HgsState state, int levelIndex) {
         final Population population = new Population(sprouts.size());
-        ie.evaluate(population);
+        ie.evaluate(population, state.getHgsDemes()[levelIndex].evaluationPrecision(ie));
         population.updateRanks();
         final List<Pair<Individual, Deme>> output = new ArrayList<>();
         final int[] ranks = population.getRanks();
@@ -20,11 +20,11 @@ package pl.a2s.ms.core.sprout.reducer;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.math3.util.MathArrays;
 
 import pl.a2s.ms.core.ind.Individual;
 import pl.a2s.ms.core.orch.hgs.Deme;
 import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.util.DistanceKernel;
 import pl.a2s.ms.core.util.Pair;
 import lombok.RequiredArgsConstructor;
 
@@ -53,6 +53,6 @@ public class SeedDistanceSproutReducer implements SproutReducer {
     }
 
     private static double dist(double[] point, double[] point2) {
-        return MathArrays.distance(point, point2);
+        return DistanceKernel.distance(point, point2);
     }
 }
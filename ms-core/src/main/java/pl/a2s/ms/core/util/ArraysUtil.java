@@ -24,6 +24,8 @@ import lombok.val;
 
 public class ArraysUtil {
 
+    private static final int INSERTION_SORT_SIZE = 16;
+
     public static int[] constant(int length, int value) {
         val out = new int[length];
         Arrays.fill(out, value);
@@ -56,4 +58,77 @@ public class ArraysUtil {
         return tab[tab.length - 1];
     }
 
+    /**
+     * Maps a double to a long so that the order of the longs is the order of {@link Double#compare(double, double)}.
+     */
+    public static long sortableKey(double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Sorts the first n entries of idx by keys[idx[i]] ascending, ties broken by the value of idx[i],
+     * i.e. in the order a stable sort of 0..n-1 would give. Only the first r entries are guaranteed
+     * to be sorted, the rest is in an arbitrary order, which takes O(n + r log r) on average.
+     *
+     * @param keys sort keys indexed by the entries of idx
+     * @param idx indices to sort, typically 0..n-1
+     * @param n number of indices
+     * @param r length of the sorted prefix
+     */
+    public static void partialArgsort(long[] keys, int[] idx, int n, int r) {
+        partialArgsort(keys, idx, 0, n, Math.min(r, n));
+    }
+
+    private static void partialArgsort(long[] keys, int[] idx, int lo, int hi, int r) {
+        while (hi - lo > INSERTION_SORT_SIZE && lo < r) {
+            final int mid = (lo + hi) >>> 1;
+            final int pivot = median(keys, idx[lo], idx[mid], idx[hi - 1]);
+            int i = lo;
+            int j = hi - 1;
+            while (i <= j) {
+                while (less(keys, idx[i], pivot)) {
+                    i++;
+                }
+                while (less(keys, pivot, idx[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int t = idx[i];
+                    idx[i] = idx[j];
+                    idx[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (i < r) {
+                partialArgsort(keys, idx, i, hi, r);
+            }
+            hi = j + 1;
+        }
+        if (lo < r) {
+            for (int i = lo + 1; i < hi; i++) {
+                final int v = idx[i];
+                int j = i - 1;
+                while (j >= lo && less(keys, v, idx[j])) {
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                idx[j + 1] = v;
+            }
+        }
+    }
+
+    private static boolean less(long[] keys, int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private static int median(long[] keys, int a, int b, int c) {
+        if (less(keys, a, b)) {
+            return less(keys, b, c) ? b : (less(keys, a, c) ? c : a);
+        } else {
+            return less(keys, a, c) ? a : (less(keys, b, c) ? c : b);
+        }
+    }
+
 }
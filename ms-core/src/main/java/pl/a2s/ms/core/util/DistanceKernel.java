@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.util;
+
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Euclidean distance computations shared by the selection, clustering and sprouting code.
+ * <p>
+ * Points are stored row by row in a single array. Pairwise computations go through
+ * square tiles of {@link #TILE} points, so that both blocks of points stay in the cache,
+ * and for at least {@link #PARALLEL_THRESHOLD} points the tiles are processed in parallel.
+ * Distances are the square roots of the same sums as in {@link org.apache.commons.math3.util.MathArrays#distance(double[], double[])},
+ * so they are bit-identical to it.
+ */
+public class DistanceKernel {
+
+    public static final int TILE = 64;
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    public static double squaredDistance(double[] a, double[] b) {
+        double sum = 0;
+        for (int k = 0; k < a.length; k++) {
+            final double dp = a[k] - b[k];
+            sum += dp * dp;
+        }
+        return sum;
+    }
+
+    public static double distance(double[] a, double[] b) {
+        return FastMath.sqrt(squaredDistance(a, b));
+    }
+
+    /**
+     * @return squared distance between the i-th and the j-th point of X
+     */
+    public static double squaredDistance(double[] X, int i, int j, int dim) {
+        return squaredDistance(X, i * dim, X, j * dim, dim);
+    }
+
+    public static double distance(double[] X, int i, int j, int dim) {
+        return FastMath.sqrt(squaredDistance(X, i, j, dim));
+    }
+
+    /**
+     * @return distance between the i-th point of A and the j-th point of B
+     */
+    public static double distance(double[] A, int i, double[] B, int j, int dim) {
+        return FastMath.sqrt(squaredDistance(A, i * dim, B, j * dim, dim));
+    }
+
+    private static double squaredDistance(double[] A, int aOff, double[] B, int bOff, int dim) {
+        double sum = 0;
+        for (int k = 0; k < dim; k++) {
+            final double dp = A[aOff + k] - B[bOff + k];
+            sum += dp * dp;
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the squared distances between all pairs of points.
+     *
+     * @param X points stored row by row
+     * @param n number of points
+     * @param dim point dimension
+     * @param singlePrecision if the distances should be stored as floats
+     * @return packed matrix of squared distances
+     */
+    public static PackedDistanceMatrix pairwise(double[] X, int n, int dim, boolean singlePrecision) {
+        final PackedDistanceMatrix D = new PackedDistanceMatrix(n, singlePrecision);
+        forEachTilePair(n, (ti, tj) -> {
+            final int iTo = Math.min(n, ti + TILE);
+            final int jTo = Math.min(n, tj + TILE);
+            for (int i = ti; i < iTo; i++) {
+                final int jFrom = Math.max(tj, i + 1);
+                int k = jFrom < jTo ? D.index(i, jFrom) : 0;
+                for (int j = jFrom; j < jTo; j++) {
+                    D.set(k++, squaredDistance(X, i * dim, X, j * dim, dim));
+                }
+            }
+            return 0.;
+        }, (a, b) -> 0.);
+        return D;
+    }
+
+    /**
+     * @return the largest distance between two of the points, -Infinity for less than two points
+     */
+    public static double maxDistance(double[] X, int n, int dim) {
+        if (n < 2) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        final double maxSquared = forEachTilePair(n, (ti, tj) -> {
+            final int iTo = Math.min(n, ti + TILE);
+            final int jTo = Math.min(n, tj + TILE);
+            double max = 0.;
+            for (int i = ti; i < iTo; i++) {
+                for (int j = Math.max(tj, i + 1); j < jTo; j++) {
+                    max = Math.max(max, squaredDistance(X, i * dim, X, j * dim, dim));
+                }
+            }
+            return max;
+        }, Math::max);
+        return FastMath.sqrt(maxSquared);
+    }
+
+    /**
+     * Finds the closest pair of points, one from A and one from B. Of equally distant pairs
+     * the one with the lowest index in A, and then in B, is returned.
+     *
+     * @return indices of the points in A and B, null if there is no pair at a comparable distance
+     */
+    public static int[] closestPair(double[] A, int na, double[] B, int nb, int dim) {
+        if (na == 0 || nb == 0) {
+            return null;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        int bestA = -1;
+        int bestB = -1;
+        for (int ti = 0; ti < na; ti += TILE) {
+            final int iTo = Math.min(na, ti + TILE);
+            for (int tj = 0; tj < nb; tj += TILE) {
+                final int jTo = Math.min(nb, tj + TILE);
+                for (int i = ti; i < iTo; i++) {
+                    for (int j = tj; j < jTo; j++) {
+                        final double d = FastMath.sqrt(squaredDistance(A, i * dim, B, j * dim, dim));
+                        if (d < min || (d == min && (i < bestA || (i == bestA && j < bestB)))) {
+                            min = d;
+                            bestA = i;
+                            bestB = j;
+                        }
+                    }
+                }
+            }
+        }
+        return bestA < 0 ? null : new int[] {bestA, bestB};
+    }
+
+    private interface TileTask {
+        double apply(int ti, int tj);
+    }
+
+    /**
+     * Runs the task for all tiles on and above the diagonal, in parallel for many points,
+     * and reduces the results.
+     */
+    private static double forEachTilePair(int n, TileTask task, DoubleBinaryOperator reduce) {
+        final int tiles = (n + TILE - 1) / TILE;
+        final int pairs = tiles * (tiles + 1) / 2;
+        final int[] rows = new int[pairs];
+        final int[] cols = new int[pairs];
+        int p = 0;
+        for (int i = 0; i < tiles; i++) {
+            for (int j = i; j < tiles; j++) {
+                rows[p] = i * TILE;
+                cols[p] = j * TILE;
+                p++;
+            }
+        }
+        IntStream indices = IntStream.range(0, pairs);
+        if (n >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        return indices.mapToDouble(q -> task.apply(rows[q], cols[q])).reduce(0., reduce);
+    }
+
+}
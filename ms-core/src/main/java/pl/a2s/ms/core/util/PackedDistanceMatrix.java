@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.util;
+
+import lombok.Getter;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Symmetric matrix of squared distances between n points with zero diagonal,
+ * storing only the n(n-1)/2 entries above the diagonal, row by row, in doubles
+ * or (to halve the memory again) in floats.
+ *
+ * @see DistanceKernel#pairwise(double[], int, int, boolean)
+ */
+public class PackedDistanceMatrix {
+
+    @Getter private final int size;
+    private final double[] doubles;
+    private final float[] floats;
+
+    PackedDistanceMatrix(int size, boolean singlePrecision) {
+        final long length = (long) size * (size - 1) / 2;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many points for a packed distance matrix: " + size);
+        }
+        this.size = size;
+        this.doubles = singlePrecision ? null : new double[(int) length];
+        this.floats = singlePrecision ? new float[(int) length] : null;
+    }
+
+    public boolean isSinglePrecision() {
+        return floats != null;
+    }
+
+    public double squared(int i, int j) {
+        if (i == j) {
+            return 0.;
+        }
+        final int k = i < j ? index(i, j) : index(j, i);
+        return doubles != null ? doubles[k] : floats[k];
+    }
+
+    public double distance(int i, int j) {
+        return FastMath.sqrt(squared(i, j));
+    }
+
+    /**
+     * @return position of entry (i, j), i &lt; j, in the packed storage
+     */
+    int index(int i, int j) {
+        return (int) ((long) i * (2 * size - i - 1) / 2) + j - i - 1;
+    }
+
+    void set(int k, double squared) {
+        if (doubles != null) {
+            doubles[k] = squared;
+        } else {
+            floats[k] = (float) squared;
+        }
+    }
+
+}
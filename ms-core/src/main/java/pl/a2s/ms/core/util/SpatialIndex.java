@@ -0,0 +1,330 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.util;
+
+import lombok.Getter;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static tree over points stored row by row, answering exact nearest neighbour queries.
+ * <p>
+ * Nodes are split at the median of the coordinate with the largest spread. Up to
+ * {@link #MAX_KD_DIMENSION} dimensions nodes are bounded by boxes (a k-d tree), above it
+ * by balls around the centroids (a ball tree), which prune better when boxes get loose.
+ * <p>
+ * Every point may be given a rank and queries may be restricted to points of a lower rank,
+ * e.g. to fitter points. Of equally distant points the one with the lowest index is found,
+ * and distances are those of {@link DistanceKernel#distance(double[], int, int, int)},
+ * so the results are exactly those of a linear scan. Coordinates must be finite.
+ */
+public class SpatialIndex {
+
+    public static final int LEAF_SIZE = 16;
+    public static final int MAX_KD_DIMENSION = 8;
+
+    private final double[] points;
+    @Getter private final int size;
+    @Getter private final int dimensionCount;
+    private final int[] ranks;
+    @Getter private final boolean ballTree;
+
+    /// point indices, every node covers a range of them
+    private final int[] perm;
+    private int nodeCount = 0;
+    private final int[] from;
+    private final int[] to;
+    private final int[] left;
+    private final int[] right;
+    private final int[] minRank;
+    /// boxes of the k-d tree, node by node
+    private final double[] lower;
+    private final double[] upper;
+    /// balls of the ball tree
+    private final double[] centers;
+    private final double[] radii;
+
+    public SpatialIndex(double[] points, int n, int dim) {
+        this(points, n, dim, null);
+    }
+
+    /**
+     * @param points points stored row by row, must not be modified afterwards
+     * @param n number of points
+     * @param dim point dimension
+     * @param ranks ranks of the points, null for all equal
+     */
+    public SpatialIndex(double[] points, int n, int dim, int[] ranks) {
+        this.points = points;
+        this.size = n;
+        this.dimensionCount = dim;
+        this.ranks = ranks;
+        this.ballTree = dim > MAX_KD_DIMENSION;
+        this.perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        final int capacity = 4 * n / LEAF_SIZE + 3;
+        from = new int[capacity];
+        to = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        minRank = new int[capacity];
+        lower = ballTree ? null : new double[capacity * dim];
+        upper = ballTree ? null : new double[capacity * dim];
+        centers = ballTree ? new double[capacity * dim] : null;
+        radii = ballTree ? new double[capacity] : null;
+        if (n > 0) {
+            build(0, n);
+        }
+    }
+
+    private int rank(int i) {
+        return ranks == null ? 0 : ranks[i];
+    }
+
+    private int build(int lo, int hi) {
+        final int node = nodeCount++;
+        from[node] = lo;
+        to[node] = hi;
+        left[node] = -1;
+        right[node] = -1;
+        int mr = Integer.MAX_VALUE;
+        for (int p = lo; p < hi; p++) {
+            mr = Math.min(mr, rank(perm[p]));
+        }
+        minRank[node] = mr;
+
+        // spread of the coordinates, also the box of the node
+        final double[] min = new double[dimensionCount];
+        final double[] max = new double[dimensionCount];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int p = lo; p < hi; p++) {
+            final int off = perm[p] * dimensionCount;
+            for (int k = 0; k < dimensionCount; k++) {
+                min[k] = Math.min(min[k], points[off + k]);
+                max[k] = Math.max(max[k], points[off + k]);
+            }
+        }
+        if (ballTree) {
+            final int cOff = node * dimensionCount;
+            for (int p = lo; p < hi; p++) {
+                final int off = perm[p] * dimensionCount;
+                for (int k = 0; k < dimensionCount; k++) {
+                    centers[cOff + k] += points[off + k];
+                }
+            }
+            double radius = 0;
+            for (int k = 0; k < dimensionCount; k++) {
+                centers[cOff + k] /= hi - lo;
+            }
+            for (int p = lo; p < hi; p++) {
+                radius = Math.max(radius, FastMath.sqrt(squaredDistance(centers, cOff, perm[p] * dimensionCount)));
+            }
+            radii[node] = radius;
+        } else {
+            System.arraycopy(min, 0, lower, node * dimensionCount, dimensionCount);
+            System.arraycopy(max, 0, upper, node * dimensionCount, dimensionCount);
+        }
+
+        if (hi - lo > LEAF_SIZE) {
+            int splitDim = 0;
+            for (int k = 1; k < dimensionCount; k++) {
+                if (max[k] - min[k] > max[splitDim] - min[splitDim]) {
+                    splitDim = k;
+                }
+            }
+            if (max[splitDim] > min[splitDim]) {
+                final int mid = (lo + hi) >>> 1;
+                select(lo, hi, mid, splitDim);
+                left[node] = build(lo, mid);
+                right[node] = build(mid, hi);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Rearranges perm[lo..hi) so that the k-th entry is in place with respect to coordinate d.
+     */
+    private void select(int lo, int hi, int k, int d) {
+        hi--;
+        while (lo < hi) {
+            final double pivot = points[perm[(lo + hi) >>> 1] * dimensionCount + d];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (points[perm[i] * dimensionCount + d] < pivot) {
+                    i++;
+                }
+                while (points[perm[j] * dimensionCount + d] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int t = perm[i];
+                    perm[i] = perm[j];
+                    perm[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private double squaredDistance(double[] q, int qOff, int pOff) {
+        double sum = 0;
+        for (int k = 0; k < dimensionCount; k++) {
+            final double dp = q[qOff + k] - points[pOff + k];
+            sum += dp * dp;
+        }
+        return sum;
+    }
+
+    /**
+     * Lower bound of the distance between q and the points of the node, never above
+     * the distance as computed for the single points.
+     */
+    private double lowerBound(int node, double[] q, int qOff) {
+        final int off = node * dimensionCount;
+        if (ballTree) {
+            double sum = 0;
+            for (int k = 0; k < dimensionCount; k++) {
+                final double dp = q[qOff + k] - centers[off + k];
+                sum += dp * dp;
+            }
+            final double toCenter = FastMath.sqrt(sum);
+            // the slack covers the rounding of the triangle inequality
+            return toCenter - radii[node] - 1e-12 * (toCenter + radii[node]);
+        }
+        // rounding is monotone, so the gaps never exceed the coordinate differences
+        double sum = 0;
+        for (int k = 0; k < dimensionCount; k++) {
+            final double x = q[qOff + k];
+            double gap = 0;
+            if (x < lower[off + k]) {
+                gap = x - lower[off + k];
+            } else if (x > upper[off + k]) {
+                gap = x - upper[off + k];
+            }
+            sum += gap * gap;
+        }
+        return FastMath.sqrt(sum);
+    }
+
+    /**
+     * Finds the nearest point to q among the points of rank below rankLimit.
+     *
+     * @param q array holding the query point
+     * @param qOff offset of the query point in q
+     * @param rankLimit exclusive upper bound of the ranks of the points to consider
+     * @return index of the nearest point, -1 if there is none
+     */
+    public int nearest(double[] q, int qOff, int rankLimit) {
+        return nearest(q, qOff, rankLimit, -1);
+    }
+
+    /**
+     * Finds the nearest point to q among the points of rank below rankLimit, other than exclude.
+     *
+     * @return index of the nearest point, -1 if there is none
+     */
+    public int nearest(double[] q, int qOff, int rankLimit, int exclude) {
+        if (size == 0) {
+            return -1;
+        }
+        final Best best = new Best();
+        search(0, lowerBound(0, q, qOff), q, qOff, rankLimit, exclude, best);
+        return best.index;
+    }
+
+    /**
+     * Calls the action for every point at a distance below maxDistance from q, in no particular order.
+     *
+     * @param q array holding the query point
+     * @param qOff offset of the query point in q
+     * @param maxDistance exclusive bound of the distance
+     * @param action called with the indices of the points
+     */
+    public void forEachCloser(double[] q, int qOff, double maxDistance, IntConsumer action) {
+        if (size > 0) {
+            forEachCloser(0, q, qOff, maxDistance, action);
+        }
+    }
+
+    private void forEachCloser(int node, double[] q, int qOff, double maxDistance, IntConsumer action) {
+        if (lowerBound(node, q, qOff) >= maxDistance) {
+            return;
+        }
+        if (left[node] < 0) {
+            for (int p = from[node]; p < to[node]; p++) {
+                final int i = perm[p];
+                if (FastMath.sqrt(squaredDistance(q, qOff, i * dimensionCount)) < maxDistance) {
+                    action.accept(i);
+                }
+            }
+            return;
+        }
+        forEachCloser(left[node], q, qOff, maxDistance, action);
+        forEachCloser(right[node], q, qOff, maxDistance, action);
+    }
+
+    private static class Best {
+        double distance = Double.POSITIVE_INFINITY;
+        int index = -1;
+    }
+
+    private void search(int node, double bound, double[] q, int qOff, int rankLimit, int exclude, Best best) {
+        if (minRank[node] >= rankLimit || bound > best.distance) {
+            return;
+        }
+        if (left[node] < 0) {
+            for (int p = from[node]; p < to[node]; p++) {
+                final int i = perm[p];
+                if (i == exclude || rank(i) >= rankLimit) {
+                    continue;
+                }
+                final double d = FastMath.sqrt(squaredDistance(q, qOff, i * dimensionCount));
+                if (d < best.distance || (d == best.distance && i < best.index)) {
+                    best.distance = d;
+                    best.index = i;
+                }
+            }
+            return;
+        }
+        final double leftBound = lowerBound(left[node], q, qOff);
+        final double rightBound = lowerBound(right[node], q, qOff);
+        if (leftBound <= rightBound) {
+            search(left[node], leftBound, q, qOff, rankLimit, exclude, best);
+            search(right[node], rightBound, q, qOff, rankLimit, exclude, best);
+        } else {
+            search(right[node], rightBound, q, qOff, rankLimit, exclude, best);
+            search(left[node], leftBound, q, qOff, rankLimit, exclude, best);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.archive;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.RankedIndividual;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.orch.hgs.Deme;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NDTreeArchiveTest {
+
+    private static Map<Double, Integer> ranksByPoint(Population population) {
+        val out = new HashMap<Double, Integer>();
+        for (final RankedIndividual ri : population) {
+            out.put(ri.getPoint()[0], ri.getRank());
+        }
+        return out;
+    }
+
+    private static List<Deme> randomDemes(Random random, int demeCount, int demeSize, int objectiveCount) {
+        val demes = new ArrayList<Deme>();
+        int id = 0;
+        for (int d = 0; d < demeCount; d++) {
+            val inds = new Individual[demeSize];
+            for (int i = 0; i < demeSize; i++) {
+                inds[i] = new SimpleIndividual(new double[] { id++ });
+                val obj = new double[objectiveCount];
+                for (int j = 0; j < objectiveCount; j++) {
+                    obj[j] = random.nextInt(50);
+                }
+                inds[i].setObjectives(obj);
+            }
+            val deme = Deme.builder().name("deme" + (d % 3)).build();
+            deme.setPopulation(new Population(inds));
+            demes.add(deme);
+        }
+        return demes;
+    }
+
+    @Test
+    public void matchesRankingArchive() {
+        val random = new Random(7);
+        for (int m = 2; m <= 4; m++) {
+            for (val maxRank : new int[] { -1, 0, 3 }) {
+                val ranking = new RankingArchive(true, maxRank);
+                val ndTree = new NDTreeArchive(true, maxRank);
+                for (val deme : randomDemes(random, 20, 40, m)) {
+                    ranking.addAllFrom(deme);
+                    ndTree.addAllFrom(deme);
+                }
+                assertThat(ranksByPoint(ndTree.getPopulation())).isEqualTo(ranksByPoint(ranking.getPopulation()));
+                assertThat(ndTree.getActualMaxRank()).isEqualTo(ranking.getActualMaxRank());
+
+                val ndTreeSplit = ndTree.splitAlongDemes();
+                val rankingSplit = ranking.splitAlongDemes();
+                assertThat(ndTreeSplit.keySet()).isEqualTo(rankingSplit.keySet());
+                for (val name : rankingSplit.keySet()) {
+                    assertThat(ranksByPoint(ndTreeSplit.get(name))).isEqualTo(ranksByPoint(rankingSplit.get(name)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void simpleArchiveKeepsFirstFront() {
+        val random = new Random(11);
+        val simple = new SimpleArchive(true);
+        val ndTree = new NDTreeArchive(true, 0);
+        for (val deme : randomDemes(random, 10, 100, 3)) {
+            simple.addAll(deme.getPopulation().getIndividuals());
+            ndTree.addAll(deme.getPopulation().getIndividuals());
+        }
+        assertThat(simple.getIndividuals()).containsExactlyInAnyOrderElementsOf(ndTree.getIndividuals());
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClusterMergeStrategiesTest {
+
+    /**
+     * The list-based merge, as Cluster.merge used to be.
+     */
+    private static List<Individual> listMerge(Cluster first, Cluster second) {
+        final List<Individual> individuals = new ArrayList<>();
+        for (val ind : first.getIndividuals()) {
+            if (!individuals.contains(ind)) {
+                individuals.add(ind);
+            }
+        }
+        for (val ind : second.getIndividuals()) {
+            if (!individuals.contains(ind)) {
+                individuals.add(ind);
+            }
+        }
+        return individuals;
+    }
+
+    /**
+     * The list-based mergeDominating, as Cluster.mergeDominating used to be.
+     */
+    private static List<Individual> listMergeDominating(Cluster first, Cluster second) {
+        final List<Individual> individuals = new ArrayList<>(first.getIndividuals());
+        for (final Individual sInd : second.getIndividuals()) {
+            final List<Individual> toRemove = new ArrayList<>();
+            for (final Individual ind : individuals) {
+                if (!ind.dominates(sInd) && sInd.dominates(ind)) {
+                    toRemove.add(ind);
+                }
+            }
+            if (!toRemove.isEmpty()) {
+                individuals.removeAll(toRemove);
+                individuals.add(sInd);
+            }
+        }
+        return individuals;
+    }
+
+    /**
+     * Individuals on a coarse grid, so that there are equal points, with objectives computed
+     * from the points, so that equal points have equal objectives with many ties.
+     */
+    private static Cluster cluster(Random rand, int size, int objectiveCount) {
+        val cluster = new Cluster();
+        for (int i = 0; i < size; i++) {
+            val point = new double[] { rand.nextInt(10), rand.nextInt(10) };
+            val objectives = new double[objectiveCount];
+            for (int j = 0; j < objectiveCount; j++) {
+                objectives[j] = (point[0] * (j + 1) + point[1] * (objectiveCount - j)) % 7;
+            }
+            cluster.getIndividuals().add(new SimpleIndividual(point, objectives));
+        }
+        return cluster;
+    }
+
+    @Test
+    public void mergeMatchesListMerge() {
+        val rand = new Random(29);
+        for (val size : new int[] { 0, 1, 30, 300 }) {
+            val first = cluster(rand, size, 2);
+            val second = cluster(rand, size / 2 + 1, 2);
+            val merged = ClusterMergeStrategies.merge(first, second).getIndividuals();
+            val expected = listMerge(first, second);
+            assertThat(merged).hasSameSizeAs(expected);
+            for (int i = 0; i < merged.size(); i++) {
+                assertThat(merged.get(i)).isSameAs(expected.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void mergeDominatingMatchesListMerge() {
+        val rand = new Random(31);
+        for (val objectiveCount : new int[] { 1, 2, 3 }) {
+            for (val size : new int[] { 0, 1, 30, 300 }) {
+                val first = cluster(rand, size, objectiveCount);
+                val second = cluster(rand, size / 2 + 1, objectiveCount);
+                val merged = ClusterMergeStrategies.mergeDominating(first, second).getIndividuals();
+                val expected = listMergeDominating(first, second);
+                assertThat(merged).hasSameSizeAs(expected);
+                for (int i = 0; i < merged.size(); i++) {
+                    assertThat(merged.get(i)).isSameAs(expected.get(i));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.apache.commons.math3.util.MathArrays;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClustersTest {
+
+    @Test
+    public void findClosestMatchesFirstMinimumOfAllPairs() {
+        val rand = new Random(23);
+        for (val size : new int[] { 3, 40, 200 }) {
+            val first = new Cluster();
+            val second = new Cluster();
+            for (int i = 0; i < size; i++) {
+                // a coarse grid gives many equally distant pairs
+                first.getIndividuals().add(new SimpleIndividual(new double[] { rand.nextInt(8), rand.nextInt(8) }));
+                second.getIndividuals().add(new SimpleIndividual(new double[] { rand.nextInt(8) + 5, rand.nextInt(8) }));
+            }
+            double min = Double.POSITIVE_INFINITY;
+            int[] expected = null;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    val d = MathArrays.distance(first.getIndividuals().get(i).getPoint(),
+                            second.getIndividuals().get(j).getPoint());
+                    if (d < min) {
+                        min = d;
+                        expected = new int[] { i, j };
+                    }
+                }
+            }
+            val closest = Clusters.findClosest(first, second);
+            assertThat(closest.getLeft()).isSameAs(first.getIndividuals().get(expected[0]));
+            assertThat(closest.getRight()).isSameAs(second.getIndividuals().get(expected[1]));
+        }
+    }
+
+}
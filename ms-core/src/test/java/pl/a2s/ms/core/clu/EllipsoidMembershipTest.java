@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EllipsoidMembershipTest {
+
+    @Test
+    public void countsMatchMahalanobisDistances() {
+        val rand = new Random(31);
+        val dim = 4;
+        val membership = new EllipsoidMembership(dim);
+        val ellipsoids = new ArrayList<Ellipsoid>();
+        for (int e = 0; e < 50; e++) {
+            val a = new double[dim][dim];
+            val mean = new double[dim];
+            for (int i = 0; i < dim; i++) {
+                mean[i] = rand.nextDouble() * 4;
+                for (int j = 0; j < dim; j++) {
+                    a[i][j] = rand.nextGaussian();
+                }
+            }
+            val A = MatrixUtils.createRealMatrix(a);
+            val cov = A.multiply(A.transpose()).add(MatrixUtils.createRealIdentityMatrix(dim).scalarMultiply(0.1));
+            val sigma = 0.2 + rand.nextDouble();
+            assertThat(membership.add(mean, cov.getData(), sigma)).isTrue();
+            ellipsoids.add(Ellipsoid.builder()
+                    .mean(MatrixUtils.createColumnRealMatrix(mean))
+                    .invCov(MatrixUtils.inverse(cov))
+                    .sigma(sigma)
+                    .build());
+        }
+        // enough pairs to process the ellipsoids in parallel
+        val count = 3000;
+        val points = new double[count * dim];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = rand.nextDouble() * 4;
+        }
+        val counts = membership.countContaining(points, count);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            val point = new double[dim];
+            System.arraycopy(points, i * dim, point, 0, dim);
+            int expected = 0;
+            for (int e = 0; e < ellipsoids.size(); e++) {
+                val distance = ellipsoids.get(e).mahalanobisDistance(MatrixUtils.createColumnRealMatrix(point));
+                assertThat(membership.contains(e, point)).isEqualTo(distance <= 1);
+                if (distance <= 1) {
+                    expected++;
+                }
+            }
+            assertThat(counts[i]).isEqualTo(expected);
+            total += expected;
+        }
+        assertThat(total).isPositive();
+    }
+
+    @Test
+    public void skipsCovariancesWhichArentPositiveDefinite() {
+        val membership = new EllipsoidMembership(2);
+        assertThat(membership.add(new double[] { 0, 0 }, new double[][] { { 1, 2 }, { 2, 1 } }, 1)).isFalse();
+        assertThat(membership.add(new double[] { 0, 0 }, new double[][] { { 1, 0 }, { 0, Double.NaN } }, 1)).isFalse();
+        assertThat(membership.size()).isZero();
+    }
+
+}
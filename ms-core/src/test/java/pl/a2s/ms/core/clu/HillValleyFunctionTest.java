@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.archive.SimpleArchive;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.obj.ObjectiveCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HillValleyFunctionTest {
+
+    /**
+     * Two valleys at x = 0 and x = 4 with a ridge of height 4 between them, recording batch sizes.
+     */
+    private static class TwoValleys implements ObjectiveCalculator {
+        final List<Integer> batches = new ArrayList<>();
+
+        @Override
+        public double[] calculate(double[] point) {
+            final double x = point[0];
+            return new double[] { Math.min(x * x, (x - 4) * (x - 4)) };
+        }
+
+        @Override
+        public int getObjectiveCount() {
+            return 1;
+        }
+
+        @Override
+        public void calculateBatch(double[] points, int count, int dim, double[] out) {
+            batches.add(count);
+            ObjectiveCalculator.super.calculateBatch(points, count, dim, out);
+        }
+    }
+
+    private static SimpleIndividual evaluated(double x, TwoValleys fc) {
+        val ind = new SimpleIndividual(new double[] { x });
+        ind.setObjectives(fc.calculate(ind.getPoint()));
+        return ind;
+    }
+
+    @Test
+    public void evaluatesIntermediatePointsInOneBatch() {
+        val fc = new TwoValleys();
+        val ie = new IndividualEvaluator(fc);
+        val hvf = new HillValleyFunction(7, ie);
+        // intermediate points at 0.5, 1, ..., 3.5, the highest at 2
+        assertThat(hvf.compute(new double[] { 0 }, new double[] { 4 })).isEqualTo(4.);
+        assertThat(fc.batches).containsExactly(9);
+        assertThat(ie.getEvaluationCount()).isEqualTo(9);
+
+        fc.batches.clear();
+        assertThat(hvf.compute(evaluated(0, fc), evaluated(4, fc))).isEqualTo(4.);
+        assertThat(fc.batches).containsExactly(7);
+    }
+
+    @Test
+    public void earlyExitStopsAtTheRidge() {
+        val fc = new TwoValleys();
+        val ie = new IndividualEvaluator(fc);
+        val hvf = new HillValleyFunction(7, ie);
+        hvf.setEarlyExit(true);
+        // the middle point is on the ridge, so a single evaluation decides
+        assertThat(hvf.isBelow(evaluated(0, fc), evaluated(4, fc), 0.1)).isFalse();
+        assertThat(ie.getEvaluationCount()).isEqualTo(1);
+        // within a valley every level of the bisection is needed: 1, 2 and 4 points
+        assertThat(hvf.isBelow(evaluated(-1, fc), evaluated(1, fc), 1.)).isTrue();
+        assertThat(ie.getEvaluationCount()).isEqualTo(8);
+        assertThat(fc.batches).containsExactly(1, 1, 2, 4);
+
+        hvf.setEarlyExit(false);
+        assertThat(hvf.isBelow(evaluated(0, fc), evaluated(4, fc), 0.1)).isFalse();
+        assertThat(ie.getEvaluationCount()).isEqualTo(15);
+    }
+
+    @Test
+    public void archivePointsReplaceIntermediatePoints() {
+        val fc = new TwoValleys();
+        val ie = new IndividualEvaluator(fc);
+        val hvf = new HillValleyFunction(7, ie);
+        val archive = new ArrayList<SimpleIndividual>();
+        // near the intermediate points at 0.5 and 1, off the segment by less than the tube radius
+        for (val x : new double[] { 0.52, 1.01 }) {
+            val ind = new SimpleIndividual(new double[] { x, 0.05 });
+            ind.setObjectives(fc.calculate(ind.getPoint()));
+            archive.add(ind);
+        }
+        // far from the segment
+        val far = new SimpleIndividual(new double[] { 2, 3 });
+        far.setObjectives(new double[] { 100 });
+        archive.add(far);
+        hvf.setEvaluatedPoints(EvaluatedPoints.of(archive));
+        hvf.setTubeRadius(0.1);
+        hvf.setSpacing(0.05);
+
+        val first = new SimpleIndividual(new double[] { 0, 0 });
+        first.setObjectives(new double[] { 0 });
+        val second = new SimpleIndividual(new double[] { 4, 0 });
+        second.setObjectives(new double[] { 0 });
+        assertThat(hvf.compute(first, second)).isEqualTo(4.);
+        assertThat(hvf.getSavedEvaluationCount()).isEqualTo(2);
+        assertThat(ie.getEvaluationCount()).isEqualTo(5);
+
+        // with early exit the ridge sample alone decides
+        hvf.setEarlyExit(true);
+        val ridge = new SimpleIndividual(new double[] { 2.2, 0 });
+        ridge.setObjectives(fc.calculate(ridge.getPoint()));
+        archive.add(ridge);
+        assertThat(hvf.isBelow(first, second, 1.)).isFalse();
+        assertThat(hvf.getSavedEvaluationCount()).isEqualTo(9);
+        assertThat(ie.getEvaluationCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void evaluatedPointsAreReadAgainOnlyWhenTheArchiveChanges() {
+        val archive = new SimpleArchive(true);
+        val reads = new int[1];
+        val points = new EvaluatedPoints(() -> {
+            reads[0]++;
+            return archive.getIndividuals();
+        }, archive::getModificationCount);
+        val worse = new SimpleIndividual(new double[] { 1, 0 });
+        worse.setObjectives(new double[] { 5 });
+        archive.add(worse);
+        val a = new double[] { 0, 0 };
+        val b = new double[] { 4, 0 };
+        assertThat(points.tube(a, b, 0.1).t).containsExactly(0.25);
+        assertThat(points.tube(a, b, 0.1).t).containsExactly(0.25);
+        assertThat(reads[0]).isEqualTo(1);
+
+        // replaces the archived point, the size stays the same
+        val better = new SimpleIndividual(new double[] { 3, 0 });
+        better.setObjectives(new double[] { 1 });
+        archive.add(better);
+        assertThat(archive.getIndividuals()).hasSize(1);
+        assertThat(points.tube(a, b, 0.1).t).containsExactly(0.75);
+        assertThat(reads[0]).isEqualTo(2);
+
+        points.invalidate();
+        points.tube(a, b, 0.1);
+        assertThat(reads[0]).isEqualTo(3);
+    }
+
+}
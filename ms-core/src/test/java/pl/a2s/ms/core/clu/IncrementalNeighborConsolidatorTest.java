@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalNeighborConsolidatorTest {
+
+    /**
+     * Small clusters scattered around three basins at x = 0, 10 and 20.
+     */
+    private static List<Cluster> scatteredClusters(Random rand) {
+        val clusters = new ArrayList<Cluster>();
+        for (int i = 0; i < 90; i++) {
+            val cluster = new Cluster();
+            val basin = 10. * (i % 3);
+            for (int j = 0; j < 2 + rand.nextInt(3); j++) {
+                cluster.getIndividuals().add(new SimpleIndividual(new double[] {
+                        basin + rand.nextDouble() * 2 - 1, rand.nextDouble() * 2 - 1 }));
+            }
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    private static int basin(Cluster cluster) {
+        return (int) Math.round(cluster.getIndividuals().get(0).getPoint()[0] / 10.);
+    }
+
+    private static Set<Set<Individual>> partition(List<Cluster> clusters) {
+        return clusters.stream().map(c -> new HashSet<>(c.getIndividuals())).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void mergesLikePairwiseWithoutRecheckingPairs() {
+        val rand = new Random(11);
+        val clusters = scatteredClusters(rand);
+        val checked = new HashSet<List<Cluster>>();
+        val pairwiseChecks = new int[1];
+        // clusters are merged only within a basin, which are closer than maxDistance
+        final ClusterMergeChecker checker = (first, second) -> {
+            assertThat(checked.add(List.of(first, second))).as("pair checked again").isTrue();
+            return basin(first) == basin(second);
+        };
+        final ClusterMergeChecker countingChecker = (first, second) -> {
+            pairwiseChecks[0]++;
+            return basin(first) == basin(second);
+        };
+
+        val consolidator = new IncrementalNeighborConsolidator(15., checker, Cluster::merge);
+        val result = consolidator.reduceClusters(clusters);
+        val expected = new PairwiseNeighborConsolidator(15., countingChecker, Cluster::merge).reduceClusters(clusters);
+
+        assertThat(result).hasSize(3);
+        assertThat(partition(result)).isEqualTo(partition(expected));
+        assertThat(consolidator.getCheckCount()).isLessThan(pairwiseChecks[0]);
+    }
+
+    @Test
+    public void keepsDistantClustersApart() {
+        val clusters = scatteredClusters(new Random(5));
+        val result = new IncrementalNeighborConsolidator(5., (first, second) -> true, Cluster::merge)
+                .reduceClusters(clusters);
+        assertThat(result).hasSize(3);
+        for (val cluster : result) {
+            val b = basin(cluster);
+            assertThat(cluster.getIndividuals()).allMatch(ind -> Math.round(ind.getPoint()[0] / 10.) == b);
+        }
+    }
+
+    private static Cluster cluster(Individual... individuals) {
+        val cluster = new Cluster();
+        cluster.getIndividuals().addAll(List.of(individuals));
+        return cluster;
+    }
+
+    @Test
+    public void usesTheCentroidOfTheUnion() {
+        val zero = new SimpleIndividual(new double[] { 0 });
+        val one = new SimpleIndividual(new double[] { 1 });
+        // the union of the first two is {0, 1, 10} with the centroid at 11/3, within 3.5 of the third,
+        // while weighting the centroids of the parts would count 0 and 1 twice and put it at 2.4
+        val clusters = List.of(
+                new Cluster(),
+                cluster(zero, one),
+                cluster(zero, one, new SimpleIndividual(new double[] { 10 })),
+                cluster(new SimpleIndividual(new double[] { 6.9 }), new SimpleIndividual(new double[] { 7.1 })));
+        val result = new IncrementalNeighborConsolidator(3.5, (first, second) -> true).reduceClusters(clusters);
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getIndividuals()).hasSize(5);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.clu;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NearestBetterClustererTest {
+
+    @Test
+    public void indexedSearchGivesPairwiseEdges() {
+        val rand = new Random(3);
+        // k-d tree and ball tree, coarse grids and fitness give many equal distances and ties
+        for (val dim : new int[] { 1, 2, 5, 12 }) {
+            for (val n : new int[] { 100, 1500 }) {
+                for (val grid : new boolean[] { false, true }) {
+                    val points = new double[n * dim];
+                    val fitness = new double[n];
+                    for (int i = 0; i < points.length; i++) {
+                        points[i] = grid ? rand.nextInt(6) : rand.nextGaussian();
+                    }
+                    for (int i = 0; i < n; i++) {
+                        fitness[i] = grid ? rand.nextInt(20) : rand.nextDouble();
+                    }
+                    fitness[n / 2] = Double.NaN;
+                    val out = new int[n];
+                    val outLen = new double[n];
+                    val indexedOut = new int[n];
+                    val indexedOutLen = new double[n];
+                    NearestBetterClusterer.nearestBetterPairwise(points, n, dim, fitness, out, outLen);
+                    NearestBetterClusterer.nearestBetterIndexed(points, n, dim, fitness, indexedOut, indexedOutLen);
+                    assertThat(indexedOut).as("dim %d, n %d, grid %b", dim, n, grid).containsExactly(out);
+                    assertThat(indexedOutLen).containsExactly(outLen);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clustersSeparatedBasins() {
+        val rand = new Random(7);
+        val centers = new double[][] { { -5, -5 }, { 5, 5 }, { -5, 5 } };
+        val sample = new ArrayList<Individual>();
+        for (int i = 0; i < 600; i++) {
+            val c = centers[i % centers.length];
+            val ind = new SimpleIndividual(new double[] { c[0] + rand.nextGaussian(), c[1] + rand.nextGaussian() });
+            // one minimum in the middle of each basin
+            ind.setObjectives(new double[] { Math.pow(ind.getPoint()[0] - c[0], 2) + Math.pow(ind.getPoint()[1] - c[1], 2) });
+            sample.add(ind);
+        }
+        val clusters = NearestBetterClusterer.createForParameters(2, sample.size()).clusterize(sample);
+        assertThat(clusters.stream().mapToInt(c -> c.getIndividuals().size()).sum()).isEqualTo(sample.size());
+        assertThat(clusters.size()).isGreaterThanOrEqualTo(centers.length);
+        for (val cluster : clusters) {
+            val first = cluster.getIndividuals().get(0).getPoint();
+            for (val ind : cluster.getIndividuals()) {
+                assertThat(Math.signum(ind.getPoint()[0])).isEqualTo(Math.signum(first[0]));
+                assertThat(Math.signum(ind.getPoint()[1])).isEqualTo(Math.signum(first[1]));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.cmaes;
+
+import lombok.val;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ie.SingleObjectiveFitnessExtractor;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.obj.Rosenbrock;
+import pl.a2s.ms.core.util.ArraysUtil;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class PrimitiveCMAESOptimizerTest {
+
+    private static final int DIM = 5;
+
+    private static CMAESStrategy create(CMAESImplementation implementation, long seed) {
+        val optimizer = implementation.create(1e-10, new Random(seed),
+                new IndividualEvaluator(new Rosenbrock()), new SingleObjectiveFitnessExtractor());
+        optimizer.initialize(
+                new CMAESOptimizer.PopulationSize(4 + (int) (3 * Math.log(DIM))),
+                new CMAESOptimizer.Sigma(ArraysUtil.constant(DIM, 0.5)),
+                new InitialGuess(ArraysUtil.constant(DIM, 0.)),
+                new SimpleBounds(ArraysUtil.constant(DIM, -5.), ArraysUtil.constant(DIM, 5.)),
+                GoalType.MINIMIZE);
+        return optimizer;
+    }
+
+    private static double best(Population population) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < population.getSize(); i++) {
+            best = Math.min(best, population.getObjective(i, 0));
+        }
+        return best;
+    }
+
+    @Test
+    public void firstGenerationMatchesMatrixImplementation() {
+        val matrix = create(CMAESImplementation.MATRIX, 5).runOneStep();
+        val primitive = create(CMAESImplementation.PRIMITIVE, 5).runOneStep();
+        assertThat(primitive.getSize()).isEqualTo(matrix.getSize());
+        for (int i = 0; i < matrix.getSize(); i++) {
+            assertThat(primitive.getIndividuals()[i].getPoint()).containsExactly(matrix.getIndividuals()[i].getPoint());
+        }
+    }
+
+    @Test
+    public void solvesRosenbrock() {
+        for (val implementation : CMAESImplementation.values()) {
+            val optimizer = create(implementation, 7);
+            double best = Double.POSITIVE_INFINITY;
+            Population population;
+            while ((population = optimizer.runOneStep()) != null) {
+                best = Math.min(best, best(population));
+            }
+            assertThat(best).as(implementation.name()).isLessThan(1e-6);
+            assertThat(optimizer.getXmean().getColumn(0)).containsExactly(ArraysUtil.constant(DIM, 1.), within(1e-2));
+        }
+    }
+
+    @Test
+    public void solvesAckleyWithEveryCovarianceModel() {
+        for (val model : new PrimitiveCMAESOptimizer.CovarianceModel[] {
+                PrimitiveCMAESOptimizer.CovarianceModel.FULL,
+                PrimitiveCMAESOptimizer.CovarianceModel.SEPARABLE,
+                PrimitiveCMAESOptimizer.CovarianceModel.LIMITED_MEMORY }) {
+            val dim = 10;
+            val optimizer = new PrimitiveCMAESOptimizer(1e-8, new Random(11),
+                    new IndividualEvaluator(new Ackley()), new SingleObjectiveFitnessExtractor());
+            optimizer.setCovarianceModel(model);
+            optimizer.setEigenUpdateInterval(0);
+            optimizer.initialize(
+                    new CMAESOptimizer.PopulationSize(4 + (int) (3 * Math.log(dim))),
+                    new CMAESOptimizer.Sigma(ArraysUtil.constant(dim, 1.)),
+                    new InitialGuess(ArraysUtil.constant(dim, 1.)),
+                    new SimpleBounds(ArraysUtil.constant(dim, -32.), ArraysUtil.constant(dim, 32.)),
+                    GoalType.MINIMIZE);
+            double best = Double.POSITIVE_INFINITY;
+            Population population;
+            while ((population = optimizer.runOneStep()) != null) {
+                best = Math.min(best, best(population));
+            }
+            assertThat(best).as(model.name()).isLessThan(1e-6);
+            val C = optimizer.getC();
+            assertThat(C.getRowDimension()).isEqualTo(dim);
+            assertThat(C.subtract(C.transpose()).getNorm()).isZero();
+        }
+    }
+
+    @Test
+    public void limitedMemoryStopCriteriaSeeTheFactorsDiagonal() {
+        val dim = 12;
+        val optimizer = new PrimitiveCMAESOptimizer(-1, new Random(5),
+                new IndividualEvaluator(new Rosenbrock()), new SingleObjectiveFitnessExtractor());
+        optimizer.setCovarianceModel(PrimitiveCMAESOptimizer.CovarianceModel.LIMITED_MEMORY);
+        optimizer.initialize(
+                new CMAESOptimizer.PopulationSize(4 + (int) (3 * Math.log(dim))),
+                new CMAESOptimizer.Sigma(ArraysUtil.constant(dim, 0.5)),
+                new InitialGuess(ArraysUtil.constant(dim, 0.)),
+                new SimpleBounds(ArraysUtil.constant(dim, -5.), ArraysUtil.constant(dim, 5.)),
+                GoalType.MINIMIZE);
+        int generations = 0;
+        while (generations < 3 * dim && optimizer.runOneStep() != null) {
+            generations++;
+        }
+        val C = optimizer.getC();
+        val diagC = optimizer.getDiagC();
+        assertThat(diagC).isNotEqualTo(ArraysUtil.constant(dim, 1.));
+        for (int i = 0; i < dim; i++) {
+            assertThat(diagC[i]).isCloseTo(C.getEntry(i, i), within(1e-12 * C.getEntry(i, i)));
+        }
+    }
+
+    @Test
+    public void eigenDecomposesSymmetricMatrices() {
+        val rand = new Random(3);
+        val n = 7;
+        val a = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                a[i][j] = rand.nextGaussian();
+            }
+        }
+        val A = MatrixUtils.createRealMatrix(a);
+        val S = A.add(A.transpose());
+        val V = new double[n * n];
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                V[i + j * n] = S.getEntry(i, j);
+            }
+        }
+        val d = new double[n];
+        PrimitiveCMAESOptimizer.eigen(V, d, new double[n], n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                assertThat(d[i]).isGreaterThanOrEqualTo(d[i - 1]);
+            }
+            for (int j = 0; j < n; j++) {
+                double reconstructed = 0;
+                double product = 0;
+                for (int k = 0; k < n; k++) {
+                    reconstructed += V[i + k * n] * d[k] * V[j + k * n];
+                    product += V[k + i * n] * V[k + j * n];
+                }
+                assertThat(reconstructed).isCloseTo(S.getEntry(i, j), within(1e-12));
+                assertThat(product).isCloseTo(i == j ? 1. : 0., within(1e-12));
+            }
+        }
+    }
+
+}
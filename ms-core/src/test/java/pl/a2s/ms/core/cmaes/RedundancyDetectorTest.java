@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.cmaes;
+
+import lombok.val;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ie.SingleObjectiveFitnessExtractor;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.util.ArraysUtil;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedundancyDetectorTest {
+
+    private static final int DIM = 3;
+    private static final int LAMBDA = 7;
+
+    private static CMAESStrategy create(double start, double sigma, long seed) {
+        val optimizer = CMAESImplementation.PRIMITIVE.create(-1, new Random(seed),
+                new IndividualEvaluator(new Ackley()), new SingleObjectiveFitnessExtractor());
+        optimizer.initialize(
+                new CMAESOptimizer.PopulationSize(LAMBDA),
+                new CMAESOptimizer.Sigma(ArraysUtil.constant(DIM, sigma)),
+                new InitialGuess(ArraysUtil.constant(DIM, start)),
+                new SimpleBounds(ArraysUtil.constant(DIM, -10.), ArraysUtil.constant(DIM, 10.)),
+                GoalType.MINIMIZE);
+        return optimizer;
+    }
+
+    @Test
+    public void keepsTheBetterOfOverlappingInstances() {
+        val detector = new RedundancyDetector();
+        val near = create(0.1, 1, 1);
+        val far = create(5, 0.01, 2);
+        val center = create(0, 1, 3);
+        val survivorOf = detector.findRedundant(Arrays.asList(near, far, center), new double[] {1, 0, 0.5});
+        assertThat(survivorOf).containsExactly(2, -1, -1);
+    }
+
+    @Test
+    public void requiresBothMeansWithinTheOtherDistribution() {
+        val detector = new RedundancyDetector();
+        val wide = create(0, 2, 1);
+        val narrow = create(1, 0.01, 2);
+        assertThat(detector.overlap(wide, narrow)).isFalse();
+        assertThat(detector.overlap(wide, create(1, 2, 3))).isTrue();
+    }
+
+    @Test
+    public void estimatesEvaluationsSaved() {
+        val detector = new RedundancyDetector();
+        val survivor = create(0.1, 1, 1);
+        val terminated = create(0, 1, 2);
+        for (int i = 0; i < 3; i++) {
+            terminated.runOneStep();
+        }
+        detector.recordTermination(terminated, LAMBDA, survivor);
+        for (int i = 0; i < 10; i++) {
+            survivor.runOneStep();
+        }
+        assertThat(detector.getTerminationCount()).isEqualTo(1);
+        assertThat(detector.getEvaluationsSaved()).isEqualTo(7L * LAMBDA);
+    }
+
+}
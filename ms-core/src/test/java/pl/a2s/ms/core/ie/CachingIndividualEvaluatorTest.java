@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.obj.AdaptiveCalculator;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingIndividualEvaluatorTest {
+
+    private static class Scaled implements AdaptiveCalculator {
+        private double precision = 1;
+
+        @Override
+        public double[] calculate(double[] point) {
+            return calculate(point, precision);
+        }
+
+        @Override
+        public double[] calculate(double[] point, double precision) {
+            return new double[] { (Double.isNaN(precision) ? this.precision : precision) * (point[0] + point[1]) };
+        }
+
+        @Override
+        public int getObjectiveCount() {
+            return 1;
+        }
+
+        @Override
+        public void setPrecision(double precision) {
+            this.precision = precision;
+        }
+    }
+
+    private static Population population(double... xs) {
+        val population = new Population(xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            population.setAt(i, new SimpleIndividual(new double[] { xs[i], 1 }));
+        }
+        return population;
+    }
+
+    @Test
+    public void repeatedPointsAreEvaluatedOnce() {
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20);
+        val population = population(1, 2, 1, 3, 2);
+        ie.evaluate(population);
+        ie.evaluate(population(3, 4));
+        assertThat(population.getIndividuals()[2].getObjectives()).containsExactly(2.);
+        assertThat(population.getIndividuals()[4].getObjectives()).containsExactly(3.);
+        assertThat(ie.getMissCount()).isEqualTo(4);
+        assertThat(ie.getHitCount()).isEqualTo(3);
+        assertThat(ie.getEvaluationCount()).isEqualTo(4);
+        assertThat(ie.getDelegate().getEvaluationCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void hitsAreCountedOnRequest() {
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20, true);
+        ie.evaluate(new double[] { 1, 1 });
+        ie.evaluate(new double[] { 1, 1 });
+        assertThat(ie.getEvaluationCount()).isEqualTo(2);
+        assertThat(ie.getDelegate().getEvaluationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void precisionIsPartOfTheKey() {
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20);
+        assertThat(ie.evaluate(new double[] { 1, 1 })).containsExactly(2.);
+        ie.setPrecision(0.5);
+        assertThat(ie.evaluate(new double[] { 1, 1 })).containsExactly(1.);
+        assertThat(ie.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void perCallPrecisionDoesNotLeak() {
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20);
+        ie.setPrecision(2);
+        assertThat(ie.evaluate(new double[] { 1, 1 }, 0.5)).containsExactly(1.);
+        assertThat(ie.evaluate(new double[] { 1, 1 })).containsExactly(4.);
+        assertThat(ie.evaluate(new double[] { 1, 1 }, 2)).containsExactly(4.);
+        assertThat(ie.getMissCount()).isEqualTo(2);
+        assertThat(ie.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void populationsAtDifferentPrecisionsAreEvaluatedTogether() {
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20);
+        val coarse = population(1, 2);
+        val fine = population(1, 3);
+        ie.evaluateAll(Arrays.asList(coarse, fine), new double[] { 0.5, 2 });
+        assertThat(coarse.getIndividuals()[0].getObjectives()).containsExactly(1.);
+        assertThat(coarse.getIndividuals()[1].getObjectives()).containsExactly(1.5);
+        assertThat(fine.getIndividuals()[0].getObjectives()).containsExactly(4.);
+        assertThat(fine.getIndividuals()[1].getObjectives()).containsExactly(8.);
+        assertThat(ie.getMissCount()).isEqualTo(4);
+        assertThat(ie.evaluate(new double[] { 1, 1 })).containsExactly(2.);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        val probe = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 1 << 20);
+        probe.evaluate(new double[] { 0, 1 });
+        val entryBytes = probe.getCachedBytes();
+
+        val ie = new CachingIndividualEvaluator(new IndividualEvaluator(new Scaled()), 2 * entryBytes);
+        ie.evaluate(new double[] { 1, 1 });
+        ie.evaluate(new double[] { 2, 1 });
+        ie.evaluate(new double[] { 1, 1 });
+        ie.evaluate(new double[] { 3, 1 });
+        assertThat(ie.getCachedCount()).isEqualTo(2);
+        assertThat(ie.getCachedBytes()).isLessThanOrEqualTo(2 * entryBytes);
+        ie.evaluate(new double[] { 1, 1 });
+        ie.evaluate(new double[] { 2, 1 });
+        assertThat(ie.getHitCount()).isEqualTo(2);
+        assertThat(ie.getMissCount()).isEqualTo(4);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.analysis.MinimaInfoProvider;
+import pl.a2s.ms.core.analysis.MinimumInfo;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.obj.ObjectiveCalculator;
+import pl.a2s.ms.core.obj.ThreadSafeCalculator;
+import pl.a2s.ms.core.obj.TransformedObjectiveCalculator;
+import pl.a2s.ms.core.util.Range;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ForkJoinIndividualEvaluatorTest {
+
+    /// slow enough to be split into many tasks, records the threads it's called from
+    private static class Recording implements ObjectiveCalculator, MinimaInfoProvider {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public double[] calculate(double[] point) {
+            threads.add(Thread.currentThread());
+            final long end = System.nanoTime() + 20_000;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return new double[] { point[0] * point[0] + point[1], point[0] - point[1] };
+        }
+
+        @Override
+        public int getObjectiveCount() {
+            return 2;
+        }
+
+        @Override
+        public List<MinimumInfo> getMinimaInfo(Range[] domain) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static class ThreadSafeRecording extends Recording implements ThreadSafeCalculator {
+    }
+
+    private static Population population(int size, long seed) {
+        val random = new Random(seed);
+        val population = new Population(size);
+        for (int i = 0; i < size; i++) {
+            population.setAt(i, new SimpleIndividual(new double[] { random.nextDouble(), random.nextDouble() }));
+        }
+        return population;
+    }
+
+    private static void assertSameObjectives(Population actual, Population expected) {
+        for (int i = 0; i < expected.getSize(); i++) {
+            assertThat(actual.getIndividuals()[i].getObjectives()).containsExactly(expected.getIndividuals()[i].getObjectives());
+        }
+    }
+
+    @Test
+    public void parallelResultsMatchSerialInOrder() {
+        val fc = new ThreadSafeRecording();
+        val ie = new ForkJoinIndividualEvaluator(fc, 4);
+        try {
+            val parallel = population(2000, 5);
+            val serial = population(2000, 5);
+            ie.evaluate(parallel);
+            new IndividualEvaluator(new Recording()).evaluate(serial);
+            assertSameObjectives(parallel, serial);
+            assertThat(parallel.getRanks()).containsExactly(serial.getRanks());
+            assertThat(ie.getEvaluationCount()).isEqualTo(2000);
+            assertThat(fc.threads).anyMatch(t -> t instanceof ForkJoinWorkerThread);
+        } finally {
+            ie.shutdown();
+        }
+    }
+
+    @Test
+    public void cheapCalculatorsGiveTheSameResults() {
+        val ie = new ForkJoinIndividualEvaluator(new Ackley(), 4);
+        try {
+            val parallel = population(5000, 7);
+            val serial = population(5000, 7);
+            ie.evaluate(parallel);
+            new IndividualEvaluator(new Ackley()).evaluate(serial);
+            assertSameObjectives(parallel, serial);
+        } finally {
+            ie.shutdown();
+        }
+    }
+
+    @Test
+    public void calculatorsWhichArentThreadSafeAreEvaluatedSerially() {
+        val fc = new Recording();
+        val ie = new ForkJoinIndividualEvaluator(fc, 4);
+        try {
+            val population = population(500, 11);
+            val serial = population(500, 11);
+            ie.evaluate(population);
+            new IndividualEvaluator(new Recording()).evaluate(serial);
+            assertSameObjectives(population, serial);
+            assertThat(fc.threads).containsExactly(Thread.currentThread());
+        } finally {
+            ie.shutdown();
+        }
+    }
+
+    @Test
+    public void transformedCalculatorsAreAsThreadSafeAsTheWrappedOne() {
+        assertThat(new TransformedObjectiveCalculator(new Ackley(), new double[] { 2., 1. }).isThreadSafe()).isTrue();
+        assertThat(new TransformedObjectiveCalculator(new Recording(), new double[] { 2., 1. }).isThreadSafe()).isFalse();
+    }
+
+}
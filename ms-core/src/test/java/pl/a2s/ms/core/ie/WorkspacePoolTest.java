@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.ie;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WorkspacePoolTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void releasedWorkspaceMatchesTheSource() throws Exception {
+        val source = Files.createDirectories(tmp.resolve("source"));
+        Files.writeString(source.resolve("input.txt"), "input");
+        Files.createDirectories(source.resolve("mesh"));
+        Files.writeString(source.resolve("mesh/model.msh"), "mesh");
+        Files.writeString(source.resolve("state.txt"), "initial");
+
+        try (val pool = new WorkspacePool(source.toFile(), tmp.resolve("work").toFile(), 1,
+                path -> path.startsWith("mesh"))) {
+            val workspace = pool.lease();
+            val dir = workspace.getDir().toPath();
+            assertThat(Files.isSameFile(dir.resolve("mesh/model.msh"), source.resolve("mesh/model.msh"))).isTrue();
+            Files.writeString(dir.resolve("state.txt"), "modified by solver");
+            Files.delete(dir.resolve("input.txt"));
+            Files.createDirectories(dir.resolve("out"));
+            Files.writeString(dir.resolve("out/result.txt"), "42");
+            pool.release(workspace);
+
+            val again = pool.lease();
+            assertThat(again).isSameAs(workspace);
+            assertThat(Files.readString(dir.resolve("state.txt"))).isEqualTo("initial");
+            assertThat(Files.readString(dir.resolve("input.txt"))).isEqualTo("input");
+            assertThat(dir.resolve("out")).doesNotExist();
+            assertThat(pool.getRestoredFileCount()).isEqualTo(3);
+            assertThat(pool.getLeaseCount()).isEqualTo(2);
+            pool.release(again);
+        }
+        assertThat(tmp.resolve("work/0")).doesNotExist();
+        assertThat(source.resolve("mesh/model.msh")).hasContent("mesh");
+    }
+
+    @Test
+    public void leasingFromAClosedPoolFails() throws Exception {
+        val source = Files.createDirectories(tmp.resolve("source"));
+        Files.writeString(source.resolve("input.txt"), "input");
+
+        val pool = new WorkspacePool(source.toFile(), tmp.resolve("work").toFile(), 1, path -> false);
+        val workspace = pool.lease();
+        pool.close();
+        pool.release(workspace);
+        assertThatThrownBy(pool::lease).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void leasingFailsOnceAllWorkspacesAreDropped() throws Exception {
+        val source = Files.createDirectories(tmp.resolve("source"));
+        Files.writeString(source.resolve("input.txt"), "input");
+
+        try (val pool = new WorkspacePool(source.toFile(), tmp.resolve("work").toFile(), 1, path -> false)) {
+            val workspace = pool.lease();
+            Files.writeString(workspace.getDir().toPath().resolve("input.txt"), "modified by solver");
+            // neither restoring nor recreating the workspace is possible without its source
+            Files.delete(source.resolve("input.txt"));
+            Files.delete(source);
+            pool.release(workspace);
+            assertThat(pool.getLiveCount()).isZero();
+            assertThatThrownBy(pool::lease).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.ind;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedPopulationTest {
+
+    @Test
+    public void packingPreservesPointsObjectivesAndRanks() {
+        val a = new SimpleIndividual(new double[] { 1, 2 });
+        a.setObjectives(new double[] { 3 });
+        val b = new SimpleIndividual(new double[] { 4, 5 });
+        val pop = new Population(a, b);
+        pop.getRanks()[1] = 7;
+
+        val packed = PackedPopulation.of(pop);
+
+        assertThat(packed.getFlatPoints()).containsExactly(1, 2, 4, 5);
+        assertThat(packed.getIndividuals()[0].getObjectives()).containsExactly(3);
+        assertThat(packed.getIndividuals()[1].getObjectives()).isNull();
+        assertThat(packed.getRanks()).containsExactly(0, 7);
+        assertThat(packed.getCoordinate(1, 0)).isEqualTo(pop.getCoordinate(1, 0)).isEqualTo(4);
+        assertThat(packed.getFlatPoints()).isEqualTo(pop.getFlatPoints());
+    }
+
+    @Test
+    public void viewsWriteThroughAndForeignIndividualsGetCopied() {
+        val packed = new PackedPopulation(2, 1, 0);
+        packed.setAt(0, new SimpleIndividual(new double[] { 1 }));
+        packed.getIndividuals()[1] = new SimpleIndividual(new double[] { 2 });
+
+        packed.getIndividuals()[0].setObjectives(new double[] { 10, 20 });
+
+        assertThat(packed.getFlatPoints()).containsExactly(1, 2);
+        assertThat(packed.getIndividuals()[1]).isInstanceOf(PackedIndividual.class);
+        assertThat(packed.getObjectiveCount()).isEqualTo(2);
+        assertThat(packed.getObjective(0, 1)).isEqualTo(20);
+        assertThat(packed.getFlatObjectives()).containsExactly(10, 20, Double.NaN, Double.NaN);
+        assertThat(packed.getIndividuals()[0]).isEqualTo(PackedPopulation.of(packed).getIndividuals()[0]);
+    }
+
+    @Test
+    public void packedIndividualsEqualOnlyPackedOnes() {
+        val simple = new SimpleIndividual(new double[] { 1, 2 });
+        val packed = PackedPopulation.of(new Population(simple)).getIndividuals()[0];
+        val otherPacked = PackedPopulation.of(new Population(new SimpleIndividual(new double[] { 1, 2 }))).getIndividuals()[0];
+
+        assertThat(packed).isEqualTo(otherPacked).hasSameHashCodeAs(otherPacked);
+        assertThat(otherPacked).isEqualTo(packed);
+        assertThat(packed).isNotEqualTo(simple);
+        assertThat(simple).isNotEqualTo(packed);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.mw;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GreedyCCTest {
+
+    /**
+     * The straightforward greedy CC, trying every candidate with the full score of the winner set.
+     */
+    private static int[] naiveGreedyCC(MWPolicyHelper helper, int[][] P, int k) {
+        final int m = P[0].length;
+        final List<Integer> C = new ArrayList<>(m);
+        for (int c = 0; c < m; c++) {
+            C.add(c);
+        }
+        final int[] W = new int[k];
+        for (int i = 0; i < k; i++) {
+            int bestScore = -1;
+            int bestCandidate = -1;
+            for (final int j : C) {
+                W[i] = j;
+                final int s = helper.ccScoreProfile(P, W, i + 1);
+                if (s > bestScore) {
+                    bestScore = s;
+                    bestCandidate = j;
+                }
+            }
+            W[i] = bestCandidate;
+            C.remove(Integer.valueOf(bestCandidate));
+        }
+        return W;
+    }
+
+    @Test
+    public void incrementalGreedyMatchesNaiveOne() {
+        val rand = new Random(11);
+        val helper = new MWPolicyHelper(UtilFunctions.polyPlus1(1, 1), rand);
+        for (val n : new int[] { 1, 2, 7, 30, 64 }) {
+            val dim = 2;
+            val F = new double[n];
+            val X = new double[n * dim];
+            for (int i = 0; i < n; i++) {
+                // few distinct fitness values and a coarse grid make ties likely
+                F[i] = 1 + rand.nextInt(3);
+                X[i * dim] = rand.nextInt(5);
+                X[i * dim + 1] = rand.nextInt(5);
+            }
+            val P = helper.computePrefOrders(helper.computeUtilities(F, X, dim));
+            for (val k : new int[] { 1, (n + 1) / 2, n }) {
+                assertThat(helper.greedyCC(P, k)).containsExactly(naiveGreedyCC(helper, P, k));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.mw;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.util.Comparator.comparingDouble;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MWPolicyHelperTest {
+
+    /**
+     * Stable sort of boxed indices, as the preference orders used to be computed.
+     */
+    private static int[] boxedPrefOrder(double[] utils) {
+        final Integer[] prefs = new Integer[utils.length];
+        for (int j = 0; j < utils.length; j++) {
+            prefs[j] = j;
+        }
+        Arrays.sort(prefs, comparingDouble((Integer key) -> -utils[key]));
+        return Arrays.stream(prefs).mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void prefOrdersMatchStableBoxedSort() {
+        val rand = new Random(5);
+        // poly gives infinite utility for duplicates, coarse grid and fitness give many ties
+        val helper = new MWPolicyHelper(UtilFunctions.poly(1, 2), rand);
+        for (val n : new int[] { 1, 5, 17, 100, 301 }) {
+            val dim = 3;
+            val F = new double[n];
+            val X = new double[n * dim];
+            for (int i = 0; i < n; i++) {
+                F[i] = rand.nextInt(4);
+            }
+            for (int i = 0; i < X.length; i++) {
+                X[i] = rand.nextInt(3);
+            }
+            val U = helper.computeUtilities(F, X, dim);
+            val P = helper.computePrefOrders(U);
+            for (int i = 0; i < n; i++) {
+                assertThat(P[i]).containsExactly(boxedPrefOrder(U[i]));
+            }
+            for (val r : new int[] { 1, 3, n }) {
+                val prefix = helper.computePrefOrders(F, X, dim, r);
+                for (int i = 0; i < n; i++) {
+                    assertThat(prefix[i]).containsExactly(Arrays.copyOf(P[i], Math.min(r, n)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fullDistancesMatchPackedOnes() {
+        val rand = new Random(7);
+        val helper = new MWPolicyHelper(UtilFunctions.poly(1, 2), rand);
+        val n = 70;
+        val dim = 3;
+        val points = new double[n][dim];
+        val flat = new double[n * dim];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < dim; k++) {
+                points[i][k] = rand.nextDouble();
+                flat[i * dim + k] = points[i][k];
+            }
+        }
+        val D = helper.computeDistances(points);
+        val packed = helper.computeDistances(flat, n, dim);
+        for (int i = 0; i < n; i++) {
+            assertThat(D[i][i]).isEqualTo(0.);
+            for (int j = i + 1; j < n; j++) {
+                assertThat(D[i][j]).isEqualTo(packed.distance(i, j));
+                assertThat(D[j][i]).isEqualTo(D[i][j]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.nds;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NonDominatedSortersTest {
+
+    private static Population randomPopulation(Random random, int size, int objectiveCount, int valueCount) {
+        val pop = new Population(size);
+        for (int i = 0; i < size; i++) {
+            val ind = new SimpleIndividual(new double[] { i });
+            val obj = new double[objectiveCount];
+            for (int j = 0; j < objectiveCount; j++) {
+                obj[j] = random.nextInt(valueCount);
+            }
+            ind.setObjectives(obj);
+            pop.setAt(i, ind);
+        }
+        return pop;
+    }
+
+    private static int[] pairwiseRanks(Population pop) {
+        // duplicated Deb's sort, independent of the sorters under test
+        val size = pop.size();
+        val inds = pop.getIndividuals();
+        val ranks = new int[size];
+        val dominated = new boolean[size];
+        int remaining = size;
+        int rank = 0;
+        while (remaining > 0) {
+            val front = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                if (dominated[i]) {
+                    continue;
+                }
+                boolean isDominated = false;
+                for (int j = 0; j < size && !isDominated; j++) {
+                    isDominated = !dominated[j] && inds[j].dominates(inds[i]);
+                }
+                front[i] = !isDominated;
+            }
+            for (int i = 0; i < size; i++) {
+                if (front[i]) {
+                    ranks[i] = rank;
+                    dominated[i] = true;
+                    remaining--;
+                }
+            }
+            rank++;
+        }
+        return ranks;
+    }
+
+    @Test
+    public void allSortersMatchPairwiseRanks() {
+        val random = new Random(42);
+        val sorters = new NonDominatedSorter[] {
+                NonDominatedSorters.ensBs(),
+                NonDominatedSorters.divideAndConquer()
+        };
+        for (int m = 1; m <= 5; m++) {
+            for (val size : new int[] { 0, 1, 2, 7, 40, 300 }) {
+                for (val valueCount : new int[] { 3, 20, 1000 }) {
+                    val pop = randomPopulation(random, size, m, valueCount);
+                    val expected = pairwiseRanks(pop);
+                    assertThat(pop.updateRanks()).isEqualTo(expected);
+                    for (val sorter : sorters) {
+                        assertThat(pop.updateRanks(sorter)).isEqualTo(expected);
+                    }
+                    if (m <= 2) {
+                        assertThat(pop.updateRanks(NonDominatedSorters.sweep())).isEqualTo(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void signedZerosAreEqual() {
+        val a = new SimpleIndividual(new double[] { 0 });
+        a.setObjectives(new double[] { -0.0, 1, 1 });
+        val b = new SimpleIndividual(new double[] { 1 });
+        b.setObjectives(new double[] { 0.0, 1, 1 });
+        val pop = new Population(a, b);
+        assertThat(pop.updateRanks(NonDominatedSorters.divideAndConquer())).containsExactly(0, 0);
+    }
+
+    @Test
+    public void unsortableObjectivesFallBackToPairwise() {
+        val a = new SimpleIndividual(new double[] { 0 });
+        a.setObjectives(new double[] { 1, 1 });
+        val b = new SimpleIndividual(new double[] { 1 });
+        b.setObjectives(new double[] { 0 });
+        val pop = new Population(a, b);
+        assertThat(pop.updateRanks()).containsExactly(0, 1);
+    }
+
+}
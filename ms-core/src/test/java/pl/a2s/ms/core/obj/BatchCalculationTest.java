@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package pl.a2s.ms.core.obj;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchCalculationTest {
+
+    private static class TwoPeaks extends AbstractGauss {
+        TwoPeaks() {
+            super(0.3, gauss2D(1, 1, 0.5, 1), gauss2D(-1, 0, 1, 0.5));
+            addTerm(x -> 1. - 0.1 * x[0] * x[0]);
+        }
+    }
+
+    /// implements only the methods an adaptive calculator had before the per-call precision
+    private static class LegacyScaled implements AdaptiveCalculator {
+        private double precision = 1;
+
+        @Override
+        public void setPrecision(double precision) {
+            this.precision = precision;
+        }
+
+        @Override
+        public double getPrecision() {
+            return precision;
+        }
+
+        @Override
+        public double[] calculate(double[] point) {
+            return new double[] { precision * point[0] };
+        }
+
+        @Override
+        public int getObjectiveCount() {
+            return 1;
+        }
+    }
+
+    @Test
+    public void defaultPerCallPrecisionRestoresTheSetOne() {
+        val calculator = new LegacyScaled();
+        calculator.setPrecision(2);
+        assertThat(calculator.calculate(new double[] { 3 }, 0.5)).containsExactly(1.5);
+        assertThat(calculator.calculate(new double[] { 3 }, Double.NaN)).containsExactly(6);
+        val out = new double[3];
+        calculator.calculateBatch(new double[] { 1, 2, 3 }, 3, 1, out, new double[] { 1, Double.NaN, 0.5 });
+        assertThat(out).containsExactly(1, 4, 1.5);
+        assertThat(calculator.getPrecision()).isEqualTo(2);
+    }
+
+    @Test
+    public void batchMatchesPointwiseCalculation() {
+        val random = new Random(3);
+        val calculators = new ObjectiveCalculator[] {
+                new TwoPeaks(), new ZDT1(), new ZDT2(), new ZDT3(), new ZDT4(), new ZDT6(),
+                new Ackley(), new Griewank(), new Rosenbrock(), new MOP2Calculator(),
+                new TransformedObjectiveCalculator(new Ackley(), new double[] { 2., 0.5, 1., 3. })
+        };
+        val count = 17;
+        val dim = 4;
+        val points = new double[count * dim];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble();
+        }
+        for (val oc : calculators) {
+            val m = oc.getObjectiveCount();
+            val out = new double[count * m];
+            oc.calculateBatch(points, count, dim, out);
+            for (int i = 0; i < count; i++) {
+                val expected = oc.calculate(Arrays.copyOfRange(points, i * dim, (i + 1) * dim));
+                assertThat(Arrays.copyOfRange(out, i * m, (i + 1) * m)).isEqualTo(expected);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.obj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Minimal worker for {@link WorkerProcessCalculator}: returns the sum of squares of the point
+ * scaled by the precision (if set) and its first coordinate. Special first coordinates make it
+ * crash ({@link #CRASH}), hang ({@link #HANG}) or report a failure ({@link #FAIL}).
+ * With {@link #CRASH_ONCE} it crashes only if the marker file given as the argument doesn't exist yet,
+ * creating it, and with {@link #SLEEP} it sleeps for the second coordinate in milliseconds first.
+ */
+public class StandInSolver {
+
+    public static final double CRASH = -1;
+    public static final double HANG = -2;
+    public static final double FAIL = -3;
+    public static final double CRASH_ONCE = -4;
+    public static final double SLEEP = -5;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        WorkerProtocol.Request request;
+        while ((request = WorkerProtocol.readRequest(in)) != null) {
+            final double[] x = request.getPoint();
+            if (x[0] == CRASH) {
+                System.exit(3);
+            } else if (x[0] == HANG) {
+                Thread.sleep(Long.MAX_VALUE);
+            } else if (x[0] == CRASH_ONCE && args.length > 0 && new File(args[0]).createNewFile()) {
+                System.exit(3);
+            } else if (x[0] == SLEEP) {
+                Thread.sleep((long) x[1]);
+            }
+            double sum = 0;
+            for (final double xi : x) {
+                sum += xi * xi;
+            }
+            final double scale = Double.isNaN(request.getPrecision()) ? 1 : request.getPrecision();
+            final double[] objectives = x[0] == FAIL ? null : new double[] { scale * sum, x[0] };
+            WorkerProtocol.writeResponse(out, new WorkerProtocol.Response(request.getId(), objectives));
+            out.flush();
+        }
+    }
+
+}
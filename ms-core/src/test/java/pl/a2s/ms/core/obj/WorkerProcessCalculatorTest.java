@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.obj;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.a2s.ms.core.ie.WorkerProcessIndividualEvaluator;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WorkerProcessCalculatorTest {
+
+    private static final List<String> COMMAND = List.of(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            StandInSolver.class.getName());
+
+    @TempDir
+    Path tmp;
+
+    private WorkerProcessCalculator calculator;
+
+    @AfterEach
+    public void close() {
+        calculator.close();
+    }
+
+    @Test
+    public void evaluatesPopulationsInWorkers() {
+        calculator = new WorkerProcessCalculator(COMMAND, 2, 2, 4, 60_000);
+        val ie = new WorkerProcessIndividualEvaluator(calculator);
+        val population = new Population(20);
+        for (int i = 0; i < population.getSize(); i++) {
+            population.setAt(i, new SimpleIndividual(new double[] { i, 1 }));
+        }
+        ie.evaluate(population);
+        for (int i = 0; i < population.getSize(); i++) {
+            assertThat(population.getIndividuals()[i].getObjectives()).containsExactly(i * i + 1., i);
+        }
+        assertThat(ie.getEvaluationCount()).isEqualTo(20);
+
+        ie.setPrecision(0.5);
+        assertThat(ie.evaluate(new double[] { 2, 2 })).containsExactly(4., 2.);
+        assertThat(ie.evaluate(new double[] { 2, 2 }, 0.25)).containsExactly(2., 2.);
+        assertThat(ie.evaluate(new double[] { 2, 2 })).containsExactly(4., 2.);
+    }
+
+    @Test
+    public void restartsCrashedAndHangingWorkers() {
+        calculator = new WorkerProcessCalculator(COMMAND, 2, 1, 2, 2_000);
+        assertThatThrownBy(() -> calculator.calculate(new double[] { StandInSolver.CRASH, 0 }))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(calculator.getRestartCount()).isEqualTo(2);
+        assertThatThrownBy(() -> calculator.calculate(new double[] { StandInSolver.HANG, 0 }))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(calculator.getRestartCount()).isEqualTo(4);
+        assertThatThrownBy(() -> calculator.calculate(new double[] { StandInSolver.FAIL, 0 }))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(calculator.getRestartCount()).isEqualTo(4);
+        assertThat(calculator.calculate(new double[] { 3, 0 })).containsExactly(9., 3.);
+    }
+
+    @Test
+    public void retriesRequestsInFlightWhenAWorkerCrashes() throws Exception {
+        val marker = tmp.resolve("crashed");
+        val command = new ArrayList<>(COMMAND);
+        command.add(marker.toString());
+        calculator = new WorkerProcessCalculator(command, 2, 1, 4, 60_000);
+        val points = new double[] { 1, 1, 2, 1, StandInSolver.CRASH_ONCE, 1, 3, 1, 4, 1, 5, 1 };
+        val out = new double[12];
+        calculator.calculateBatch(points, 6, 2, out);
+        assertThat(marker).exists();
+        assertThat(calculator.getRestartCount()).isEqualTo(1);
+        assertThat(out).containsExactly(2, 1, 5, 2, 17, StandInSolver.CRASH_ONCE, 10, 3, 17, 4, 26, 5);
+    }
+
+    @Test
+    public void queuedRequestsDontTimeOut() {
+        // a single request is answered within the timeout, all of them sent at once aren't
+        calculator = new WorkerProcessCalculator(COMMAND, 2, 1, 4, 1_500);
+        val points = new double[] {
+                StandInSolver.SLEEP, 500, StandInSolver.SLEEP, 500, StandInSolver.SLEEP, 500, StandInSolver.SLEEP, 500 };
+        val out = new double[8];
+        calculator.calculateBatch(points, 4, 2, out);
+        assertThat(calculator.getRestartCount()).isZero();
+        assertThat(out).containsExactly(250_025, StandInSolver.SLEEP, 250_025, StandInSolver.SLEEP,
+                250_025, StandInSolver.SLEEP, 250_025, StandInSolver.SLEEP);
+    }
+
+}
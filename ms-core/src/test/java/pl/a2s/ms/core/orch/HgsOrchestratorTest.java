@@ -0,0 +1,276 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.orch;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.analysis.Analyser;
+import pl.a2s.ms.core.clu.ClusterMergeStrategies;
+import pl.a2s.ms.core.clu.HillValleyChecker;
+import pl.a2s.ms.core.clu.IncrementalNeighborConsolidator;
+import pl.a2s.ms.core.conf.ChainedOC;
+import pl.a2s.ms.core.conf.OrchestratorConfigurer;
+import pl.a2s.ms.core.conf.hgs.InitialPopulationOC;
+import pl.a2s.ms.core.ea.MWEAFactory;
+import pl.a2s.ms.core.ea.SEA;
+import pl.a2s.ms.core.gsc.EpochCountGSC;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ie.SingleObjectiveFitnessExtractor;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.PackedPopulation;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.lsc.EpochCountLSC;
+import pl.a2s.ms.core.lsc.NoSproutLSC;
+import pl.a2s.ms.core.mw.GreedyCCMWPolicy;
+import pl.a2s.ms.core.mw.UtilFunctions;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.obj.AdaptiveCalculator;
+import pl.a2s.ms.core.obj.ObjectiveCalculator;
+import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.orch.hgs.LbaState;
+import pl.a2s.ms.core.orch.hgs.Level;
+import pl.a2s.ms.core.sprout.generator.BasicSprouter;
+import pl.a2s.ms.core.sprout.generator.NoSprouter;
+import pl.a2s.ms.core.sprout.reducer.ChainedSproutReducer;
+import pl.a2s.ms.core.sprout.reducer.DemeDistanceSproutReducer;
+import pl.a2s.ms.core.sprout.reducer.NoSproutReducer;
+import pl.a2s.ms.core.sprout.reducer.SeedDistanceSproutReducer;
+import pl.a2s.ms.core.util.ArraysUtil;
+import pl.a2s.ms.core.util.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HgsOrchestratorTest {
+
+    private static final int EPOCHS = 12;
+
+    /// records the batches and the populations evaluated one at a time
+    private static class RecordingEvaluator extends IndividualEvaluator {
+        HgsState state;
+        final List<Integer> batchEpochs = new ArrayList<>();
+        final List<List<Population>> batches = new ArrayList<>();
+        int singleEvaluations;
+        /// precisions of the evaluations after the clusters for LBA were computed
+        final List<Double> lbaPrecisions = new ArrayList<>();
+
+        RecordingEvaluator(ObjectiveCalculator fc) {
+            super(fc);
+        }
+
+        @Override
+        public void evaluate(Population population, double precision) {
+            if (state != null && Arrays.stream(population.getIndividuals()).anyMatch(ind -> ind.getObjectives() == null)) {
+                singleEvaluations++;
+            }
+            super.evaluate(population, precision);
+        }
+
+        @Override
+        protected void evaluateIndividuals(List<Individual> pending, double[] precisions) {
+            if (state != null && state.getLbaState() != null && state.getLbaState().getClusters() != null) {
+                Arrays.stream(precisions).forEach(lbaPrecisions::add);
+            }
+            super.evaluateIndividuals(pending, precisions);
+        }
+
+        @Override
+        public void evaluateAll(List<Population> populations, double[] precisions) {
+            batchEpochs.add(state.getEpoch());
+            batches.add(new ArrayList<>(populations));
+            super.evaluateAll(populations, precisions);
+        }
+    }
+
+    @Test
+    public void batchedStepMatchesPerDemeStep() {
+        val batched = orchestrator(true);
+        batched.run();
+        val perDeme = orchestrator(false);
+        perDeme.run();
+
+        val levels = batched.getState().getHgsDemes();
+        assertThat(levels[1].getDemes()).hasSizeGreaterThan(1);
+        assertThat(batched.getIndividualEvaluator().getEvaluationCount())
+                .isEqualTo(perDeme.getIndividualEvaluator().getEvaluationCount());
+        for (int l = 0; l < levels.length; l++) {
+            val expected = perDeme.getState().getHgsDemes()[l].getDemes();
+            val actual = levels[l].getDemes();
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int d = 0; d < expected.size(); d++) {
+                assertThat(actual.get(d).getName()).isEqualTo(expected.get(d).getName());
+                assertThat(actual.get(d).isStopped()).isEqualTo(expected.get(d).isStopped());
+                assertThat(actual.get(d).getHistory()).hasSameSizeAs(expected.get(d).getHistory());
+                assertSamePopulation(actual.get(d).getPopulation(), expected.get(d).getPopulation());
+            }
+        }
+        assertThat(((RecordingEvaluator) perDeme.getIndividualEvaluator()).batches).isEmpty();
+    }
+
+    private static class AdaptiveAckley extends Ackley implements AdaptiveCalculator {
+        @Override
+        public void setPrecision(double precision) {
+        }
+    }
+
+    @Test
+    public void lbaPhaseRunsAtTheLeafPrecision() {
+        val orch = orchestrator(true, false, new AdaptiveAckley(), o -> {
+            val hgs = (HgsOrchestrator) o;
+            hgs.state.getHgsDemes()[0].setPrecision(0.5);
+            hgs.state.getHgsDemes()[1].setPrecision(0.25);
+            final LbaState lbaState = new LbaState();
+            final HillValleyChecker checker = new HillValleyChecker(3, 0.1, hgs.individualEvaluator, true);
+            checker.setPrecision(lbaState::getPrecision);
+            lbaState.setDomain(hgs.getDomain());
+            lbaState.setConsolidator(new IncrementalNeighborConsolidator(10., checker, ClusterMergeStrategies.UNION));
+            lbaState.setEvoAlgFactory(new MWEAFactory(0.1,
+                    new GreedyCCMWPolicy(UtilFunctions.polyPlus1(1, 1), hgs.rand), hgs.individualEvaluator, hgs.rand));
+            lbaState.setStopCondition(new EpochCountLSC(1));
+            hgs.setLbaState(lbaState);
+        });
+        orch.run();
+        val ie = (RecordingEvaluator) orch.getIndividualEvaluator();
+        assertThat(ie.lbaPrecisions).isNotEmpty().containsOnly(0.25);
+    }
+
+    @Test
+    public void sproutsAreEvaluatedInASingleBatch() {
+        val orch = orchestrator(true);
+        orch.run();
+        val ie = (RecordingEvaluator) orch.getIndividualEvaluator();
+        assertThat(ie.singleEvaluations).isZero();
+
+        // the first population of a sprout is the one it was created with, one epoch before its first step
+        final Map<Integer, Set<Population>> sproutsByEpoch = new HashMap<>();
+        for (final Deme sprout : orch.getState().getHgsDemes()[1].getDemes()) {
+            final int created = sprout.getHistory().isEmpty()
+                    ? orch.getState().getEpoch() - 1
+                    : sprout.getHistory().get(0).getEpoch() - 1;
+            final Population initial = sprout.getHistory().isEmpty()
+                    ? sprout.getPopulation()
+                    : sprout.getHistory().get(0).getPopulation();
+            sproutsByEpoch.computeIfAbsent(created, e -> Collections.newSetFromMap(new IdentityHashMap<>())).add(initial);
+        }
+        assertThat(sproutsByEpoch).isNotEmpty();
+        for (final Map.Entry<Integer, Set<Population>> e : sproutsByEpoch.entrySet()) {
+            final List<List<Population>> batches = new ArrayList<>();
+            for (int i = 0; i < ie.batches.size(); i++) {
+                if (ie.batchEpochs.get(i).equals(e.getKey())) {
+                    batches.add(ie.batches.get(i));
+                }
+            }
+            // offspring of the running demes, then all the sprouts
+            assertThat(batches).hasSize(2);
+            final Set<Population> sproutBatch = Collections.newSetFromMap(new IdentityHashMap<>());
+            sproutBatch.addAll(batches.get(1));
+            assertThat(sproutBatch).isEqualTo(e.getValue());
+        }
+    }
+
+    @Test
+    public void packedHistoryMatchesUnpackedHistory() {
+        val packed = orchestrator(true, true);
+        packed.run();
+        val unpacked = orchestrator(true, false);
+        unpacked.run();
+
+        val levels = packed.getState().getHgsDemes();
+        for (int l = 0; l < levels.length; l++) {
+            val expected = unpacked.getState().getHgsDemes()[l].getDemes();
+            val actual = levels[l].getDemes();
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int d = 0; d < expected.size(); d++) {
+                val expectedHistory = expected.get(d).getHistory();
+                val actualHistory = actual.get(d).getHistory();
+                assertThat(actualHistory).hasSameSizeAs(expectedHistory);
+                for (int h = 0; h < expectedHistory.size(); h++) {
+                    assertThat(actualHistory.get(h).getPopulation()).isInstanceOf(PackedPopulation.class);
+                    assertSamePopulation(actualHistory.get(h).getPopulation(), expectedHistory.get(h).getPopulation());
+                }
+            }
+        }
+    }
+
+    private static void assertSamePopulation(Population actual, Population expected) {
+        assertThat(actual.getSize()).isEqualTo(expected.getSize());
+        for (int i = 0; i < expected.getSize(); i++) {
+            final Individual a = actual.getIndividuals()[i];
+            final Individual b = expected.getIndividuals()[i];
+            assertThat(a.getPoint()).containsExactly(b.getPoint());
+            assertThat(a.getObjectives()).containsExactly(b.getObjectives());
+        }
+    }
+
+    private static HgsOrchestrator orchestrator(boolean batchEvaluations) {
+        return orchestrator(batchEvaluations, false);
+    }
+
+    private static HgsOrchestrator orchestrator(boolean batchEvaluations, boolean packHistory) {
+        return orchestrator(batchEvaluations, packHistory, new Ackley(), o -> { });
+    }
+
+    private static HgsOrchestrator orchestrator(boolean batchEvaluations, boolean packHistory,
+                                                ObjectiveCalculator calc, OrchestratorConfigurer extra) {
+        val ie = new RecordingEvaluator(calc);
+        val orch = new HgsOrchestrator(ChainedOC.of(o -> {
+            val hgs = (HgsOrchestrator) o;
+            hgs.setRand(new Random(11));
+            hgs.setObjectiveCalculator(calc);
+            hgs.setIndividualEvaluator(ie);
+            hgs.setFitnessExtractor(new SingleObjectiveFitnessExtractor());
+            hgs.setAnalyser(new Analyser() {
+                @Override
+                public boolean supports(Orchestrator orchestrator) {
+                    return true;
+                }
+
+                @Override
+                public void analyse(State state) {
+                }
+            });
+            hgs.setDomain(ArraysUtil.constant(new Range(-5., 5.), new Range[2]));
+            final HgsState state = hgs.state;
+            state.setBatchEvaluations(batchEvaluations);
+            state.setPackHistory(packHistory);
+            state.setMetaepochLength(3);
+            state.setPopulationSizes(new int[] { 20, 10 });
+            state.setGlobalStopCondition(new EpochCountGSC(EPOCHS));
+            state.setHgsDemes(new Level[] {
+                    new Level(0, new SEA(0.1, 0.5, 2., hgs.rand, hgs.fitnessExtractor), new NoSproutLSC(5),
+                            new BasicSprouter(7., 0.3, 10, hgs.rand),
+                            new ChainedSproutReducer(new DemeDistanceSproutReducer(0.5), new SeedDistanceSproutReducer(0.5))),
+                    new Level(1, new SEA(0.5, 0.5, 0.3, hgs.rand, hgs.fitnessExtractor), new EpochCountLSC(6),
+                            new NoSprouter(), new NoSproutReducer())
+            });
+        }, extra, new InitialPopulationOC()));
+        ie.state = orch.getState();
+        return orch;
+    }
+
+}
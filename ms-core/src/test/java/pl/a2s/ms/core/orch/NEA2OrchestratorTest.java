@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.analysis.Analyser;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ie.SingleObjectiveFitnessExtractor;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.orch.nea2.CMAState;
+import pl.a2s.ms.core.orch.nea2.RunParameters;
+import pl.a2s.ms.core.util.ArraysUtil;
+import pl.a2s.ms.core.util.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NEA2OrchestratorTest {
+
+    private static final int BUDGET = 3000;
+
+    @Test
+    public void interleavedRunsDontDependOnThreadCount() {
+        val sequential = orchestrator(1);
+        sequential.run();
+        val parallel = orchestrator(3);
+        parallel.run();
+
+        assertThat(points(parallel)).containsExactlyElementsOf(points(sequential));
+        for (final NEA2Orchestrator orch : new NEA2Orchestrator[] {sequential, parallel}) {
+            assertThat(orch.getState().getRuns().get(0).getCmaState()).hasSizeGreaterThan(1);
+            assertThat(orch.getIndividualEvaluator().getEvaluationCount())
+                    .isGreaterThanOrEqualTo(BUDGET)
+                    .isLessThan(BUDGET + RunParameters.defaultLambda(2));
+        }
+    }
+
+    private static NEA2Orchestrator orchestrator(int clusterParallelism) {
+        return new NEA2Orchestrator(o -> {
+            val orch = (NEA2Orchestrator) o;
+            val calc = new Ackley();
+            orch.setRand(new Random(5));
+            orch.setObjectiveCalculator(calc);
+            orch.setIndividualEvaluator(new IndividualEvaluator(calc));
+            orch.setFitnessExtractor(new SingleObjectiveFitnessExtractor());
+            orch.setAnalyser(new Analyser() {
+                @Override
+                public boolean supports(Orchestrator orchestrator) {
+                    return true;
+                }
+
+                @Override
+                public void analyse(State state) {
+                }
+            });
+            orch.setDomain(ArraysUtil.constant(new Range(-5., 5.), new Range[2]));
+            orch.state.setBudget(BUDGET);
+            orch.state.setInitialSigma(0.5);
+            orch.state.setStopFitness(-1);
+            orch.state.setClusterParallelism(clusterParallelism);
+        });
+    }
+
+    /// the points of all the populations, in the order of CMA-ES instances and generations
+    private static List<String> points(NEA2Orchestrator orch) {
+        val out = new ArrayList<String>();
+        for (val run : orch.getState().getRuns()) {
+            for (final CMAState cmaState : run.getCmaState()) {
+                cmaState.getPopulations().forEach(population -> {
+                    for (final Individual ind : population.getIndividuals()) {
+                        out.add(Arrays.toString(ind.getPoint()));
+                    }
+                });
+            }
+        }
+        return out;
+    }
+
+}
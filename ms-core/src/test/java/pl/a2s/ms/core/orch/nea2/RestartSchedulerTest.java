@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.orch.nea2;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.util.ArraysUtil;
+import pl.a2s.ms.core.util.Range;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.Regime.DEFAULT;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.Regime.LARGE;
+import static pl.a2s.ms.core.orch.nea2.RunParameters.Regime.SMALL;
+
+public class RestartSchedulerTest {
+
+    @Test
+    public void ipopDoublesPopulationSize() {
+        val state = state();
+        val scheduler = new IpopRestartScheduler();
+        val rand = new Random(1);
+        for (int i = 0; i < 4; i++) {
+            val parameters = scheduler.next(state, rand);
+            assertThat(parameters.getRegime()).isEqualTo(i == 0 ? DEFAULT : LARGE);
+            assertThat(parameters.getLambda()).isEqualTo(RunParameters.defaultLambda(4) << i);
+            assertThat(parameters.getSigma()).isEqualTo(0.5);
+            addRun(state, parameters, 1000);
+        }
+    }
+
+    @Test
+    public void bipopRunsSmallRegimeWhileItUsedLessBudget() {
+        val state = state();
+        val scheduler = new BipopRestartScheduler();
+        val rand = new Random(1);
+        val defaultLambda = RunParameters.defaultLambda(4);
+        addRun(state, scheduler.next(state, rand), 1000);
+        // the default run counts as a large one, and half of its population is below the default one
+        for (int i = 0; i < 2; i++) {
+            val small = scheduler.next(state, rand);
+            assertThat(small.getRegime()).isEqualTo(SMALL);
+            assertThat(small.getLambda()).isEqualTo(defaultLambda);
+            assertThat(small.getSigma()).isBetween(0.005, 0.5);
+            addRun(state, small, 600);
+        }
+        val large = scheduler.next(state, rand);
+        assertThat(large.getRegime()).isEqualTo(LARGE);
+        assertThat(large.getLambda()).isEqualTo(2 * defaultLambda);
+        addRun(state, large, 3000);
+        val small = scheduler.next(state, rand);
+        assertThat(small.getRegime()).isEqualTo(SMALL);
+        // half of the large population is the default one
+        assertThat(small.getLambda()).isEqualTo(defaultLambda);
+
+        val used = state.evaluationCountByRegime();
+        assertThat(used.get(DEFAULT)).isEqualTo(1000L);
+        assertThat(used.get(LARGE)).isEqualTo(3000L);
+        assertThat(used.get(SMALL)).isEqualTo(1200L);
+    }
+
+    private static NEA2State state() {
+        val state = new NEA2State();
+        state.setDomain(ArraysUtil.constant(new Range(-1., 1.), new Range[4]));
+        state.setInitialSigma(0.5);
+        return state;
+    }
+
+    private static void addRun(NEA2State state, RunParameters parameters, int evaluationCount) {
+        val run = new NEA2RunState();
+        run.setParameters(parameters);
+        run.setEvaluationCount(evaluationCount);
+        state.getRuns().add(run);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.core.sprout.conflict;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import pl.a2s.ms.core.ea.EvoAlg;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+import pl.a2s.ms.core.orch.State;
+import pl.a2s.ms.core.orch.hgs.Deme;
+import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.orch.hgs.Level;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DemeDistanceConflictResolverTest {
+
+    private static Individual individual(double x, double y, double objective) {
+        val ind = new SimpleIndividual(new double[] {x, y});
+        ind.setObjectives(new double[] {objective});
+        return ind;
+    }
+
+    private static Deme deme(String name, Individual... individuals) {
+        return Deme.builder().name(name).population(new Population(individuals)).build();
+    }
+
+    private static Level level(Deme... demes) {
+        return level(null, demes);
+    }
+
+    private static Level level(EvoAlg alg, Deme... demes) {
+        val level = new Level(1, alg, null, null, null);
+        for (final Deme deme : demes) {
+            level.getDemes().add(deme);
+        }
+        return level;
+    }
+
+    @Test
+    public void stopsTheWorseOfCloseDemes() {
+        val worse = deme("0-0", individual(0, 0, 2), individual(0.2, 0, 3));
+        val better = deme("0-1", individual(0.1, 0.1, 1), individual(0.3, 0.1, 4));
+        val far = deme("0-2", individual(5, 5, 0), individual(5.2, 5, 0.5));
+        val resolver = new DemeDistanceConflictResolver(1);
+        resolver.resolve(level(worse, better, far), new HgsState());
+
+        assertThat(worse.isStopped()).isTrue();
+        assertThat(worse.getDuplicateOf()).isEqualTo(better);
+        assertThat(better.isStopped()).isFalse();
+        assertThat(far.isStopped()).isFalse();
+        assertThat(resolver.getStoppedCount()).isEqualTo(1);
+        assertThat(better.getPopulation().getIndividuals()).hasSize(2);
+    }
+
+    @Test
+    public void mergesTheBestIndividuals() {
+        val first = deme("0-0", individual(0, 0, 1), individual(0.2, 0, 5));
+        val second = deme("0-1", individual(0.1, 0.1, 3), individual(0.3, 0.1, 1));
+        val replaced = new ArrayList<Deme>();
+        final EvoAlg alg = new EvoAlg() {
+            @Override
+            public Population apply(Level level, Deme deme, State state) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void populationReplaced(Deme deme) {
+                replaced.add(deme);
+            }
+        };
+        val state = new HgsState();
+        state.setEpoch(3);
+        val resolver = new DemeDistanceConflictResolver(1);
+        resolver.setResolution(DemeDistanceConflictResolver.Resolution.MERGE);
+        resolver.resolve(level(alg, first, second), state);
+
+        // both have a single best individual, the earlier deme remains
+        assertThat(second.isStopped()).isTrue();
+        assertThat(first.getPopulation().getIndividuals())
+                .extracting(ind -> ind.getObjectives()[0])
+                .containsExactly(1., 1.);
+        // the replaced population goes to the history
+        assertThat(first.getHistory()).hasSize(1);
+        assertThat(first.getHistory().get(0).getEpoch()).isEqualTo(3);
+        assertThat(first.getHistory().get(0).getPopulation().getIndividuals())
+                .extracting(ind -> ind.getObjectives()[0])
+                .containsExactly(1., 5.);
+        assertThat(replaced).containsExactly(first);
+    }
+
+    @Test
+    public void respectsTheMergeChecker() {
+        val first = deme("0-0", individual(0, 0, 1));
+        val second = deme("0-1", individual(0.1, 0.1, 2));
+        val resolver = new DemeDistanceConflictResolver(1);
+        resolver.setMergeChecker((a, b) -> false);
+        resolver.resolve(level(first, second), new HgsState());
+
+        assertThat(first.isStopped()).isFalse();
+        assertThat(second.isStopped()).isFalse();
+    }
+
+}
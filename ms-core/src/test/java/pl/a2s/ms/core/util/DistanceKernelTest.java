@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.core.util;
+
+import lombok.val;
+import org.apache.commons.math3.util.MathArrays;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class DistanceKernelTest {
+
+    private static double[][] randomPoints(Random rand, int n, int dim) {
+        val points = new double[n][dim];
+        for (val point : points) {
+            for (int k = 0; k < dim; k++) {
+                point[k] = rand.nextDouble() * 10 - 5;
+            }
+        }
+        return points;
+    }
+
+    private static double[] flatten(double[][] points) {
+        return Arrays.stream(points).flatMapToDouble(Arrays::stream).toArray();
+    }
+
+    @Test
+    public void pairwiseMatchesMathArraysAcrossTilesAndThreads() {
+        val rand = new Random(13);
+        val dim = 3;
+        // below a tile, across tile boundaries, and above the parallel threshold
+        for (val n : new int[] { 0, 1, 2, 63, 130, DistanceKernel.PARALLEL_THRESHOLD + 7 }) {
+            val points = randomPoints(rand, n, dim);
+            val D = DistanceKernel.pairwise(flatten(points), n, dim, false);
+            assertThat(D.getSize()).isEqualTo(n);
+            for (int i = 0; i < n; i++) {
+                assertThat(D.distance(i, i)).isEqualTo(0.);
+                for (int j = 0; j < n; j++) {
+                    assertThat(D.distance(i, j)).isEqualTo(MathArrays.distance(points[i], points[j]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void singlePrecisionStoresFloats() {
+        val rand = new Random(17);
+        val n = 100;
+        val dim = 4;
+        val points = randomPoints(rand, n, dim);
+        val D = DistanceKernel.pairwise(flatten(points), n, dim, true);
+        assertThat(D.isSinglePrecision()).isTrue();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                val expected = MathArrays.distance(points[i], points[j]);
+                assertThat(D.squared(i, j)).isEqualTo((double) (float) (expected * expected), within(1e-4));
+            }
+        }
+    }
+
+    @Test
+    public void maxDistanceMatchesPairwiseMaximum() {
+        val rand = new Random(19);
+        val dim = 2;
+        assertThat(DistanceKernel.maxDistance(new double[0], 0, dim)).isEqualTo(Double.NEGATIVE_INFINITY);
+        assertThat(DistanceKernel.maxDistance(new double[dim], 1, dim)).isEqualTo(Double.NEGATIVE_INFINITY);
+        for (val n : new int[] { 2, 70, DistanceKernel.PARALLEL_THRESHOLD + 1 }) {
+            val points = randomPoints(rand, n, dim);
+            double expected = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    expected = Math.max(expected, MathArrays.distance(points[i], points[j]));
+                }
+            }
+            assertThat(DistanceKernel.maxDistance(flatten(points), n, dim)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void closestPairPrefersLowestIndices() {
+        val dim = 1;
+        // pairs (1, 0) and (1, 2) and (2, 1) are all at distance 1
+        val A = new double[] { 10, 1, 2 };
+        val B = new double[] { 0, 3, 0 };
+        assertThat(DistanceKernel.closestPair(A, 3, B, 3, dim)).containsExactly(1, 0);
+        assertThat(DistanceKernel.closestPair(A, 0, B, 3, dim)).isNull();
+    }
+
+}
@@ -18,7 +18,7 @@
 package pl.a2s.ms.examples.analysis;
 
 import pl.a2s.ms.core.analysis.ConfigAwareAnalyser;
-import pl.a2s.ms.core.archive.RankingArchive;
+import pl.a2s.ms.core.archive.RankedArchive;
 import pl.a2s.ms.core.ind.Population;
 import pl.a2s.ms.core.orch.HgsOrchestrator;
 import pl.a2s.ms.core.orch.Orchestrator;
@@ -97,10 +97,10 @@ public class MOSimpleAnalyser implements ConfigAwareAnalyser {
     }
 
     private void dump(HgsState state, String outDir) throws FileNotFoundException {
-        if (!(state.getArchive() instanceof RankingArchive)) {
-            throw new IllegalStateException("Archive is not a RankingArchive");
+        if (!(state.getArchive() instanceof RankedArchive)) {
+            throw new IllegalStateException("Archive is not a RankedArchive");
         }
-        final RankingArchive archive = (RankingArchive) state.getArchive();
+        final RankedArchive archive = (RankedArchive) state.getArchive();
 //        log.info(archive.dump());
         final Map<String, Population> split = archive.splitAlongDemes();
         for (final String name : split.keySet()) {
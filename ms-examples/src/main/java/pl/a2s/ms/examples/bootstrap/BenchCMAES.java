@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.examples.bootstrap;
+
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import pl.a2s.ms.core.cmaes.CMAESImplementation;
+import pl.a2s.ms.core.cmaes.CMAESOptimizer;
+import pl.a2s.ms.core.cmaes.CMAESStrategy;
+import pl.a2s.ms.core.cmaes.PrimitiveCMAESOptimizer;
+import pl.a2s.ms.core.ie.IndividualEvaluator;
+import pl.a2s.ms.core.ie.SingleObjectiveFitnessExtractor;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.obj.Ackley;
+import pl.a2s.ms.core.obj.ObjectiveCalculator;
+import pl.a2s.ms.core.obj.Rosenbrock;
+import pl.a2s.ms.core.util.ArraysUtil;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares the {@link CMAESImplementation}s on Rosenbrock and Ackley functions by the time of a generation
+ * and the number of evaluations needed to reach the target value. A run ends at the target,
+ * at a stopping criterion, after {@link #EVALUATIONS_PER_DIM} evaluations per dimension
+ * or after {@link #SECONDS_PER_RUN} seconds.
+ * The dimensions can be given as arguments.
+ */
+public class BenchCMAES {
+
+    public static final int[] DIMS = {10, 50, 200};
+    public static final int EVALUATIONS_PER_DIM = 4000;
+    public static final int SECONDS_PER_RUN = 60;
+    public static final double TARGET = 1e-6;
+
+    /// kept referenced, so that the levels aren't lost
+    private static final Logger[] LOGGERS = {
+            Logger.getLogger(CMAESOptimizer.class.getName()),
+            Logger.getLogger(PrimitiveCMAESOptimizer.class.getName())
+    };
+
+    public static void main(String[] args) {
+        for (final Logger logger : LOGGERS) {
+            logger.setLevel(Level.WARNING);
+        }
+        final int[] dims = args.length > 0 ? new int[args.length] : DIMS;
+        for (int i = 0; i < args.length; i++) {
+            dims[i] = Integer.parseInt(args[i]);
+        }
+        System.out.printf("%-10s %4s %-15s %8s %12s %10s %12s%n",
+                "function", "dim", "implementation", "gens", "gen [ms]", "evals", "best");
+        for (final int dim : dims) {
+            run("rosenbrock", new Rosenbrock(), dim, 0., 0.5, 5.);
+            run("ackley", new Ackley(), dim, 1., 1., 32.);
+        }
+    }
+
+    private static void run(String name, ObjectiveCalculator oc, int dim, double start, double sigma, double bound) {
+        for (final CMAESImplementation implementation : CMAESImplementation.values()) {
+            final IndividualEvaluator ie = new IndividualEvaluator(oc);
+            final CMAESStrategy optimizer = implementation.create(-1, new Random(1), ie, new SingleObjectiveFitnessExtractor());
+            optimizer.initialize(
+                    new CMAESOptimizer.PopulationSize(4 + (int) Math.floor(3 * Math.log(dim))),
+                    new CMAESOptimizer.Sigma(ArraysUtil.constant(dim, sigma)),
+                    new InitialGuess(ArraysUtil.constant(dim, start)),
+                    new SimpleBounds(ArraysUtil.constant(dim, -bound), ArraysUtil.constant(dim, bound)),
+                    GoalType.MINIMIZE);
+            double best = Double.POSITIVE_INFINITY;
+            int generations = 0;
+            int evaluationsToTarget = -1;
+            final long begin = System.nanoTime();
+            final long end = begin + SECONDS_PER_RUN * 1_000_000_000L;
+            while (evaluationsToTarget < 0 && ie.getEvaluationCount() < EVALUATIONS_PER_DIM * dim
+                    && System.nanoTime() < end) {
+                final Population population = optimizer.runOneStep();
+                generations++;
+                if (population == null) {
+                    break;
+                }
+                for (int i = 0; i < population.getSize(); i++) {
+                    best = Math.min(best, population.getObjective(i, 0));
+                }
+                if (best <= TARGET) {
+                    evaluationsToTarget = ie.getEvaluationCount();
+                }
+            }
+            final double millis = (System.nanoTime() - begin) / 1e6;
+            System.out.printf("%-10s %4d %-15s %8d %12.4f %10s %12.3e%n", name, dim, implementation, generations,
+                    millis / generations, evaluationsToTarget < 0 ? "-" : String.valueOf(evaluationsToTarget), best);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.examples.bootstrap;
+
+import pl.a2s.ms.core.mw.MWPolicyHelper;
+import pl.a2s.ms.core.mw.UtilFunctions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the incremental greedy CC of {@link MWPolicyHelper#greedyCC(int[][], int)} with
+ * the previous implementation, which scored every trial winner set from scratch.
+ * As in MWEA, half of the pool is selected. The previous implementation is run only
+ * for pools up to {@link #NAIVE_MAX_SIZE}, above that it takes minutes or more.
+ */
+public class BenchGreedyCC {
+
+    public static final int[] POOL_SIZES = {50, 100, 200, 500, 1000, 2000};
+    public static final int NAIVE_MAX_SIZE = 200;
+    public static final int DIM = 2;
+    public static final int REPETITIONS = 3;
+
+    public static void main(String[] args) {
+        final Random rand = new Random(1);
+        final MWPolicyHelper helper = new MWPolicyHelper(UtilFunctions.polyPlus1(1, 1), rand);
+        System.out.printf("%6s %6s %14s %14s %10s%n", "pool", "k", "naive [ms]", "incr. [ms]", "speedup");
+        for (final int n : POOL_SIZES) {
+            final int k = n / 2;
+            final double[] F = new double[n];
+            final double[] X = new double[n * DIM];
+            for (int i = 0; i < n; i++) {
+                F[i] = 1 + rand.nextInt(5);
+            }
+            for (int i = 0; i < X.length; i++) {
+                X[i] = rand.nextDouble();
+            }
+            final int[][] P = helper.computePrefOrders(helper.computeUtilities(F, X, DIM));
+
+            int[] incremental = null;
+            long incrementalNanos = Long.MAX_VALUE;
+            for (int r = 0; r < REPETITIONS; r++) {
+                final long start = System.nanoTime();
+                incremental = helper.greedyCC(P, k);
+                incrementalNanos = Math.min(incrementalNanos, System.nanoTime() - start);
+            }
+            if (n <= NAIVE_MAX_SIZE) {
+                final long start = System.nanoTime();
+                final int[] naive = naiveGreedyCC(helper, P, k);
+                final long naiveNanos = System.nanoTime() - start;
+                if (!Arrays.equals(naive, incremental)) {
+                    throw new IllegalStateException("Different winners for pool of " + n);
+                }
+                System.out.printf("%6d %6d %14.2f %14.2f %10.1f%n", n, k, naiveNanos / 1e6,
+                        incrementalNanos / 1e6, (double) naiveNanos / incrementalNanos);
+            } else {
+                System.out.printf("%6d %6d %14s %14.2f %10s%n", n, k, "-", incrementalNanos / 1e6, "-");
+            }
+        }
+    }
+
+    private static int[] naiveGreedyCC(MWPolicyHelper helper, int[][] P, int k) {
+        final int m = P[0].length;
+        final List<Integer> C = new ArrayList<>(m);
+        for (int c = 0; c < m; c++) {
+            C.add(c);
+        }
+        final int[] W = new int[k];
+        for (int i = 0; i < k; i++) {
+            int bestScore = -1;
+            int bestCandidate = -1;
+            for (final int j : C) {
+                W[i] = j;
+                final int s = helper.ccScoreProfile(P, W, i + 1);
+                if (s > bestScore) {
+                    bestScore = s;
+                    bestCandidate = j;
+                }
+            }
+            W[i] = bestCandidate;
+            C.remove(Integer.valueOf(bestCandidate));
+        }
+        return W;
+    }
+
+}
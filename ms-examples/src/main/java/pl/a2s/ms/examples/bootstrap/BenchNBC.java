@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package pl.a2s.ms.examples.bootstrap;
+
+import pl.a2s.ms.core.clu.Cluster;
+import pl.a2s.ms.core.clu.NearestBetterClusterer;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.SimpleIndividual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures {@link NearestBetterClusterer} on archive-sized samples of the Rastrigin function.
+ * From {@link NearestBetterClusterer#INDEX_THRESHOLD} points the nearest better nodes are found
+ * with a spatial index instead of comparing all pairs.
+ */
+public class BenchNBC {
+
+    public static final int[] SAMPLE_SIZES = {1000, 10000, 100000};
+    public static final int[] DIMS = {2, 5, 10};
+
+    public static void main(String[] args) {
+        Logger.getLogger(NearestBetterClusterer.class.getName()).setLevel(Level.WARNING);
+        final Random rand = new Random(1);
+        System.out.printf("%4s %8s %10s %10s%n", "dim", "sample", "time [ms]", "clusters");
+        for (final int dim : DIMS) {
+            for (final int n : SAMPLE_SIZES) {
+                final List<Individual> sample = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    final double[] x = new double[dim];
+                    double f = 10 * dim;
+                    for (int k = 0; k < dim; k++) {
+                        x[k] = rand.nextDouble() * 10.24 - 5.12;
+                        f += x[k] * x[k] - 10 * Math.cos(2 * Math.PI * x[k]);
+                    }
+                    final Individual ind = new SimpleIndividual(x);
+                    ind.setObjectives(new double[] {f});
+                    sample.add(ind);
+                }
+                final long start = System.nanoTime();
+                final List<Cluster> clusters = NearestBetterClusterer.createForParameters(dim, n).clusterize(sample);
+                final long nanos = System.nanoTime() - start;
+                System.out.printf("%4d %8d %10.1f %10d%n", dim, n, nanos / 1e6, clusters.size());
+            }
+        }
+    }
+
+}
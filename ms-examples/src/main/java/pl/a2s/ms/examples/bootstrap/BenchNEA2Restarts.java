@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 A2S
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package pl.a2s.ms.examples.bootstrap;
+
+import lombok.val;
+import org.apache.commons.math3.util.MathArrays;
+import pl.a2s.ms.core.analysis.MinimumInfo;
+import pl.a2s.ms.core.cmaes.CMAESOptimizer;
+import pl.a2s.ms.core.conf.ChainedOC;
+import pl.a2s.ms.core.ind.Individual;
+import pl.a2s.ms.core.ind.Population;
+import pl.a2s.ms.core.obj.TransformedObjectiveCalculator;
+import pl.a2s.ms.core.orch.NEA2Orchestrator;
+import pl.a2s.ms.core.orch.nea2.BipopRestartScheduler;
+import pl.a2s.ms.core.orch.nea2.CMAState;
+import pl.a2s.ms.core.orch.nea2.FixedRestartScheduler;
+import pl.a2s.ms.core.orch.nea2.IpopRestartScheduler;
+import pl.a2s.ms.core.orch.nea2.NEA2State;
+import pl.a2s.ms.core.orch.nea2.RestartScheduler;
+import pl.a2s.ms.core.orch.nea2.RunParameters;
+import pl.a2s.ms.examples.analysis.MinimaInfoAnalyser;
+import pl.a2s.ms.examples.obj.FlatRastrigin;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static pl.a2s.ms.examples.bootstrap.OCs.fe;
+import static pl.a2s.ms.examples.bootstrap.OCs.flatRastrigin4D;
+import static pl.a2s.ms.examples.bootstrap.OCs.nea2;
+
+/**
+ * Compares the {@link RestartScheduler}s of NEA2 on FlatRastrigin4D by the number of minima covered
+ * by the final CMA-ES populations at equal budgets, averaged over {@link #SEEDS} seeds,
+ * and by the share of the budget used by every regime.
+ */
+public class BenchNEA2Restarts {
+
+    public static final int[] BUDGETS = {50000, 100000, 200000};
+    public static final int SEEDS = 5;
+    public static final double COVERED_REGION_RADIUS = 2;
+
+    /// kept referenced, so that the levels aren't lost
+    private static final Logger[] LOGGERS = {
+            Logger.getLogger(NEA2Orchestrator.class.getName()),
+            Logger.getLogger(CMAESOptimizer.class.getName()),
+            Logger.getLogger(MinimaInfoAnalyser.class.getName())
+    };
+
+    public static void main(String[] args) {
+        for (final Logger logger : LOGGERS) {
+            logger.setLevel(Level.WARNING);
+        }
+        val calc = new TransformedObjectiveCalculator(new FlatRastrigin(), new double[] { 10., 2., 2., 2. });
+        System.out.printf("%-14s %8s %10s %8s %8s %8s%n", "scheduler", "budget", "minima", "default", "large", "small");
+        run("fixed", FixedRestartScheduler::new, 0, calc);
+        run("ipop", IpopRestartScheduler::new, 0, calc);
+        run("bipop", BipopRestartScheduler::new, 0, calc);
+        run("fixed+avoid", FixedRestartScheduler::new, COVERED_REGION_RADIUS, calc);
+        run("bipop+avoid", BipopRestartScheduler::new, COVERED_REGION_RADIUS, calc);
+    }
+
+    private static void run(String name, Supplier<RestartScheduler> scheduler, double coveredRegionRadius, TransformedObjectiveCalculator calc) {
+        for (final int budget : BUDGETS) {
+            double minima = 0;
+            final double[] regimeShare = new double[RunParameters.Regime.values().length];
+            for (int seed = 0; seed < SEEDS; seed++) {
+                nea2.setBudget(budget);
+                nea2.setRestartScheduler(scheduler.get());
+                nea2.setCoveredRegionRadius(coveredRegionRadius);
+                final int s = seed;
+                final NEA2Orchestrator orch = new NEA2Orchestrator(ChainedOC.of(
+                        o -> ((NEA2Orchestrator) o).setRand(new Random(s)), flatRastrigin4D, fe, nea2));
+                orch.run();
+                final NEA2State state = orch.getState();
+                minima += coveredMinima(state, calc.getMinimaInfo(state.getDomain()));
+                final Map<RunParameters.Regime, Long> used = state.evaluationCountByRegime();
+                final long total = used.values().stream().mapToLong(Long::longValue).sum();
+                for (final RunParameters.Regime regime : RunParameters.Regime.values()) {
+                    regimeShare[regime.ordinal()] += 1. * used.get(regime) / total;
+                }
+            }
+            System.out.printf("%-14s %8d %10.1f %8.2f %8.2f %8.2f%n", name, budget, minima / SEEDS,
+                    regimeShare[0] / SEEDS, regimeShare[1] / SEEDS, regimeShare[2] / SEEDS);
+        }
+    }
+
+    /**
+     * Counts the minima lying close to a good enough individual of a final CMA-ES population,
+     * the same way as {@link MinimaInfoAnalyser}.
+     */
+    private static int coveredMinima(NEA2State state, List<MinimumInfo> minimaInfo) {
+        final Set<MinimumInfo> covered = new HashSet<>();
+        for (val run : state.getRuns()) {
+            for (final CMAState cmaState : run.getCmaState()) {
+                if (cmaState.getPopulations().isEmpty()) {
+                    continue;
+                }
+                final Population last = cmaState.getPopulations().get(cmaState.getPopulations().size() - 1);
+                for (final Individual ind : last.getIndividuals()) {
+                    for (final MinimumInfo info : minimaInfo) {
+                        if (MathArrays.distance(info.getPoint(), ind.getPoint()) <= info.getDistance()
+                                && ind.getObjectives()[0] < info.getTolerance()) {
+                            covered.add(info);
+                        }
+                    }
+                }
+            }
+        }
+        return covered.size();
+    }
+
+}
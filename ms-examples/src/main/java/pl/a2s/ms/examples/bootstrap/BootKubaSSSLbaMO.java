@@ -48,7 +48,7 @@ public class BootKubaSSSLbaMO {
         lba.setUtilFunction(UTIL_FUNCTION);
         lba.setRunPostInverted(true);
         final OrchestratorConfigurer oc = ChainedOC.of(moKuba, fe, hms,
-                initialPopulation, lba, archive);
+                initialPopulation, lba, archive, packHistory);
         try (HgsRunner runner = new HgsRunner(NUMBER_OF_RUNS, oc)) {
             runner.run();
         }
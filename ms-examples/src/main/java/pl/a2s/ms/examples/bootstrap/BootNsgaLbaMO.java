@@ -18,8 +18,6 @@
 package pl.a2s.ms.examples.bootstrap;
 
 import pl.a2s.ms.core.conf.ChainedOC;
-import pl.a2s.ms.core.ie.IndividualEvaluator;
-import pl.a2s.ms.core.ie.ParallelIndividualEvaluator;
 import pl.a2s.ms.core.orch.HgsOrchestrator;
 
 import java.io.IOException;
@@ -56,10 +54,7 @@ public class BootNsgaLbaMO {
         try {
             orch.run();
         } finally {
-            final IndividualEvaluator ie = orch.getIndividualEvaluator();
-            if (ie instanceof ParallelIndividualEvaluator) {
-                ((ParallelIndividualEvaluator) ie).getExecutorService().shutdown();
-            }
+            orch.getIndividualEvaluator().shutdown();
         }
     }
 }
@@ -49,6 +49,7 @@ public class OCs {
 
     public final static FitnessExtractorOC fe = new FitnessExtractorOC();
     public final static InitialPopulationOC initialPopulation = new InitialPopulationOC();
+    public final static PackHistoryOC packHistory = new PackHistoryOC();
 
     public final static HmsSeaOC hmsSea = new HmsSeaOC();
     public final static HmsSea2LevelOC hmsSea2Level = new HmsSea2LevelOC();
@@ -18,6 +18,7 @@
 package pl.a2s.ms.examples.conf.hgs;
 
 import lombok.RequiredArgsConstructor;
+import pl.a2s.ms.core.archive.NDTreeArchive;
 import pl.a2s.ms.core.archive.RankingArchive;
 import pl.a2s.ms.core.conf.hgs.HgsOrchestratorConfigurer;
 import pl.a2s.ms.core.orch.HgsOrchestrator;
@@ -28,11 +29,17 @@ import pl.a2s.ms.core.util.ArraysUtil;
 public class ArchiveOC extends HgsOrchestratorConfigurer {
 
     private final int maxRank;
+    /// use the incremental ND-Tree based archive instead of the re-ranking one
+    private final boolean ndTree;
+
+    public ArchiveOC(int maxRank) {
+        this(maxRank, false);
+    }
 
     @Override
     protected void doConfigure(HgsOrchestrator orchestrator) {
         final HgsState state = orchestrator.state;
-        state.setArchive(new RankingArchive(true, maxRank));
+        state.setArchive(ndTree ? new NDTreeArchive(true, maxRank) : new RankingArchive(true, maxRank));
         ArraysUtil.last(state.getHgsDemes()).setArchived(true);
     }
 
@@ -20,6 +20,8 @@ package pl.a2s.ms.examples.conf.hgs;
 import static org.apache.commons.math3.util.FastMath.*;
 
 import pl.a2s.ms.core.cmaes.CMAES;
+import pl.a2s.ms.core.cmaes.CMAESImplementation;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.conf.hgs.HgsOrchestratorConfigurer;
 import pl.a2s.ms.core.ea.EvoAlg;
 import pl.a2s.ms.core.ea.SEA;
@@ -45,6 +47,8 @@ import lombok.Setter;
 public class HmsCmaEsOC extends HgsOrchestratorConfigurer {
 
     @Setter private int budget;
+    @Setter private CMAESImplementation cmaesImplementation = CMAESImplementation.MATRIX;
+    @Setter private boolean stopDuplicateDemes = false;
 
     @Override
     protected void doConfigure(HgsOrchestrator orch) {
@@ -58,9 +62,11 @@ public class HmsCmaEsOC extends HgsOrchestratorConfigurer {
         final double dimMultiplier = Math.pow(dim, .5);
 
         final Level[] hgsDemes = new Level[2];
+        final CMAES cmaes = new CMAES(0.5, -1, orch.rand, orch.individualEvaluator, orch.fitnessExtractor);
+        cmaes.setImplementation(cmaesImplementation);
         final EvoAlg[] eas = new EvoAlg[] {
                 new SEA(0.1, 0.5, 8.0 / dimMultiplier, orch.rand, orch.fitnessExtractor),
-                new CMAES(0.5, -1, orch.rand, orch.individualEvaluator, orch.fitnessExtractor)
+                cmaes
         };
         final LocalStopCondition[] lscs = new LocalStopCondition[] {
                 new TrivialLSC(),
@@ -81,6 +87,7 @@ public class HmsCmaEsOC extends HgsOrchestratorConfigurer {
         }
         state.setHgsDemes(hgsDemes);
         state.setEpoch(0);
+        state.setRedundancyDetector(stopDuplicateDemes ? new RedundancyDetector() : null);
     }
 
 }
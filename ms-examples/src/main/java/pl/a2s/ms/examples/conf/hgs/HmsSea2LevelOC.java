@@ -30,6 +30,7 @@ import pl.a2s.ms.core.lsc.OrLSC;
 import pl.a2s.ms.core.orch.HgsOrchestrator;
 import pl.a2s.ms.core.orch.hgs.Level;
 import pl.a2s.ms.core.orch.hgs.HgsState;
+import pl.a2s.ms.core.sprout.conflict.DemeDistanceConflictResolver;
 import pl.a2s.ms.core.sprout.generator.BasicSprouter;
 import pl.a2s.ms.core.sprout.generator.NoSprouter;
 import pl.a2s.ms.core.sprout.generator.Sprouter;
@@ -39,9 +40,13 @@ import pl.a2s.ms.core.sprout.reducer.NoSproutReducer;
 import pl.a2s.ms.core.sprout.reducer.SeedDistanceSproutReducer;
 import pl.a2s.ms.core.sprout.reducer.SproutReducer;
 import pl.a2s.ms.core.util.ArraysUtil;
+import lombok.Setter;
 
 public class HmsSea2LevelOC extends HgsOrchestratorConfigurer {
 
+    /// centroid distance below which leaf demes are in conflict, 0 disables the resolution
+    @Setter private double demeConflictDistance = 0;
+
     @Override
     protected void doConfigure(HgsOrchestrator orch) {
         final HgsState state = orch.state;
@@ -78,6 +83,9 @@ public class HmsSea2LevelOC extends HgsOrchestratorConfigurer {
         for (int i = 0; i < hgsDemes.length; i++) {
             hgsDemes[i] = new Level(i, eas[i], lscs[i], sprouters[i], sproutReducers[i], -1);
         }
+        if (demeConflictDistance > 0) {
+            hgsDemes[1].setDemeConflictResolver(new DemeDistanceConflictResolver(demeConflictDistance));
+        }
         state.setHgsDemes(hgsDemes);
         state.setEpoch(0);
     }
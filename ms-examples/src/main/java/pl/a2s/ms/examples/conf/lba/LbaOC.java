@@ -17,10 +17,9 @@
 
 package pl.a2s.ms.examples.conf.lba;
 
-import pl.a2s.ms.core.clu.Cluster;
-import pl.a2s.ms.core.clu.ClusterMergeChecker;
+import pl.a2s.ms.core.clu.ClusterMergeStrategies;
 import pl.a2s.ms.core.clu.HillValleyChecker;
-import pl.a2s.ms.core.clu.PairwiseNeighborConsolidator;
+import pl.a2s.ms.core.clu.IncrementalNeighborConsolidator;
 import pl.a2s.ms.core.conf.lba.LbaOrchestratorConfigurer;
 import pl.a2s.ms.core.ea.MWEAFactory;
 import pl.a2s.ms.core.lsc.EpochCountLSC;
@@ -50,8 +49,9 @@ public class LbaOC extends LbaOrchestratorConfigurer {
         lbaState.setDomain(orch.getDomain());
         lbaState.setPopulationSize(0);
 
-        final ClusterMergeChecker checker = new HillValleyChecker(3, 0.1, orch.getIndividualEvaluator());
-        lbaState.setConsolidator(new PairwiseNeighborConsolidator(10., checker, Cluster::merge));
+        final HillValleyChecker checker = new HillValleyChecker(3, 0.1, orch.getIndividualEvaluator(), true);
+        checker.setPrecision(lbaState::getPrecision);
+        lbaState.setConsolidator(new IncrementalNeighborConsolidator(10., checker, ClusterMergeStrategies.UNION));
 
         final MWPolicy mwPolicy = new GreedyCCMWPolicy(utilFunction, orch.getRand());
         lbaState.setEvoAlgFactory(new MWEAFactory(0.1, mwPolicy, orch.getIndividualEvaluator(), orch.getRand()));
@@ -17,19 +17,33 @@
 
 package pl.a2s.ms.examples.conf.nea2;
 
+import pl.a2s.ms.core.cmaes.CMAESImplementation;
+import pl.a2s.ms.core.cmaes.RedundancyDetector;
 import pl.a2s.ms.core.conf.nea2.NEA2OrchestratorConfigurer;
 import pl.a2s.ms.core.orch.NEA2Orchestrator;
+import pl.a2s.ms.core.orch.nea2.FixedRestartScheduler;
+import pl.a2s.ms.core.orch.nea2.RestartScheduler;
 import lombok.Setter;
 
 public class NEA2OC extends NEA2OrchestratorConfigurer {
 
     @Setter private int budget;
+    @Setter private CMAESImplementation cmaesImplementation = CMAESImplementation.MATRIX;
+    @Setter private RestartScheduler restartScheduler = new FixedRestartScheduler();
+    @Setter private double coveredRegionRadius = 0;
+    @Setter private int clusterParallelism = 0;
+    @Setter private boolean terminateDuplicates = false;
 
     @Override
     protected void doConfigure(NEA2Orchestrator orch) {
         orch.state.setBudget(budget);
         orch.state.setInitialSigma(0.5);
         orch.state.setStopFitness(0);
+        orch.state.setCmaesImplementation(cmaesImplementation);
+        orch.state.setRestartScheduler(restartScheduler);
+        orch.state.setCoveredRegionRadius(coveredRegionRadius);
+        orch.state.setClusterParallelism(clusterParallelism);
+        orch.state.setRedundancyDetector(terminateDuplicates ? new RedundancyDetector() : null);
     }
 
 }
@@ -19,9 +19,9 @@ package pl.a2s.ms.examples.obj;
 
 import pl.a2s.ms.core.obj.AbstractGauss;
 import pl.a2s.ms.core.obj.AbstractGauss.Term;
-import pl.a2s.ms.core.obj.ObjectiveCalculator;
+import pl.a2s.ms.core.obj.ThreadSafeCalculator;
 
-public class GaussXShapeMixed2D implements ObjectiveCalculator {
+public class GaussXShapeMixed2D implements ThreadSafeCalculator {
 
     private final Term termFlatGaussian;
     private final Term termGaussian;